@@ -1,8 +1,12 @@
 package com.salex.telegram.application;
 
+import com.salex.telegram.application.config.TelegramBotProperties;
 import com.salex.telegram.telegram.SalexTelegramBot;
+import com.salex.telegram.telegram.TelegramWebhookRegistrar;
+import com.salex.telegram.telegram.WebhookUpdateServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -12,6 +16,8 @@ import org.springframework.context.annotation.Bean;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
+import java.net.http.HttpClient;
+
 /**
  * Spring Boot application entry point that registers the Telegram bot once the context is ready.
  */
@@ -29,8 +35,16 @@ public class SalexTelegramBotApplication {
     }
 
     @Bean
-    CommandLineRunner registerBot(TelegramBotsApi telegramBotsApi, SalexTelegramBot bot) {
+    CommandLineRunner registerBot(TelegramBotsApi telegramBotsApi,
+                                  SalexTelegramBot bot,
+                                  TelegramBotProperties properties,
+                                  ObjectProvider<WebhookUpdateServer> webhookUpdateServer,
+                                  HttpClient httpClient) {
         return args -> {
+            if (properties.getMode() == TelegramBotProperties.Mode.WEBHOOK) {
+                startWebhook(bot, properties, webhookUpdateServer.getObject(), httpClient);
+                return;
+            }
             try {
                 telegramBotsApi.registerBot(bot);
                 log.info("Bot registered with username {}", bot.getBotUsername());
@@ -40,4 +54,25 @@ public class SalexTelegramBotApplication {
             }
         };
     }
+
+    private void startWebhook(SalexTelegramBot bot,
+                              TelegramBotProperties properties,
+                              WebhookUpdateServer server,
+                              HttpClient httpClient) throws Exception {
+        server.start();
+        TelegramBotProperties.Webhook webhook = properties.getWebhook();
+        String publicUrl = webhook.getPublicUrl();
+        if (publicUrl == null || publicUrl.isBlank()) {
+            log.warn("telegram.bot.webhook.public-url not set; webhook endpoint only accepts locally posted updates");
+            return;
+        }
+        try {
+            new TelegramWebhookRegistrar(bot, properties.getToken(), httpClient)
+                    .register(publicUrl, webhook.getSecretToken(), webhook.isDropPendingUpdates());
+            log.info("Bot {} receiving updates via webhook", bot.getBotUsername());
+        } catch (TelegramApiException ex) {
+            log.error("Failed to register Telegram webhook", ex);
+            throw ex;
+        }
+    }
 }
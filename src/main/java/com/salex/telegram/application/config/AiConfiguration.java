@@ -1,14 +1,23 @@
 package com.salex.telegram.application.config;
 
 import com.salex.telegram.conversation.ChatCompletionClient;
+import com.salex.telegram.conversation.ConcurrencyLimitedChatCompletionClient;
 import com.salex.telegram.conversation.OpenAIChatCompletionClient;
+import com.salex.telegram.conversation.PacedChatCompletionClient;
+import com.salex.telegram.conversation.ResilientChatCompletionClient;
+import com.salex.telegram.conversation.RoutingChatCompletionClient;
+import com.salex.telegram.infrastructure.ratelimit.AdaptiveConcurrencyLimiter;
+import com.salex.telegram.infrastructure.ratelimit.OpenAiRateLimitTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
 
+import java.net.URI;
 import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Registers AI-related collaborators such as the OpenAI chat completion client.
@@ -16,6 +25,8 @@ import java.net.http.HttpClient;
 @Configuration
 public class AiConfiguration {
     private static final Logger log = LoggerFactory.getLogger(AiConfiguration.class);
+    private static final String DEFAULT_CHAT_MODEL = "gpt-4o-mini";
+    private static final String OPENAI_CHAT_COMPLETIONS_URL = "https://api.openai.com/v1/chat/completions";
 
     @Bean
     HttpClient httpClient() {
@@ -23,7 +34,12 @@ public class AiConfiguration {
     }
 
     @Bean
-    ChatCompletionClient chatCompletionClient(Environment environment, HttpClient httpClient) {
+    ChatCompletionClient chatCompletionClient(Environment environment,
+                                              HttpClient httpClient,
+                                              ChatCompletionResilienceProperties resilience,
+                                              ChatCompletionRoutingProperties routing,
+                                              OpenAiConcurrencyProperties concurrency,
+                                              OpenAiRateLimitProperties rateLimit) {
         String apiKey = firstNonBlank(environment.getProperty("OPENAI_API_KEY"),
                 System.getenv("OPENAI_API_KEY"));
         if (apiKey == null) {
@@ -32,13 +48,72 @@ public class AiConfiguration {
                 throw new IllegalStateException("OPENAI_API_KEY not configured");
             };
         }
-        String model = firstNonBlank(environment.getProperty("OPENAI_CHAT_MODEL"),
+        OpenAiRateLimitTracker rateLimits = rateLimit.isEnabled()
+                ? new OpenAiRateLimitTracker(new OpenAiRateLimitTracker.Settings(rateLimit.getHeadroom(), rateLimit.getMaxDelay()))
+                : null;
+        ChatCompletionClient client = new OpenAIChatCompletionClient(httpClient, apiKey, chatModel(environment),
+                URI.create(OPENAI_CHAT_COMPLETIONS_URL), rateLimits);
+        if (concurrency.getChat().isEnabled()) {
+            client = new ConcurrencyLimitedChatCompletionClient(client,
+                    new AdaptiveConcurrencyLimiter("chat completion", concurrency.getChat().toSettings()));
+        }
+        if (rateLimits != null) {
+            // Outside the limiter, so requests waiting for quota do not hold concurrency slots.
+            client = new PacedChatCompletionClient(client, rateLimits);
+        }
+        if (!routing.getEndpoints().isEmpty()) {
+            client = routingClient(client, httpClient, routing);
+        }
+        if (!resilience.isEnabled()) {
+            return client;
+        }
+        return new ResilientChatCompletionClient(client, new ResilientChatCompletionClient.Settings(
+                resilience.getAttemptTimeout(),
+                resilience.getMaxAttempts(),
+                resilience.getInitialBackoff(),
+                resilience.getMaxBackoff(),
+                resilience.getFailureThreshold(),
+                resilience.getOpenDuration(),
+                resilience.isHedgingEnabled(),
+                resilience.getMinHedgeDelay(),
+                resilience.getLatencySamples(),
+                resilience.getMinLatencySamples()));
+    }
+
+    /**
+     * Puts the default OpenAI endpoint first and the configured OpenAI-compatible endpoints after it.
+     */
+    private static ChatCompletionClient routingClient(ChatCompletionClient openAi,
+                                                      HttpClient httpClient,
+                                                      ChatCompletionRoutingProperties routing) {
+        List<RoutingChatCompletionClient.Endpoint> endpoints = new ArrayList<>();
+        endpoints.add(new RoutingChatCompletionClient.Endpoint("openai", openAi));
+        for (ChatCompletionRoutingProperties.Endpoint endpoint : routing.getEndpoints()) {
+            String name = firstNonBlank(endpoint.getName(), endpoint.getUrl());
+            endpoints.add(new RoutingChatCompletionClient.Endpoint(name, new OpenAIChatCompletionClient(
+                    httpClient,
+                    firstNonBlank(endpoint.getApiKey(), "none"),
+                    firstNonBlank(endpoint.getModel(), DEFAULT_CHAT_MODEL),
+                    URI.create(endpoint.getUrl()))));
+        }
+        log.info("Routing chat completions across {} endpoints", endpoints.size());
+        return new RoutingChatCompletionClient(endpoints, new RoutingChatCompletionClient.Settings(
+                routing.getSmoothing(),
+                routing.getExplorationRate(),
+                routing.getFailureThreshold(),
+                routing.getCooldown()));
+    }
+
+    /**
+     * Resolves the chat model name from {@code OPENAI_CHAT_MODEL}, defaulting to {@code gpt-4o-mini}.
+     */
+    static String chatModel(Environment environment) {
+        return firstNonBlank(environment.getProperty("OPENAI_CHAT_MODEL"),
                 System.getenv("OPENAI_CHAT_MODEL"),
-                "gpt-4o-mini");
-        return new OpenAIChatCompletionClient(httpClient, apiKey, model);
+                DEFAULT_CHAT_MODEL);
     }
 
-    private String firstNonBlank(String... candidates) {
+    private static String firstNonBlank(String... candidates) {
         if (candidates == null) {
             return null;
         }
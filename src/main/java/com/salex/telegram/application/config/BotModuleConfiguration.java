@@ -1,10 +1,14 @@
 package com.salex.telegram.application.config;
 
+import com.salex.telegram.conversation.ChatCompletionClient;
+import com.salex.telegram.conversation.ConversationCompactor;
 import com.salex.telegram.conversation.ConversationContextService;
+import com.salex.telegram.conversation.TokenEstimator;
 import com.salex.telegram.infrastructure.messaging.MessageRepository;
 import com.salex.telegram.transcription.presentation.TranscriptionMessageFormatter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 /**
  * Boots the registered bot modules and exposes the module registry and command map as beans.
@@ -12,9 +16,35 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class BotModuleConfiguration {
 
+    @Bean(destroyMethod = "close")
+    ConversationCompactor conversationCompactor(ChatCompletionClient chatCompletionClient,
+                                                ConversationContextProperties properties) {
+        ConversationContextProperties.Compaction compaction = properties.getCompaction();
+        return new ConversationCompactor(chatCompletionClient,
+                compaction.getMaxConcurrent(),
+                compaction.getMaxQueued(),
+                compaction.getMaxSummaryWords());
+    }
+
     @Bean
-    ConversationContextService conversationContextService(MessageRepository messageRepository) {
-        return new ConversationContextService(messageRepository);
+    ConversationContextService conversationContextService(MessageRepository messageRepository,
+                                                          ConversationContextProperties properties,
+                                                          ConversationCompactor compactor,
+                                                          Environment environment) {
+        ConversationContextProperties.Compaction compaction = properties.getCompaction();
+        return new ConversationContextService(
+                messageRepository,
+                properties.getMaxMessages(),
+                properties.budgetFor(AiConfiguration.chatModel(environment)),
+                new TokenEstimator(),
+                new ConversationContextService.CacheLimits(
+                        properties.getMaxConversations(),
+                        properties.getMaxCacheSize().toBytes(),
+                        properties.getIdleTtl()),
+                compaction.isEnabled()
+                        ? new ConversationContextService.Compaction(compactor,
+                        compaction.getTriggerMessages(), compaction.getKeepMessages())
+                        : null);
     }
 
     @Bean
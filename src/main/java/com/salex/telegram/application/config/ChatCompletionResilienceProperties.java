@@ -0,0 +1,134 @@
+package com.salex.telegram.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Timeouts, retries, circuit breaking and hedging applied to chat completion requests.
+ */
+@ConfigurationProperties(prefix = "bot.conversation.resilience")
+public class ChatCompletionResilienceProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Longest a single request may run before it is cancelled.
+     */
+    private Duration attemptTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Attempts per completion, including the first.
+     */
+    private int maxAttempts = 3;
+
+    private Duration initialBackoff = Duration.ofMillis(500);
+    private Duration maxBackoff = Duration.ofSeconds(8);
+
+    /**
+     * Consecutive provider failures that open the circuit.
+     */
+    private int failureThreshold = 5;
+
+    /**
+     * How long an open circuit fails requests before letting a trial request through.
+     */
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    /**
+     * Sends a second request when the first is still running after the recent p95 latency.
+     */
+    private boolean hedgingEnabled = false;
+
+    private Duration minHedgeDelay = Duration.ofSeconds(2);
+    private int latencySamples = 200;
+    private int minLatencySamples = 20;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getAttemptTimeout() {
+        return attemptTimeout;
+    }
+
+    public void setAttemptTimeout(Duration attemptTimeout) {
+        this.attemptTimeout = attemptTimeout;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public boolean isHedgingEnabled() {
+        return hedgingEnabled;
+    }
+
+    public void setHedgingEnabled(boolean hedgingEnabled) {
+        this.hedgingEnabled = hedgingEnabled;
+    }
+
+    public Duration getMinHedgeDelay() {
+        return minHedgeDelay;
+    }
+
+    public void setMinHedgeDelay(Duration minHedgeDelay) {
+        this.minHedgeDelay = minHedgeDelay;
+    }
+
+    public int getLatencySamples() {
+        return latencySamples;
+    }
+
+    public void setLatencySamples(int latencySamples) {
+        this.latencySamples = latencySamples;
+    }
+
+    public int getMinLatencySamples() {
+        return minLatencySamples;
+    }
+
+    public void setMinLatencySamples(int minLatencySamples) {
+        this.minLatencySamples = minLatencySamples;
+    }
+}
@@ -0,0 +1,122 @@
+package com.salex.telegram.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Additional OpenAI-compatible endpoints and the settings used to route completions between them. The
+ * OpenAI endpoint configured through {@code OPENAI_API_KEY} is always the first endpoint; routing is only
+ * enabled when at least one more is listed here.
+ */
+@ConfigurationProperties(prefix = "bot.conversation.routing")
+public class ChatCompletionRoutingProperties {
+
+    private List<Endpoint> endpoints = new ArrayList<>();
+
+    /**
+     * Weight of the newest sample in the per-endpoint latency and error averages.
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * Share of requests sent to a random endpoint to keep the statistics of the others fresh.
+     */
+    private double explorationRate = 0.05;
+
+    /**
+     * Consecutive failures after which an endpoint is skipped for the cooldown.
+     */
+    private int failureThreshold = 3;
+
+    private Duration cooldown = Duration.ofSeconds(30);
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(List<Endpoint> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    public double getExplorationRate() {
+        return explorationRate;
+    }
+
+    public void setExplorationRate(double explorationRate) {
+        this.explorationRate = explorationRate;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public Duration getCooldown() {
+        return cooldown;
+    }
+
+    public void setCooldown(Duration cooldown) {
+        this.cooldown = cooldown;
+    }
+
+    /**
+     * One OpenAI-compatible chat completions endpoint.
+     */
+    public static class Endpoint {
+        private String name;
+
+        /**
+         * Full chat completions URL, for example {@code http://llm.internal:8000/v1/chat/completions}.
+         */
+        private String url;
+
+        private String apiKey;
+        private String model;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        public void setApiKey(String apiKey) {
+            this.apiKey = apiKey;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public void setModel(String model) {
+            this.model = model;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.salex.telegram.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controls how much conversation history is sent with each chat completion request.
+ */
+@ConfigurationProperties(prefix = "bot.conversation.context")
+public class ConversationContextProperties {
+
+    /**
+     * Upper bound on messages cached per conversation, regardless of their size.
+     */
+    private int maxMessages = 40;
+
+    /**
+     * Estimated prompt tokens a request may use when the chat model has no entry in {@link #modelBudgets}.
+     */
+    private int tokenBudget = 4_000;
+
+    /**
+     * Prompt token budgets keyed by chat model name.
+     */
+    private Map<String, Integer> modelBudgets = new HashMap<>();
+
+    /**
+     * Conversations whose history is kept in memory at most.
+     */
+    private int maxConversations = 10_000;
+
+    /**
+     * Estimated heap the cached histories may retain.
+     */
+    private DataSize maxCacheSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Time without activity after which a conversation's history is dropped from memory.
+     */
+    private Duration idleTtl = Duration.ofMinutes(30);
+
+    private final Compaction compaction = new Compaction();
+
+    /**
+     * @param model chat model the requests are sent to
+     * @return prompt token budget for the model
+     */
+    public int budgetFor(String model) {
+        Integer budget = model != null ? modelBudgets.get(model) : null;
+        return budget != null ? budget : tokenBudget;
+    }
+
+    public Compaction getCompaction() {
+        return compaction;
+    }
+
+    public int getMaxConversations() {
+        return maxConversations;
+    }
+
+    public void setMaxConversations(int maxConversations) {
+        this.maxConversations = maxConversations;
+    }
+
+    public DataSize getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    public void setMaxCacheSize(DataSize maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    public Duration getIdleTtl() {
+        return idleTtl;
+    }
+
+    public void setIdleTtl(Duration idleTtl) {
+        this.idleTtl = idleTtl;
+    }
+
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    public void setMaxMessages(int maxMessages) {
+        this.maxMessages = maxMessages;
+    }
+
+    public int getTokenBudget() {
+        return tokenBudget;
+    }
+
+    public void setTokenBudget(int tokenBudget) {
+        this.tokenBudget = tokenBudget;
+    }
+
+    public Map<String, Integer> getModelBudgets() {
+        return modelBudgets;
+    }
+
+    public void setModelBudgets(Map<String, Integer> modelBudgets) {
+        this.modelBudgets = modelBudgets;
+    }
+
+    /**
+     * Background summarization of the oldest turns of long conversations.
+     */
+    public static class Compaction {
+        private boolean enabled = true;
+
+        /**
+         * History size at which the oldest turns are summarized; should stay below {@code maxMessages}.
+         */
+        private int triggerMessages = 24;
+
+        /**
+         * Most recent messages kept verbatim after a compaction.
+         */
+        private int keepMessages = 8;
+
+        /**
+         * Length the model is asked to keep summaries under.
+         */
+        private int maxSummaryWords = 150;
+
+        private int maxConcurrent = 2;
+        private int maxQueued = 100;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getTriggerMessages() {
+            return triggerMessages;
+        }
+
+        public void setTriggerMessages(int triggerMessages) {
+            this.triggerMessages = triggerMessages;
+        }
+
+        public int getKeepMessages() {
+            return keepMessages;
+        }
+
+        public void setKeepMessages(int keepMessages) {
+            this.keepMessages = keepMessages;
+        }
+
+        public int getMaxSummaryWords() {
+            return maxSummaryWords;
+        }
+
+        public void setMaxSummaryWords(int maxSummaryWords) {
+            this.maxSummaryWords = maxSummaryWords;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.salex.telegram.infrastructure.messaging.MessageRepository;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.sql.Connection;
+import java.time.Duration;
 import java.util.Optional;
 
 /**
@@ -26,6 +27,20 @@ public class DatabaseConfiguration {
      */
     private int validationTimeoutSeconds = 2;
 
+    /**
+     * How often idle connections are validated in the background instead of on every use; {@code 0} relies on
+     * failing statements alone. The pool ignores intervals below 30 seconds.
+     */
+    private Duration healthCheckInterval = Duration.ofSeconds(30);
+
+    private final Pool pool = new Pool();
+
+    private final WriteBehind writeBehind = new WriteBehind();
+
+    private final Failover failover = new Failover();
+
+    private final UserCache userCache = new UserCache();
+
     public Optional<String> jdbcUrl() {
         return Optional.ofNullable(jdbcUrl).filter(value -> !value.isBlank());
     }
@@ -61,4 +76,266 @@ public class DatabaseConfiguration {
     public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
         this.validationTimeoutSeconds = validationTimeoutSeconds;
     }
+
+    public Duration getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    public void setHealthCheckInterval(Duration healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public WriteBehind getWriteBehind() {
+        return writeBehind;
+    }
+
+    public Failover getFailover() {
+        return failover;
+    }
+
+    public UserCache getUserCache() {
+        return userCache;
+    }
+
+    /**
+     * Connection pool shared by the JDBC repositories. When disabled, they share one connection that is
+     * re-established when it breaks.
+     */
+    public static class Pool {
+
+        private boolean enabled = true;
+
+        /**
+         * Most connections the pool opens.
+         */
+        private int maxSize = 10;
+
+        /**
+         * Idle connections kept ready.
+         */
+        private int minIdle = 2;
+
+        /**
+         * Longest a caller waits for a free connection.
+         */
+        private Duration connectionTimeout = Duration.ofSeconds(5);
+
+        /**
+         * How long a connection above the idle minimum may sit unused before it is closed.
+         */
+        private Duration idleTimeout = Duration.ofMinutes(10);
+
+        /**
+         * Age after which a connection is retired; keep it below any database or proxy connection timeout.
+         */
+        private Duration maxLifetime = Duration.ofMinutes(30);
+
+        /**
+         * How long a connection may be held before a possible leak is logged; {@code 0} disables the check.
+         */
+        private Duration leakDetectionThreshold = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public int getMinIdle() {
+            return minIdle;
+        }
+
+        public void setMinIdle(int minIdle) {
+            this.minIdle = minIdle;
+        }
+
+        public Duration getConnectionTimeout() {
+            return connectionTimeout;
+        }
+
+        public void setConnectionTimeout(Duration connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public Duration getMaxLifetime() {
+            return maxLifetime;
+        }
+
+        public void setMaxLifetime(Duration maxLifetime) {
+            this.maxLifetime = maxLifetime;
+        }
+
+        public Duration getLeakDetectionThreshold() {
+            return leakDetectionThreshold;
+        }
+
+        public void setLeakDetectionThreshold(Duration leakDetectionThreshold) {
+            this.leakDetectionThreshold = leakDetectionThreshold;
+        }
+    }
+
+    /**
+     * Batched background persistence of conversation history, keeping inserts off the reply path.
+     */
+    public static class WriteBehind {
+
+        private boolean enabled = true;
+
+        /**
+         * Messages written with one statement.
+         */
+        private int batchSize = 100;
+
+        /**
+         * Longest a message stays queued before it is written.
+         */
+        private Duration flushInterval = Duration.ofMillis(500);
+
+        /**
+         * Messages held in memory before callers are slowed down.
+         */
+        private int maxQueued = 10_000;
+
+        /**
+         * Longest a caller waits for room in a full queue before writing its message itself.
+         */
+        private Duration maxBlock = Duration.ofMillis(100);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public Duration getMaxBlock() {
+            return maxBlock;
+        }
+
+        public void setMaxBlock(Duration maxBlock) {
+            this.maxBlock = maxBlock;
+        }
+    }
+
+    /**
+     * Degraded mode used when the database becomes unreachable after startup: users, tickets, sessions and
+     * history are kept in memory and written back once it answers again.
+     */
+    public static class Failover {
+
+        private boolean enabled = true;
+
+        /**
+         * How often an unreachable database is probed.
+         */
+        private Duration probeInterval = Duration.ofSeconds(5);
+
+        /**
+         * Messages buffered during an outage; the oldest are dropped beyond this.
+         */
+        private int maxBufferedMessages = 10_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getProbeInterval() {
+            return probeInterval;
+        }
+
+        public void setProbeInterval(Duration probeInterval) {
+            this.probeInterval = probeInterval;
+        }
+
+        public int getMaxBufferedMessages() {
+            return maxBufferedMessages;
+        }
+
+        public void setMaxBufferedMessages(int maxBufferedMessages) {
+            this.maxBufferedMessages = maxBufferedMessages;
+        }
+    }
+
+    /**
+     * In-process cache of resolved users, sparing returning users a database round trip per update.
+     */
+    public static class UserCache {
+
+        /**
+         * Users kept in memory; the least recently seen are dropped beyond this.
+         */
+        private int maxEntries = 10_000;
+
+        /**
+         * Time after a user's last update at which the cached record is dropped.
+         */
+        private Duration idleTtl = Duration.ofHours(1);
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getIdleTtl() {
+            return idleTtl;
+        }
+
+        public void setIdleTtl(Duration idleTtl) {
+            this.idleTtl = idleTtl;
+        }
+    }
 }
@@ -0,0 +1,127 @@
+package com.salex.telegram.application.config;
+
+import com.salex.telegram.infrastructure.ratelimit.AdaptiveConcurrencyLimiter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Adaptive concurrency limits for calls to OpenAI. Chat completions and transcriptions are limited separately
+ * so a burst of voice messages cannot starve conversations, and vice versa.
+ */
+@ConfigurationProperties(prefix = "bot.openai.concurrency")
+public class OpenAiConcurrencyProperties {
+
+    private Limit chat = new Limit(8, 64);
+    private Limit transcription = new Limit(2, 8);
+
+    public Limit getChat() {
+        return chat;
+    }
+
+    public void setChat(Limit chat) {
+        this.chat = chat;
+    }
+
+    public Limit getTranscription() {
+        return transcription;
+    }
+
+    public void setTranscription(Limit transcription) {
+        this.transcription = transcription;
+    }
+
+    public static class Limit {
+        private boolean enabled = true;
+
+        /**
+         * Concurrent requests allowed before the provider has given any feedback.
+         */
+        private int initialLimit;
+
+        private int minLimit = 1;
+        private int maxLimit;
+
+        /**
+         * Factor applied to the limit when the provider throttles, times out or fails a request.
+         */
+        private double backoffRatio = 0.7;
+
+        /**
+         * Requests allowed to wait for a free slot; further requests are rejected immediately.
+         */
+        private int maxQueued = 100;
+
+        private Duration maxWait = Duration.ofSeconds(30);
+
+        public Limit() {
+            this(8, 64);
+        }
+
+        Limit(int initialLimit, int maxLimit) {
+            this.initialLimit = initialLimit;
+            this.maxLimit = maxLimit;
+        }
+
+        AdaptiveConcurrencyLimiter.Settings toSettings() {
+            return new AdaptiveConcurrencyLimiter.Settings(
+                    initialLimit, minLimit, maxLimit, backoffRatio, maxQueued, maxWait);
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+}
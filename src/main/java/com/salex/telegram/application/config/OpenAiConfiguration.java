@@ -1,7 +1,9 @@
 package com.salex.telegram.application.config;
 
+import com.salex.telegram.infrastructure.ratelimit.AdaptiveConcurrencyLimiter;
 import com.salex.telegram.transcription.application.TranscriptionService;
 import com.salex.telegram.transcription.domain.TranscriptionClient;
+import com.salex.telegram.transcription.infrastructure.ConcurrencyLimitedTranscriptionClient;
 import com.salex.telegram.transcription.infrastructure.TelegramAudioDownloader;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,7 +13,13 @@ public class OpenAiConfiguration {
 
     @Bean
     TranscriptionService transcriptionService(TelegramAudioDownloader downloader,
-                                              TranscriptionClient client) {
+                                              TranscriptionClient client,
+                                              OpenAiConcurrencyProperties concurrency) {
+        OpenAiConcurrencyProperties.Limit limit = concurrency.getTranscription();
+        if (limit.isEnabled()) {
+            client = new ConcurrencyLimitedTranscriptionClient(client,
+                    new AdaptiveConcurrencyLimiter("transcription", limit.toSettings()));
+        }
         return new TranscriptionService(downloader, client);
     }
 }
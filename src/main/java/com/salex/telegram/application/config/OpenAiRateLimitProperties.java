@@ -0,0 +1,48 @@
+package com.salex.telegram.application.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Client-side pacing driven by the rate-limit headers OpenAI returns with every response.
+ */
+@ConfigurationProperties(prefix = "bot.openai.rate-limit")
+public class OpenAiRateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Share of the request and token limits left unused, covering requests in flight and estimation error.
+     */
+    private double headroom = 0.05;
+
+    /**
+     * Longest a request is held back; longer waits are left to the provider's 429 handling.
+     */
+    private Duration maxDelay = Duration.ofSeconds(20);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getHeadroom() {
+        return headroom;
+    }
+
+    public void setHeadroom(double headroom) {
+        this.headroom = headroom;
+    }
+
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(Duration maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+}
@@ -3,11 +3,15 @@ package com.salex.telegram.application.config;
 import com.salex.telegram.application.config.condition.JdbcConnectionAvailableCondition;
 import com.salex.telegram.infrastructure.database.ConnectionFactory;
 import com.salex.telegram.infrastructure.database.ConnectionProvider;
+import com.salex.telegram.infrastructure.database.DatabaseHealthMonitor;
+import com.salex.telegram.infrastructure.database.PooledConnectionProvider;
 import com.salex.telegram.infrastructure.database.RefreshingConnectionProvider;
 import com.salex.telegram.telegram.SalexTelegramBot;
+import com.salex.telegram.telegram.WebhookUpdateServer;
 import com.salex.telegram.transcription.infrastructure.TelegramAudioDownloader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -18,11 +22,14 @@ import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
+import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
 
 /**
- * Configures Telegram infrastructure beans such as the bots API and optional JDBC connection provider.
+ * Configures Telegram infrastructure beans such as the bots API, the optional, by default pooled, JDBC
+ * connection provider and the health monitor that switches repositories to in-memory stores during an outage.
  */
 @Configuration
 @EnableConfigurationProperties({TelegramBotProperties.class, DatabaseConfiguration.class})
@@ -34,6 +41,26 @@ public class TelegramBotConfiguration {
         return new TelegramBotsApi(DefaultBotSession.class);
     }
 
+    @Bean(destroyMethod = "stop")
+    @ConditionalOnProperty(prefix = "telegram.bot", name = "mode", havingValue = "webhook")
+    WebhookUpdateServer webhookUpdateServer(TelegramBotProperties properties, SalexTelegramBot salexTelegramBot) {
+        TelegramBotProperties.Webhook webhook = properties.getWebhook();
+        boolean published = webhook.getPublicUrl() != null && !webhook.getPublicUrl().isBlank();
+        boolean unauthenticated = webhook.getSecretToken() == null || webhook.getSecretToken().isBlank();
+        if (published && unauthenticated) {
+            throw new IllegalStateException(
+                    "telegram.bot.webhook.secret-token must be set when telegram.bot.webhook.public-url is set");
+        }
+        return new WebhookUpdateServer(
+                webhook.getHost(),
+                webhook.getPort(),
+                webhook.getPath(),
+                webhook.getSecretToken(),
+                webhook.getMaxBodyBytes(),
+                salexTelegramBot::acceptUpdate
+        );
+    }
+
     @Bean
     TelegramAudioDownloader telegramAudioDownloader(@Lazy SalexTelegramBot salexTelegramBot) {
         return new TelegramAudioDownloader(salexTelegramBot);
@@ -46,9 +73,33 @@ public class TelegramBotConfiguration {
         return createConnectionProvider(properties);
     }
 
+    @Bean(destroyMethod = "close")
+    @ConditionalOnBean(ConnectionProvider.class)
+    @ConditionalOnProperty(prefix = "bot.database.failover", name = "enabled", havingValue = "true",
+            matchIfMissing = true)
+    DatabaseHealthMonitor databaseHealthMonitor(ConnectionProvider connectionProvider,
+                                                DatabaseConfiguration properties) {
+        return new DatabaseHealthMonitor(connectionProvider, properties.getValidationTimeoutSeconds(),
+                properties.getFailover().getProbeInterval());
+    }
+
     private ConnectionProvider createConnectionProvider(DatabaseConfiguration properties) {
         String url = properties.jdbcUrl().orElseThrow(() ->
                 new IllegalStateException("bot.database.jdbc-url must be provided when the connection provider bean is created"));
+        DatabaseConfiguration.Pool pool = properties.getPool();
+        if (pool.isEnabled()) {
+            return new PooledConnectionProvider(url, properties.getUsername(), properties.getPassword(),
+                    new PooledConnectionProvider.Settings(
+                            "salex-db",
+                            pool.getMaxSize(),
+                            pool.getMinIdle(),
+                            pool.getConnectionTimeout(),
+                            Duration.ofSeconds(properties.getValidationTimeoutSeconds()),
+                            pool.getIdleTimeout(),
+                            pool.getMaxLifetime(),
+                            properties.getHealthCheckInterval(),
+                            pool.getLeakDetectionThreshold()));
+        }
         ConnectionFactory factory = () -> DriverManager.getConnection(
                 url,
                 properties.getUsername(),
@@ -56,10 +107,10 @@ public class TelegramBotConfiguration {
         );
         RefreshingConnectionProvider provider = new RefreshingConnectionProvider(
                 factory,
-                properties.getValidationTimeoutSeconds()
+                properties.getValidationTimeoutSeconds(),
+                properties.getHealthCheckInterval()
         );
-        try {
-            provider.getConnection();
+        try (Connection ignored = provider.getConnection()) {
             log.info("Database connection established for bot startup");
         } catch (SQLException ex) {
             log.warn("Database connection validation failed after initial check: {}", ex.getMessage());
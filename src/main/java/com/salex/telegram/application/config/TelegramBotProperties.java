@@ -17,6 +17,23 @@ public class TelegramBotProperties {
     @NotBlank
     private String username;
 
+    /**
+     * How updates reach the bot: long polling (default) or an embedded webhook endpoint.
+     */
+    private Mode mode = Mode.POLLING;
+
+    private final Dispatch dispatch = new Dispatch();
+
+    private final Webhook webhook = new Webhook();
+
+    private final Outbound outbound = new Outbound();
+
+    private final Admission admission = new Admission();
+
+    private final Dedup dedup = new Dedup();
+
+    private final Lanes lanes = new Lanes();
+
     public String getToken() {
         return token;
     }
@@ -32,4 +49,430 @@ public class TelegramBotProperties {
     public void setUsername(String username) {
         this.username = username;
     }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Dispatch getDispatch() {
+        return dispatch;
+    }
+
+    public Webhook getWebhook() {
+        return webhook;
+    }
+
+    public Outbound getOutbound() {
+        return outbound;
+    }
+
+    public Admission getAdmission() {
+        return admission;
+    }
+
+    public Dedup getDedup() {
+        return dedup;
+    }
+
+    public Lanes getLanes() {
+        return lanes;
+    }
+
+    /**
+     * Supported update ingestion modes.
+     */
+    public enum Mode {
+        POLLING,
+        WEBHOOK
+    }
+
+    /**
+     * Limits applied to the per-chat update dispatcher that sits in front of the router.
+     */
+    public static class Dispatch {
+
+        /**
+         * Maximum number of updates waiting behind a single chat before new ones are dropped.
+         */
+        private int maxQueuedPerChat = 50;
+
+        /**
+         * Maximum number of updates waiting across every chat.
+         */
+        private int maxQueuedTotal = 5_000;
+
+        public int getMaxQueuedPerChat() {
+            return maxQueuedPerChat;
+        }
+
+        public void setMaxQueuedPerChat(int maxQueuedPerChat) {
+            this.maxQueuedPerChat = maxQueuedPerChat;
+        }
+
+        public int getMaxQueuedTotal() {
+            return maxQueuedTotal;
+        }
+
+        public void setMaxQueuedTotal(int maxQueuedTotal) {
+            this.maxQueuedTotal = maxQueuedTotal;
+        }
+    }
+
+    /**
+     * Embedded webhook endpoint settings, used when {@link Mode#WEBHOOK} is selected.
+     */
+    public static class Webhook {
+
+        private String host = "0.0.0.0";
+
+        private int port = 8443;
+
+        private String path = "/telegram/webhook";
+
+        /**
+         * Public HTTPS URL Telegram should call. When blank the endpoint still runs, which is useful for
+         * replaying recorded updates locally, but no webhook is registered with Telegram.
+         */
+        private String publicUrl;
+
+        /**
+         * Shared secret Telegram echoes in the {@code X-Telegram-Bot-Api-Secret-Token} header. Required when
+         * {@link #publicUrl} is set.
+         */
+        private String secretToken;
+
+        private boolean dropPendingUpdates;
+
+        private int maxBodyBytes = 1_048_576;
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public String getPublicUrl() {
+            return publicUrl;
+        }
+
+        public void setPublicUrl(String publicUrl) {
+            this.publicUrl = publicUrl;
+        }
+
+        public String getSecretToken() {
+            return secretToken;
+        }
+
+        public void setSecretToken(String secretToken) {
+            this.secretToken = secretToken;
+        }
+
+        public boolean isDropPendingUpdates() {
+            return dropPendingUpdates;
+        }
+
+        public void setDropPendingUpdates(boolean dropPendingUpdates) {
+            this.dropPendingUpdates = dropPendingUpdates;
+        }
+
+        public int getMaxBodyBytes() {
+            return maxBodyBytes;
+        }
+
+        public void setMaxBodyBytes(int maxBodyBytes) {
+            this.maxBodyBytes = maxBodyBytes;
+        }
+    }
+
+    /**
+     * Pacing applied to outbound Bot API calls, mirroring Telegram's published flood limits.
+     */
+    public static class Outbound {
+
+        /**
+         * Calls per second across all chats.
+         */
+        private double globalPerSecond = 30;
+
+        /**
+         * Messages per second within a single private chat.
+         */
+        private double perChatPerSecond = 1;
+
+        /**
+         * Messages per minute within a single group or channel.
+         */
+        private double groupPerMinute = 20;
+
+        /**
+         * Messages a chat may receive back-to-back before pacing applies.
+         */
+        private int perChatBurst = 3;
+
+        private int maxQueuedPerChat = 100;
+
+        private int maxQueuedTotal = 10_000;
+
+        /**
+         * Attempts per call when Telegram answers with HTTP 429.
+         */
+        private int maxAttempts = 3;
+
+        public double getGlobalPerSecond() {
+            return globalPerSecond;
+        }
+
+        public void setGlobalPerSecond(double globalPerSecond) {
+            this.globalPerSecond = globalPerSecond;
+        }
+
+        public double getPerChatPerSecond() {
+            return perChatPerSecond;
+        }
+
+        public void setPerChatPerSecond(double perChatPerSecond) {
+            this.perChatPerSecond = perChatPerSecond;
+        }
+
+        public double getGroupPerMinute() {
+            return groupPerMinute;
+        }
+
+        public void setGroupPerMinute(double groupPerMinute) {
+            this.groupPerMinute = groupPerMinute;
+        }
+
+        public int getPerChatBurst() {
+            return perChatBurst;
+        }
+
+        public void setPerChatBurst(int perChatBurst) {
+            this.perChatBurst = perChatBurst;
+        }
+
+        public int getMaxQueuedPerChat() {
+            return maxQueuedPerChat;
+        }
+
+        public void setMaxQueuedPerChat(int maxQueuedPerChat) {
+            this.maxQueuedPerChat = maxQueuedPerChat;
+        }
+
+        public int getMaxQueuedTotal() {
+            return maxQueuedTotal;
+        }
+
+        public void setMaxQueuedTotal(int maxQueuedTotal) {
+            this.maxQueuedTotal = maxQueuedTotal;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+    }
+
+    /**
+     * Per-user and per-chat limits on incoming messages, applied before any handler runs.
+     */
+    public static class Admission {
+
+        private boolean enabled = true;
+
+        /**
+         * Messages a single user may send back-to-back.
+         */
+        private int perUserBurst = 5;
+
+        /**
+         * Sustained messages per minute accepted from a single user.
+         */
+        private double perUserPerMinute = 20;
+
+        /**
+         * Messages a single chat may receive back-to-back, across all of its members.
+         */
+        private int perChatBurst = 20;
+
+        /**
+         * Sustained messages per minute accepted within a single chat.
+         */
+        private double perChatPerMinute = 60;
+
+        /**
+         * Reply sent once when a user or chat starts being limited.
+         */
+        private String noticeText = "You're sending messages too quickly. Please wait a moment before trying again.";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getPerUserBurst() {
+            return perUserBurst;
+        }
+
+        public void setPerUserBurst(int perUserBurst) {
+            this.perUserBurst = perUserBurst;
+        }
+
+        public double getPerUserPerMinute() {
+            return perUserPerMinute;
+        }
+
+        public void setPerUserPerMinute(double perUserPerMinute) {
+            this.perUserPerMinute = perUserPerMinute;
+        }
+
+        public int getPerChatBurst() {
+            return perChatBurst;
+        }
+
+        public void setPerChatBurst(int perChatBurst) {
+            this.perChatBurst = perChatBurst;
+        }
+
+        public double getPerChatPerMinute() {
+            return perChatPerMinute;
+        }
+
+        public void setPerChatPerMinute(double perChatPerMinute) {
+            this.perChatPerMinute = perChatPerMinute;
+        }
+
+        public String getNoticeText() {
+            return noticeText;
+        }
+
+        public void setNoticeText(String noticeText) {
+            this.noticeText = noticeText;
+        }
+    }
+
+    /**
+     * Replay protection for incoming updates.
+     */
+    public static class Dedup {
+
+        /**
+         * Number of recent update identifiers remembered in memory.
+         */
+        private int windowSize = 4_096;
+
+        /**
+         * How often the highest accepted update identifier is persisted.
+         */
+        private long flushIntervalMillis = 1_000;
+
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        public long getFlushIntervalMillis() {
+            return flushIntervalMillis;
+        }
+
+        public void setFlushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+        }
+    }
+
+    /**
+     * Concurrency limits for the slow execution lanes. Commands and ticket steps always run on the fast lane.
+     */
+    public static class Lanes {
+
+        private final Lane llm = new Lane(16, 20, 1_000);
+
+        private final Lane media = new Lane(4, 10, 200);
+
+        public Lane getLlm() {
+            return llm;
+        }
+
+        public Lane getMedia() {
+            return media;
+        }
+    }
+
+    /**
+     * Limits for a single execution lane.
+     */
+    public static class Lane {
+
+        /**
+         * Tasks that may run at the same time.
+         */
+        private int maxConcurrent;
+
+        private int maxQueuedPerChat;
+
+        private int maxQueuedTotal;
+
+        public Lane() {
+        }
+
+        Lane(int maxConcurrent, int maxQueuedPerChat, int maxQueuedTotal) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueuedPerChat = maxQueuedPerChat;
+            this.maxQueuedTotal = maxQueuedTotal;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getMaxQueuedPerChat() {
+            return maxQueuedPerChat;
+        }
+
+        public void setMaxQueuedPerChat(int maxQueuedPerChat) {
+            this.maxQueuedPerChat = maxQueuedPerChat;
+        }
+
+        public int getMaxQueuedTotal() {
+            return maxQueuedTotal;
+        }
+
+        public void setMaxQueuedTotal(int maxQueuedTotal) {
+            this.maxQueuedTotal = maxQueuedTotal;
+        }
+    }
 }
@@ -1,14 +1,21 @@
 package com.salex.telegram.application.config;
 
 import com.salex.telegram.infrastructure.database.ConnectionProvider;
+import com.salex.telegram.infrastructure.database.DatabaseHealthMonitor;
+import com.salex.telegram.ticketing.application.IndexedTicketSessionManager;
 import com.salex.telegram.ticketing.application.TicketRepository;
 import com.salex.telegram.ticketing.application.TicketService;
 import com.salex.telegram.ticketing.application.TicketSessionManager;
+import com.salex.telegram.ticketing.infrastructure.failover.FailoverTicketRepository;
+import com.salex.telegram.ticketing.infrastructure.failover.FailoverTicketSessionManager;
 import com.salex.telegram.ticketing.infrastructure.memory.InMemoryTicketRepository;
 import com.salex.telegram.ticketing.infrastructure.memory.InMemoryTicketSessionManager;
 import com.salex.telegram.ticketing.infrastructure.server.ServerTicketRepository;
 import com.salex.telegram.ticketing.infrastructure.server.ServerTicketSessionManager;
 import com.salex.telegram.ticketing.presentation.TicketMessageFormatter;
+import com.salex.telegram.user.UserService;
+import com.salex.telegram.user.infrastructure.FailoverUserService;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
@@ -16,15 +23,26 @@ import org.springframework.context.annotation.Configuration;
 
 /**
  * Provides ticketing services backed by JDBC when a connection provider is available,
- * otherwise falls back to in-memory storage for local runs.
+ * otherwise falls back to in-memory storage for local runs. With a {@link DatabaseHealthMonitor} present, the
+ * JDBC stores switch to memory during an outage and are reconciled once the database recovers.
  */
 @Configuration
 public class TicketingConfiguration {
 
     @Bean
     @ConditionalOnBean(ConnectionProvider.class)
-    TicketRepository serverTicketRepository(ConnectionProvider connectionProvider) {
-        return new ServerTicketRepository(connectionProvider);
+    TicketRepository serverTicketRepository(ConnectionProvider connectionProvider,
+                                            ObjectProvider<DatabaseHealthMonitor> monitors,
+                                            UserService userService) {
+        TicketRepository repository = new ServerTicketRepository(connectionProvider);
+        DatabaseHealthMonitor monitor = monitors.getIfAvailable();
+        if (monitor == null) {
+            return repository;
+        }
+        FailoverTicketRepository failover = new FailoverTicketRepository(repository, monitor,
+                FailoverUserService.idResolver(userService));
+        monitor.onRecovery(failover::reconcile);
+        return failover;
     }
 
     @Bean
@@ -35,8 +53,20 @@ public class TicketingConfiguration {
 
     @Bean
     @ConditionalOnBean(ConnectionProvider.class)
-    TicketSessionManager serverTicketSessionManager(ConnectionProvider connectionProvider) {
-        return new ServerTicketSessionManager(connectionProvider);
+    TicketSessionManager serverTicketSessionManager(ConnectionProvider connectionProvider,
+                                                    ObjectProvider<DatabaseHealthMonitor> monitors,
+                                                    UserService userService,
+                                                    TicketRepository ticketRepository) {
+        TicketSessionManager sessionManager =
+                new IndexedTicketSessionManager(new ServerTicketSessionManager(connectionProvider));
+        DatabaseHealthMonitor monitor = monitors.getIfAvailable();
+        if (monitor == null) {
+            return sessionManager;
+        }
+        FailoverTicketSessionManager failover = new FailoverTicketSessionManager(sessionManager, monitor,
+                FailoverUserService.idResolver(userService), FailoverTicketRepository.idResolver(ticketRepository));
+        monitor.onRecovery(failover::reconcile);
+        return failover;
     }
 
     @Bean
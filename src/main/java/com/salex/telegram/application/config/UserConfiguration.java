@@ -1,24 +1,38 @@
 package com.salex.telegram.application.config;
 
 import com.salex.telegram.infrastructure.database.ConnectionProvider;
+import com.salex.telegram.infrastructure.database.DatabaseHealthMonitor;
 import com.salex.telegram.user.UserService;
+import com.salex.telegram.user.infrastructure.FailoverUserService;
 import com.salex.telegram.user.infrastructure.InMemoryUserService;
 import com.salex.telegram.user.infrastructure.JdbcUserService;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
- * Provides a user service backed by JDBC when available, otherwise an in-memory variant.
+ * Provides a user service backed by JDBC when available, otherwise an in-memory variant. The JDBC service keeps
+ * answering from memory during an outage when a {@link DatabaseHealthMonitor} is present.
  */
 @Configuration
 public class UserConfiguration {
 
     @Bean
     @ConditionalOnBean(ConnectionProvider.class)
-    UserService jdbcUserService(ConnectionProvider connectionProvider) {
-        return new JdbcUserService(connectionProvider);
+    UserService jdbcUserService(ConnectionProvider connectionProvider,
+                                ObjectProvider<DatabaseHealthMonitor> monitors,
+                                DatabaseConfiguration properties) {
+        DatabaseConfiguration.UserCache cache = properties.getUserCache();
+        UserService service = new JdbcUserService(connectionProvider, cache.getMaxEntries(), cache.getIdleTtl());
+        DatabaseHealthMonitor monitor = monitors.getIfAvailable();
+        if (monitor == null) {
+            return service;
+        }
+        FailoverUserService failover = new FailoverUserService(service, monitor, cache.getMaxEntries(), cache.getIdleTtl());
+        monitor.onRecovery(failover::reconcile);
+        return failover;
     }
 
     @Bean
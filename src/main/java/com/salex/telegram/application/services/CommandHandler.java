@@ -21,6 +21,15 @@ public interface CommandHandler {
      */
     String getDescription();
 
+    /**
+     * Lane {@link #handle(Update, SalexTelegramBot, long)} runs on; commands are interactive by default.
+     *
+     * @return execution lane for this command
+     */
+    default ExecutionLane lane() {
+        return ExecutionLane.FAST;
+    }
+
     /**
      * Processes an incoming update that triggered the command.
      *
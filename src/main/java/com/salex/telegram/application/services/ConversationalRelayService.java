@@ -3,19 +3,35 @@ package com.salex.telegram.application.services;
 import com.salex.telegram.conversation.ChatCompletionClient;
 import com.salex.telegram.conversation.ConversationContextService;
 import com.salex.telegram.conversation.ConversationMessageRecord;
+import com.salex.telegram.infrastructure.messaging.ConversationKey;
 import com.salex.telegram.infrastructure.messaging.LoggedMessage;
+import com.salex.telegram.infrastructure.messaging.MessagePersistenceException;
 import com.salex.telegram.infrastructure.messaging.MessageRepository;
 import com.salex.telegram.telegram.SalexTelegramBot;
+import com.salex.telegram.telegram.StreamingReply;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.objects.Update;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 /**
- * Fallback conversational module that relays free-form chat to the LLM while persisting history.
+ * Fallback conversational module that relays free-form chat to the LLM while persisting history. Messages a
+ * user sends in quick succession are merged into a single completion request when coalescing is enabled, and
+ * a new message abandons any earlier request of the same conversation that has not been answered yet; the
+ * newer request then answers both messages.
  */
 @Service
 public class ConversationalRelayService implements UpdateHandlingService {
@@ -30,6 +46,83 @@ public class ConversationalRelayService implements UpdateHandlingService {
     @Autowired
     private ChatCompletionClient chatCompletionClient;
 
+    @Value("${bot.conversation.streaming.enabled:false}")
+    private boolean streamingEnabled;
+
+    @Value("${bot.conversation.streaming.edit-interval-ms:1000}")
+    private long streamingEditIntervalMillis;
+
+    @Value("${bot.conversation.coalesce.window-ms:0}")
+    private long coalesceWindowMillis;
+
+    @Value("${bot.conversation.coalesce.max-delay-ms:4000}")
+    private long coalesceMaxDelayMillis;
+
+    @Value("${bot.conversation.coalesce.max-messages:10}")
+    private int coalesceMaxMessages;
+
+    private final InFlightCompletions<ConversationKey> inFlight = new InFlightCompletions<>();
+    private MessageCoalescer<ConversationKey, PendingMessage> coalescer;
+
+    @PostConstruct
+    void startCoalescer() {
+        if (coalesceWindowMillis > 0) {
+            coalescer = new MessageCoalescer<>(coalesceWindowMillis, coalesceMaxDelayMillis, coalesceMaxMessages,
+                    this::respondToBurst);
+            log.info("Coalescing message bursts within {} ms (max {} ms)", coalesceWindowMillis, coalesceMaxDelayMillis);
+        }
+    }
+
+    @PreDestroy
+    void stopCoalescer() {
+        if (coalescer != null) {
+            coalescer.close();
+        }
+    }
+
+    @Override
+    public Set<UpdateKind> kinds() {
+        return EnumSet.of(UpdateKind.TEXT);
+    }
+
+    /**
+     * Runs last among text handlers, picking up whatever more specific modules declined.
+     */
+    @Override
+    public int priority() {
+        return 100;
+    }
+
+    /**
+     * {@link #handle} only registers the message, which must happen as soon as it arrives so it can cancel an
+     * older request; the completion itself is queued on the LLM lane.
+     */
+    @Override
+    public ExecutionLane lane() {
+        return ExecutionLane.FAST;
+    }
+
+    /**
+     * @return completion requests abandoned because a newer message arrived before they were answered
+     */
+    public long supersededCompletions() {
+        return inFlight.supersededCount();
+    }
+
+    /**
+     * Loads the history of every conversation in the batch with one repository call.
+     */
+    @Override
+    public void prefetch(List<ResolvedUpdate> batch) {
+        List<ConversationKey> conversations = new ArrayList<>(batch.size());
+        for (ResolvedUpdate resolved : batch) {
+            Update update = resolved.update();
+            if (update.hasMessage() && update.getMessage().hasText()) {
+                conversations.add(new ConversationKey(update.getMessage().getChatId(), resolved.userId()));
+            }
+        }
+        conversationContextService.prefetch(conversations);
+    }
 
     @Override
     public boolean canHandle(Update update, long userId) {
@@ -38,7 +131,7 @@ public class ConversationalRelayService implements UpdateHandlingService {
 
     /**
      * Forwards the latest user message to the language model, including prior context, then
-     * logs the exchange and replies back to Telegram.
+     * logs the exchange and replies back to Telegram. The work is queued on the LLM lane.
      */
     @Override
     public void handle(Update update, SalexTelegramBot bot, long userId) {
@@ -47,26 +140,143 @@ public class ConversationalRelayService implements UpdateHandlingService {
             return;
         }
 
-        String userText = update.getMessage().getText();
         long chatId = update.getMessage().getChatId();
         Integer threadId = update.getMessage().getMessageThreadId();
+        ConversationKey conversation = new ConversationKey(chatId, userId);
 
+        String userText = update.getMessage().getText();
+        String unanswered = inFlight.supersede(conversation);
+        if (unanswered != null) {
+            log.debug("New message from user {} in chat {} supersedes an unanswered request", userId, chatId);
+            userText = unanswered + "\n" + userText;
+        }
+
+        if (coalescer != null) {
+            if (coalescer.offer(conversation, new PendingMessage(bot, threadId, userText))) {
+                bot.sendChatTypingAsync(chatId, threadId);
+            }
+            return;
+        }
+        submit(bot, conversation, threadId, userText);
+    }
+
+    /**
+     * Answers a closed burst with one completion covering all of its messages.
+     */
+    private void respondToBurst(ConversationKey conversation, List<PendingMessage> burst) {
+        PendingMessage last = burst.get(burst.size() - 1);
+        String userText = burst.stream().map(PendingMessage::text).collect(Collectors.joining("\n"));
+        if (burst.size() > 1) {
+            log.debug("Coalesced {} messages from user {} in chat {}", burst.size(), conversation.userId(),
+                    conversation.chatId());
+        }
+        submit(last.bot(), conversation, last.threadId(), userText);
+    }
+
+    private void submit(SalexTelegramBot bot, ConversationKey conversation, Integer threadId, String userText) {
+        InFlightCompletions.Ticket ticket = inFlight.begin(conversation, userText);
+        if (!bot.runOnLane(ExecutionLane.LLM, conversation.chatId(), threadId,
+                () -> respond(bot, conversation, threadId, ticket))) {
+            inFlight.finish(conversation, ticket);
+        }
+    }
+
+    private void respond(SalexTelegramBot bot, ConversationKey conversation, Integer threadId,
+                         InFlightCompletions.Ticket ticket) {
+        long chatId = conversation.chatId();
+        long userId = conversation.userId();
+        String userText = ticket.userText();
         try {
-            bot.sendChatTyping(chatId, threadId);
+            if (ticket.isCancelled()) {
+                return;
+            }
+            // Fire the typing indicator without waiting so it overlaps with prompt assembly and the completion.
+            bot.sendChatTypingAsync(chatId, threadId);
 
             List<ConversationMessageRecord> requestMessages =
                     conversationContextService.buildRequestMessages(chatId, userId, userText);
-            String replyText = chatCompletionClient.complete(requestMessages);
+            String replyText = streamingEnabled
+                    ? streamReply(bot, chatId, threadId, requestMessages, ticket)
+                    : awaitReply(requestMessages, ticket);
+            if (!ticket.publish()) {
+                log.debug("Dropped superseded reply for user {} in chat {}", userId, chatId);
+                return;
+            }
             log.info("ChatGPT responded to user {} with {} characters", userId, replyText.length());
 
+            if (!streamingEnabled) {
+                bot.sendMessageAsync(chatId, threadId, replyText)
+                        .thenAccept(messageId -> log.debug("Delivered reply {} to chat {}", messageId, chatId));
+            }
             conversationContextService.recordExchange(chatId, userId, userText, replyText);
-
-            LoggedMessage loggedMessage = new LoggedMessage(userId, chatId, userText, replyText);
-            messageRepository.save(loggedMessage);
-            bot.sendMessage(chatId, threadId, replyText);
+            persist(new LoggedMessage(userId, chatId, userText, replyText));
         } catch (Exception e) {
-            bot.sendMessage(chatId, threadId, "[Error] Failed to process message: " + e.getMessage());
-            log.error("Failed to handle general message for user {}: {}", userId, e.getMessage(), e);
+            if (ticket.isCancelled()) {
+                log.debug("Abandoned superseded completion for user {} in chat {}", userId, chatId);
+                return;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            bot.sendMessage(chatId, threadId, "[Error] Failed to process message: " + cause.getMessage());
+            log.error("Failed to handle general message for user {}: {}", userId, cause.getMessage(), cause);
+        } finally {
+            inFlight.finish(conversation, ticket);
         }
     }
+
+    /**
+     * Records the exchange after the reply is on its way. The user already has an answer at this point, so a
+     * failed write is logged rather than reported as a failure to process the message.
+     */
+    private void persist(LoggedMessage message) {
+        try {
+            messageRepository.save(message);
+        } catch (MessagePersistenceException ex) {
+            log.warn("Failed to persist exchange for user {} in chat {}: {}", message.getUserId(),
+                    message.getChatId(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Waits for a completion that a newer message can abort through the ticket.
+     */
+    private String awaitReply(List<ConversationMessageRecord> requestMessages, InFlightCompletions.Ticket ticket) {
+        CompletableFuture<String> reply = chatCompletionClient.completeAsync(requestMessages);
+        ticket.attach(reply);
+        return reply.join();
+    }
+
+    /**
+     * Streams the completion into a Telegram message that is sent on the first token and edited as the
+     * rest of the reply arrives. A reply superseded by a newer message is deleted rather than left half
+     * written.
+     */
+    private String streamReply(SalexTelegramBot bot,
+                               long chatId,
+                               Integer threadId,
+                               List<ConversationMessageRecord> requestMessages,
+                               InFlightCompletions.Ticket ticket) throws Exception {
+        StreamingReply reply = bot.openStreamingReply(chatId, threadId, streamingEditIntervalMillis);
+        String replyText;
+        try {
+            replyText = chatCompletionClient.completeStreaming(requestMessages, delta -> {
+                if (ticket.isCancelled()) {
+                    throw new CancellationException("superseded by a newer message");
+                }
+                reply.append(delta);
+            });
+        } catch (CancellationException ex) {
+            reply.abandon();
+            throw ex;
+        }
+        if (ticket.isCancelled()) {
+            reply.abandon();
+            throw new CancellationException("superseded by a newer message");
+        }
+        reply.finish(replyText).whenComplete((ignored, ex) -> reply.timeToFirstVisible().ifPresent(latency ->
+                log.info("Streamed reply in chat {} became visible after {} ms", chatId, latency.toMillis())));
+        return replyText;
+    }
+
+    private record PendingMessage(SalexTelegramBot bot, Integer threadId, String text) {
+    }
 }
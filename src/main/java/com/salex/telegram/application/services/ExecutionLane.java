@@ -0,0 +1,14 @@
+package com.salex.telegram.application.services;
+
+/**
+ * Execution lane a handler's work runs on. Slow lanes have their own queues and concurrency limits, so a
+ * saturated model or transcription backend never delays interactive commands.
+ */
+public enum ExecutionLane {
+    /** Short, latency-sensitive work such as commands and ticket draft steps; runs inline on the chat's routing thread. */
+    FAST,
+    /** Chat completions against the language model. */
+    LLM,
+    /** Audio download, transcoding and transcription. */
+    MEDIA
+}
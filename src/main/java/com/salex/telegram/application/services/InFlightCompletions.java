@@ -0,0 +1,121 @@
+package com.salex.telegram.application.services;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the newest completion request per key so a newer message can abandon an older request that has not
+ * been answered yet. The abandoned request's user text is handed back to the caller, which folds it into the
+ * newer request so nothing the user wrote goes unanswered.
+ *
+ * @param <K> request key, for example a conversation
+ */
+final class InFlightCompletions<K> {
+    private final ConcurrentHashMap<K, Ticket> latest = new ConcurrentHashMap<>();
+    private final LongAdder superseded = new LongAdder();
+
+    /**
+     * Cancels the key's pending request, if any, without registering a new one.
+     *
+     * @param key request key
+     * @return user text of the cancelled request, or {@code null} if nothing was cancelled
+     */
+    String supersede(K key) {
+        Ticket previous = latest.remove(key);
+        return previous != null && previous.cancel() ? countSuperseded(previous) : null;
+    }
+
+    /**
+     * Registers a new request for the key, cancelling and absorbing any pending one.
+     *
+     * @param key      request key
+     * @param userText text the request answers
+     * @return ticket the request must check before publishing its reply
+     */
+    Ticket begin(K key, String userText) {
+        Ticket[] created = new Ticket[1];
+        latest.compute(key, (k, previous) -> {
+            String text = userText;
+            if (previous != null && previous.cancel()) {
+                text = countSuperseded(previous) + "\n" + userText;
+            }
+            created[0] = new Ticket(text);
+            return created[0];
+        });
+        return created[0];
+    }
+
+    /**
+     * Forgets the ticket once its request has finished either way.
+     */
+    void finish(K key, Ticket ticket) {
+        latest.remove(key, ticket);
+    }
+
+    /**
+     * @return requests abandoned because a newer message arrived first
+     */
+    long supersededCount() {
+        return superseded.sum();
+    }
+
+    private String countSuperseded(Ticket ticket) {
+        superseded.increment();
+        return ticket.userText();
+    }
+
+    /**
+     * State of one request: pending until it either publishes its reply or is cancelled by a newer one.
+     */
+    static final class Ticket {
+        private enum State { PENDING, PUBLISHED, CANCELLED }
+
+        private final String userText;
+        private final AtomicReference<State> state = new AtomicReference<>(State.PENDING);
+        private volatile Future<?> call;
+
+        private Ticket(String userText) {
+            this.userText = userText;
+        }
+
+        String userText() {
+            return userText;
+        }
+
+        boolean isCancelled() {
+            return state.get() == State.CANCELLED;
+        }
+
+        /**
+         * Attaches the running call so cancelling the ticket aborts it.
+         */
+        void attach(Future<?> call) {
+            this.call = call;
+            if (isCancelled()) {
+                call.cancel(true);
+            }
+        }
+
+        /**
+         * Claims the right to publish the reply.
+         *
+         * @return {@code false} if the request was superseded and its reply must be dropped
+         */
+        boolean publish() {
+            return state.compareAndSet(State.PENDING, State.PUBLISHED);
+        }
+
+        private boolean cancel() {
+            if (!state.compareAndSet(State.PENDING, State.CANCELLED)) {
+                return false;
+            }
+            Future<?> running = call;
+            if (running != null) {
+                running.cancel(true);
+            }
+            return true;
+        }
+    }
+}
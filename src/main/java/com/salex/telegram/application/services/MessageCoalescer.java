@@ -0,0 +1,106 @@
+package com.salex.telegram.application.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Debounces values per key: each value restarts a short quiet-period timer, and when the timer fires the
+ * values collected so far are delivered together. A burst is flushed no later than {@code maxDelayMillis}
+ * after its first value, or as soon as it holds {@code maxValues}, so a chatty sender cannot postpone a
+ * reply indefinitely.
+ *
+ * @param <K> burst key, for example a conversation
+ * @param <V> buffered value
+ */
+final class MessageCoalescer<K, V> implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(MessageCoalescer.class);
+
+    private final long windowNanos;
+    private final long maxDelayNanos;
+    private final int maxValues;
+    private final BiConsumer<K, List<V>> onFlush;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentHashMap<K, Burst<V>> bursts = new ConcurrentHashMap<>();
+
+    /**
+     * @param windowMillis   quiet period after the latest value before a burst is flushed
+     * @param maxDelayMillis longest a burst may stay open after its first value
+     * @param maxValues      burst size that triggers an immediate flush
+     * @param onFlush        receives each finished burst on the scheduler thread; must not block
+     */
+    MessageCoalescer(long windowMillis, long maxDelayMillis, int maxValues, BiConsumer<K, List<V>> onFlush) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, windowMillis));
+        this.maxDelayNanos = Math.max(windowNanos, TimeUnit.MILLISECONDS.toNanos(maxDelayMillis));
+        this.maxValues = Math.max(1, maxValues);
+        this.onFlush = Objects.requireNonNull(onFlush, "onFlush");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds a value to the key's open burst, opening one if necessary.
+     *
+     * @param key   burst key
+     * @param value value to buffer
+     * @return {@code true} if the value opened a new burst
+     */
+    boolean offer(K key, V value) {
+        Objects.requireNonNull(value, "value");
+        boolean[] opened = {false};
+        bursts.compute(key, (k, burst) -> {
+            long now = System.nanoTime();
+            if (burst == null) {
+                burst = new Burst<>(now + maxDelayNanos);
+                opened[0] = true;
+            } else {
+                burst.timer.cancel(false);
+            }
+            burst.values.add(value);
+            long delay = burst.values.size() >= maxValues ? 0L : Math.min(windowNanos, burst.deadlineNanos - now);
+            Burst<V> scheduled = burst;
+            burst.timer = scheduler.schedule(() -> flush(k, scheduled), Math.max(0L, delay), TimeUnit.NANOSECONDS);
+            return burst;
+        });
+        return opened[0];
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        bursts.forEach(this::flush);
+    }
+
+    private void flush(K key, Burst<V> burst) {
+        if (!bursts.remove(key, burst)) {
+            return;
+        }
+        try {
+            onFlush.accept(key, List.copyOf(burst.values));
+        } catch (RuntimeException ex) {
+            log.error("Failed to deliver coalesced burst for {}: {}", key, ex.getMessage(), ex);
+        }
+    }
+
+    private static final class Burst<V> {
+        private final long deadlineNanos;
+        private final List<V> values = new ArrayList<>();
+        private ScheduledFuture<?> timer;
+
+        private Burst(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
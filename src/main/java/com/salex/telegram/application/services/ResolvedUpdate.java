@@ -0,0 +1,12 @@
+package com.salex.telegram.application.services;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Update paired with the internal identifier of its sender, as handed to batch prefetching.
+ *
+ * @param update the raw Telegram update
+ * @param userId the internal user identifier resolved by the bot
+ */
+public record ResolvedUpdate(Update update, long userId) {
+}
@@ -3,11 +3,52 @@ package com.salex.telegram.application.services;
 import com.salex.telegram.telegram.SalexTelegramBot;
 import org.telegram.telegrambots.meta.api.objects.Update;
 
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Represents a cohesive feature area of the bot. Services can expose command handlers
  * and optionally consume non-command updates when {@link #canHandle(Update, long)} returns true.
+ * Only services registered for the update's {@link UpdateKind} are asked, in ascending {@link #priority()}.
  */
 public interface UpdateHandlingService {
+    /**
+     * Update kinds this service is interested in; other kinds never reach {@link #canHandle(Update, long)}.
+     *
+     * @return kinds the service may handle
+     */
+    default Set<UpdateKind> kinds() {
+        return EnumSet.allOf(UpdateKind.class);
+    }
+
+    /**
+     * Position of the service among those registered for the same kind; lower values are asked first.
+     *
+     * @return routing priority
+     */
+    default int priority() {
+        return 0;
+    }
+
+    /**
+     * Lane {@link #handle(Update, SalexTelegramBot, long)} runs on.
+     *
+     * @return execution lane for this service's work
+     */
+    default ExecutionLane lane() {
+        return ExecutionLane.FAST;
+    }
+
+    /**
+     * Warms caches for a batch of updates of this service's {@link #kinds()} before they are handled one by
+     * one, so the per-update path avoids its own repository round trips. The default does nothing.
+     *
+     * @param batch updates from a single poll together with their resolved senders
+     */
+    default void prefetch(List<ResolvedUpdate> batch) {
+    }
+
     /**
      * Determines whether the module wants to handle the current update.
      *
@@ -0,0 +1,46 @@
+package com.salex.telegram.application.services;
+
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Coarse classification of an incoming update, computed once per update so routing can go straight to the
+ * handlers registered for that kind.
+ */
+public enum UpdateKind {
+    /** Plain text message. */
+    TEXT,
+    /** Voice note, audio file or video note. */
+    MEDIA,
+    /** Message replying to a voice note, audio file or video note. */
+    REPLY_TO_MEDIA,
+    /** Anything else, such as stickers, photos or service messages. */
+    OTHER;
+
+    /**
+     * Classifies the message carried by the update.
+     *
+     * @param update raw Telegram update
+     * @return the kind of update; {@link #OTHER} when there is no message
+     */
+    public static UpdateKind of(Update update) {
+        if (update == null || !update.hasMessage()) {
+            return OTHER;
+        }
+        Message message = update.getMessage();
+        if (isMedia(message)) {
+            return MEDIA;
+        }
+        if (isMedia(message.getReplyToMessage())) {
+            return REPLY_TO_MEDIA;
+        }
+        if (message.hasText()) {
+            return TEXT;
+        }
+        return OTHER;
+    }
+
+    private static boolean isMedia(Message message) {
+        return message != null && (message.hasVoice() || message.hasAudio() || message.hasVideoNote());
+    }
+}
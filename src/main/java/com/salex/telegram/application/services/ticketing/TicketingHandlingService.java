@@ -1,6 +1,7 @@
 package com.salex.telegram.application.services.ticketing;
 
 import com.salex.telegram.application.services.UpdateHandlingService;
+import com.salex.telegram.application.services.UpdateKind;
 import com.salex.telegram.telegram.SalexTelegramBot;
 import com.salex.telegram.ticketing.application.TicketService;
 import com.salex.telegram.ticketing.domain.Ticket;
@@ -14,7 +15,9 @@ import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 
+import java.util.EnumSet;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Continues multi-step ticket drafts by consuming free-form replies whenever a draft session is active.
@@ -32,6 +35,19 @@ public class TicketingHandlingService implements UpdateHandlingService {
     @Autowired
     private TicketCommandHandler ticketCommandHandler;
 
+    @Override
+    public Set<UpdateKind> kinds() {
+        return EnumSet.of(UpdateKind.TEXT, UpdateKind.REPLY_TO_MEDIA);
+    }
+
+    /**
+     * Runs before transcription and the general relay so an open draft captures the user's next reply.
+     */
+    @Override
+    public int priority() {
+        return 10;
+    }
+
     @Override
     public boolean canHandle(Update update, long userId) {
         if (update == null || !update.hasMessage()) {
@@ -1,6 +1,8 @@
 package com.salex.telegram.application.services.transcription;
 
+import com.salex.telegram.application.services.ExecutionLane;
 import com.salex.telegram.application.services.UpdateHandlingService;
+import com.salex.telegram.application.services.UpdateKind;
 import com.salex.telegram.telegram.SalexTelegramBot;
 import com.salex.telegram.transcription.application.TranscriptionService;
 import com.salex.telegram.transcription.domain.TranscriptionException;
@@ -14,6 +16,9 @@ import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * Automatically transcribes audio-capable updates so users receive text without invoking a command.
  * Works alongside {@link TranscriptionCommandHandler} for explicit `/transcribe` requests.
@@ -29,6 +34,21 @@ public class TranscriptionHandlerService implements UpdateHandlingService {
     @Autowired
     private TranscriptionCommandHandler commandHandler;
 
+    @Override
+    public Set<UpdateKind> kinds() {
+        return EnumSet.of(UpdateKind.MEDIA, UpdateKind.REPLY_TO_MEDIA);
+    }
+
+    @Override
+    public int priority() {
+        return 20;
+    }
+
+    @Override
+    public ExecutionLane lane() {
+        return ExecutionLane.MEDIA;
+    }
+
     @Override
     public boolean canHandle(Update update, long userId) {
         if (update == null || !update.hasMessage()) {
@@ -50,7 +70,7 @@ public class TranscriptionHandlerService implements UpdateHandlingService {
         Integer threadId = message.getMessageThreadId();
 
         try {
-            bot.sendChatTyping(chatId, threadId);
+            bot.sendChatTypingAsync(chatId, threadId);
             TranscriptionResult result = transcriptionService.transcribe(target);
             bot.sendMessage(chatId, threadId, formatter.formatResult(result));
         } catch (TranscriptionException ex) {
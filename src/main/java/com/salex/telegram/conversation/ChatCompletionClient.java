@@ -1,6 +1,9 @@
 package com.salex.telegram.conversation;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Minimal abstraction for services capable of producing chat-style completions.
@@ -15,4 +18,38 @@ public interface ChatCompletionClient {
      * @throws Exception when the underlying transport or service call fails
      */
     String complete(List<ConversationMessageRecord> conversation) throws Exception;
+
+    /**
+     * Starts generating a reply without blocking the caller. Cancelling the returned future abandons the
+     * request; clients backed by an asynchronous transport also abort the underlying call. The default runs
+     * {@link #complete(List)} on a virtual thread, which cannot be aborted once started.
+     *
+     * @param conversation ordered list of messages ending with the latest user prompt
+     * @return future completed with the assistant reply
+     */
+    default CompletableFuture<String> completeAsync(List<ConversationMessageRecord> conversation) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return complete(conversation);
+            } catch (Exception ex) {
+                throw new CompletionException(ex);
+            }
+        }, runnable -> Thread.ofVirtual().start(runnable));
+    }
+
+    /**
+     * Generates a reply while reporting text fragments as soon as the provider produces them. Clients that
+     * cannot stream fall back to a single fragment containing the whole reply.
+     *
+     * @param conversation ordered list of messages ending with the latest user prompt
+     * @param onDelta      receives each new fragment of the reply, in order; throwing from it abandons the stream
+     * @return the complete assistant reply
+     * @throws Exception when the underlying transport or service call fails
+     */
+    default String completeStreaming(List<ConversationMessageRecord> conversation,
+                                     Consumer<String> onDelta) throws Exception {
+        String reply = complete(conversation);
+        onDelta.accept(reply);
+        return reply;
+    }
 }
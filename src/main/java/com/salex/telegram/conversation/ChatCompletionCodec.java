@@ -0,0 +1,431 @@
+package com.salex.telegram.conversation;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.http.HttpRequest;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming JSON codec for the chat completions API. Requests are written token by token with a
+ * {@link JsonWriter} that encodes UTF-8 straight into the presized buffer handed to the HTTP client, and
+ * responses are read with a {@link JsonReader} that decodes the response bytes in place and keeps only
+ * {@code choices[0].message.content} and {@code usage}, skipping everything else without building a tree.
+ * The JDK's {@code OutputStreamWriter} and {@code InputStreamReader} are avoided on purpose: their internal
+ * 8 KiB buffers would cost more than the tree this replaces.
+ */
+final class ChatCompletionCodec {
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm").withZone(ZoneOffset.UTC);
+    // Envelope of one message: braces, keys, quotes and the compact timestamp.
+    private static final int MESSAGE_OVERHEAD_BYTES = 64;
+
+    private ChatCompletionCodec() {
+    }
+
+    /**
+     * Encodes the request and wraps the encoded bytes in a publisher without copying them.
+     */
+    static HttpRequest.BodyPublisher requestBody(String model, List<ConversationMessageRecord> conversation, boolean stream) {
+        ExposedBuffer buffer = new ExposedBuffer(expectedSize(model, conversation));
+        writeRequest(buffer, model, conversation, stream);
+        return HttpRequest.BodyPublishers.ofByteArray(buffer.array(), 0, buffer.size());
+    }
+
+    /**
+     * Encodes the request. Each message is sent with a compact UTC timestamp; the date is only repeated when
+     * it changes between messages, which keeps the per-message cost to a few tokens.
+     */
+    static byte[] encodeRequest(String model, List<ConversationMessageRecord> conversation, boolean stream) {
+        ExposedBuffer buffer = new ExposedBuffer(expectedSize(model, conversation));
+        writeRequest(buffer, model, conversation, stream);
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Sizes the buffer for mostly single-byte text so that typical requests are written without regrowing it.
+     */
+    private static int expectedSize(String model, List<ConversationMessageRecord> conversation) {
+        long size = MESSAGE_OVERHEAD_BYTES + model.length();
+        for (ConversationMessageRecord entry : conversation) {
+            size += MESSAGE_OVERHEAD_BYTES + entry.role().length() + entry.content().length();
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE - 8);
+    }
+
+    private static void writeRequest(ExposedBuffer out,
+                                     String model,
+                                     List<ConversationMessageRecord> conversation,
+                                     boolean stream) {
+        try (JsonWriter writer = new JsonWriter(new Utf8Writer(out))) {
+            writer.beginObject();
+            writer.name("model").value(model);
+            writer.name("messages").beginArray();
+            if (conversation.isEmpty()) {
+                writer.beginObject().name("role").value("user").name("content").value("").endObject();
+            }
+            LocalDate previousDate = null;
+            for (ConversationMessageRecord entry : conversation) {
+                LocalDate date = entry.timestamp().atZone(ZoneOffset.UTC).toLocalDate();
+                String stamp = (date.equals(previousDate) ? TIME : DATE_TIME).format(entry.timestamp());
+                previousDate = date;
+                writer.beginObject();
+                writer.name("role").value(entry.role());
+                writer.name("content").value(entry.content() + "\n[" + stamp + "]");
+                writer.endObject();
+            }
+            writer.endArray();
+            if (stream) {
+                writer.name("stream").value(true);
+            }
+            writer.endObject();
+        } catch (IOException ex) {
+            // Writing to memory does not fail.
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Decodes a non-streaming completion response.
+     *
+     * @throws IllegalStateException when the response carries no message content
+     */
+    static Completion decodeResponse(byte[] body) throws IOException {
+        try (JsonReader reader = new JsonReader(new Utf8Reader(body))) {
+            return readCompletion(reader);
+        }
+    }
+
+    /**
+     * Decodes the content fragment of one server-sent event chunk.
+     *
+     * @return the fragment, or {@code null} when the chunk carries none
+     */
+    static String decodeDelta(String data) throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(data))) {
+            String[] content = {null};
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("choices".equals(reader.nextName())) {
+                    readFirstChoice(reader, "delta", content);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return content[0];
+        }
+    }
+
+    private static Completion readCompletion(JsonReader reader) throws IOException {
+        String[] content = {null};
+        boolean[] choicePresent = {false};
+        Usage usage = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "choices" -> choicePresent[0] = readFirstChoice(reader, "message", content);
+                case "usage" -> usage = readUsage(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (!choicePresent[0]) {
+            throw new IllegalStateException("Chat completion response missing choices");
+        }
+        if (content[0] == null) {
+            throw new IllegalStateException("Chat completion response missing message content");
+        }
+        return new Completion(content[0], usage);
+    }
+
+    /**
+     * Reads the {@code choices} array, storing the content of the first choice's {@code field} object.
+     *
+     * @return {@code true} if the array held at least one choice
+     */
+    private static boolean readFirstChoice(JsonReader reader, String field, String[] content) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return false;
+        }
+        reader.beginArray();
+        boolean first = reader.hasNext();
+        if (first) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (field.equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    content[0] = readContent(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+        reader.endArray();
+        return first;
+    }
+
+    private static String readContent(JsonReader reader) throws IOException {
+        String content = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("content".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                content = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return content;
+    }
+
+    private static Usage readUsage(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        int prompt = 0;
+        int completion = 0;
+        int total = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() != JsonToken.NUMBER) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "prompt_tokens" -> prompt = reader.nextInt();
+                case "completion_tokens" -> completion = reader.nextInt();
+                case "total_tokens" -> total = reader.nextInt();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Usage(prompt, completion, total);
+    }
+
+    /**
+     * Decoded completion.
+     *
+     * @param content assistant reply
+     * @param usage   token accounting reported by the provider, or {@code null} if absent
+     */
+    record Completion(String content, Usage usage) {
+    }
+
+    /**
+     * Token accounting of one completion.
+     */
+    record Usage(int promptTokens, int completionTokens, int totalTokens) {
+    }
+
+    /**
+     * Gives the publisher direct access to the written bytes instead of a copy.
+     */
+    private static final class ExposedBuffer extends ByteArrayOutputStream {
+        private ExposedBuffer(int size) {
+            super(size);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+
+        private void ensureRoom(int bytes) {
+            if (count + bytes > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + bytes));
+            }
+        }
+
+        private void put(int b) {
+            buf[count++] = (byte) b;
+        }
+    }
+
+    /**
+     * Encodes characters as UTF-8 directly into the buffer, without the intermediate buffers of an
+     * {@code OutputStreamWriter}. Unpaired surrogates are written as {@code '?'}, as the JDK encoder does.
+     */
+    private static final class Utf8Writer extends Writer {
+        private final ExposedBuffer out;
+        private char pendingHighSurrogate;
+
+        private Utf8Writer(ExposedBuffer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int c) {
+            encode((char) c);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            out.ensureRoom(length);
+            for (int i = offset; i < offset + length; i++) {
+                encode(text.charAt(i));
+            }
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            out.ensureRoom(length);
+            for (int i = offset; i < offset + length; i++) {
+                encode(chars[i]);
+            }
+        }
+
+        private void encode(char c) {
+            if (pendingHighSurrogate != 0) {
+                char high = pendingHighSurrogate;
+                pendingHighSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    out.ensureRoom(4);
+                    out.put(0xF0 | (codePoint >> 18));
+                    out.put(0x80 | ((codePoint >> 12) & 0x3F));
+                    out.put(0x80 | ((codePoint >> 6) & 0x3F));
+                    out.put(0x80 | (codePoint & 0x3F));
+                    return;
+                }
+                out.ensureRoom(1);
+                out.put('?');
+            }
+            if (c < 0x80) {
+                out.ensureRoom(1);
+                out.put(c);
+            } else if (c < 0x800) {
+                out.ensureRoom(2);
+                out.put(0xC0 | (c >> 6));
+                out.put(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                pendingHighSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                out.ensureRoom(1);
+                out.put('?');
+            } else {
+                out.ensureRoom(3);
+                out.put(0xE0 | (c >> 12));
+                out.put(0x80 | ((c >> 6) & 0x3F));
+                out.put(0x80 | (c & 0x3F));
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            if (pendingHighSurrogate != 0) {
+                pendingHighSurrogate = 0;
+                out.ensureRoom(1);
+                out.put('?');
+            }
+        }
+    }
+
+    /**
+     * Decodes UTF-8 from a byte array straight into the reader's buffer, without the intermediate buffers of an
+     * {@code InputStreamReader}. Malformed sequences decode to U+FFFD.
+     */
+    private static final class Utf8Reader extends Reader {
+        private final byte[] bytes;
+        private int position;
+        private char pendingLowSurrogate;
+
+        private Utf8Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read(char[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            int written = 0;
+            if (pendingLowSurrogate != 0) {
+                target[offset + written++] = pendingLowSurrogate;
+                pendingLowSurrogate = 0;
+            }
+            while (written < length && position < bytes.length) {
+                int b = bytes[position] & 0xFF;
+                if (b < 0x80) {
+                    target[offset + written++] = (char) b;
+                    position++;
+                    continue;
+                }
+                int codePoint = decodeMultiByte(b);
+                if (codePoint >= 0x10000) {
+                    target[offset + written++] = Character.highSurrogate(codePoint);
+                    char low = Character.lowSurrogate(codePoint);
+                    if (written < length) {
+                        target[offset + written++] = low;
+                    } else {
+                        pendingLowSurrogate = low;
+                    }
+                } else {
+                    target[offset + written++] = (char) codePoint;
+                }
+            }
+            return written == 0 ? -1 : written;
+        }
+
+        /**
+         * Decodes the sequence starting at {@code position} and advances past it.
+         */
+        private int decodeMultiByte(int lead) {
+            int extra;
+            int codePoint;
+            if (lead >= 0xF0 && lead <= 0xF4) {
+                extra = 3;
+                codePoint = lead & 0x07;
+            } else if (lead >= 0xE0) {
+                extra = lead <= 0xEF ? 2 : -1;
+                codePoint = lead & 0x0F;
+            } else if (lead >= 0xC2) {
+                extra = 1;
+                codePoint = lead & 0x1F;
+            } else {
+                extra = -1;
+                codePoint = 0;
+            }
+            position++;
+            if (extra < 0) {
+                return '\uFFFD';
+            }
+            for (int i = 0; i < extra; i++) {
+                if (position >= bytes.length || (bytes[position] & 0xC0) != 0x80) {
+                    return '\uFFFD';
+                }
+                codePoint = (codePoint << 6) | (bytes[position++] & 0x3F);
+            }
+            int minimum = extra == 1 ? 0x80 : extra == 2 ? 0x800 : 0x10000;
+            if (codePoint < minimum || codePoint > Character.MAX_CODE_POINT
+                    || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+                return '\uFFFD';
+            }
+            return codePoint;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
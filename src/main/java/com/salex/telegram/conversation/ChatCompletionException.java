@@ -0,0 +1,45 @@
+package com.salex.telegram.conversation;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Raised when the chat completion provider rejects or fails a request. Carries the HTTP status and any
+ * back-off the provider asked for so callers can decide whether another attempt makes sense.
+ */
+public class ChatCompletionException extends IllegalStateException {
+    /**
+     * Status used when the failure did not come with an HTTP response.
+     */
+    public static final int NO_STATUS = -1;
+
+    private final int statusCode;
+    private final Duration retryAfter;
+
+    public ChatCompletionException(String message, int statusCode, Duration retryAfter) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return HTTP status of the failed response, or {@link #NO_STATUS}
+     */
+    public int statusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return delay the provider asked for before the next request, if it sent one
+     */
+    public Optional<Duration> retryAfter() {
+        return Optional.ofNullable(retryAfter);
+    }
+
+    /**
+     * @return {@code true} for throttling, request timeouts and server-side errors, which may succeed later
+     */
+    public boolean isRetryable() {
+        return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+}
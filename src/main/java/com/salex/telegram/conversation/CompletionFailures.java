@@ -0,0 +1,72 @@
+package com.salex.telegram.conversation;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Classifies failures raised by {@link ChatCompletionClient} calls for the decorators that retry or fail over,
+ * and unwraps them for the decorators' blocking entry points.
+ */
+final class CompletionFailures {
+
+    private CompletionFailures() {
+    }
+
+    /**
+     * @return {@code true} when another attempt, possibly elsewhere, may succeed: throttling, server errors,
+     * timeouts and transport failures
+     */
+    static boolean isTransient(Throwable failure) {
+        if (failure instanceof ChatCompletionException completion) {
+            return completion.isRetryable();
+        }
+        return failure instanceof TimeoutException || failure instanceof IOException;
+    }
+
+    /**
+     * Abandons a delegate request because the caller's own future settled with {@code outcome}. A timeout is
+     * handed down as the same {@link TimeoutException}, so the layers below can count it against the provider
+     * instead of seeing a plain cancellation; any other outcome cancels the request.
+     */
+    static void abandon(CompletableFuture<?> request, Throwable outcome) {
+        Throwable failure = outcome == null ? null : unwrap(outcome);
+        if (failure instanceof TimeoutException) {
+            request.completeExceptionally(failure);
+        } else {
+            request.cancel(true);
+        }
+    }
+
+    /**
+     * Blocks for a reply started through {@link ChatCompletionClient#completeAsync(java.util.List)}, rethrowing
+     * the failure that settled it. Interrupting the caller cancels the request.
+     */
+    static <T> T await(CompletableFuture<T> reply) throws Exception {
+        try {
+            return reply.get();
+        } catch (InterruptedException ex) {
+            reply.cancel(true);
+            throw ex;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Strips the wrappers {@link java.util.concurrent.CompletableFuture} adds around the real failure.
+     */
+    static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+}
@@ -0,0 +1,118 @@
+package com.salex.telegram.conversation;
+
+import com.salex.telegram.infrastructure.ratelimit.AdaptiveConcurrencyLimiter;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs chat completions through an {@link AdaptiveConcurrencyLimiter} so a burst of conversations cannot flood
+ * the provider. Throttling, server errors, timeouts and transport failures lower the limit; a caller abandoning a
+ * request with a {@link java.util.concurrent.TimeoutException} counts as a timeout, a plain cancellation does
+ * not. Rate-limit pacing belongs outside this client so a paced request does not hold a slot. Callers the limiter
+ * turns away get a non-retryable {@link ChatCompletionException}: local overload is no reason to retry or to
+ * count against the provider's circuit.
+ */
+public final class ConcurrencyLimitedChatCompletionClient implements ChatCompletionClient {
+
+    private final ChatCompletionClient delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedChatCompletionClient(ChatCompletionClient delegate, AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.limiter = Objects.requireNonNull(limiter, "limiter");
+    }
+
+    @Override
+    public String complete(List<ConversationMessageRecord> conversation) throws Exception {
+        return CompletionFailures.await(completeAsync(conversation));
+    }
+
+    @Override
+    public CompletableFuture<String> completeAsync(List<ConversationMessageRecord> conversation) {
+        Objects.requireNonNull(conversation, "conversation");
+        CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> permit = limiter.acquire();
+        AtomicReference<CompletableFuture<String>> current = new AtomicReference<>();
+        result.whenComplete((reply, error) -> {
+            permit.cancel(false);
+            CompletableFuture<String> request = current.get();
+            if (request != null) {
+                CompletionFailures.abandon(request, error);
+            }
+        });
+        permit.whenComplete((granted, error) -> {
+            if (error != null) {
+                result.completeExceptionally(rejected(CompletionFailures.unwrap(error)));
+                return;
+            }
+            if (result.isDone()) {
+                granted.release();
+                return;
+            }
+            CompletableFuture<String> request = delegate.completeAsync(conversation);
+            current.set(request);
+            if (result.isDone()) {
+                result.whenComplete((ignored, outcome) -> CompletionFailures.abandon(request, outcome));
+            }
+            request.whenComplete((reply, failure) -> {
+                settle(granted, failure == null ? null : CompletionFailures.unwrap(failure));
+                if (failure == null) {
+                    result.complete(reply);
+                } else {
+                    result.completeExceptionally(CompletionFailures.unwrap(failure));
+                }
+            });
+        });
+        return result;
+    }
+
+    @Override
+    public String completeStreaming(List<ConversationMessageRecord> conversation,
+                                    Consumer<String> onDelta) throws Exception {
+        AdaptiveConcurrencyLimiter.Permit permit;
+        try {
+            permit = limiter.await();
+        } catch (RejectedExecutionException ex) {
+            throw new ChatCompletionException(ex.getMessage(), ChatCompletionException.NO_STATUS, null);
+        }
+        try {
+            String reply = delegate.completeStreaming(conversation, onDelta);
+            permit.onSuccess();
+            return reply;
+        } catch (Exception ex) {
+            settle(permit, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * @return the limiter's current limit, queue and counters
+     */
+    public AdaptiveConcurrencyLimiter.Stats stats() {
+        return limiter.stats();
+    }
+
+    private static void settle(AdaptiveConcurrencyLimiter.Permit permit, Throwable failure) {
+        if (failure == null) {
+            permit.onSuccess();
+        } else if (!(failure instanceof CancellationException) && CompletionFailures.isTransient(failure)) {
+            permit.onDropped();
+        } else {
+            permit.release();
+        }
+    }
+
+    private static Throwable rejected(Throwable failure) {
+        if (failure instanceof RejectedExecutionException) {
+            return new ChatCompletionException(failure.getMessage(), ChatCompletionException.NO_STATUS, null);
+        }
+        return failure;
+    }
+}
@@ -0,0 +1,107 @@
+package com.salex.telegram.conversation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Folds older conversation turns into a running summary using the chat model. Work runs on a small
+ * dedicated pool so it never delays a reply; when the pool is saturated the request is refused and the
+ * history simply stays uncompacted until the next attempt.
+ */
+public final class ConversationCompactor implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ConversationCompactor.class);
+    private static final String INSTRUCTIONS = """
+            You maintain a running summary of a chat between a user and an assistant. Merge the previous \
+            summary and the new turns into one summary of at most %d words. Keep facts, names, decisions, \
+            preferences and open questions; drop greetings and filler. Reply with the summary only.""";
+
+    private final ChatCompletionClient client;
+    private final Executor executor;
+    private final int maxSummaryWords;
+
+    /**
+     * @param client          client used to produce summaries
+     * @param maxConcurrent   summaries generated at the same time
+     * @param maxQueued       summaries that may wait for a worker before new requests are refused
+     * @param maxSummaryWords length the model is asked to keep the summary under
+     */
+    public ConversationCompactor(ChatCompletionClient client, int maxConcurrent, int maxQueued, int maxSummaryWords) {
+        this(client, newExecutor(maxConcurrent, maxQueued), maxSummaryWords);
+    }
+
+    ConversationCompactor(ChatCompletionClient client, Executor executor, int maxSummaryWords) {
+        this.client = Objects.requireNonNull(client, "client");
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.maxSummaryWords = Math.max(20, maxSummaryWords);
+    }
+
+    /**
+     * Starts summarizing the given turns together with the existing summary.
+     *
+     * @param previousSummary summary produced by an earlier compaction, or {@code null}
+     * @param turns           oldest turns to fold into the summary, in order
+     * @return the new summary; completes exceptionally when generation fails or the pool is saturated
+     */
+    public CompletableFuture<String> summarize(String previousSummary, List<ConversationMessageRecord> turns) {
+        List<ConversationMessageRecord> request = buildRequest(previousSummary, turns);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return client.complete(request).strip();
+                } catch (Exception ex) {
+                    throw new IllegalStateException("Summary generation failed: " + ex.getMessage(), ex);
+                }
+            }, executor);
+        } catch (RuntimeException ex) {
+            log.debug("Compaction refused: {}", ex.getMessage());
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    private List<ConversationMessageRecord> buildRequest(String previousSummary,
+                                                         List<ConversationMessageRecord> turns) {
+        StringBuilder transcript = new StringBuilder();
+        if (previousSummary != null && !previousSummary.isBlank()) {
+            transcript.append("Previous summary:\n").append(previousSummary).append("\n\n");
+        }
+        transcript.append("New turns:\n");
+        for (ConversationMessageRecord turn : turns) {
+            transcript.append(turn.role()).append(": ").append(turn.content()).append('\n');
+        }
+        List<ConversationMessageRecord> request = new ArrayList<>(2);
+        request.add(new ConversationMessageRecord("system", INSTRUCTIONS.formatted(maxSummaryWords)));
+        request.add(new ConversationMessageRecord("user", transcript.toString()));
+        return request;
+    }
+
+    private static ExecutorService newExecutor(int maxConcurrent, int maxQueued) {
+        int threads = Math.max(1, maxConcurrent);
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueued)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "conversation-compactor-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -1,40 +1,110 @@
 package com.salex.telegram.conversation;
 
+import com.salex.telegram.infrastructure.cache.BoundedCache;
+import com.salex.telegram.infrastructure.messaging.ConversationKey;
 import com.salex.telegram.infrastructure.messaging.LoggedMessage;
 import com.salex.telegram.infrastructure.messaging.MessageRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 
 /**
  * Maintains a short-term conversational buffer per chat/user pair, seeding from persisted history when
- * available so the bot can provide stateful responses without repeatedly querying the database.
+ * available so the bot can provide stateful responses without repeatedly querying the database. Each request
+ * includes as much recent history as fits the configured token budget. Cached histories are bounded by
+ * count, estimated heap use and idle time; an evicted conversation is reloaded from the repository on its
+ * next message. When compaction is configured, long histories have their oldest turns folded into a summary
+ * message in the background after an exchange is recorded.
  */
 //TODO: does this need to be a service?
 public class ConversationContextService {
     private static final Logger log = LoggerFactory.getLogger(ConversationContextService.class);
-    private static final int DEFAULT_MAX_MESSAGES = 20;
+    private static final int DEFAULT_MAX_MESSAGES = 40;
+    private static final int DEFAULT_TOKEN_BUDGET = 4_000;
+    private static final String SUMMARY_PREFIX = "Summary of the earlier conversation:\n";
+    private static final CacheLimits DEFAULT_CACHE_LIMITS =
+            new CacheLimits(10_000, 64L * 1024 * 1024, Duration.ofMinutes(30));
 
     private final MessageRepository messageRepository;
     private final int maxMessages;
-    private final Map<ContextKey, ConversationHistory> histories = new ConcurrentHashMap<>();
+    private final int tokenBudget;
+    private final TokenEstimator tokenEstimator;
+    private final BoundedCache<ConversationKey, ConversationHistory> histories;
+    private final Compaction compaction;
 
+    private final LongAdder requestsBuilt = new LongAdder();
+    private final LongAdder promptTokens = new LongAdder();
+    private final LongAdder trimmedMessages = new LongAdder();
+    private final LongAdder trimmedTokens = new LongAdder();
+    private final LongAdder compactedMessages = new LongAdder();
 
     public ConversationContextService(MessageRepository messageRepository) {
         this(messageRepository, DEFAULT_MAX_MESSAGES);
     }
 
     public ConversationContextService(MessageRepository messageRepository, int maxMessages) {
+        this(messageRepository, maxMessages, DEFAULT_TOKEN_BUDGET, new TokenEstimator(), DEFAULT_CACHE_LIMITS);
+    }
+
+    public ConversationContextService(MessageRepository messageRepository,
+                                      int maxMessages,
+                                      int tokenBudget,
+                                      TokenEstimator tokenEstimator) {
+        this(messageRepository, maxMessages, tokenBudget, tokenEstimator, DEFAULT_CACHE_LIMITS);
+    }
+
+    /**
+     * @param messageRepository repository used to seed history
+     * @param maxMessages       upper bound on messages cached per conversation
+     * @param tokenBudget       estimated prompt tokens a request may use, including the new user message
+     * @param tokenEstimator    estimator used to measure messages
+     * @param cacheLimits       bounds on the in-memory history cache
+     */
+    public ConversationContextService(MessageRepository messageRepository,
+                                      int maxMessages,
+                                      int tokenBudget,
+                                      TokenEstimator tokenEstimator,
+                                      CacheLimits cacheLimits) {
+        this(messageRepository, maxMessages, tokenBudget, tokenEstimator, cacheLimits, null);
+    }
+
+    /**
+     * @param messageRepository repository used to seed history
+     * @param maxMessages       upper bound on messages cached per conversation
+     * @param tokenBudget       estimated prompt tokens a request may use, including the new user message
+     * @param tokenEstimator    estimator used to measure messages
+     * @param cacheLimits       bounds on the in-memory history cache
+     * @param compaction        background summarization of old turns; {@code null} disables it
+     */
+    public ConversationContextService(MessageRepository messageRepository,
+                                      int maxMessages,
+                                      int tokenBudget,
+                                      TokenEstimator tokenEstimator,
+                                      CacheLimits cacheLimits,
+                                      Compaction compaction) {
         this.messageRepository = Objects.requireNonNull(messageRepository, "messageRepository");
         this.maxMessages = Math.max(2, maxMessages);
+        this.tokenBudget = Math.max(1, tokenBudget);
+        this.tokenEstimator = Objects.requireNonNull(tokenEstimator, "tokenEstimator");
+        Objects.requireNonNull(cacheLimits, "cacheLimits");
+        this.histories = new BoundedCache<>(
+                Math.max(1, cacheLimits.maxConversations()),
+                Math.max(1L, cacheLimits.maxBytes()),
+                cacheLimits.idleTtl(),
+                ConversationHistory::retainedBytes);
+        this.compaction = compaction;
     }
 
     /**
@@ -49,21 +119,80 @@ public class ConversationContextService {
     public List<ConversationMessageRecord> buildRequestMessages(long chatId, long userId, String userText) {
         Objects.requireNonNull(userText, "userText");
 
-        ConversationHistory history = histories.computeIfAbsent(new ContextKey(chatId, userId), this::createHistory);
-        history.seedIfNecessary(() -> loadFromRepository(chatId, userId));
+        ConversationKey key = new ConversationKey(chatId, userId);
+        ConversationHistory history = histories.get(key, this::createHistory);
+        if (history.seedIfNecessary(() -> loadFromRepository(chatId, userId))) {
+            histories.reweigh(key);
+        }
 
         List<ConversationMessageRecord> snapshot = history.snapshot();
-        List<ConversationMessageRecord> request = new ArrayList<>(snapshot.size() + 1);
-        request.addAll(snapshot);
-        request.add(new ConversationMessageRecord("user", userText));
-        log.debug("Prepared {} context messages ({} prior) for chat {}, user {}",
+        ConversationMessageRecord userMessage = new ConversationMessageRecord("user", userText);
+        int userTokens = tokenEstimator.estimate(userMessage);
+        int available = tokenBudget - TokenEstimator.REQUEST_OVERHEAD_TOKENS - userTokens;
+
+        int[] costs = new int[snapshot.size()];
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = tokenEstimator.estimate(snapshot.get(i));
+        }
+
+        // Walk back from the newest message and keep whatever still fits the budget.
+        int start = snapshot.size();
+        int used = 0;
+        while (start > 0 && used + costs[start - 1] <= available) {
+            used += costs[start - 1];
+            start--;
+        }
+        // Do not open the context with a reply whose question was trimmed away.
+        while (start < snapshot.size() && "assistant".equals(snapshot.get(start).role())) {
+            used -= costs[start];
+            start++;
+        }
+
+        List<ConversationMessageRecord> request = new ArrayList<>(snapshot.size() - start + 1);
+        request.addAll(snapshot.subList(start, snapshot.size()));
+        request.add(userMessage);
+
+        int promptEstimate = TokenEstimator.REQUEST_OVERHEAD_TOKENS + used + userTokens;
+        requestsBuilt.increment();
+        promptTokens.add(promptEstimate);
+        if (start > 0) {
+            trimmedMessages.add(start);
+            for (int i = 0; i < start; i++) {
+                trimmedTokens.add(costs[i]);
+            }
+        }
+        log.debug("Prepared {} context messages ({} prior, {} trimmed, ~{} tokens of {}) for chat {}, user {}",
                 request.size(),
-                snapshot.size(),
+                snapshot.size() - start,
+                start,
+                promptEstimate,
+                tokenBudget,
                 chatId,
                 userId);
         return request;
     }
 
+    /**
+     * @return counters describing how prompts were assembled so far
+     */
+    public ContextStats stats() {
+        long requests = requestsBuilt.sum();
+        return new ContextStats(
+                requests,
+                requests == 0 ? 0d : (double) promptTokens.sum() / requests,
+                trimmedMessages.sum(),
+                trimmedTokens.sum(),
+                compactedMessages.sum()
+        );
+    }
+
+    /**
+     * @return hit, miss and eviction counters of the history cache
+     */
+    public BoundedCache.Stats cacheStats() {
+        return histories.stats();
+    }
+
     /**
      * Records the completed exchange so future prompts can reference it without making another repository call.
      */
@@ -71,36 +200,159 @@ public class ConversationContextService {
         Objects.requireNonNull(userText, "userText");
         Objects.requireNonNull(assistantReply, "assistantReply");
 
-        ConversationHistory history = histories.computeIfAbsent(new ContextKey(chatId, userId), this::createHistory);
+        ConversationKey key = new ConversationKey(chatId, userId);
+        ConversationHistory history = histories.get(key, this::createHistory);
         history.seedIfNecessary(() -> loadFromRepository(chatId, userId));
         history.append(new ConversationMessageRecord("user", userText));
         history.append(new ConversationMessageRecord("assistant", assistantReply));
+        histories.reweigh(key);
+        compactIfNeeded(key, history);
         log.debug("Recorded exchange for chat {}, user {}; context now holds {} messages",
                 chatId,
                 userId,
                 history.size());
     }
 
+    /**
+     * Seeds the cache for several conversations with one repository call, so a burst of updates does not
+     * trigger one history query per conversation. Conversations that are already cached are skipped.
+     *
+     * @param conversations conversations about to be handled
+     */
+    public void prefetch(Collection<ConversationKey> conversations) {
+        Set<ConversationKey> missing = new LinkedHashSet<>();
+        for (ConversationKey key : conversations) {
+            ConversationHistory history = histories.getIfPresent(key);
+            if (history == null || !history.isSeeded()) {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<ConversationKey, List<LoggedMessage>> stored;
+        try {
+            stored = messageRepository.findRecent(missing, seedExchanges());
+        } catch (RuntimeException ex) {
+            log.warn("Failed to prefetch conversation history for {} conversations: {}",
+                    missing.size(), ex.getMessage(), ex);
+            return;
+        }
+
+        for (ConversationKey key : missing) {
+            List<LoggedMessage> exchanges = stored.getOrDefault(key, List.of());
+            if (histories.get(key, this::createHistory).seedIfNecessary(() -> toMessages(exchanges))) {
+                histories.reweigh(key);
+            }
+        }
+        log.debug("Prefetched conversation history for {} conversations", missing.size());
+    }
+
     /**
      * Clears any cached messages for the conversation.
      */
     public void resetConversation(long chatId, long userId) {
-        histories.remove(new ContextKey(chatId, userId));
+        histories.invalidate(new ConversationKey(chatId, userId));
     }
 
-    private ConversationHistory createHistory(ContextKey key) {
+    private ConversationHistory createHistory(ConversationKey key) {
         return new ConversationHistory(maxMessages);
     }
 
+    /**
+     * Exchanges loaded when a conversation is seeded. Summaries are not persisted, so with compaction enabled
+     * only the turns a compaction would keep are loaded; seeding more would put a returning conversation over
+     * the trigger straight away and cost a summarization call for turns the user already saw summarized.
+     */
+    private int seedExchanges() {
+        if (compaction == null) {
+            return maxMessages / 2;
+        }
+        return Math.max(1, Math.min(maxMessages, compaction.keepMessages()) / 2);
+    }
+
     private List<ConversationMessageRecord> loadFromRepository(long chatId, long userId) {
         List<LoggedMessage> stored;
         try {
-            stored = messageRepository.findRecent(chatId, userId, maxMessages / 2);
+            stored = messageRepository.findRecent(chatId, userId, seedExchanges());
         } catch (RuntimeException ex) {
             log.warn("Failed to load conversation history for chat {}, user {}: {}",
                     chatId, userId, ex.getMessage(), ex);
             return List.of();
         }
+        List<ConversationMessageRecord> messages = toMessages(stored);
+        log.debug("Loaded {} messages of conversation history for chat {}, user {}", messages.size(), chatId, userId);
+        return messages;
+    }
+
+    /**
+     * Snapshot of prompt assembly counters.
+     *
+     * @param requests         prompts built
+     * @param meanPromptTokens mean estimated prompt size in tokens
+     * @param trimmedMessages  cached messages left out to stay within the budget
+     * @param trimmedTokens     estimated tokens saved by trimming
+     * @param compactedMessages messages folded into conversation summaries
+     */
+    public record ContextStats(long requests,
+                               double meanPromptTokens,
+                               long trimmedMessages,
+                               long trimmedTokens,
+                               long compactedMessages) {
+    }
+
+    /**
+     * Bounds on the in-memory history cache.
+     *
+     * @param maxConversations conversations kept in memory at most
+     * @param maxBytes         estimated heap the cached histories may retain
+     * @param idleTtl          time without activity after which a conversation is dropped from memory
+     */
+    public record CacheLimits(int maxConversations, long maxBytes, Duration idleTtl) {
+    }
+
+    /**
+     * Background summarization settings.
+     *
+     * @param compactor       generates the summaries
+     * @param triggerMessages history size at which the oldest turns are summarized
+     * @param keepMessages    most recent messages kept verbatim after a compaction
+     */
+    public record Compaction(ConversationCompactor compactor, int triggerMessages, int keepMessages) {
+        public Compaction {
+            Objects.requireNonNull(compactor, "compactor");
+            if (keepMessages < 2 || triggerMessages <= keepMessages) {
+                throw new IllegalArgumentException("triggerMessages must exceed keepMessages, which must be >= 2");
+            }
+        }
+    }
+
+    private void compactIfNeeded(ConversationKey key, ConversationHistory history) {
+        if (compaction == null) {
+            return;
+        }
+        ConversationHistory.PendingCompaction pending =
+                history.beginCompaction(compaction.triggerMessages(), compaction.keepMessages());
+        if (pending == null) {
+            return;
+        }
+        compaction.compactor().summarize(pending.previousSummary(), pending.turns())
+                .whenComplete((summary, error) -> {
+                    if (error != null || summary == null || summary.isBlank()) {
+                        history.abortCompaction();
+                        log.warn("Failed to compact conversation for chat {}, user {}: {}", key.chatId(),
+                                key.userId(), error != null ? error.getMessage() : "empty summary");
+                        return;
+                    }
+                    int removed = history.completeCompaction(pending, summary);
+                    histories.reweigh(key);
+                    compactedMessages.add(removed);
+                    log.debug("Compacted {} messages for chat {}, user {}", removed, key.chatId(), key.userId());
+                });
+    }
+
+    private List<ConversationMessageRecord> toMessages(List<LoggedMessage> stored) {
         if (stored.isEmpty()) {
             return List.of();
         }
@@ -123,29 +375,35 @@ public class ConversationContextService {
             messages = messages.subList(overflow, messages.size());
         }
 
-        log.debug("Loaded {} messages of conversation history for chat {}, user {}", messages.size(), chatId, userId);
         return List.copyOf(messages);
     }
 
-    private record ContextKey(long chatId, long userId) {
-    }
-
     private static final class ConversationHistory {
+        // Rough heap cost of the history object itself and of each record beyond its text.
+        private static final long BASE_BYTES = 96L;
+        private static final long MESSAGE_BYTES = 64L;
+
         private final int maxEntries;
         private final Deque<ConversationMessageRecord> messages = new ArrayDeque<>();
         private boolean seeded;
+        private String summary;
+        private boolean compacting;
+        private volatile long retainedBytes = BASE_BYTES;
 
         private ConversationHistory(int maxEntries) {
             this.maxEntries = maxEntries;
         }
 
-        private void seedIfNecessary(Supplier<List<ConversationMessageRecord>> loader) {
+        /**
+         * @return {@code true} if this call seeded the history
+         */
+        private boolean seedIfNecessary(Supplier<List<ConversationMessageRecord>> loader) {
             if (seeded) {
-                return;
+                return false;
             }
             synchronized (this) {
                 if (seeded) {
-                    return;
+                    return false;
                 }
                 if (loader != null) {
                     List<ConversationMessageRecord> initial = loader.get();
@@ -156,12 +414,81 @@ public class ConversationContextService {
                     }
                 }
                 seeded = true;
+                return true;
+            }
+        }
+
+        private boolean isSeeded() {
+            synchronized (this) {
+                return seeded;
             }
         }
 
         private List<ConversationMessageRecord> snapshot() {
             synchronized (this) {
-                return List.copyOf(messages);
+                if (summary == null) {
+                    return List.copyOf(messages);
+                }
+                List<ConversationMessageRecord> copy = new ArrayList<>(messages.size() + 1);
+                copy.add(new ConversationMessageRecord("system", SUMMARY_PREFIX + summary));
+                copy.addAll(messages);
+                return copy;
+            }
+        }
+
+        /**
+         * Claims the oldest turns for summarization once the history reaches {@code trigger} messages. The
+         * cut is placed so the kept part starts with a user message.
+         *
+         * @return the work to do, or {@code null} when nothing needs compacting or a compaction is running
+         */
+        private PendingCompaction beginCompaction(int trigger, int keep) {
+            synchronized (this) {
+                if (compacting || messages.size() < trigger) {
+                    return null;
+                }
+                List<ConversationMessageRecord> all = List.copyOf(messages);
+                int cut = all.size() - keep;
+                while (cut > 0 && !"user".equals(all.get(cut).role())) {
+                    cut--;
+                }
+                if (cut == 0) {
+                    return null;
+                }
+                compacting = true;
+                return new PendingCompaction(summary, all.subList(0, cut));
+            }
+        }
+
+        /**
+         * Replaces the summarized turns with the new summary. Turns that were already pushed out by
+         * {@link #appendInternal} in the meantime are skipped.
+         *
+         * @return number of messages removed
+         */
+        private int completeCompaction(PendingCompaction pending, String newSummary) {
+            synchronized (this) {
+                int removed = 0;
+                for (ConversationMessageRecord turn : pending.turns()) {
+                    if (messages.peekFirst() == turn) {
+                        messages.removeFirst();
+                        removed++;
+                    }
+                }
+                summary = newSummary;
+                compacting = false;
+                long bytes = BASE_BYTES + 2L * newSummary.length();
+                for (ConversationMessageRecord message : messages) {
+                    bytes += bytesOf(message);
+                }
+                retainedBytes = bytes;
+                return removed;
+            }
+        }
+
+        private void abortCompaction() {
+            synchronized (this) {
+                compacting = false;
             }
         }
 
@@ -174,9 +501,23 @@ public class ConversationContextService {
 
         private void appendInternal(ConversationMessageRecord message) {
             messages.addLast(message);
+            long bytes = retainedBytes + bytesOf(message);
             while (messages.size() > maxEntries) {
-                messages.removeFirst();
+                bytes -= bytesOf(messages.removeFirst());
             }
+            retainedBytes = bytes;
+        }
+
+        private long retainedBytes() {
+            return retainedBytes;
+        }
+
+        private record PendingCompaction(String previousSummary, List<ConversationMessageRecord> turns) {
+        }
+
+        private static long bytesOf(ConversationMessageRecord message) {
+            String content = message.content();
+            return MESSAGE_BYTES + (content == null ? 0L : 2L * content.length());
         }
 
         private int size() {
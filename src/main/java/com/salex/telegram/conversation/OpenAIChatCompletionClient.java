@@ -1,34 +1,53 @@
 package com.salex.telegram.conversation;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.salex.telegram.infrastructure.ratelimit.OpenAiRateLimitTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Small HTTP client that calls OpenAI's chat completions endpoint.
  */
 public class OpenAIChatCompletionClient implements ChatCompletionClient {
     private static final Logger log = LoggerFactory.getLogger(OpenAIChatCompletionClient.class);
+    private static final String SSE_DATA_PREFIX = "data:";
+    private static final String SSE_DONE = "[DONE]";
     private final HttpClient httpClient;
     private final String apiKey;
     private final String model;
     private final URI endpoint;
+    private final OpenAiRateLimitTracker rateLimits;
 
     public OpenAIChatCompletionClient(HttpClient httpClient, String apiKey, String model) {
         this(httpClient, apiKey, model, URI.create("https://api.openai.com/v1/chat/completions"));
     }
 
     public OpenAIChatCompletionClient(HttpClient httpClient, String apiKey, String model, URI endpoint) {
+        this(httpClient, apiKey, model, endpoint, null);
+    }
+
+    /**
+     * @param rateLimits tracker fed with the provider's rate-limit headers, which a
+     *                   {@link PacedChatCompletionClient} reads to pace requests; {@code null} ignores the headers
+     */
+    public OpenAIChatCompletionClient(HttpClient httpClient,
+                                      String apiKey,
+                                      String model,
+                                      URI endpoint,
+                                      OpenAiRateLimitTracker rateLimits) {
         this.httpClient = Objects.requireNonNull(httpClient, "httpClient");
         this.apiKey = Objects.requireNonNull(apiKey, "apiKey");
         if (apiKey.isBlank()) {
@@ -39,72 +58,138 @@ public class OpenAIChatCompletionClient implements ChatCompletionClient {
             throw new IllegalArgumentException("model must not be blank");
         }
         this.endpoint = Objects.requireNonNull(endpoint, "endpoint");
+        this.rateLimits = rateLimits;
     }
 
     @Override
     public String complete(List<ConversationMessageRecord> conversation) throws Exception {
         Objects.requireNonNull(conversation, "conversation");
 
-        JsonObject payload = new JsonObject();
-        payload.addProperty("model", model);
-        payload.add("messages", toPayloadMessages(conversation));
+        HttpRequest request = buildRequest(conversation, false);
+        return parseCompletion(httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray()));
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(endpoint)
-                .header("Content-Type", "application/json")
-                .header("Authorization", "Bearer " + apiKey)
-                .POST(HttpRequest.BodyPublishers.ofString(payload.toString(), StandardCharsets.UTF_8))
-                .build();
+    /**
+     * Sends the request with {@link HttpClient#sendAsync}; cancelling the returned future, or completing it
+     * exceptionally, aborts the exchange.
+     */
+    @Override
+    public CompletableFuture<String> completeAsync(List<ConversationMessageRecord> conversation) {
+        Objects.requireNonNull(conversation, "conversation");
+
+        HttpRequest request = buildRequest(conversation, false);
+        CompletableFuture<HttpResponse<byte[]>> exchange =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        CompletableFuture<String> reply = new CompletableFuture<>();
+        reply.whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                exchange.cancel(true);
+            }
+        });
+        exchange.whenComplete((response, ex) -> {
+            if (ex != null) {
+                reply.completeExceptionally(ex);
+                return;
+            }
+            try {
+                reply.complete(parseCompletion(response));
+            } catch (IOException | RuntimeException parseFailure) {
+                reply.completeExceptionally(parseFailure);
+            }
+        });
+        return reply;
+    }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    private String parseCompletion(HttpResponse<byte[]> response) throws IOException {
         log.debug("Chat completion responded with status {}", response.statusCode());
-        if (response.statusCode() / 100 != 2) {
-            throw new IllegalStateException("Chat completion request failed with status " + response.statusCode());
+        if (rateLimits != null) {
+            rateLimits.update(response.headers());
         }
-
-        JsonObject root = JsonParser.parseString(response.body()).getAsJsonObject();
-        JsonArray choices = root.getAsJsonArray("choices");
-        if (choices == null || choices.size() == 0) {
-            throw new IllegalStateException("Chat completion response missing choices");
+        if (response.statusCode() / 100 != 2) {
+            throw failure(response);
         }
-        //NOTE: HERE IS WHERE THE PROGRAM WILL RETURN THE MESSAGE AS A MESSAGE!
-
-        JsonObject message = choices.get(0).getAsJsonObject().getAsJsonObject("message");
-        if (message == null || !message.has("content")) {
-            throw new IllegalStateException("Chat completion response missing message content");
+        ChatCompletionCodec.Completion completion = ChatCompletionCodec.decodeResponse(response.body());
+        if (completion.usage() != null) {
+            log.debug("Chat completion used {} prompt and {} completion tokens",
+                    completion.usage().promptTokens(), completion.usage().completionTokens());
         }
-        return message.get("content").getAsString();
+        return completion.content();
     }
 
-    //Generate the list of inputs.
-    private JsonArray toPayloadMessages(List<ConversationMessageRecord> conversation) {
-        JsonArray messages = new JsonArray();
-        if (conversation.isEmpty()) {
-            JsonObject fallbackMessage = new JsonObject();
-            fallbackMessage.addProperty("role", "user");
-            fallbackMessage.addProperty("content", "");
-            messages.add(fallbackMessage);
-            return messages;
-        }
-
-        for (ConversationMessageRecord entry : conversation) {
-            JsonObject messageObject = new JsonObject();
-            messageObject.addProperty("role", entry.role());
-
-            //TODO: turn into a function that can be auto fulfilled.
-            //THIS IS WHERE LANGCHAIN WILL GO INTO. 
-            StringBuilder messageContent = new StringBuilder();
-            messageContent.append(entry.content());
-            messageContent.append("\n");
-            messageContent.append(entry.timestamp().toString());
-
-            messageObject.addProperty("content", messageContent.toString());
-            messages.add(messageObject);
+    /**
+     * Requests the completion as a server-sent event stream and forwards every content delta as it arrives.
+     */
+    @Override
+    public String completeStreaming(List<ConversationMessageRecord> conversation,
+                                    Consumer<String> onDelta) throws Exception {
+        Objects.requireNonNull(conversation, "conversation");
+        Objects.requireNonNull(onDelta, "onDelta");
 
+        HttpRequest request = buildRequest(conversation, true);
+        HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+        log.debug("Streaming chat completion responded with status {}", response.statusCode());
+        if (rateLimits != null) {
+            rateLimits.update(response.headers());
         }
+        try (Stream<String> lines = response.body()) {
+            if (response.statusCode() / 100 != 2) {
+                throw failure(response);
+            }
+            StringBuilder reply = new StringBuilder();
+            Iterator<String> iterator = lines.iterator();
+            while (iterator.hasNext()) {
+                String line = iterator.next();
+                if (!line.startsWith(SSE_DATA_PREFIX)) {
+                    continue;
+                }
+                String data = line.substring(SSE_DATA_PREFIX.length()).trim();
+                if (SSE_DONE.equals(data)) {
+                    break;
+                }
+                if (data.isEmpty()) {
+                    continue;
+                }
+                String delta = ChatCompletionCodec.decodeDelta(data);
+                if (delta != null && !delta.isEmpty()) {
+                    reply.append(delta);
+                    onDelta.accept(delta);
+                }
+            }
+            return reply.toString();
+        }
+    }
 
+    private HttpRequest buildRequest(List<ConversationMessageRecord> conversation, boolean stream) {
+        return HttpRequest.newBuilder()
+                .uri(endpoint)
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Accept", stream ? "text/event-stream" : "application/json")
+                .POST(ChatCompletionCodec.requestBody(model, conversation, stream))
+                .build();
+    }
 
+    private static ChatCompletionException failure(HttpResponse<?> response) {
+        return new ChatCompletionException("Chat completion request failed with status " + response.statusCode(),
+                response.statusCode(), retryAfter(response));
+    }
 
-        return messages;
+    /**
+     * Reads the provider's back-off hint from {@code retry-after-ms} or {@code Retry-After} (seconds).
+     */
+    private static Duration retryAfter(HttpResponse<?> response) {
+        try {
+            OptionalLong millis = response.headers().firstValueAsLong("retry-after-ms");
+            if (millis.isPresent()) {
+                return Duration.ofMillis(millis.getAsLong());
+            }
+            OptionalLong seconds = response.headers().firstValueAsLong("retry-after");
+            if (seconds.isPresent()) {
+                return Duration.ofSeconds(seconds.getAsLong());
+            }
+        } catch (NumberFormatException ex) {
+            log.debug("Ignoring unparseable retry-after header: {}", ex.getMessage());
+        }
+        return null;
     }
 }
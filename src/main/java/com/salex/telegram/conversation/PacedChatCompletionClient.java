@@ -0,0 +1,86 @@
+package com.salex.telegram.conversation;
+
+import com.salex.telegram.infrastructure.ratelimit.OpenAiRateLimitTracker;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Holds chat completions back for the delay an {@link OpenAiRateLimitTracker} reserves for them: one request
+ * plus the estimated prompt tokens. It belongs outside {@link ConcurrencyLimitedChatCompletionClient}, so a
+ * request waiting for quota does not occupy one of the limiter's slots.
+ */
+public final class PacedChatCompletionClient implements ChatCompletionClient {
+
+    private final ChatCompletionClient delegate;
+    private final OpenAiRateLimitTracker rateLimits;
+    private final TokenEstimator tokenEstimator = new TokenEstimator();
+
+    /**
+     * @param rateLimits tracker the wrapped client feeds with the provider's rate-limit headers
+     */
+    public PacedChatCompletionClient(ChatCompletionClient delegate, OpenAiRateLimitTracker rateLimits) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.rateLimits = Objects.requireNonNull(rateLimits, "rateLimits");
+    }
+
+    @Override
+    public String complete(List<ConversationMessageRecord> conversation) throws Exception {
+        return CompletionFailures.await(completeAsync(conversation));
+    }
+
+    @Override
+    public CompletableFuture<String> completeAsync(List<ConversationMessageRecord> conversation) {
+        Objects.requireNonNull(conversation, "conversation");
+        Duration delay = pacingDelay(conversation);
+        if (delay.isZero()) {
+            return delegate.completeAsync(conversation);
+        }
+        CompletableFuture<String> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<String>> current = new AtomicReference<>();
+        result.whenComplete((reply, error) -> {
+            CompletableFuture<String> request = current.get();
+            if (request != null) {
+                CompletionFailures.abandon(request, error);
+            }
+        });
+        CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            CompletableFuture<String> request = delegate.completeAsync(conversation);
+            current.set(request);
+            if (result.isDone()) {
+                result.whenComplete((ignored, outcome) -> CompletionFailures.abandon(request, outcome));
+            }
+            request.whenComplete((reply, failure) -> {
+                if (failure == null) {
+                    result.complete(reply);
+                } else {
+                    result.completeExceptionally(CompletionFailures.unwrap(failure));
+                }
+            });
+        });
+        return result;
+    }
+
+    @Override
+    public String completeStreaming(List<ConversationMessageRecord> conversation,
+                                    Consumer<String> onDelta) throws Exception {
+        Objects.requireNonNull(conversation, "conversation");
+        TimeUnit.NANOSECONDS.sleep(pacingDelay(conversation).toNanos());
+        return delegate.completeStreaming(conversation, onDelta);
+    }
+
+    /**
+     * Reserves quota for the request and returns how long to hold it back.
+     */
+    private Duration pacingDelay(List<ConversationMessageRecord> conversation) {
+        return rateLimits.reserve(tokenEstimator.estimate(conversation));
+    }
+}
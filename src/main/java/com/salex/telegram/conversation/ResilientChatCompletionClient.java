@@ -0,0 +1,358 @@
+package com.salex.telegram.conversation;
+
+import com.salex.telegram.infrastructure.resilience.CircuitBreaker;
+import com.salex.telegram.infrastructure.resilience.LatencyWindow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Decorates a {@link ChatCompletionClient} with the failure handling a remote model needs:
+ * <ul>
+ *     <li>every attempt is abandoned with a {@link TimeoutException} once it exceeds the attempt timeout, so
+ *     the decorators below see the timeout rather than a cancellation;</li>
+ *     <li>throttling, server errors, timeouts and transport failures are retried with jittered exponential
+ *     backoff, honouring the provider's {@code Retry-After} hint;</li>
+ *     <li>a circuit breaker fails calls fast while the provider keeps failing;</li>
+ *     <li>optionally, an attempt still running after the recent p95 latency is hedged with a second request,
+ *     and whichever answers first wins.</li>
+ * </ul>
+ * Streaming calls are retried only until the first fragment has been delivered, and are never hedged. For them
+ * the attempt timeout bounds the wait for the first fragment and every gap between fragments, so a stream that
+ * keeps producing may run longer than the timeout.
+ */
+public final class ResilientChatCompletionClient implements ChatCompletionClient {
+    private static final Logger log = LoggerFactory.getLogger(ResilientChatCompletionClient.class);
+
+    private final ChatCompletionClient delegate;
+    private final Settings settings;
+    private final CircuitBreaker breaker;
+    private final LatencyWindow latencies;
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    public ResilientChatCompletionClient(ChatCompletionClient delegate, Settings settings) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.breaker = new CircuitBreaker(settings.failureThreshold(), settings.openDuration());
+        this.latencies = new LatencyWindow(settings.latencySamples(), settings.minLatencySamples());
+    }
+
+    @Override
+    public String complete(List<ConversationMessageRecord> conversation) throws Exception {
+        return CompletionFailures.await(completeAsync(conversation));
+    }
+
+    @Override
+    public CompletableFuture<String> completeAsync(List<ConversationMessageRecord> conversation) {
+        Objects.requireNonNull(conversation, "conversation");
+        Call call = new Call(conversation);
+        call.attempt(1);
+        return call.result;
+    }
+
+    @Override
+    public String completeStreaming(List<ConversationMessageRecord> conversation,
+                                    Consumer<String> onDelta) throws Exception {
+        Objects.requireNonNull(onDelta, "onDelta");
+        for (int attempt = 1; ; attempt++) {
+            if (!breaker.tryAcquire()) {
+                throw circuitOpen();
+            }
+            attempts.increment();
+            boolean[] delivered = {false};
+            long started = System.nanoTime();
+            StreamWatchdog watchdog = new StreamWatchdog();
+            try {
+                String reply = delegate.completeStreaming(conversation, delta -> {
+                    delivered[0] = true;
+                    watchdog.progress();
+                    onDelta.accept(delta);
+                });
+                watchdog.stop();
+                breaker.onSuccess();
+                latencies.record(System.nanoTime() - started);
+                return reply;
+            } catch (Exception ex) {
+                Exception failure = ex;
+                if (watchdog.stop()) {
+                    timeouts.increment();
+                    failure = attemptTimedOut();
+                    failure.initCause(ex);
+                }
+                recordFailure(failure);
+                if (delivered[0] || !CompletionFailures.isTransient(failure) || attempt >= settings.maxAttempts()) {
+                    throw failure;
+                }
+                long delay = backoffMillis(attempt, failure);
+                retries.increment();
+                log.warn("Streaming chat completion attempt {} failed ({}); retrying in {} ms",
+                        attempt, failure.getMessage(), delay);
+                TimeUnit.MILLISECONDS.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * @return counters describing retries, hedging and the circuit state
+     */
+    public Stats stats() {
+        return new Stats(attempts.sum(), retries.sum(), timeouts.sum(), hedges.sum(), hedgeWins.sum(),
+                breaker.rejectedCalls(), breaker.state());
+    }
+
+    /**
+     * One logical request: a sequence of attempts, each of which may be hedged.
+     */
+    private final class Call {
+        private final List<ConversationMessageRecord> conversation;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final Set<CompletableFuture<String>> running = ConcurrentHashMap.newKeySet();
+
+        private Call(List<ConversationMessageRecord> conversation) {
+            this.conversation = conversation;
+            // Whatever settles the call, including the caller cancelling it, abandons the remaining requests.
+            result.whenComplete((reply, error) -> running.forEach(request -> request.cancel(true)));
+        }
+
+        private void attempt(int number) {
+            if (result.isDone()) {
+                return;
+            }
+            AtomicInteger outstanding = new AtomicInteger();
+            if (!launch(number, outstanding, false)) {
+                result.completeExceptionally(circuitOpen());
+                return;
+            }
+            OptionalLong p95 = settings.hedgingEnabled() ? latencies.percentile(95) : OptionalLong.empty();
+            if (p95.isPresent()) {
+                long delayNanos = Math.max(p95.getAsLong(), settings.minHedgeDelay().toNanos());
+                CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(() -> {
+                    if (!result.isDone() && outstanding.get() > 0 && launch(number, outstanding, true)) {
+                        hedges.increment();
+                    }
+                });
+            }
+        }
+
+        /**
+         * @return {@code false} if the circuit breaker refused the request
+         */
+        private boolean launch(int number, AtomicInteger outstanding, boolean hedge) {
+            if (!breaker.tryAcquire()) {
+                return false;
+            }
+            attempts.increment();
+            outstanding.incrementAndGet();
+            long started = System.nanoTime();
+            CompletableFuture<String> request = delegate.completeAsync(conversation);
+            running.add(request);
+            if (result.isDone()) {
+                request.cancel(true);
+            }
+            CompletableFuture.delayedExecutor(settings.attemptTimeout().toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+                if (!request.isDone()) {
+                    request.completeExceptionally(attemptTimedOut());
+                }
+            });
+            request.whenComplete((reply, error) -> {
+                running.remove(request);
+                if (error == null) {
+                    breaker.onSuccess();
+                    latencies.record(System.nanoTime() - started);
+                    if (result.complete(reply) && hedge) {
+                        hedgeWins.increment();
+                    }
+                    return;
+                }
+                Throwable failure = CompletionFailures.unwrap(error);
+                if (failure instanceof CancellationException) {
+                    breaker.onIgnored();
+                    return;
+                }
+                if (failure instanceof TimeoutException) {
+                    timeouts.increment();
+                }
+                recordFailure(failure);
+                if (outstanding.decrementAndGet() == 0) {
+                    retryOrFail(number, failure);
+                }
+            });
+            return true;
+        }
+
+        private void retryOrFail(int number, Throwable failure) {
+            if (result.isDone()) {
+                return;
+            }
+            if (!CompletionFailures.isTransient(failure) || number >= settings.maxAttempts()) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            long delay = backoffMillis(number, failure);
+            retries.increment();
+            log.warn("Chat completion attempt {} failed ({}); retrying in {} ms", number, failure.getMessage(), delay);
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> attempt(number + 1));
+        }
+    }
+
+    /**
+     * Interrupts the streaming caller once no fragment has arrived for the attempt timeout, counted from the start
+     * of the attempt and then from the latest fragment. The blocking HTTP exchange and the body stream both give
+     * up on interruption.
+     */
+    private final class StreamWatchdog {
+        private final Thread caller = Thread.currentThread();
+        private final long timeoutNanos = settings.attemptTimeout().toNanos();
+        private volatile long lastProgress = System.nanoTime();
+        private boolean stopped;
+        private boolean expired;
+
+        private StreamWatchdog() {
+            arm(timeoutNanos);
+        }
+
+        private void progress() {
+            lastProgress = System.nanoTime();
+        }
+
+        /**
+         * Stops watching and clears the interrupt the watchdog raised, if any.
+         *
+         * @return {@code true} if the attempt was interrupted for being idle too long
+         */
+        private synchronized boolean stop() {
+            stopped = true;
+            if (expired) {
+                Thread.interrupted();
+            }
+            return expired;
+        }
+
+        private void arm(long delayNanos) {
+            CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(this::check);
+        }
+
+        private void check() {
+            long idle = System.nanoTime() - lastProgress;
+            synchronized (this) {
+                if (stopped) {
+                    return;
+                }
+                if (idle >= timeoutNanos) {
+                    expired = true;
+                    caller.interrupt();
+                    return;
+                }
+            }
+            arm(timeoutNanos - idle);
+        }
+    }
+
+    private void recordFailure(Throwable failure) {
+        if (CompletionFailures.isTransient(failure)) {
+            breaker.onFailure();
+        } else {
+            // Rejected requests and caller-side aborts say nothing about the provider's health.
+            breaker.onIgnored();
+        }
+    }
+
+    /**
+     * Full-jitter exponential backoff, raised to the provider's {@code Retry-After} when it asked for longer.
+     */
+    private long backoffMillis(int attempt, Throwable failure) {
+        long ceiling = Math.min(settings.maxBackoff().toMillis(),
+                settings.initialBackoff().toMillis() << Math.min(20, attempt - 1));
+        long delay = ThreadLocalRandom.current().nextLong(Math.max(1L, ceiling) + 1);
+        if (failure instanceof ChatCompletionException completion && completion.retryAfter().isPresent()) {
+            delay = Math.max(delay, Math.min(settings.maxBackoff().toMillis(), completion.retryAfter().get().toMillis()));
+        }
+        return delay;
+    }
+
+    private TimeoutException attemptTimedOut() {
+        return new TimeoutException("Chat completion attempt timed out after "
+                + settings.attemptTimeout().toMillis() + " ms");
+    }
+
+    private ChatCompletionException circuitOpen() {
+        return new ChatCompletionException("Chat completion provider is unavailable; try again shortly",
+                ChatCompletionException.NO_STATUS, breaker.remainingOpen());
+    }
+
+    /**
+     * Resilience settings.
+     *
+     * @param attemptTimeout    longest a single attempt may run before it is cancelled; for streaming calls, the
+     *                          longest wait for the first fragment or between two fragments
+     * @param maxAttempts       attempts per call, including the first
+     * @param initialBackoff    backoff ceiling after the first failure; doubled per further failure
+     * @param maxBackoff        upper bound for any backoff, including provider hints
+     * @param failureThreshold  consecutive failures that open the circuit
+     * @param openDuration      how long an open circuit fails calls before a trial request
+     * @param hedgingEnabled    whether slow attempts are hedged
+     * @param minHedgeDelay     lower bound for the hedge delay, which otherwise follows the recent p95 latency
+     * @param latencySamples    recent successful latencies kept for the p95 estimate
+     * @param minLatencySamples samples needed before hedging starts
+     */
+    public record Settings(Duration attemptTimeout,
+                           int maxAttempts,
+                           Duration initialBackoff,
+                           Duration maxBackoff,
+                           int failureThreshold,
+                           Duration openDuration,
+                           boolean hedgingEnabled,
+                           Duration minHedgeDelay,
+                           int latencySamples,
+                           int minLatencySamples) {
+        public Settings {
+            Objects.requireNonNull(attemptTimeout, "attemptTimeout");
+            Objects.requireNonNull(initialBackoff, "initialBackoff");
+            Objects.requireNonNull(maxBackoff, "maxBackoff");
+            Objects.requireNonNull(openDuration, "openDuration");
+            Objects.requireNonNull(minHedgeDelay, "minHedgeDelay");
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be >= 1");
+            }
+        }
+    }
+
+    /**
+     * Snapshot of resilience counters.
+     *
+     * @param attempts     requests sent to the provider, including retries and hedges
+     * @param retries      attempts started after a failed one
+     * @param timeouts     attempts cancelled for exceeding the attempt timeout, including stalled streams
+     * @param hedges       hedge requests started
+     * @param hedgeWins    calls answered by a hedge request
+     * @param rejected     calls refused while the circuit was open
+     * @param circuitState current circuit breaker state
+     */
+    public record Stats(long attempts,
+                        long retries,
+                        long timeouts,
+                        long hedges,
+                        long hedgeWins,
+                        long rejected,
+                        CircuitBreaker.State circuitState) {
+    }
+}
@@ -0,0 +1,298 @@
+package com.salex.telegram.conversation;
+
+import com.salex.telegram.infrastructure.resilience.CircuitBreaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads chat completions over several OpenAI-compatible endpoints. Each endpoint keeps an exponentially
+ * weighted moving average of its latency and error rate, and every request goes to the endpoint with the
+ * best score whose circuit is closed. When that endpoint fails with a transient error the request fails over
+ * to the next best one. A small share of requests is sent to a random healthy endpoint so the statistics of
+ * endpoints that are currently not preferred stay fresh. A request the caller abandons with a
+ * {@link TimeoutException} counts as a failure of its endpoint, and its elapsed time feeds the latency average.
+ */
+public final class RoutingChatCompletionClient implements ChatCompletionClient {
+    private static final Logger log = LoggerFactory.getLogger(RoutingChatCompletionClient.class);
+    // How strongly recent errors push an endpoint down the ranking: a 25% error rate doubles its score.
+    private static final double ERROR_PENALTY = 4d;
+
+    private final List<Route> routes;
+    private final Settings settings;
+    private final DoubleSupplier random;
+
+    public RoutingChatCompletionClient(List<Endpoint> endpoints, Settings settings) {
+        this(endpoints, settings, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    RoutingChatCompletionClient(List<Endpoint> endpoints, Settings settings, DoubleSupplier random) {
+        Objects.requireNonNull(endpoints, "endpoints");
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("at least one endpoint is required");
+        }
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.random = Objects.requireNonNull(random, "random");
+        this.routes = endpoints.stream().map(Route::new).toList();
+    }
+
+    @Override
+    public String complete(List<ConversationMessageRecord> conversation) throws Exception {
+        return CompletionFailures.await(completeAsync(conversation));
+    }
+
+    @Override
+    public CompletableFuture<String> completeAsync(List<ConversationMessageRecord> conversation) {
+        Objects.requireNonNull(conversation, "conversation");
+        CompletableFuture<String> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<String>> current = new AtomicReference<>();
+        result.whenComplete((reply, error) -> {
+            CompletableFuture<String> request = current.get();
+            if (request != null) {
+                CompletionFailures.abandon(request, error);
+            }
+        });
+        attempt(conversation, ranked(), 0, null, result, current);
+        return result;
+    }
+
+    /**
+     * Streams from the best endpoint, failing over only while no fragment has been delivered yet.
+     */
+    @Override
+    public String completeStreaming(List<ConversationMessageRecord> conversation,
+                                    Consumer<String> onDelta) throws Exception {
+        Objects.requireNonNull(onDelta, "onDelta");
+        Exception lastFailure = null;
+        for (Route route : ranked()) {
+            if (!route.breaker.tryAcquire()) {
+                continue;
+            }
+            boolean[] delivered = {false};
+            long started = System.nanoTime();
+            try {
+                String reply = route.endpoint.client().completeStreaming(conversation, delta -> {
+                    delivered[0] = true;
+                    onDelta.accept(delta);
+                });
+                route.onSuccess(System.nanoTime() - started);
+                return reply;
+            } catch (Exception ex) {
+                if (delivered[0] || !CompletionFailures.isTransient(ex)) {
+                    route.breaker.onIgnored();
+                    throw ex;
+                }
+                route.onFailure();
+                log.warn("Streaming completion on {} failed ({}); trying the next endpoint",
+                        route.endpoint.name(), ex.getMessage());
+                lastFailure = ex;
+            }
+        }
+        throw lastFailure != null ? lastFailure : noEndpointAvailable();
+    }
+
+    /**
+     * @return rolling statistics for every endpoint, in configuration order
+     */
+    public List<EndpointStats> stats() {
+        return routes.stream().map(Route::stats).toList();
+    }
+
+    private void attempt(List<ConversationMessageRecord> conversation,
+                         List<Route> order,
+                         int index,
+                         Throwable lastFailure,
+                         CompletableFuture<String> result,
+                         AtomicReference<CompletableFuture<String>> current) {
+        int next = index;
+        while (next < order.size() && !order.get(next).breaker.tryAcquire()) {
+            next++;
+        }
+        if (next == order.size()) {
+            result.completeExceptionally(lastFailure != null ? lastFailure : noEndpointAvailable());
+            return;
+        }
+        Route route = order.get(next);
+        int position = next;
+        long started = System.nanoTime();
+        CompletableFuture<String> request = route.endpoint.client().completeAsync(conversation);
+        current.set(request);
+        if (result.isDone()) {
+            result.whenComplete((ignored, outcome) -> CompletionFailures.abandon(request, outcome));
+        }
+        request.whenComplete((reply, error) -> {
+            if (error == null) {
+                route.onSuccess(System.nanoTime() - started);
+                result.complete(reply);
+                return;
+            }
+            Throwable failure = CompletionFailures.unwrap(error);
+            if (failure instanceof CancellationException || !CompletionFailures.isTransient(failure)) {
+                route.breaker.onIgnored();
+                result.completeExceptionally(failure);
+                return;
+            }
+            if (failure instanceof TimeoutException) {
+                route.onTimeout(System.nanoTime() - started);
+            } else {
+                route.onFailure();
+            }
+            if (result.isDone()) {
+                // The caller gave up on the whole request; there is nobody to fail over for.
+                return;
+            }
+            log.warn("Completion on {} failed ({}); trying the next endpoint", route.endpoint.name(), failure.getMessage());
+            attempt(conversation, order, position + 1, failure, result, current);
+        });
+    }
+
+    /**
+     * Orders endpoints by score, best first. Endpoints that have not been tried yet come first so they get
+     * measured; endpoints that have only ever failed come last. With probability {@code explorationRate} a
+     * random other endpoint is moved to the front. Scores are snapshotted first because they change while
+     * requests complete.
+     */
+    private List<Route> ranked() {
+        List<Route> order = routes.stream()
+                .map(route -> new RankedRoute(route, route.score()))
+                .sorted(Comparator.comparingDouble(RankedRoute::score))
+                .map(RankedRoute::route)
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (order.size() > 1 && random.getAsDouble() < settings.explorationRate()) {
+            int pick = 1 + (int) (random.getAsDouble() * (order.size() - 1));
+            order.add(0, order.remove(Math.min(pick, order.size() - 1)));
+        }
+        return order;
+    }
+
+    private static ChatCompletionException noEndpointAvailable() {
+        return new ChatCompletionException("No chat completion endpoint is available; try again shortly",
+                ChatCompletionException.NO_STATUS, null);
+    }
+
+    private record RankedRoute(Route route, double score) {
+    }
+
+    private final class Route {
+        private final Endpoint endpoint;
+        private final CircuitBreaker breaker;
+        private double latencyNanos = Double.NaN;
+        private double errorRate;
+        private long requests;
+        private long failures;
+
+        private Route(Endpoint endpoint) {
+            this.endpoint = Objects.requireNonNull(endpoint, "endpoint");
+            this.breaker = new CircuitBreaker(settings.failureThreshold(), settings.cooldown());
+        }
+
+        private synchronized double score() {
+            if (Double.isNaN(latencyNanos)) {
+                return failures == 0 ? 0d : Double.MAX_VALUE;
+            }
+            return latencyNanos * (1d + ERROR_PENALTY * errorRate);
+        }
+
+        private void onSuccess(long elapsedNanos) {
+            breaker.onSuccess();
+            synchronized (this) {
+                requests++;
+                double alpha = settings.smoothing();
+                latencyNanos = Double.isNaN(latencyNanos) ? elapsedNanos : latencyNanos + alpha * (elapsedNanos - latencyNanos);
+                errorRate -= alpha * errorRate;
+            }
+        }
+
+        private void onFailure() {
+            breaker.onFailure();
+            synchronized (this) {
+                requests++;
+                failures++;
+                errorRate += settings.smoothing() * (1d - errorRate);
+            }
+        }
+
+        /**
+         * A timeout is a failure whose elapsed time is a lower bound of the endpoint's latency; without it a hanging
+         * endpoint would keep the latency of its last success.
+         */
+        private void onTimeout(long elapsedNanos) {
+            onFailure();
+            synchronized (this) {
+                latencyNanos = Double.isNaN(latencyNanos)
+                        ? elapsedNanos
+                        : latencyNanos + settings.smoothing() * (elapsedNanos - latencyNanos);
+            }
+        }
+
+        private synchronized EndpointStats stats() {
+            return new EndpointStats(endpoint.name(),
+                    Double.isNaN(latencyNanos) ? 0d : latencyNanos / 1_000_000d,
+                    errorRate,
+                    requests,
+                    failures,
+                    breaker.state());
+        }
+    }
+
+    /**
+     * One upstream the router may use.
+     *
+     * @param name   label used in logs and statistics
+     * @param client client bound to the endpoint
+     */
+    public record Endpoint(String name, ChatCompletionClient client) {
+        public Endpoint {
+            Objects.requireNonNull(name, "name");
+            Objects.requireNonNull(client, "client");
+        }
+    }
+
+    /**
+     * Routing settings.
+     *
+     * @param smoothing        weight of the newest sample in the moving averages, in {@code (0, 1]}
+     * @param explorationRate  share of requests sent to a random endpoint instead of the best one
+     * @param failureThreshold consecutive failures after which an endpoint is skipped
+     * @param cooldown         how long a failing endpoint is skipped before it is tried again
+     */
+    public record Settings(double smoothing, double explorationRate, int failureThreshold, Duration cooldown) {
+        public Settings {
+            if (smoothing <= 0d || smoothing > 1d) {
+                throw new IllegalArgumentException("smoothing must be in (0, 1]");
+            }
+            Objects.requireNonNull(cooldown, "cooldown");
+        }
+    }
+
+    /**
+     * Snapshot of one endpoint's rolling statistics.
+     *
+     * @param name          endpoint label
+     * @param latencyMillis moving average of successful request latency
+     * @param errorRate     moving average of the failure rate
+     * @param requests      requests completed on the endpoint
+     * @param failures      requests that failed with a transient error
+     * @param circuitState  whether the endpoint is currently skipped
+     */
+    public record EndpointStats(String name,
+                                double latencyMillis,
+                                double errorRate,
+                                long requests,
+                                long failures,
+                                CircuitBreaker.State circuitState) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.salex.telegram.conversation;
+
+import java.util.List;
+
+/**
+ * Cheap local approximation of how many model tokens a text will use, good enough for budgeting prompts
+ * without shipping a tokenizer. English-like ASCII text averages roughly four characters per token; most
+ * non-Latin scripts, emoji and symbols cost about one token per code point.
+ */
+public final class TokenEstimator {
+    /**
+     * Tokens the chat format adds around every message (role marker and separators) plus the compact
+     * timestamp the client prefixes to each message.
+     */
+    static final int MESSAGE_OVERHEAD_TOKENS = 7;
+
+    /**
+     * Tokens the chat format adds once per request to prime the reply.
+     */
+    static final int REQUEST_OVERHEAD_TOKENS = 3;
+
+    /**
+     * Estimates the tokens needed for plain text.
+     *
+     * @param text text to measure; {@code null} counts as empty
+     * @return estimated token count
+     */
+    public int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int ascii = 0;
+        double weighted = 0d;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (codePoint < 0x80) {
+                ascii++;
+            } else if (codePoint < 0x800) {
+                // Accented Latin, Greek, Cyrillic, Hebrew, Arabic: usually two characters per token.
+                weighted += 0.5d;
+            } else {
+                weighted += 1d;
+            }
+        }
+        return (int) Math.ceil(ascii / 4d + weighted);
+    }
+
+    /**
+     * Estimates the tokens a single chat message contributes to a request, including format overhead.
+     *
+     * @param message chat message
+     * @return estimated token count
+     */
+    public int estimate(ConversationMessageRecord message) {
+        return MESSAGE_OVERHEAD_TOKENS + estimate(message.content());
+    }
+
+    /**
+     * Estimates the prompt tokens of a whole request, including per-request overhead.
+     *
+     * @param conversation messages sent with the request
+     * @return estimated token count
+     */
+    public int estimate(List<ConversationMessageRecord> conversation) {
+        int total = REQUEST_OVERHEAD_TOKENS;
+        for (ConversationMessageRecord message : conversation) {
+            total += estimate(message);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,230 @@
+package com.salex.telegram.infrastructure.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe least-recently-used cache bounded by entry count and by a total weight (typically an estimate
+ * of retained bytes). Entries that have not been read or written for the idle TTL expire. Values may change
+ * after insertion; callers report that through {@link #reweigh(Object)} so the weight budget stays accurate.
+ * Loaders run while the cache lock is held and must therefore be cheap and must not touch the cache.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class BoundedCache<K, V> {
+    private final int maxEntries;
+    private final long maxWeight;
+    private final long idleTtlNanos;
+    private final ToLongFunction<V> weigher;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalWeight;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * @param maxEntries maximum number of entries kept
+     * @param maxWeight  maximum combined weight of all entries
+     * @param idleTtl    time after the last access at which an entry expires; zero or negative disables expiry
+     * @param weigher    measures a value; called on insertion and on {@link #reweigh(Object)}
+     */
+    public BoundedCache(int maxEntries, long maxWeight, Duration idleTtl, ToLongFunction<V> weigher) {
+        this(maxEntries, maxWeight, idleTtl, weigher, System::nanoTime);
+    }
+
+    public BoundedCache(int maxEntries,
+                        long maxWeight,
+                        Duration idleTtl,
+                        ToLongFunction<V> weigher,
+                        LongSupplier nanoClock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be > 0");
+        }
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be > 0");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.idleTtlNanos = idleTtl == null || idleTtl.isNegative() ? 0L : idleTtl.toNanos();
+        this.weigher = Objects.requireNonNull(weigher, "weigher");
+        this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock");
+    }
+
+    /**
+     * Returns the cached value without loading it.
+     *
+     * @param key cache key
+     * @return the value, or {@code null} if absent or expired
+     */
+    public synchronized V getIfPresent(K key) {
+        long now = nanoClock.getAsLong();
+        Entry<V> entry = liveEntry(key, now);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        entry.lastAccessNanos = now;
+        return entry.value;
+    }
+
+    /**
+     * Returns the cached value, creating and inserting it on a miss.
+     *
+     * @param key    cache key
+     * @param loader creates the value for a missing key
+     * @return the cached or newly created value
+     */
+    public synchronized V get(K key, Function<? super K, ? extends V> loader) {
+        long now = nanoClock.getAsLong();
+        Entry<V> entry = liveEntry(key, now);
+        if (entry != null) {
+            hits++;
+            entry.lastAccessNanos = now;
+            return entry.value;
+        }
+        misses++;
+        V value = Objects.requireNonNull(loader.apply(key), "loader returned null");
+        insert(key, value, now);
+        return value;
+    }
+
+    /**
+     * Inserts or replaces a value.
+     */
+    public synchronized void put(K key, V value) {
+        Objects.requireNonNull(value, "value");
+        long now = nanoClock.getAsLong();
+        Entry<V> previous = entries.remove(key);
+        if (previous != null) {
+            totalWeight -= previous.weight;
+        }
+        insert(key, value, now);
+    }
+
+    /**
+     * Re-measures a value that changed in place and evicts older entries if the cache is now over budget.
+     * Counts as an access for recency and idle expiry.
+     *
+     * @param key cache key; ignored when not cached
+     */
+    public synchronized void reweigh(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        long weight = Math.max(0L, weigher.applyAsLong(entry.value));
+        totalWeight += weight - entry.weight;
+        entry.weight = weight;
+        entry.lastAccessNanos = now;
+        evict(now);
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @param key cache key
+     */
+    public synchronized void invalidate(K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            totalWeight -= removed.weight;
+        }
+    }
+
+    /**
+     * Removes every entry that has been idle longer than the TTL.
+     */
+    public synchronized void cleanUp() {
+        evict(nanoClock.getAsLong());
+    }
+
+    /**
+     * @return point-in-time counters
+     */
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, expirations, entries.size(), totalWeight);
+    }
+
+    private Entry<V> liveEntry(K key, long now) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && isExpired(entry, now)) {
+            entries.remove(key);
+            totalWeight -= entry.weight;
+            expirations++;
+            return null;
+        }
+        return entry;
+    }
+
+    private void insert(K key, V value, long now) {
+        Entry<V> entry = new Entry<>(value, Math.max(0L, weigher.applyAsLong(value)), now);
+        entries.put(key, entry);
+        totalWeight += entry.weight;
+        evict(now);
+    }
+
+    /**
+     * Walks from the least recently used end, dropping expired entries and then whatever is needed to get back
+     * under both limits. The entry just touched sits at the most recently used end, so it only goes when it
+     * alone exceeds the weight budget.
+     */
+    private void evict(long now) {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> candidate = iterator.next();
+            boolean expired = isExpired(candidate.getValue(), now);
+            boolean overBudget = entries.size() > maxEntries || totalWeight > maxWeight;
+            if (!expired && !overBudget) {
+                return;
+            }
+            iterator.remove();
+            totalWeight -= candidate.getValue().weight;
+            if (expired) {
+                expirations++;
+            } else {
+                evictions++;
+            }
+        }
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return idleTtlNanos > 0 && now - entry.lastAccessNanos >= idleTtlNanos;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private long weight;
+        private long lastAccessNanos;
+
+        private Entry(V value, long weight, long lastAccessNanos) {
+            this.value = value;
+            this.weight = weight;
+            this.lastAccessNanos = lastAccessNanos;
+        }
+    }
+
+    /**
+     * Snapshot of cache counters.
+     *
+     * @param hits        lookups answered from the cache
+     * @param misses      lookups that found nothing (and loaded, where a loader was given)
+     * @param evictions   entries removed to stay within the entry or weight limit
+     * @param expirations entries removed after sitting idle past the TTL
+     * @param size        entries currently cached
+     * @param weight      combined weight of the cached entries
+     */
+    public record Stats(long hits, long misses, long evictions, long expirations, int size, long weight) {
+    }
+}
@@ -0,0 +1,46 @@
+package com.salex.telegram.infrastructure.database;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+
+/**
+ * Classifies JDBC failures that mean the connection itself is gone rather than the statement being wrong. A
+ * {@link java.sql.SQLTransientConnectionException} alone does not qualify: HikariCP raises one when every pooled
+ * connection is busy, which is load, not an outage. When the pool timed out because it could not connect, the
+ * exception carries the SQLState of that connection failure and is recognised by it.
+ */
+public final class ConnectionFailures {
+    private static final String CONNECTION_EXCEPTION_CLASS = "08";
+
+    private ConnectionFailures() {
+    }
+
+    /**
+     * @return {@code true} when the failure, or anything it wraps or chains, carries an SQLState of class
+     * {@code 08} (connection exception) or is a {@link SQLNonTransientConnectionException}
+     */
+    public static boolean isConnectionFailure(Throwable failure) {
+        Throwable current = failure;
+        for (int depth = 0; current != null && depth < 16; depth++) {
+            if (current instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+            if (current instanceof SQLException sql) {
+                String state = sql.getSQLState();
+                if (state != null && state.startsWith(CONNECTION_EXCEPTION_CLASS)) {
+                    return true;
+                }
+                SQLException next = sql.getNextException();
+                if (next != null && next != current && isConnectionFailure(next.getSQLState())) {
+                    return true;
+                }
+            }
+            current = current.getCause() == current ? null : current.getCause();
+        }
+        return false;
+    }
+
+    private static boolean isConnectionFailure(String sqlState) {
+        return sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_CLASS);
+    }
+}
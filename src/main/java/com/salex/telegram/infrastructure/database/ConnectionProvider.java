@@ -4,12 +4,14 @@ import java.sql.Connection;
 import java.sql.SQLException;
 
 /**
- * Supplies JDBC connections on demand, allowing callers to obtain a handle that is safe to use.
+ * Supplies JDBC connections on demand, allowing callers to obtain a handle that is safe to use. Callers borrow a
+ * connection for one unit of work and close it when done, typically with try-with-resources; depending on the
+ * implementation that returns it to a pool or does nothing.
  */
 public interface ConnectionProvider {
 
     /**
-     * Returns a connection that is ready for use.
+     * Returns a connection that is ready for use. The caller must close it once the unit of work is done.
      *
      * @return open JDBC connection
      * @throws SQLException if a connection cannot be obtained
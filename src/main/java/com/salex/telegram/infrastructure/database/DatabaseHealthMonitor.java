@@ -0,0 +1,210 @@
+package com.salex.telegram.infrastructure.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks whether the database is reachable so repositories can fail over to in-memory stores during an outage.
+ * Repositories report the failures they see; a connection failure marks the database as down. While it is
+ * down, a background probe opens and validates a connection at a fixed interval. Once that succeeds the database
+ * is {@link State#RECONCILING reconciling}: the registered recovery listeners run on the probe thread, in
+ * registration order, to write back what was buffered, while live traffic keeps using the in-memory stores so it
+ * neither overtakes the buffered writes nor misses buffered data. Only when every listener succeeded is the
+ * database marked up; otherwise it stays down and the next probe retries. Listeners run once more right after
+ * that to write back what live traffic buffered while they ran.
+ */
+public final class DatabaseHealthMonitor implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DatabaseHealthMonitor.class);
+
+    private final ConnectionProvider connectionProvider;
+    private final int validationTimeoutSeconds;
+    private final List<Runnable> recoveryListeners = new CopyOnWriteArrayList<>();
+    private final AtomicReference<State> state = new AtomicReference<>(State.UP);
+    private final ScheduledExecutorService prober;
+
+    private volatile long downSinceNanos;
+    private final LongAdder outages = new LongAdder();
+    private final LongAdder failedProbes = new LongAdder();
+    private final LongAdder failedReconciliations = new LongAdder();
+
+    /**
+     * @param connectionProvider       provider the probe borrows connections from
+     * @param validationTimeoutSeconds timeout of each probe's validation
+     * @param probeInterval            how often the database is probed while it is down
+     */
+    public DatabaseHealthMonitor(ConnectionProvider connectionProvider, int validationTimeoutSeconds,
+                                 Duration probeInterval) {
+        this.connectionProvider = Objects.requireNonNull(connectionProvider, "connectionProvider");
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        Objects.requireNonNull(probeInterval, "probeInterval");
+        if (probeInterval.isNegative() || probeInterval.isZero()) {
+            throw new IllegalArgumentException("probeInterval must be positive");
+        }
+        this.prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "database-health-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = probeInterval.toMillis();
+        prober.scheduleWithFixedDelay(this::probe, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return {@code false} from the first reported connection failure until the database answers again and the
+     * buffered writes have been reconciled
+     */
+    public boolean isAvailable() {
+        return state.get() == State.UP;
+    }
+
+    /**
+     * @return {@code true} while the database answers, including while buffered writes are still being
+     * reconciled; stores use it to reconcile a provisional identifier on demand
+     */
+    public boolean isReachable() {
+        return state.get() != State.DOWN;
+    }
+
+    /**
+     * Inspects a failure seen by a repository and marks the database as down when it is a connection failure.
+     *
+     * @return {@code true} when the failure was a connection failure, meaning the caller should fail over
+     */
+    public boolean reportFailure(Throwable failure) {
+        if (!ConnectionFailures.isConnectionFailure(failure)) {
+            return false;
+        }
+        if (state.compareAndSet(State.UP, State.DOWN)) {
+            downSinceNanos = System.nanoTime();
+            outages.increment();
+            log.warn("Database unreachable ({}); switching to in-memory stores until it recovers",
+                    failure.getMessage());
+        } else {
+            state.compareAndSet(State.RECONCILING, State.DOWN);
+        }
+        return true;
+    }
+
+    /**
+     * Registers work to run each time the database comes back, such as writing back buffered data. A listener
+     * may run several times per recovery and must only write what is still buffered; throwing keeps the database
+     * marked down so the next probe retries.
+     */
+    public void onRecovery(Runnable listener) {
+        recoveryListeners.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    /**
+     * Checks a down database and, when it answers again, runs the recovery listeners and marks it up if they all
+     * succeed. Runs on the background probe; package-private so tests can trigger it.
+     */
+    void probe() {
+        if (state.get() != State.DOWN) {
+            return;
+        }
+        try (Connection connection = connectionProvider.getConnection()) {
+            if (!connection.isValid(validationTimeoutSeconds)) {
+                failedProbes.increment();
+                return;
+            }
+        } catch (SQLException | RuntimeException ex) {
+            failedProbes.increment();
+            log.debug("Database still unreachable: {}", ex.getMessage());
+            return;
+        }
+        if (!state.compareAndSet(State.DOWN, State.RECONCILING)) {
+            return;
+        }
+        log.info("Database reachable again after {} s; reconciling buffered writes",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - downSinceNanos));
+        if (!runRecoveryListeners()) {
+            state.compareAndSet(State.RECONCILING, State.DOWN);
+            failedReconciliations.increment();
+            return;
+        }
+        if (!state.compareAndSet(State.RECONCILING, State.UP)) {
+            return;
+        }
+        log.info("Buffered writes reconciled; switching back to the database");
+        // Writes that reached the in-memory stores while the listeners ran.
+        runRecoveryListeners();
+    }
+
+    /**
+     * @return {@code true} if every listener succeeded
+     */
+    private boolean runRecoveryListeners() {
+        boolean succeeded = true;
+        for (Runnable listener : recoveryListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException ex) {
+                succeeded = false;
+                reportFailure(ex);
+                log.warn("Reconciliation after database recovery failed: {}", ex.getMessage(), ex);
+            }
+        }
+        return succeeded;
+    }
+
+    /**
+     * @return availability and outage counters
+     */
+    public Stats stats() {
+        State current = state.get();
+        long downMillis = current == State.UP ? 0L : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - downSinceNanos);
+        return new Stats(current, outages.sum(), failedProbes.sum(), failedReconciliations.sum(), downMillis);
+    }
+
+    @Override
+    public void close() {
+        prober.shutdownNow();
+    }
+
+    /**
+     * Where the database stands from the repositories' point of view.
+     */
+    public enum State {
+        /** Repositories use the database. */
+        UP,
+        /** Repositories use their in-memory stores. */
+        DOWN,
+        /** The database answers again, but repositories use their in-memory stores until buffered writes are back. */
+        RECONCILING
+    }
+
+    /**
+     * Snapshot of the monitor.
+     *
+     * @param state                 current state
+     * @param outages               outages detected since start
+     * @param failedProbes          probes that found the database still unreachable
+     * @param failedReconciliations recoveries abandoned because a recovery listener failed
+     * @param currentOutageMillis   duration of the ongoing outage, or {@code 0} while the database is up
+     */
+    public record Stats(State state,
+                        long outages,
+                        long failedProbes,
+                        long failedReconciliations,
+                        long currentOutageMillis) {
+
+        /**
+         * @return whether repositories currently use the database
+         */
+        public boolean available() {
+            return state == State.UP;
+        }
+    }
+}
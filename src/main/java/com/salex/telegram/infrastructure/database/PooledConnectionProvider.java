@@ -0,0 +1,193 @@
+package com.salex.telegram.infrastructure.database;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out connections from a HikariCP pool so concurrent repositories each work on their own connection
+ * instead of queueing on one shared socket. Callers return a connection by closing it. Connections held longer
+ * than the leak detection threshold are reported with the stack trace of the borrower, and the time spent
+ * waiting for and holding connections is tracked for {@link #stats()}.
+ */
+public final class PooledConnectionProvider implements ConnectionProvider, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(PooledConnectionProvider.class);
+
+    private final HikariDataSource dataSource;
+    private final Tracker tracker = new Tracker();
+
+    /**
+     * @param jdbcUrl  JDBC connection string
+     * @param username database user; may be {@code null}
+     * @param password database password; may be {@code null}
+     * @param settings pool sizing and timeouts
+     */
+    public PooledConnectionProvider(String jdbcUrl, String username, String password, Settings settings) {
+        Objects.requireNonNull(jdbcUrl, "jdbcUrl");
+        Objects.requireNonNull(settings, "settings");
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(settings.poolName());
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(settings.maxSize());
+        config.setMinimumIdle(settings.minIdle());
+        config.setConnectionTimeout(settings.connectionTimeout().toMillis());
+        config.setValidationTimeout(settings.validationTimeout().toMillis());
+        config.setIdleTimeout(settings.idleTimeout().toMillis());
+        config.setMaxLifetime(settings.maxLifetime().toMillis());
+        // Idle connections are validated in the background; busy ones are dropped when a statement fails with a
+        // connection error, which Hikari recognises by SQLState class 08.
+        config.setKeepaliveTime(settings.keepaliveTime().toMillis());
+        config.setLeakDetectionThreshold(settings.leakDetectionThreshold().toMillis());
+        // Start even when the database is briefly unavailable; connections are created once it is back.
+        config.setInitializationFailTimeout(-1);
+        config.setMetricsTrackerFactory((poolName, poolStats) -> tracker);
+        this.dataSource = new HikariDataSource(config);
+        log.info("Opened connection pool {} with up to {} connections", settings.poolName(), settings.maxSize());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    /**
+     * @return pool occupancy and acquisition timings
+     */
+    public Stats stats() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        int total = pool == null ? 0 : pool.getTotalConnections();
+        int active = pool == null ? 0 : pool.getActiveConnections();
+        int idle = pool == null ? 0 : pool.getIdleConnections();
+        int waiting = pool == null ? 0 : pool.getThreadsAwaitingConnection();
+        int maxSize = dataSource.getMaximumPoolSize();
+        long requests = tracker.requests.sum();
+        long released = tracker.released.sum();
+        return new Stats(
+                total,
+                active,
+                idle,
+                waiting,
+                active / (double) maxSize,
+                requests,
+                requests == 0 ? 0d : tracker.acquireNanos.sum() / (double) requests / 1_000_000d,
+                TimeUnit.NANOSECONDS.toMillis(tracker.maxAcquireNanos.get()),
+                tracker.timeouts.sum(),
+                released == 0 ? 0d : tracker.usageMillis.sum() / (double) released);
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+
+    /**
+     * Receives Hikari's per-connection measurements.
+     */
+    private static final class Tracker implements IMetricsTracker {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0L);
+        private final LongAdder released = new LongAdder();
+        private final LongAdder usageMillis = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            // Hikari reports timed out requests here as well, so this counts requests rather than successes.
+            requests.increment();
+            acquireNanos.add(elapsedAcquiredNanos);
+            maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            released.increment();
+            usageMillis.add(elapsedBorrowedMillis);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+    }
+
+    /**
+     * Pool settings.
+     *
+     * @param poolName               label used in logs and thread names
+     * @param maxSize                most connections the pool opens
+     * @param minIdle                idle connections kept ready
+     * @param connectionTimeout      longest a caller waits for a connection before getting an exception
+     * @param validationTimeout      longest a liveness check of a pooled connection may take
+     * @param idleTimeout            how long a connection above {@code minIdle} may sit unused
+     * @param maxLifetime            age after which a connection is retired
+     * @param keepaliveTime          how often idle connections are validated in the background; Hikari ignores
+     *                               values below 30 seconds
+     * @param leakDetectionThreshold how long a connection may be held before a possible leak is logged;
+     *                               {@link Duration#ZERO} disables the check
+     */
+    public record Settings(String poolName,
+                           int maxSize,
+                           int minIdle,
+                           Duration connectionTimeout,
+                           Duration validationTimeout,
+                           Duration idleTimeout,
+                           Duration maxLifetime,
+                           Duration keepaliveTime,
+                           Duration leakDetectionThreshold) {
+        public Settings {
+            Objects.requireNonNull(poolName, "poolName");
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("maxSize must be >= 1");
+            }
+            if (minIdle < 0 || minIdle > maxSize) {
+                throw new IllegalArgumentException("minIdle must be between 0 and maxSize");
+            }
+            Objects.requireNonNull(connectionTimeout, "connectionTimeout");
+            Objects.requireNonNull(validationTimeout, "validationTimeout");
+            Objects.requireNonNull(idleTimeout, "idleTimeout");
+            Objects.requireNonNull(maxLifetime, "maxLifetime");
+            Objects.requireNonNull(keepaliveTime, "keepaliveTime");
+            Objects.requireNonNull(leakDetectionThreshold, "leakDetectionThreshold");
+        }
+    }
+
+    /**
+     * Snapshot of the pool.
+     *
+     * @param total                connections currently open
+     * @param active               connections lent out
+     * @param idle                 connections ready in the pool
+     * @param waiting              callers waiting for a connection
+     * @param utilization          share of the maximum pool size currently lent out
+     * @param requests             connection requests since start, including those that timed out
+     * @param averageAcquireMillis mean time a connection request took
+     * @param maxAcquireMillis     longest time a connection request took
+     * @param timeouts             callers that gave up waiting for a connection
+     * @param averageUsageMillis   mean time a connection was held before it was returned
+     */
+    public record Stats(int total,
+                        int active,
+                        int idle,
+                        int waiting,
+                        double utilization,
+                        long requests,
+                        double averageAcquireMillis,
+                        long maxAcquireMillis,
+                        long timeouts,
+                        double averageUsageMillis) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.salex.telegram.infrastructure.database;
+
+import java.sql.SQLException;
+
+/**
+ * Maps identifiers handed out by in-memory stores during a database outage to the identifiers the same records
+ * got once they were written to the database. Provisional identifiers are negative so they never collide with
+ * database keys; non-negative identifiers are returned unchanged.
+ */
+@FunctionalInterface
+public interface ProvisionalIdResolver {
+
+    /**
+     * @param id identifier that may be provisional
+     * @return the database identifier of the record
+     * @throws SQLException when the record cannot be written to or read from the database
+     */
+    long resolve(long id) throws SQLException;
+
+    /**
+     * @return a resolver for stores that never hand out provisional identifiers
+     */
+    static ProvisionalIdResolver identity() {
+        return id -> id;
+    }
+}
@@ -5,10 +5,18 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides a single JDBC connection that is transparently re-established when it becomes invalid or closed.
+ * Every caller shares that connection; closing the handle returned by {@link #getConnection()} leaves it open.
+ * Handing out the connection costs no I/O: it is validated by a background check at a fixed interval, and
+ * dropped as soon as any call made through it fails with a connection failure (SQLState class {@code 08}),
+ * so the next caller gets a fresh one.
  */
 public final class RefreshingConnectionProvider implements ConnectionProvider, AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(RefreshingConnectionProvider.class);
@@ -16,36 +24,80 @@ public final class RefreshingConnectionProvider implements ConnectionProvider, A
     private final ConnectionFactory factory;
     private final int validationTimeoutSeconds;
     private final Object lock = new Object();
+    private final ScheduledExecutorService healthChecker;
 
     private volatile Connection current;
+    private volatile Connection shared;
 
     public RefreshingConnectionProvider(ConnectionFactory factory, int validationTimeoutSeconds) {
+        this(factory, validationTimeoutSeconds, Duration.ZERO);
+    }
+
+    /**
+     * @param factory                  opens new physical connections
+     * @param validationTimeoutSeconds timeout of each background validation
+     * @param healthCheckInterval      how often the connection is validated in the background;
+     *                                 {@link Duration#ZERO} leaves detection to failing calls
+     */
+    public RefreshingConnectionProvider(ConnectionFactory factory, int validationTimeoutSeconds,
+                                        Duration healthCheckInterval) {
         this.factory = Objects.requireNonNull(factory, "factory");
         if (validationTimeoutSeconds < 0) {
             throw new IllegalArgumentException("validationTimeoutSeconds must be >= 0");
         }
+        Objects.requireNonNull(healthCheckInterval, "healthCheckInterval");
+        if (healthCheckInterval.isNegative()) {
+            throw new IllegalArgumentException("healthCheckInterval must be >= 0");
+        }
         this.validationTimeoutSeconds = validationTimeoutSeconds;
+
+        if (healthCheckInterval.isZero()) {
+            this.healthChecker = null;
+        } else {
+            this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jdbc-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = healthCheckInterval.toMillis();
+            healthChecker.scheduleWithFixedDelay(this::checkHealth, intervalMillis, intervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
     public Connection getConnection() throws SQLException {
-        Connection existing = current;
-        if (isUsable(existing)) {
-            return existing;
+        Connection handle = shared;
+        if (handle != null) {
+            return handle;
         }
         synchronized (lock) {
-            existing = current;
-            if (!isUsable(existing)) {
+            if (shared == null) {
                 reconnect();
             }
-            return current;
+            return shared;
         }
     }
 
-    private boolean isUsable(Connection connection) {
-        if (connection == null) {
-            return false;
+    /**
+     * Validates the connection and replaces it when it is no longer usable. Runs on the background checker;
+     * package-private so tests can trigger a check.
+     */
+    void checkHealth() {
+        Connection connection = current;
+        if (connection == null || isUsable(connection)) {
+            return;
+        }
+        log.warn("Background validation found the JDBC connection unusable; reconnecting");
+        invalidate(connection);
+        try {
+            getConnection();
+        } catch (SQLException ex) {
+            log.warn("Failed to re-establish JDBC connection: {}", ex.getMessage());
         }
+    }
+
+    private boolean isUsable(Connection connection) {
         try {
             return !connection.isClosed() && connection.isValid(validationTimeoutSeconds);
         } catch (SQLException ex) {
@@ -54,17 +106,42 @@ public final class RefreshingConnectionProvider implements ConnectionProvider, A
         }
     }
 
+    /**
+     * Drops the given connection if it is still the current one; failures reported late by callers of a
+     * connection that was already replaced are ignored.
+     */
+    private void invalidate(Connection connection) {
+        synchronized (lock) {
+            if (current != connection) {
+                return;
+            }
+            shared = null;
+            current = null;
+            closeQuietly(connection);
+        }
+    }
+
     private void reconnect() throws SQLException {
         closeQuietly(current);
-        current = factory.create();
+        current = null;
+        Connection connection = factory.create();
+        current = connection;
+        shared = SharedConnections.unclosable(connection, () -> {
+            log.warn("JDBC connection failed; it will be re-established on next use");
+            invalidate(connection);
+        });
         log.info("Re-established JDBC connection");
     }
 
     @Override
     public void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
         synchronized (lock) {
             closeQuietly(current);
             current = null;
+            shared = null;
         }
     }
 
@@ -0,0 +1,78 @@
+package com.salex.telegram.infrastructure.database;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Wraps the connection of a single-connection provider so callers can close what they borrowed, as the
+ * {@link ConnectionProvider} contract asks, without closing the connection everybody shares. Statements and
+ * result sets obtained through the handle are wrapped as well, so a connection failure raised anywhere during
+ * the unit of work reaches the provider.
+ */
+final class SharedConnections {
+    private static final Set<Class<?>> WATCHED_TYPES =
+            Set.of(Statement.class, PreparedStatement.class, CallableStatement.class, ResultSet.class);
+
+    private SharedConnections() {
+    }
+
+    /**
+     * @param connection the physical connection owned by the provider
+     * @return a view of the connection whose {@code close()} does nothing
+     */
+    static Connection unclosable(Connection connection) {
+        return unclosable(connection, () -> {
+        });
+    }
+
+    /**
+     * @param connection          the physical connection owned by the provider
+     * @param onConnectionFailure called whenever a call through the handle fails with a connection failure as
+     *                            classified by {@link ConnectionFailures}
+     * @return a view of the connection whose {@code close()} does nothing
+     */
+    static Connection unclosable(Connection connection, Runnable onConnectionFailure) {
+        Objects.requireNonNull(connection, "connection");
+        Objects.requireNonNull(onConnectionFailure, "onConnectionFailure");
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> null;
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "Shared " + connection;
+                    default -> forward(connection, method, args, onConnectionFailure);
+                });
+    }
+
+    private static Object forward(Object target, Method method, Object[] args, Runnable onConnectionFailure)
+            throws Throwable {
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            Throwable cause = ex.getCause();
+            if (ConnectionFailures.isConnectionFailure(cause)) {
+                onConnectionFailure.run();
+            }
+            throw cause;
+        }
+        Class<?> type = method.getReturnType();
+        if (result == null || !WATCHED_TYPES.contains(type)) {
+            return result;
+        }
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, inner, innerArgs) -> switch (inner.getName()) {
+                    case "equals" -> proxy == innerArgs[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> forward(result, inner, innerArgs, onConnectionFailure);
+                });
+    }
+}
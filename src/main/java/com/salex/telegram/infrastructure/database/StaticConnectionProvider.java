@@ -8,14 +8,16 @@ import java.sql.SQLException;
 import java.util.Objects;
 
 /**
- * Simple provider that always returns the same connection instance.
+ * Simple provider that always hands out the same connection; closing the returned handle leaves it open.
  */
 public final class StaticConnectionProvider implements ConnectionProvider {
     private static final Logger log = LoggerFactory.getLogger(StaticConnectionProvider.class);
     private final Connection connection;
+    private final Connection shared;
 
     public StaticConnectionProvider(Connection connection) {
         this.connection = Objects.requireNonNull(connection, "connection");
+        this.shared = SharedConnections.unclosable(connection);
     }
 
     @Override
@@ -23,7 +25,7 @@ public final class StaticConnectionProvider implements ConnectionProvider {
         if (connection.isClosed()) {
             throw new SQLException("Connection is closed");
         }
-        return connection;
+        return shared;
     }
 
     @Override
@@ -0,0 +1,10 @@
+package com.salex.telegram.infrastructure.messaging;
+
+/**
+ * Identifies the conversation between one user and the bot within one chat.
+ *
+ * @param chatId the chat identifier conversations originate from
+ * @param userId the internal user identifier
+ */
+public record ConversationKey(long chatId, long userId) {
+}
@@ -0,0 +1,216 @@
+package com.salex.telegram.infrastructure.messaging;
+
+import com.salex.telegram.infrastructure.database.DatabaseHealthMonitor;
+import com.salex.telegram.infrastructure.database.ProvisionalIdResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Buffers exchanges in memory while the database is unreachable and writes them back once it recovers. The
+ * buffer is bounded; when it is full the oldest exchanges are dropped. While the database is down, history is
+ * served from the buffer. On {@link #reconcile()} provisional user identifiers handed out during the outage are
+ * mapped to their database identifiers before the exchanges are written in batches.
+ */
+public final class FailoverMessageRepository implements MessageRepository {
+    private static final Logger log = LoggerFactory.getLogger(FailoverMessageRepository.class);
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    private final MessageRepository primary;
+    private final DatabaseHealthMonitor monitor;
+    private final ProvisionalIdResolver userIds;
+    private final int maxBuffered;
+    private final Deque<LoggedMessage> buffer = new ArrayDeque<>();
+
+    private final LongAdder buffered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder reconciled = new LongAdder();
+
+    /**
+     * @param primary     database-backed repository
+     * @param monitor     tracks whether the database is reachable
+     * @param userIds     maps provisional user identifiers to database ones during reconciliation
+     * @param maxBuffered exchanges kept while the database is down
+     */
+    public FailoverMessageRepository(MessageRepository primary,
+                                     DatabaseHealthMonitor monitor,
+                                     ProvisionalIdResolver userIds,
+                                     int maxBuffered) {
+        this.primary = Objects.requireNonNull(primary, "primary");
+        this.monitor = Objects.requireNonNull(monitor, "monitor");
+        this.userIds = Objects.requireNonNull(userIds, "userIds");
+        if (maxBuffered < 1) {
+            throw new IllegalArgumentException("maxBuffered must be >= 1");
+        }
+        this.maxBuffered = maxBuffered;
+    }
+
+    @Override
+    public void save(LoggedMessage message) {
+        saveAll(List.of(Objects.requireNonNull(message, "message")));
+    }
+
+    @Override
+    public void saveAll(List<LoggedMessage> messages) {
+        if (monitor.isAvailable()) {
+            try {
+                primary.saveAll(messages);
+                return;
+            } catch (RuntimeException ex) {
+                if (!monitor.reportFailure(ex)) {
+                    throw ex;
+                }
+            }
+        }
+        bufferAll(messages);
+    }
+
+    @Override
+    public List<LoggedMessage> findRecent(long chatId, long userId, int limit) {
+        if (monitor.isAvailable()) {
+            try {
+                return primary.findRecent(chatId, userId, limit);
+            } catch (RuntimeException ex) {
+                if (!monitor.reportFailure(ex)) {
+                    throw ex;
+                }
+            }
+        }
+        return buffered(new ConversationKey(chatId, userId), limit);
+    }
+
+    @Override
+    public Map<ConversationKey, List<LoggedMessage>> findRecent(Collection<ConversationKey> conversations, int limit) {
+        if (monitor.isAvailable()) {
+            try {
+                return primary.findRecent(conversations, limit);
+            } catch (RuntimeException ex) {
+                if (!monitor.reportFailure(ex)) {
+                    throw ex;
+                }
+            }
+        }
+        Map<ConversationKey, List<LoggedMessage>> result = new LinkedHashMap<>();
+        for (ConversationKey key : conversations) {
+            result.put(key, buffered(key, limit));
+        }
+        return result;
+    }
+
+    /**
+     * Writes the buffered exchanges to the database, oldest first. Registered as a recovery listener; stops at
+     * the first failure and leaves the rest buffered for the next recovery.
+     */
+    public void reconcile() {
+        int written = 0;
+        while (true) {
+            List<LoggedMessage> batch = takeBatch();
+            if (batch.isEmpty()) {
+                break;
+            }
+            try {
+                primary.saveAll(remap(batch));
+            } catch (SQLException | RuntimeException ex) {
+                restore(batch);
+                throw new MessagePersistenceException("Failed to write back buffered messages", ex);
+            }
+            written += batch.size();
+            reconciled.add(batch.size());
+        }
+        if (written > 0) {
+            log.info("Wrote back {} messages buffered while the database was unreachable", written);
+        }
+    }
+
+    /**
+     * @return buffer length and counters
+     */
+    public Stats stats() {
+        int size;
+        synchronized (buffer) {
+            size = buffer.size();
+        }
+        return new Stats(size, buffered.sum(), dropped.sum(), reconciled.sum());
+    }
+
+    private void bufferAll(List<LoggedMessage> messages) {
+        synchronized (buffer) {
+            for (LoggedMessage message : messages) {
+                if (buffer.size() >= maxBuffered) {
+                    buffer.pollFirst();
+                    dropped.increment();
+                }
+                buffer.addLast(message);
+                buffered.increment();
+            }
+        }
+    }
+
+    private List<LoggedMessage> buffered(ConversationKey key, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        List<LoggedMessage> recent = new ArrayList<>();
+        synchronized (buffer) {
+            Iterator<LoggedMessage> newestFirst = buffer.descendingIterator();
+            while (newestFirst.hasNext() && recent.size() < limit) {
+                LoggedMessage message = newestFirst.next();
+                if (message.getChatId() == key.chatId() && message.getUserId() == key.userId()) {
+                    recent.add(message);
+                }
+            }
+        }
+        return List.copyOf(recent.reversed());
+    }
+
+    private List<LoggedMessage> takeBatch() {
+        List<LoggedMessage> batch = new ArrayList<>();
+        synchronized (buffer) {
+            while (batch.size() < RECONCILE_BATCH_SIZE && !buffer.isEmpty()) {
+                batch.add(buffer.pollFirst());
+            }
+        }
+        return batch;
+    }
+
+    private void restore(List<LoggedMessage> batch) {
+        synchronized (buffer) {
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                buffer.addFirst(batch.get(i));
+            }
+        }
+    }
+
+    private List<LoggedMessage> remap(List<LoggedMessage> batch) throws SQLException {
+        List<LoggedMessage> remapped = new ArrayList<>(batch.size());
+        for (LoggedMessage message : batch) {
+            long userId = userIds.resolve(message.getUserId());
+            remapped.add(userId == message.getUserId()
+                    ? message
+                    : new LoggedMessage(userId, message.getChatId(), message.getRequestText(), message.getReplyText()));
+        }
+        return remapped;
+    }
+
+    /**
+     * Snapshot of the buffer.
+     *
+     * @param size       exchanges currently buffered
+     * @param buffered   exchanges buffered since start
+     * @param dropped    exchanges dropped because the buffer was full
+     * @param reconciled exchanges written back after an outage
+     */
+    public record Stats(int size, long buffered, long dropped, long reconciled) {
+    }
+}
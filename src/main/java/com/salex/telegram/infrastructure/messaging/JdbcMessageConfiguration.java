@@ -1,23 +1,49 @@
 package com.salex.telegram.infrastructure.messaging;
 
+import com.salex.telegram.application.config.DatabaseConfiguration;
 import com.salex.telegram.infrastructure.database.ConnectionProvider;
+import com.salex.telegram.infrastructure.database.DatabaseHealthMonitor;
+import com.salex.telegram.user.UserService;
+import com.salex.telegram.user.infrastructure.FailoverUserService;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
  * Registers the message repository, switching between JDBC-backed persistence and a no-op
- * implementation depending on whether a {@link ConnectionProvider} is available.
+ * implementation depending on whether a {@link ConnectionProvider} is available. JDBC writes go through a
+ * write-behind queue unless it is disabled; the queue is drained when the context shuts down. With a
+ * {@link DatabaseHealthMonitor} present, exchanges are buffered in memory during an outage and written back once
+ * the database recovers.
  */
 @Configuration
 public class JdbcMessageConfiguration {
 
     @Bean
-    public MessageRepository messageRepository(ObjectProvider<ConnectionProvider> connectionProviders) {
+    public MessageRepository messageRepository(ObjectProvider<ConnectionProvider> connectionProviders,
+                                               ObjectProvider<DatabaseHealthMonitor> monitors,
+                                               UserService userService,
+                                               DatabaseConfiguration properties) {
         ConnectionProvider connectionProvider = connectionProviders.getIfAvailable();
-        if (connectionProvider != null) {
-            return new JdbcMessageRepository(connectionProvider);
+        if (connectionProvider == null) {
+            return new NoopMessageRepository();
         }
-        return new NoopMessageRepository();
+        MessageRepository repository = new JdbcMessageRepository(connectionProvider);
+        DatabaseHealthMonitor monitor = monitors.getIfAvailable();
+        if (monitor != null) {
+            FailoverMessageRepository failover = new FailoverMessageRepository(repository, monitor,
+                    FailoverUserService.idResolver(userService), properties.getFailover().getMaxBufferedMessages());
+            monitor.onRecovery(failover::reconcile);
+            repository = failover;
+        }
+        DatabaseConfiguration.WriteBehind writeBehind = properties.getWriteBehind();
+        if (!writeBehind.isEnabled()) {
+            return repository;
+        }
+        return new WriteBehindMessageRepository(repository, new WriteBehindMessageRepository.Settings(
+                writeBehind.getBatchSize(),
+                writeBehind.getFlushInterval(),
+                writeBehind.getMaxQueued(),
+                writeBehind.getMaxBlock()));
     }
 }
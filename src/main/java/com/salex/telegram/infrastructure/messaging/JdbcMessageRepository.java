@@ -4,11 +4,15 @@ import com.salex.telegram.infrastructure.database.ConnectionProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.List;
 
@@ -19,8 +23,18 @@ public class JdbcMessageRepository implements MessageRepository {
     private static final Logger log = LoggerFactory.getLogger(JdbcMessageRepository.class);
     private static final String INSERT_SQL =
             "INSERT INTO messages (user_id, chat_id, text, reply) VALUES (?,?,?,?)";
+    private static final String INSERT_BATCH_SQL =
+            "INSERT INTO messages (user_id, chat_id, text, reply) " +
+                    "SELECT * FROM unnest(?::bigint[], ?::bigint[], ?::text[], ?::text[])";
     private static final String SELECT_RECENT_SQL =
             "SELECT text, reply FROM messages WHERE chat_id=? AND user_id=? ORDER BY id DESC LIMIT ?";
+    private static final String SELECT_RECENT_BATCH_SQL =
+            "SELECT k.chat_id, k.user_id, m.text, m.reply " +
+                    "FROM unnest(?::bigint[], ?::bigint[]) AS k(chat_id, user_id) " +
+                    "CROSS JOIN LATERAL (" +
+                    "SELECT id, text, reply FROM messages " +
+                    "WHERE chat_id=k.chat_id AND user_id=k.user_id ORDER BY id DESC LIMIT ?) m " +
+                    "ORDER BY k.chat_id, k.user_id, m.id";
 
     private final ConnectionProvider connectionProvider;
 
@@ -32,7 +46,8 @@ public class JdbcMessageRepository implements MessageRepository {
     public void save(LoggedMessage message) {
         Objects.requireNonNull(message, "message");
 
-        try (PreparedStatement ps = connectionProvider.getConnection().prepareStatement(INSERT_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
             ps.setLong(1, message.getUserId());
             ps.setLong(2, message.getChatId());
             ps.setString(3, message.getRequestText());
@@ -44,6 +59,42 @@ public class JdbcMessageRepository implements MessageRepository {
         }
     }
 
+    /**
+     * Inserts the whole batch with a single statement, binding each column as an array.
+     */
+    @Override
+    public void saveAll(List<LoggedMessage> messages) {
+        Objects.requireNonNull(messages, "messages");
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        int size = messages.size();
+        Long[] userIds = new Long[size];
+        Long[] chatIds = new Long[size];
+        String[] texts = new String[size];
+        String[] replies = new String[size];
+        for (int i = 0; i < size; i++) {
+            LoggedMessage message = messages.get(i);
+            userIds[i] = message.getUserId();
+            chatIds[i] = message.getChatId();
+            texts[i] = message.getRequestText();
+            replies[i] = message.getReplyText();
+        }
+
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT_BATCH_SQL)) {
+            ps.setArray(1, connection.createArrayOf("bigint", userIds));
+            ps.setArray(2, connection.createArrayOf("bigint", chatIds));
+            ps.setArray(3, connection.createArrayOf("text", texts));
+            ps.setArray(4, connection.createArrayOf("text", replies));
+            ps.executeUpdate();
+        } catch (SQLException ex) {
+            throw new MessagePersistenceException("Failed to persist " + size + " messages", ex);
+        }
+        log.debug("Persisted {} messages in one statement", size);
+    }
+
     /**
      * Loads the most recent message pairs for the given chat/user, returning them oldest-first.
      */
@@ -54,7 +105,8 @@ public class JdbcMessageRepository implements MessageRepository {
         }
 
         List<LoggedMessage> messages = new ArrayList<>();
-        try (PreparedStatement ps = connectionProvider.getConnection().prepareStatement(SELECT_RECENT_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_RECENT_SQL)) {
             ps.setLong(1, chatId);
             ps.setLong(2, userId);
             ps.setInt(3, limit);
@@ -79,4 +131,54 @@ public class JdbcMessageRepository implements MessageRepository {
         Collections.reverse(messages);
         return List.copyOf(messages);
     }
+
+    /**
+     * Loads recent history for every requested conversation with a single lateral join.
+     */
+    @Override
+    public Map<ConversationKey, List<LoggedMessage>> findRecent(Collection<ConversationKey> conversations, int limit) {
+        Map<ConversationKey, List<LoggedMessage>> result = new LinkedHashMap<>();
+        for (ConversationKey key : conversations) {
+            result.put(key, new ArrayList<>());
+        }
+        if (result.isEmpty() || limit <= 0) {
+            return result;
+        }
+
+        Long[] chatIds = new Long[result.size()];
+        Long[] userIds = new Long[result.size()];
+        int index = 0;
+        for (ConversationKey key : result.keySet()) {
+            chatIds[index] = key.chatId();
+            userIds[index] = key.userId();
+            index++;
+        }
+
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_RECENT_BATCH_SQL)) {
+            ps.setArray(1, connection.createArrayOf("bigint", chatIds));
+            ps.setArray(2, connection.createArrayOf("bigint", userIds));
+            ps.setInt(3, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long chatId = rs.getLong("chat_id");
+                    long userId = rs.getLong("user_id");
+                    String text = rs.getString("text");
+                    String reply = rs.getString("reply");
+                    result.get(new ConversationKey(chatId, userId)).add(new LoggedMessage(
+                            userId,
+                            chatId,
+                            text != null ? text : "",
+                            reply != null ? reply : ""
+                    ));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new MessagePersistenceException("Failed to load message history", ex);
+        }
+
+        log.debug("Loaded message history for {} conversations in one query", result.size());
+        return result;
+    }
 }
@@ -1,6 +1,9 @@
 package com.salex.telegram.infrastructure.messaging;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Abstraction for persisting and retrieving conversational exchanges.
@@ -8,6 +11,18 @@ import java.util.List;
 public interface MessageRepository {
     void save(LoggedMessage message);
 
+    /**
+     * Persists several exchanges in order. Database-backed repositories should override this to write the
+     * whole batch with a single statement.
+     *
+     * @param messages exchanges to persist, oldest first
+     */
+    default void saveAll(List<LoggedMessage> messages) {
+        for (LoggedMessage message : messages) {
+            save(message);
+        }
+    }
+
     /**
      * Retrieves the most recent persisted exchanges for the given chat/user pair, ordered oldest to newest.
      *
@@ -17,4 +32,20 @@ public interface MessageRepository {
      * @return ordered list of {@link LoggedMessage} instances oldest to newest; may be empty
      */
     List<LoggedMessage> findRecent(long chatId, long userId, int limit);
+
+    /**
+     * Retrieves recent exchanges for several conversations at once. Database-backed repositories should
+     * override this to answer the whole batch with a single query.
+     *
+     * @param conversations conversations to load
+     * @param limit         maximum number of exchanges to return per conversation
+     * @return exchanges per conversation ordered oldest to newest; conversations without history map to an empty list
+     */
+    default Map<ConversationKey, List<LoggedMessage>> findRecent(Collection<ConversationKey> conversations, int limit) {
+        Map<ConversationKey, List<LoggedMessage>> result = new LinkedHashMap<>();
+        for (ConversationKey key : conversations) {
+            result.put(key, findRecent(key.chatId(), key.userId(), limit));
+        }
+        return result;
+    }
 }
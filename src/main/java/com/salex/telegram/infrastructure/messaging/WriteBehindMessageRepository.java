@@ -0,0 +1,293 @@
+package com.salex.telegram.infrastructure.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues saved messages in memory and writes them to the delegate in batches from a background thread, so
+ * callers never wait for the database. A batch is written as soon as it is full or once its oldest message has
+ * waited for the flush interval. The queue is bounded: when it is full, {@code save} blocks for at most the
+ * configured time and then writes the message itself, which slows producers down to the rate the database
+ * sustains instead of growing memory. Reads first write the queued messages of the conversations they read, so
+ * callers see their own writes without waiting for everyone else's, and {@link #close()} drains the queue before
+ * returning.
+ */
+public final class WriteBehindMessageRepository implements MessageRepository, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindMessageRepository.class);
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000L;
+
+    private final MessageRepository delegate;
+    private final Settings settings;
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushDue = lock.newCondition();
+    // Serialises batch writes so a read that drained its messages also waits for a batch already being written.
+    private final Object writeLock = new Object();
+    private final Thread writer;
+
+    private volatile boolean closed;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder synchronousWrites = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public WriteBehindMessageRepository(MessageRepository delegate, Settings settings) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.writer = new Thread(this::runWriter, "message-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues the message. Blocks only while the queue is full, and writes the message synchronously when no
+     * room frees up within the configured time or the repository is already closed.
+     */
+    @Override
+    public void save(LoggedMessage message) {
+        Objects.requireNonNull(message, "message");
+        if (!enqueue(message)) {
+            synchronousWrites.increment();
+            delegate.save(message);
+        }
+    }
+
+    @Override
+    public List<LoggedMessage> findRecent(long chatId, long userId, int limit) {
+        drain(Set.of(new ConversationKey(chatId, userId)));
+        return delegate.findRecent(chatId, userId, limit);
+    }
+
+    @Override
+    public Map<ConversationKey, List<LoggedMessage>> findRecent(Collection<ConversationKey> conversations, int limit) {
+        drain(Set.copyOf(conversations));
+        return delegate.findRecent(conversations, limit);
+    }
+
+    /**
+     * @return queue length and write counters
+     */
+    public Stats stats() {
+        int queued;
+        lock.lock();
+        try {
+            queued = pending.size();
+        } finally {
+            lock.unlock();
+        }
+        return new Stats(queued, written.sum(), batches.sum(), synchronousWrites.sum(), failed.sum());
+    }
+
+    /**
+     * Stops the background writer and writes everything still queued on the calling thread.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushDue.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+        Stats stats = stats();
+        log.info("Message write-behind stopped after writing {} messages in {} batches ({} failed)",
+                stats.written(), stats.batches(), stats.failed());
+    }
+
+    private boolean enqueue(LoggedMessage message) {
+        long remaining = settings.maxBlock().toNanos();
+        lock.lock();
+        try {
+            while (!closed && pending.size() >= settings.maxQueued()) {
+                if (remaining <= 0L) {
+                    log.debug("Write-behind queue is full; writing message for chat {} synchronously",
+                            message.getChatId());
+                    return false;
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+            if (closed) {
+                return false;
+            }
+            pending.addLast(new Pending(message, System.nanoTime()));
+            if (pending.size() >= settings.batchSize()) {
+                flushDue.signal();
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runWriter() {
+        long interval = settings.flushInterval().toNanos();
+        while (true) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                if (pending.isEmpty()) {
+                    flushDue.await();
+                    continue;
+                }
+                long wait = pending.peekFirst().enqueuedNanos() + interval - System.nanoTime();
+                if (pending.size() < settings.batchSize() && wait > 0L) {
+                    flushDue.awaitNanos(wait);
+                    continue;
+                }
+            } catch (InterruptedException ex) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            writeBatch();
+        }
+    }
+
+    /**
+     * Writes queued messages until the queue is empty.
+     */
+    private void drain() {
+        synchronized (writeLock) {
+            while (writeBatch() > 0) {
+                // keep going until everything queued so far is written
+            }
+        }
+    }
+
+    /**
+     * Takes the queued messages of the given conversations off the queue, in order, and writes them. Holding the
+     * write lock keeps a batch already being written, which may contain older messages of the same
+     * conversations, ahead of them.
+     */
+    private void drain(Set<ConversationKey> conversations) {
+        synchronized (writeLock) {
+            List<LoggedMessage> taken = new ArrayList<>();
+            lock.lock();
+            try {
+                Iterator<Pending> queued = pending.iterator();
+                while (queued.hasNext()) {
+                    LoggedMessage message = queued.next().message();
+                    if (conversations.contains(new ConversationKey(message.getChatId(), message.getUserId()))) {
+                        taken.add(message);
+                        queued.remove();
+                    }
+                }
+                if (!taken.isEmpty()) {
+                    notFull.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (int from = 0; from < taken.size(); from += settings.batchSize()) {
+                write(taken.subList(from, Math.min(taken.size(), from + settings.batchSize())));
+            }
+        }
+    }
+
+    /**
+     * Takes up to one batch off the queue and writes it.
+     *
+     * @return number of messages taken off the queue
+     */
+    private int writeBatch() {
+        synchronized (writeLock) {
+            List<LoggedMessage> batch = new ArrayList<>(settings.batchSize());
+            lock.lock();
+            try {
+                while (batch.size() < settings.batchSize() && !pending.isEmpty()) {
+                    batch.add(pending.pollFirst().message());
+                }
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            write(batch);
+            return batch.size();
+        }
+    }
+
+    private void write(List<LoggedMessage> batch) {
+        try {
+            delegate.saveAll(batch);
+            written.add(batch.size());
+            batches.increment();
+        } catch (RuntimeException ex) {
+            failed.add(batch.size());
+            log.warn("Failed to persist {} queued messages: {}", batch.size(), ex.getMessage());
+        }
+    }
+
+    private record Pending(LoggedMessage message, long enqueuedNanos) {
+    }
+
+    /**
+     * Write-behind settings.
+     *
+     * @param batchSize     messages written with one statement
+     * @param flushInterval longest a message waits in the queue before its batch is written
+     * @param maxQueued     messages held in memory before callers are slowed down
+     * @param maxBlock      longest {@code save} waits for room in a full queue before writing synchronously
+     */
+    public record Settings(int batchSize, Duration flushInterval, int maxQueued, Duration maxBlock) {
+        public Settings {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("batchSize must be >= 1");
+            }
+            if (maxQueued < batchSize) {
+                throw new IllegalArgumentException("maxQueued must be >= batchSize");
+            }
+            Objects.requireNonNull(flushInterval, "flushInterval");
+            Objects.requireNonNull(maxBlock, "maxBlock");
+            if (flushInterval.isNegative() || flushInterval.isZero()) {
+                throw new IllegalArgumentException("flushInterval must be positive");
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the write-behind queue.
+     *
+     * @param queued            messages waiting to be written
+     * @param written           messages written in batches
+     * @param batches           batches written
+     * @param synchronousWrites messages written by the caller because the queue was full or closed
+     * @param failed            queued messages lost because their batch could not be written
+     */
+    public record Stats(int queued, long written, long batches, long synchronousWrites, long failed) {
+    }
+}
@@ -0,0 +1,274 @@
+package com.salex.telegram.infrastructure.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bulkhead whose concurrency limit adapts to the remote side using additive-increase/multiplicative-decrease:
+ * every successful call made while the limit was in use raises it by {@code 1/limit} (about one per round
+ * trip), and every call the remote side dropped, such as a throttled or timed out request, multiplies it by
+ * the backoff ratio. Callers beyond the limit wait in a bounded FIFO queue for at most the configured time and
+ * are rejected with a {@link RejectedExecutionException} when the queue is full or the wait runs out.
+ */
+public final class AdaptiveConcurrencyLimiter {
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private final String name;
+    private final Settings settings;
+    private final Deque<Waiter> queue = new ArrayDeque<>();
+
+    private double limit;
+    private int inFlight;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder handedOver = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+
+    /**
+     * @param name     label used in logs and rejection messages
+     * @param settings limits and queueing behaviour
+     */
+    public AdaptiveConcurrencyLimiter(String name, Settings settings) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.limit = settings.initialLimit();
+    }
+
+    /**
+     * Requests a permit. The future completes immediately while the limit has room, otherwise once a permit is
+     * handed over from the queue. It fails with {@link RejectedExecutionException} when the queue is full or
+     * the wait exceeds the configured maximum; cancelling it gives up the place in the queue.
+     *
+     * @return future completed with a permit the caller must settle exactly once
+     */
+    public CompletableFuture<Permit> acquire() {
+        Waiter waiter;
+        synchronized (this) {
+            if (queue.isEmpty() && inFlight < limit) {
+                inFlight++;
+                acquired.increment();
+                return CompletableFuture.completedFuture(new Permit(inFlight));
+            }
+            if (queue.size() >= settings.maxQueued()) {
+                rejected.increment();
+                return CompletableFuture.failedFuture(rejection("queue is full"));
+            }
+            waiter = new Waiter(System.nanoTime());
+            queue.addLast(waiter);
+        }
+        CompletableFuture<Permit> future = waiter.future;
+        CompletableFuture.delayedExecutor(settings.maxWait().toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (future.completeExceptionally(rejection("waited longer than " + settings.maxWait().toMillis() + " ms"))) {
+                rejected.increment();
+            }
+        });
+        future.whenComplete((permit, error) -> {
+            if (error != null) {
+                synchronized (this) {
+                    queue.remove(waiter);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Blocking variant of {@link #acquire()} for callers that run on their own thread.
+     *
+     * @throws RejectedExecutionException when no permit became available in time
+     * @throws InterruptedException       if interrupted while queued
+     */
+    public Permit await() throws InterruptedException {
+        CompletableFuture<Permit> future = acquire();
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            if (!future.cancel(false) && !future.isCompletedExceptionally()) {
+                future.join().release();
+            }
+            throw ex;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * @return current limit, in-flight calls, queue length and counters
+     */
+    public synchronized Stats stats() {
+        long waits = handedOver.sum();
+        return new Stats(
+                limit,
+                inFlight,
+                queue.size(),
+                acquired.sum(),
+                rejected.sum(),
+                dropped.sum(),
+                waits == 0 ? 0d : queueWaitNanos.sum() / (double) waits / 1_000_000d);
+    }
+
+    private void settle(int inFlightAtAcquire, Outcome outcome) {
+        List<Grant> granted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            double previous = limit;
+            if (outcome == Outcome.SUCCESS && inFlightAtAcquire >= limit / 2d) {
+                // Only grow while the limit is actually being used; idle capacity proves nothing.
+                limit = Math.min(settings.maxLimit(), limit + 1d / limit);
+            } else if (outcome == Outcome.DROPPED) {
+                limit = Math.max(settings.minLimit(), limit * settings.backoffRatio());
+                dropped.increment();
+                if ((int) limit < (int) previous) {
+                    log.debug("Concurrency limit for {} lowered to {}", name, (int) limit);
+                }
+            }
+            while (!queue.isEmpty() && inFlight < limit) {
+                inFlight++;
+                granted.add(new Grant(queue.pollFirst(), inFlight));
+            }
+        }
+        long now = System.nanoTime();
+        for (Grant grant : granted) {
+            Waiter waiter = grant.waiter();
+            // Counted up front so the woken caller already sees its own permit in the statistics.
+            long waited = now - waiter.enqueuedNanos;
+            acquired.increment();
+            handedOver.increment();
+            queueWaitNanos.add(waited);
+            if (!waiter.future.complete(new Permit(grant.inFlight()))) {
+                // The waiter timed out or was cancelled while the permit was on its way; hand it on.
+                acquired.decrement();
+                handedOver.decrement();
+                queueWaitNanos.add(-waited);
+                settle(Integer.MIN_VALUE, Outcome.IGNORED);
+            }
+        }
+    }
+
+    private RejectedExecutionException rejection(String reason) {
+        return new RejectedExecutionException("Too many concurrent " + name + " requests: " + reason);
+    }
+
+    private enum Outcome { SUCCESS, DROPPED, IGNORED }
+
+    private record Grant(Waiter waiter, int inFlight) {
+    }
+
+    private record Waiter(long enqueuedNanos, CompletableFuture<Permit> future) {
+        private Waiter(long enqueuedNanos) {
+            this(enqueuedNanos, new CompletableFuture<>());
+        }
+    }
+
+    /**
+     * Right to run one call. Exactly one of the settling methods must be called once the call finishes; later
+     * calls are ignored.
+     */
+    public final class Permit {
+        private final int inFlightAtAcquire;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Permit(int inFlightAtAcquire) {
+            this.inFlightAtAcquire = inFlightAtAcquire;
+        }
+
+        /**
+         * The remote side handled the call; may raise the limit.
+         */
+        public void onSuccess() {
+            settleOnce(Outcome.SUCCESS);
+        }
+
+        /**
+         * The remote side was overloaded (throttled, timed out or failed with a server error); lowers the limit.
+         */
+        public void onDropped() {
+            settleOnce(Outcome.DROPPED);
+        }
+
+        /**
+         * The call ended without saying anything about the remote side's capacity, for example because it was
+         * cancelled or rejected as invalid.
+         */
+        public void release() {
+            settleOnce(Outcome.IGNORED);
+        }
+
+        private void settleOnce(Outcome outcome) {
+            if (settled.compareAndSet(false, true)) {
+                settle(inFlightAtAcquire, outcome);
+            }
+        }
+    }
+
+    /**
+     * Limiter settings.
+     *
+     * @param initialLimit concurrent calls allowed before any feedback arrived
+     * @param minLimit     floor the limit never drops below
+     * @param maxLimit     ceiling the limit never grows beyond
+     * @param backoffRatio factor in {@code (0, 1)} applied to the limit when a call is dropped
+     * @param maxQueued    callers allowed to wait for a permit
+     * @param maxWait      longest a caller waits in the queue
+     */
+    public record Settings(int initialLimit,
+                           int minLimit,
+                           int maxLimit,
+                           double backoffRatio,
+                           int maxQueued,
+                           Duration maxWait) {
+        public Settings {
+            if (minLimit < 1 || maxLimit < minLimit) {
+                throw new IllegalArgumentException("limits must satisfy 1 <= minLimit <= maxLimit");
+            }
+            if (initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("initialLimit must be between minLimit and maxLimit");
+            }
+            if (backoffRatio <= 0d || backoffRatio >= 1d) {
+                throw new IllegalArgumentException("backoffRatio must be in (0, 1)");
+            }
+            if (maxQueued < 0) {
+                throw new IllegalArgumentException("maxQueued must be >= 0");
+            }
+            Objects.requireNonNull(maxWait, "maxWait");
+        }
+    }
+
+    /**
+     * Snapshot of the limiter.
+     *
+     * @param limit                  current concurrency limit
+     * @param inFlight               calls holding a permit
+     * @param queued                 callers waiting for a permit
+     * @param acquired               permits handed out
+     * @param rejected               callers turned away because the queue was full or their wait ran out
+     * @param dropped                calls the remote side dropped, each of which lowered the limit
+     * @param averageQueueWaitMillis mean time queued callers waited before getting a permit
+     */
+    public record Stats(double limit,
+                        int inFlight,
+                        int queued,
+                        long acquired,
+                        long rejected,
+                        long dropped,
+                        double averageQueueWaitMillis) {
+    }
+}
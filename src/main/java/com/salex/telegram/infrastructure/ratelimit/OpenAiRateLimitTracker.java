@@ -0,0 +1,216 @@
+package com.salex.telegram.infrastructure.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Paces requests to OpenAI from the quota the provider reports in its {@code x-ratelimit-*} response headers.
+ * Every response updates the remaining request and token quota and the time until each is replenished; in
+ * between, the quota is assumed to refill linearly at the rate those headers imply. Before sending, callers
+ * reserve one request and the estimated prompt tokens and wait for the returned delay, so sustained traffic
+ * settles just under the account's limits instead of running into 429 responses. Until the first headers
+ * arrive nothing is paced.
+ */
+public final class OpenAiRateLimitTracker {
+    private static final Logger log = LoggerFactory.getLogger(OpenAiRateLimitTracker.class);
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+    // OpenAI quotas are per minute; used until the headers reveal the actual refill rate.
+    private static final long DEFAULT_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Settings settings;
+    private final LongSupplier nanoClock;
+    private final Quota requests = new Quota("requests");
+    private final Quota tokens = new Quota("tokens");
+
+    private final LongAdder paced = new LongAdder();
+    private final LongAdder pacedNanos = new LongAdder();
+
+    public OpenAiRateLimitTracker(Settings settings) {
+        this(settings, System::nanoTime);
+    }
+
+    public OpenAiRateLimitTracker(Settings settings, LongSupplier nanoClock) {
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock");
+    }
+
+    /**
+     * Takes one request and the given tokens from the tracked quota, borrowing against future refills when
+     * necessary so concurrent callers queue behind each other.
+     *
+     * @param estimatedTokens tokens the request is expected to consume
+     * @return how long the caller should wait before sending, capped at the configured maximum
+     */
+    public synchronized Duration reserve(int estimatedTokens) {
+        long now = nanoClock.getAsLong();
+        long waitNanos = Math.max(requests.reserve(1, now), tokens.reserve(Math.max(0, estimatedTokens), now));
+        if (waitNanos <= 0) {
+            return Duration.ZERO;
+        }
+        long capped = Math.min(waitNanos, settings.maxDelay().toNanos());
+        paced.increment();
+        pacedNanos.add(capped);
+        log.debug("Pacing OpenAI request by {} ms to stay within the rate limit", TimeUnit.NANOSECONDS.toMillis(capped));
+        return Duration.ofNanos(capped);
+    }
+
+    /**
+     * Replaces the local estimate with the quota reported by a response. Responses without rate-limit headers,
+     * such as those from OpenAI-compatible servers that do not enforce quotas, are ignored.
+     *
+     * @param headers response headers
+     */
+    public synchronized void update(HttpHeaders headers) {
+        Objects.requireNonNull(headers, "headers");
+        long now = nanoClock.getAsLong();
+        requests.observe(headers, now);
+        tokens.observe(headers, now);
+    }
+
+    /**
+     * @return the estimated remaining quota and how much pacing has been applied
+     */
+    public synchronized Stats stats() {
+        long now = nanoClock.getAsLong();
+        return new Stats(requests.available(now), tokens.available(now), paced.sum(),
+                TimeUnit.NANOSECONDS.toMillis(pacedNanos.sum()));
+    }
+
+    /**
+     * Parses OpenAI's reset durations such as {@code 20ms}, {@code 1s} or {@code 6m0s}.
+     *
+     * @return the duration in nanoseconds, or empty when the value is not in that format
+     */
+    static OptionalLong parseReset(String value) {
+        if (value == null || value.isBlank()) {
+            return OptionalLong.empty();
+        }
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double nanos = 0d;
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            double amount = Double.parseDouble(matcher.group(1));
+            nanos += amount * switch (matcher.group(2)) {
+                case "h" -> TimeUnit.HOURS.toNanos(1);
+                case "m" -> TimeUnit.MINUTES.toNanos(1);
+                case "s" -> TimeUnit.SECONDS.toNanos(1);
+                default -> TimeUnit.MILLISECONDS.toNanos(1);
+            };
+            end = matcher.end();
+        }
+        return end == value.trim().length() && end > 0 ? OptionalLong.of((long) nanos) : OptionalLong.empty();
+    }
+
+    /**
+     * One quota dimension, tracked as a bucket that holds {@code limit} units and refills linearly.
+     */
+    private final class Quota {
+        private final String limitHeader;
+        private final String remainingHeader;
+        private final String resetHeader;
+
+        private boolean known;
+        private long limit;
+        private double available;
+        private double refillPerNano;
+        private long updatedNanos;
+
+        private Quota(String dimension) {
+            this.limitHeader = "x-ratelimit-limit-" + dimension;
+            this.remainingHeader = "x-ratelimit-remaining-" + dimension;
+            this.resetHeader = "x-ratelimit-reset-" + dimension;
+        }
+
+        private void observe(HttpHeaders headers, long now) {
+            OptionalLong reportedLimit;
+            OptionalLong remaining;
+            try {
+                reportedLimit = headers.firstValueAsLong(limitHeader);
+                remaining = headers.firstValueAsLong(remainingHeader);
+            } catch (NumberFormatException ex) {
+                log.debug("Ignoring unparseable {} header: {}", remainingHeader, ex.getMessage());
+                return;
+            }
+            if (reportedLimit.isEmpty() || remaining.isEmpty() || reportedLimit.getAsLong() <= 0) {
+                return;
+            }
+            limit = reportedLimit.getAsLong();
+            long missing = limit - remaining.getAsLong();
+            OptionalLong reset = parseReset(headers.firstValue(resetHeader).orElse(null));
+            if (missing > 0 && reset.isPresent() && reset.getAsLong() > 0) {
+                refillPerNano = missing / (double) reset.getAsLong();
+            } else if (!known) {
+                refillPerNano = limit / (double) DEFAULT_WINDOW_NANOS;
+            }
+            available = remaining.getAsLong();
+            updatedNanos = now;
+            known = true;
+        }
+
+        private long reserve(int units, long now) {
+            if (!known) {
+                return 0L;
+            }
+            refill(now);
+            available -= units;
+            double floor = limit * settings.headroom();
+            if (available >= floor) {
+                return 0L;
+            }
+            return (long) Math.ceil((floor - available) / refillPerNano);
+        }
+
+        private long available(long now) {
+            if (!known) {
+                return -1L;
+            }
+            refill(now);
+            return (long) Math.floor(available);
+        }
+
+        private void refill(long now) {
+            long elapsed = now - updatedNanos;
+            if (elapsed > 0) {
+                available = Math.min(limit, available + elapsed * refillPerNano);
+                updatedNanos = now;
+            }
+        }
+    }
+
+    /**
+     * Pacing settings.
+     *
+     * @param headroom share of each limit kept unused, absorbing requests still in flight and estimation error
+     * @param maxDelay longest a single request is held back; beyond this the request is sent and the provider
+     *                 decides
+     */
+    public record Settings(double headroom, Duration maxDelay) {
+        public Settings {
+            if (headroom < 0d || headroom >= 1d) {
+                throw new IllegalArgumentException("headroom must be in [0, 1)");
+            }
+            Objects.requireNonNull(maxDelay, "maxDelay");
+        }
+    }
+
+    /**
+     * Snapshot of the tracked quota.
+     *
+     * @param remainingRequests estimated requests left, or {@code -1} before the provider reported any
+     * @param remainingTokens   estimated tokens left, or {@code -1} before the provider reported any
+     * @param pacedRequests     requests that were held back
+     * @param pacedMillis       total time requests were held back
+     */
+    public record Stats(long remainingRequests, long remainingTokens, long pacedRequests, long pacedMillis) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.salex.telegram.infrastructure.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe token bucket that refills continuously. Besides non-blocking {@link #tryAcquire()} checks it
+ * supports reservations that may push the bucket into debt, which lets callers queue fairly for future
+ * capacity by sleeping for the returned delay.
+ */
+public final class TokenBucket {
+    private final double capacity;
+    private final double refillPerNano;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param capacity        maximum number of tokens the bucket holds (burst size)
+     * @param refillPerSecond tokens added per second
+     */
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this(capacity, refillPerSecond, System::nanoTime);
+    }
+
+    public TokenBucket(double capacity, double refillPerSecond, LongSupplier nanoClock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        if (refillPerSecond <= 0) {
+            throw new IllegalArgumentException("refillPerSecond must be > 0");
+        }
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Takes a single token if one is available.
+     *
+     * @return {@code true} when the token was taken
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1d);
+    }
+
+    /**
+     * Takes the requested number of tokens if they are all available.
+     *
+     * @param permits tokens to take
+     * @return {@code true} when the tokens were taken
+     */
+    public synchronized boolean tryAcquire(double permits) {
+        refill();
+        if (tokens >= permits) {
+            tokens -= permits;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns tokens taken for work that did not go ahead, never filling the bucket beyond its capacity.
+     *
+     * @param permits tokens to return
+     */
+    public synchronized void refund(double permits) {
+        refill();
+        tokens = Math.min(capacity, tokens + permits);
+    }
+
+    /**
+     * Takes the requested tokens unconditionally, borrowing against future refills when necessary.
+     *
+     * @param permits tokens to take
+     * @return nanoseconds the caller should wait before acting on the reservation; {@code 0} if none
+     */
+    public synchronized long reserve(double permits) {
+        refill();
+        tokens -= permits;
+        if (tokens >= 0) {
+            return 0L;
+        }
+        return (long) Math.ceil(-tokens / refillPerNano);
+    }
+
+    /**
+     * Blocks until a single token has been reserved and its delay has elapsed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve(1d);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Prevents any token from becoming available for the given period, for example after the remote side
+     * asked the client to back off.
+     *
+     * @param duration length of the pause
+     * @param unit     unit of {@code duration}
+     */
+    public synchronized void pause(long duration, TimeUnit unit) {
+        refill();
+        double ceiling = 1d - unit.toNanos(duration) * refillPerNano;
+        tokens = Math.min(tokens, ceiling);
+    }
+
+    /**
+     * @return {@code true} when the bucket has refilled to capacity, meaning it carries no state worth keeping
+     */
+    public synchronized boolean isFull() {
+        refill();
+        return tokens >= capacity;
+    }
+
+    /**
+     * @return tokens currently available; negative while reservations are outstanding
+     */
+    public synchronized double availableTokens() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * refillPerNano);
+            lastRefillNanos = now;
+        }
+    }
+}
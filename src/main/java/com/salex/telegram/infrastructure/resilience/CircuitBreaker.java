@@ -0,0 +1,119 @@
+package com.salex.telegram.infrastructure.resilience;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row the circuit opens and
+ * calls are refused for {@code openDuration}; then a single trial call is let through, whose outcome either
+ * closes the circuit again or reopens it for another period.
+ */
+public final class CircuitBreaker {
+
+    /**
+     * Circuit states.
+     */
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+    private long rejected;
+
+    /**
+     * @param failureThreshold consecutive failures that open the circuit
+     * @param openDuration     how long the circuit stays open before a trial call
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("failureThreshold must be > 0");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Asks permission for a call. Every granted call must be followed by exactly one of {@link #onSuccess()},
+     * {@link #onFailure()} or {@link #onIgnored()}.
+     *
+     * @return {@code true} if the call may proceed
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAtNanos >= openNanos) {
+            state = State.HALF_OPEN;
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (!trialInFlight) {
+                    trialInFlight = true;
+                    return true;
+                }
+                break;
+            default:
+                break;
+        }
+        rejected++;
+        return false;
+    }
+
+    /**
+     * Records a successful call, closing the circuit.
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Records a failed call, opening the circuit once the threshold is reached or when a trial call fails.
+     */
+    public synchronized void onFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtNanos = nanoClock.getAsLong();
+        }
+    }
+
+    /**
+     * Records a call whose outcome says nothing about the remote side, such as one the caller cancelled.
+     */
+    public synchronized void onIgnored() {
+        trialInFlight = false;
+    }
+
+    /**
+     * @return time until the open circuit allows a trial call; zero when not open
+     */
+    public synchronized Duration remainingOpen() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0L, openNanos - (nanoClock.getAsLong() - openedAtNanos)));
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * @return calls refused while the circuit was open
+     */
+    public synchronized long rejectedCalls() {
+        return rejected;
+    }
+}
@@ -0,0 +1,49 @@
+package com.salex.telegram.infrastructure.resilience;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+
+/**
+ * Keeps the most recent latency samples in a ring and answers percentile queries over them. Queries sort a
+ * copy of the window, which is cheap for the few hundred samples this is meant for.
+ */
+public final class LatencyWindow {
+    private final long[] samples;
+    private final int minSamples;
+    private int next;
+    private int count;
+
+    /**
+     * @param size       samples kept
+     * @param minSamples samples required before percentiles are reported
+     */
+    public LatencyWindow(int size, int minSamples) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be > 0");
+        }
+        this.samples = new long[size];
+        this.minSamples = Math.max(1, Math.min(size, minSamples));
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * @param percentile value in {@code (0, 100]}
+     * @return the sample at the given percentile, or empty while too few samples were recorded
+     */
+    public synchronized OptionalLong percentile(double percentile) {
+        if (count < minSamples) {
+            return OptionalLong.empty();
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100d * count) - 1;
+        return OptionalLong.of(sorted[Math.max(0, Math.min(count - 1, index))]);
+    }
+}
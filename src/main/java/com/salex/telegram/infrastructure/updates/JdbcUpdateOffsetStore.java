@@ -0,0 +1,67 @@
+package com.salex.telegram.infrastructure.updates;
+
+import com.salex.telegram.infrastructure.database.ConnectionProvider;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.OptionalLong;
+
+/**
+ * Keeps the update high-water mark in the <code>bot_state</code> table, one row per bot.
+ */
+public class JdbcUpdateOffsetStore implements UpdateOffsetStore {
+    private static final String SELECT_SQL =
+            "SELECT value FROM bot_state WHERE key=?";
+    private static final String UPSERT_SQL =
+            "INSERT INTO bot_state (key, value) VALUES (?,?) " +
+                    "ON CONFLICT (key) DO UPDATE SET value=GREATEST(bot_state.value, EXCLUDED.value), updated_at=now()";
+    private static final String RESET_SQL =
+            "INSERT INTO bot_state (key, value) VALUES (?,?) " +
+                    "ON CONFLICT (key) DO UPDATE SET value=EXCLUDED.value, updated_at=now()";
+
+    private final ConnectionProvider connectionProvider;
+
+    public JdbcUpdateOffsetStore(ConnectionProvider connectionProvider) {
+        this.connectionProvider = Objects.requireNonNull(connectionProvider, "connectionProvider");
+    }
+
+    @Override
+    public OptionalLong load(String botKey) throws SQLException {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_SQL)) {
+            ps.setString(1, key(botKey));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return OptionalLong.of(rs.getLong("value"));
+                }
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    @Override
+    public void save(String botKey, long updateId) throws SQLException {
+        write(UPSERT_SQL, botKey, updateId);
+    }
+
+    @Override
+    public void reset(String botKey, long updateId) throws SQLException {
+        write(RESET_SQL, botKey, updateId);
+    }
+
+    private void write(String sql, String botKey, long updateId) throws SQLException {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, key(botKey));
+            ps.setLong(2, updateId);
+            ps.executeUpdate();
+        }
+    }
+
+    private static String key(String botKey) {
+        return "last_update_id:" + Objects.requireNonNull(botKey, "botKey");
+    }
+}
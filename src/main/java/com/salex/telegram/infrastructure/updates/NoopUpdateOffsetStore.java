@@ -0,0 +1,23 @@
+package com.salex.telegram.infrastructure.updates;
+
+import java.util.OptionalLong;
+
+/**
+ * Offset store used without a database; deduplication then only covers the lifetime of the process.
+ */
+public class NoopUpdateOffsetStore implements UpdateOffsetStore {
+    @Override
+    public OptionalLong load(String botKey) {
+        return OptionalLong.empty();
+    }
+
+    @Override
+    public void save(String botKey, long updateId) {
+        // intentionally no-op
+    }
+
+    @Override
+    public void reset(String botKey, long updateId) {
+        // intentionally no-op
+    }
+}
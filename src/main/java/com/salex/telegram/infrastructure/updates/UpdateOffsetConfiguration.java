@@ -0,0 +1,22 @@
+package com.salex.telegram.infrastructure.updates;
+
+import com.salex.telegram.infrastructure.database.ConnectionProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the update offset store, persisting to JDBC when a {@link ConnectionProvider} is available.
+ */
+@Configuration
+public class UpdateOffsetConfiguration {
+
+    @Bean
+    public UpdateOffsetStore updateOffsetStore(ObjectProvider<ConnectionProvider> connectionProviders) {
+        ConnectionProvider connectionProvider = connectionProviders.getIfAvailable();
+        if (connectionProvider != null) {
+            return new JdbcUpdateOffsetStore(connectionProvider);
+        }
+        return new NoopUpdateOffsetStore();
+    }
+}
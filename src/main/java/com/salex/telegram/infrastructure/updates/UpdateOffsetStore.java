@@ -0,0 +1,39 @@
+package com.salex.telegram.infrastructure.updates;
+
+import java.sql.SQLException;
+import java.util.OptionalLong;
+
+/**
+ * Durable record of the highest Telegram {@code update_id} the bot has accepted, so redelivered updates can
+ * be recognised after a restart.
+ */
+public interface UpdateOffsetStore {
+
+    /**
+     * Loads the stored high-water mark.
+     *
+     * @param botKey identifies the bot the mark belongs to
+     * @return the highest accepted update identifier, or empty when nothing has been stored yet
+     * @throws SQLException if the backing store cannot be read
+     */
+    OptionalLong load(String botKey) throws SQLException;
+
+    /**
+     * Stores a new high-water mark. Implementations must never move the mark backwards.
+     *
+     * @param botKey   identifies the bot the mark belongs to
+     * @param updateId highest accepted update identifier
+     * @throws SQLException if the backing store cannot be written
+     */
+    void save(String botKey, long updateId) throws SQLException;
+
+    /**
+     * Replaces the high-water mark, even with a lower value. Used once Telegram has started a new
+     * {@code update_id} sequence below the stored mark.
+     *
+     * @param botKey   identifies the bot the mark belongs to
+     * @param updateId highest accepted update identifier of the new sequence
+     * @throws SQLException if the backing store cannot be written
+     */
+    void reset(String botKey, long updateId) throws SQLException;
+}
@@ -0,0 +1,144 @@
+package com.salex.telegram.telegram;
+
+import com.salex.telegram.infrastructure.ratelimit.TokenBucket;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether an incoming message may enter the pipeline, using one token bucket per Telegram user
+ * and one per chat. Rejected traffic costs a map lookup; the sender is told about it once per limited
+ * period rather than once per dropped message.
+ */
+final class AdmissionController {
+    private static final int SWEEP_THRESHOLD = 4_096;
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Settings settings;
+    private final LongSupplier nanoClock;
+    private final Map<Long, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final Map<Long, TokenBucket> chatBuckets = new ConcurrentHashMap<>();
+    private final Set<Long> noticedUsers = ConcurrentHashMap.newKeySet();
+    private final Set<Long> noticedChats = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextSweepNanos;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    AdmissionController(Settings settings) {
+        this(settings, System::nanoTime);
+    }
+
+    AdmissionController(Settings settings, LongSupplier nanoClock) {
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock");
+        this.nextSweepNanos = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * Charges the message against the sender's and the chat's allowance. A message the chat turns away does
+     * not cost the sender a token.
+     *
+     * @param chatId         chat the message was posted in
+     * @param telegramUserId Telegram identifier of the sender
+     * @return outcome of the check
+     */
+    Decision admit(long chatId, long telegramUserId) {
+        if (!settings.enabled()) {
+            return Decision.ADMIT;
+        }
+        sweepIfNeeded();
+
+        TokenBucket userBucket = userBuckets.computeIfAbsent(telegramUserId,
+                ignored -> new TokenBucket(settings.perUserBurst(), settings.perUserPerMinute() / 60d, nanoClock));
+        if (!userBucket.tryAcquire()) {
+            rejected.increment();
+            return noticedUsers.add(telegramUserId) ? Decision.REJECT_WITH_NOTICE : Decision.REJECT;
+        }
+
+        TokenBucket chatBucket = chatBuckets.computeIfAbsent(chatId,
+                ignored -> new TokenBucket(settings.perChatBurst(), settings.perChatPerMinute() / 60d, nanoClock));
+        if (!chatBucket.tryAcquire()) {
+            userBucket.refund(1d);
+            rejected.increment();
+            return noticedChats.add(chatId) ? Decision.REJECT_WITH_NOTICE : Decision.REJECT;
+        }
+
+        noticedUsers.remove(telegramUserId);
+        noticedChats.remove(chatId);
+        admitted.increment();
+        return Decision.ADMIT;
+    }
+
+    long admittedCount() {
+        return admitted.sum();
+    }
+
+    long rejectedCount() {
+        return rejected.sum();
+    }
+
+    String noticeText() {
+        return settings.noticeText();
+    }
+
+    /**
+     * Drops buckets that have refilled, at most once per second and only once the maps have grown, so the
+     * scan stays off the per-message path. Notices for senders and chats that are no longer limited go too.
+     */
+    private void sweepIfNeeded() {
+        if (userBuckets.size() <= SWEEP_THRESHOLD && chatBuckets.size() <= SWEEP_THRESHOLD) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        long due = nextSweepNanos.get();
+        if (now - due < 0 || !nextSweepNanos.compareAndSet(due, now + SWEEP_INTERVAL_NANOS)) {
+            return;
+        }
+        // Full buckets carry no state, so dropping them is indistinguishable from keeping them.
+        userBuckets.values().removeIf(TokenBucket::isFull);
+        chatBuckets.values().removeIf(TokenBucket::isFull);
+        noticedUsers.removeIf(userId -> !userBuckets.containsKey(userId));
+        noticedChats.removeIf(chatId -> !chatBuckets.containsKey(chatId));
+    }
+
+    int trackedBuckets() {
+        return userBuckets.size() + chatBuckets.size();
+    }
+
+    /**
+     * Outcome of an admission check.
+     */
+    enum Decision {
+        /** The message may be processed. */
+        ADMIT,
+        /** The message is dropped silently; the sender was already told. */
+        REJECT,
+        /** The message is dropped and this is the first rejection of the limited period. */
+        REJECT_WITH_NOTICE
+    }
+
+    /**
+     * Admission limits.
+     *
+     * @param enabled          whether admission control applies at all
+     * @param perUserBurst     messages a user may send back-to-back
+     * @param perUserPerMinute sustained messages per minute per user
+     * @param perChatBurst     messages a chat may receive back-to-back
+     * @param perChatPerMinute sustained messages per minute per chat
+     * @param noticeText       reply sent once when a user or chat starts being limited
+     */
+    record Settings(boolean enabled,
+                    int perUserBurst,
+                    double perUserPerMinute,
+                    int perChatBurst,
+                    double perChatPerMinute,
+                    String noticeText) {
+    }
+}
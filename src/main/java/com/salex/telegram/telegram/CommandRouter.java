@@ -16,17 +16,20 @@ import java.util.Optional;
  */
 final class CommandRouter {
     private static final Logger log = LoggerFactory.getLogger(CommandRouter.class);
+    static final String BUSY_MESSAGE = "The bot is busy right now. Please try again in a moment.";
 
     private final CommandRegistry registry;
     private final TelegramSender sender;
+    private final ExecutionLanes lanes;
 
     //Since giving it a registry would be circular we just set it to the
     //Side.
     private final MenuCommandHandler menuCommandHandler;
 
-    CommandRouter(CommandRegistry registry, TelegramSender sender) {
+    CommandRouter(CommandRegistry registry, TelegramSender sender, ExecutionLanes lanes) {
         this.registry = registry;
         this.sender = sender;
+        this.lanes = lanes;
         this.menuCommandHandler = new MenuCommandHandler(registry);
 
     }
@@ -72,7 +75,9 @@ final class CommandRouter {
 
 
         CommandHandler commandHandler = handler.get();
-        log.info("Executing command {} for user {}", commandHandler.getName(), userId);
-        commandHandler.handle(update, bot, userId);
+        log.info("Executing command {} for user {} on {} lane", commandHandler.getName(), userId, commandHandler.lane());
+        if (!lanes.execute(commandHandler.lane(), chatId, () -> commandHandler.handle(update, bot, userId))) {
+            sender.sendMessage(chatId, threadId, BUSY_MESSAGE);
+        }
     }
 }
@@ -0,0 +1,155 @@
+package com.salex.telegram.telegram;
+
+import com.salex.telegram.application.services.ExecutionLane;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands handler work to the {@link ExecutionLane} it declared. {@link ExecutionLane#FAST} work runs inline on
+ * the chat's routing thread; every other lane has its own per-chat ordered queue and a cap on how many tasks
+ * run at once, so a backlog of model calls or transcriptions never holds up commands in the same chat.
+ */
+public final class ExecutionLanes implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ExecutionLanes.class);
+
+    private final Map<ExecutionLane, Lane> lanes = new EnumMap<>(ExecutionLane.class);
+
+    ExecutionLanes(Map<ExecutionLane, Settings> settings) {
+        for (Map.Entry<ExecutionLane, Settings> entry : settings.entrySet()) {
+            if (entry.getKey() != ExecutionLane.FAST) {
+                lanes.put(entry.getKey(), new Lane(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Runs or queues the task on the given lane.
+     *
+     * @param lane   lane the work belongs to
+     * @param chatId chat the work belongs to; tasks of one chat run in order within a lane
+     * @param task   work to run
+     * @return {@code true} if the task ran or was queued, {@code false} if the lane was full
+     */
+    boolean execute(ExecutionLane lane, long chatId, Runnable task) {
+        Objects.requireNonNull(task, "task");
+        Lane target = lanes.get(lane);
+        if (target == null) {
+            task.run();
+            return true;
+        }
+        return target.submit(chatId, task);
+    }
+
+    /**
+     * @return point-in-time counters for every queued lane
+     */
+    Map<ExecutionLane, Stats> stats() {
+        Map<ExecutionLane, Stats> snapshot = new EnumMap<>(ExecutionLane.class);
+        lanes.forEach((lane, state) -> snapshot.put(lane, state.stats()));
+        return snapshot;
+    }
+
+    @Override
+    public void close() {
+        lanes.values().forEach(lane -> lane.queues.close());
+    }
+
+    private static final class Lane {
+        private final ExecutionLane lane;
+        private final UpdateDispatcher queues;
+        private final Semaphore permits;
+        private final AtomicInteger waitingForPermit = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0L);
+
+        private Lane(ExecutionLane lane, Settings settings) {
+            this.lane = lane;
+            this.queues = new UpdateDispatcher(lane.name().toLowerCase(Locale.ROOT),
+                    settings.maxQueuedPerChat(), settings.maxQueuedTotal());
+            this.permits = new Semaphore(Math.max(1, settings.maxConcurrent()), true);
+        }
+
+        private boolean submit(long chatId, Runnable task) {
+            long enqueuedAt = System.nanoTime();
+            boolean accepted = queues.submit(chatId, () -> {
+                waitingForPermit.incrementAndGet();
+                try {
+                    permits.acquire();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    waitingForPermit.decrementAndGet();
+                }
+                long waited = System.nanoTime() - enqueuedAt;
+                totalWaitNanos.add(waited);
+                maxWaitNanos.accumulate(waited);
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.increment();
+                    permits.release();
+                }
+            });
+            if (!accepted) {
+                rejected.increment();
+                log.warn("{} lane is full; rejected work for chat {}", lane, chatId);
+            }
+            return accepted;
+        }
+
+        private Stats stats() {
+            long done = completed.sum();
+            return new Stats(
+                    queues.queuedTasks() + waitingForPermit.get(),
+                    active.get(),
+                    done,
+                    rejected.sum(),
+                    done == 0 ? 0d : totalWaitNanos.sum() / (done * 1_000_000d),
+                    maxWaitNanos.get() / 1_000_000d
+            );
+        }
+    }
+
+    /**
+     * Limits for one lane.
+     *
+     * @param maxConcurrent    tasks that may run at the same time
+     * @param maxQueuedPerChat tasks that may wait for a single chat
+     * @param maxQueuedTotal   tasks that may wait across all chats
+     */
+    record Settings(int maxConcurrent, int maxQueuedPerChat, int maxQueuedTotal) {
+    }
+
+    /**
+     * Snapshot of lane counters.
+     *
+     * @param queued         tasks waiting, including those waiting for a concurrency permit
+     * @param active         tasks currently running
+     * @param completed      tasks finished
+     * @param rejected       tasks refused because the lane was full
+     * @param meanWaitMillis mean time from submission to start
+     * @param maxWaitMillis  longest observed time from submission to start
+     */
+    public record Stats(int queued,
+                        int active,
+                        long completed,
+                        long rejected,
+                        double meanWaitMillis,
+                        double maxWaitMillis) {
+    }
+}
@@ -0,0 +1,41 @@
+package com.salex.telegram.telegram;
+
+import com.salex.telegram.application.services.UpdateHandlingService;
+import com.salex.telegram.application.services.UpdateKind;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed lookup from {@link UpdateKind} to the handlers registered for it, ordered by priority.
+ * Built once at startup so routing an update is a single map lookup.
+ */
+final class HandlerRoutingTable {
+    private final Map<UpdateKind, List<UpdateHandlingService>> handlersByKind = new EnumMap<>(UpdateKind.class);
+
+    HandlerRoutingTable(List<UpdateHandlingService> handlers) {
+        List<UpdateHandlingService> ordered = new ArrayList<>(handlers);
+        // Stable sort keeps bean order for handlers that share a priority.
+        ordered.sort(Comparator.comparingInt(UpdateHandlingService::priority));
+        for (UpdateKind kind : UpdateKind.values()) {
+            List<UpdateHandlingService> candidates = new ArrayList<>();
+            for (UpdateHandlingService handler : ordered) {
+                if (handler.kinds().contains(kind)) {
+                    candidates.add(handler);
+                }
+            }
+            handlersByKind.put(kind, List.copyOf(candidates));
+        }
+    }
+
+    /**
+     * @param kind classification of the update being routed
+     * @return handlers to try for the kind, highest priority first
+     */
+    List<UpdateHandlingService> candidates(UpdateKind kind) {
+        return handlersByKind.get(kind);
+    }
+}
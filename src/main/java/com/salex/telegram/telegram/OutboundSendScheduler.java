@@ -0,0 +1,277 @@
+package com.salex.telegram.telegram;
+
+import com.salex.telegram.infrastructure.ratelimit.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Paces outbound Bot API calls so the bot stays inside Telegram's flood limits. Calls are queued per chat
+ * (preserving order), wait for both a per-chat and a global token bucket, and are retried after the
+ * {@code retry_after} delay when Telegram still answers with HTTP 429. Typing indicators that are already
+ * queued for a chat are not queued a second time.
+ */
+public final class OutboundSendScheduler implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(OutboundSendScheduler.class);
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SWEEP_THRESHOLD = 1_024;
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AbsSender bot;
+    private final Settings settings;
+    private final TokenBucket globalBucket;
+    private final UpdateDispatcher queues;
+    private final Map<Long, TokenBucket> chatBuckets = new ConcurrentHashMap<>();
+    private final Map<TypingKey, Boolean> pendingTyping = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepNanos = new AtomicLong(System.nanoTime());
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder coalescedTyping = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0L);
+
+    OutboundSendScheduler(AbsSender bot, Settings settings) {
+        this.bot = Objects.requireNonNull(bot, "bot");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.globalBucket = new TokenBucket(settings.globalPerSecond(), settings.globalPerSecond());
+        this.queues = new UpdateDispatcher("outbound", settings.maxQueuedPerChat(), settings.maxQueuedTotal());
+    }
+
+    /**
+     * Queues a Bot API call for the given chat.
+     *
+     * @param chatId chat the call targets; used for ordering and per-chat pacing
+     * @param method call to execute
+     * @return future completed with the Bot API result, or exceptionally when the call failed or was rejected
+     */
+    <T extends Serializable> CompletableFuture<T> submit(long chatId, BotApiMethod<T> method) {
+        Objects.requireNonNull(method, "method");
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+        boolean accepted = queues.submit(chatId, () -> {
+            try {
+                awaitPermit(chatBucket(chatId));
+                awaitPermit(globalBucket);
+                result.complete(executeWithRetry(chatId, method));
+                sent.increment();
+            } catch (TelegramApiException ex) {
+                failed.increment();
+                result.completeExceptionally(ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                failed.increment();
+                result.completeExceptionally(ex);
+            } finally {
+                recordLatency(enqueuedAt);
+            }
+        });
+        if (!accepted) {
+            rejected.increment();
+            result.completeExceptionally(new RejectedExecutionException(
+                    "Outbound queue full for chat " + chatId));
+        }
+        return result;
+    }
+
+    /**
+     * Queues a chat action such as the typing indicator. If an identical action is still waiting for the
+     * chat, the new one is dropped and reported as successful.
+     *
+     * @param chatId   chat the action targets
+     * @param threadId optional forum thread
+     * @param action   action call to execute
+     * @return future completed once the action was sent or coalesced
+     */
+    CompletableFuture<Boolean> submitChatAction(long chatId, Integer threadId, BotApiMethod<Boolean> action) {
+        TypingKey key = new TypingKey(chatId, threadId);
+        if (pendingTyping.putIfAbsent(key, Boolean.TRUE) != null) {
+            coalescedTyping.increment();
+            return CompletableFuture.completedFuture(Boolean.TRUE);
+        }
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+        boolean accepted = queues.submit(chatId, () -> {
+            pendingTyping.remove(key);
+            try {
+                // Chat actions do not count against the per-chat message allowance, only the global one.
+                awaitPermit(globalBucket);
+                result.complete(executeWithRetry(chatId, action));
+                sent.increment();
+            } catch (TelegramApiException ex) {
+                failed.increment();
+                result.completeExceptionally(ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                failed.increment();
+                result.completeExceptionally(ex);
+            } finally {
+                recordLatency(enqueuedAt);
+            }
+        });
+        if (!accepted) {
+            pendingTyping.remove(key);
+            rejected.increment();
+            result.completeExceptionally(new RejectedExecutionException(
+                    "Outbound queue full for chat " + chatId));
+        }
+        return result;
+    }
+
+    /**
+     * @return point-in-time counters describing the scheduler
+     */
+    Stats stats() {
+        long completed = sent.sum() + failed.sum();
+        return new Stats(
+                queues.queuedTasks(),
+                sent.sum(),
+                failed.sum(),
+                rejected.sum(),
+                rateLimited.sum(),
+                coalescedTyping.sum(),
+                completed == 0 ? 0d : totalLatencyNanos.sum() / (completed * 1_000_000d),
+                maxLatencyNanos.get() / 1_000_000d
+        );
+    }
+
+    @Override
+    public void close() {
+        queues.close();
+    }
+
+    private <T extends Serializable> T executeWithRetry(long chatId, BotApiMethod<T> method)
+            throws TelegramApiException, InterruptedException {
+        int attempt = 1;
+        while (true) {
+            try {
+                return bot.execute(method);
+            } catch (TelegramApiRequestException ex) {
+                Integer retryAfter = retryAfterSeconds(ex);
+                if (retryAfter == null || attempt >= settings.maxAttempts()) {
+                    throw ex;
+                }
+                rateLimited.increment();
+                log.warn("Telegram rate limited chat {}; retrying {} in {}s (attempt {}/{})",
+                        chatId, method.getMethod(), retryAfter, attempt, settings.maxAttempts());
+                chatBucket(chatId).pause(retryAfter, TimeUnit.SECONDS);
+                TimeUnit.SECONDS.sleep(retryAfter);
+                attempt++;
+            }
+        }
+    }
+
+    private Integer retryAfterSeconds(TelegramApiRequestException ex) {
+        if (ex.getErrorCode() == null || ex.getErrorCode() != TOO_MANY_REQUESTS) {
+            return null;
+        }
+        ResponseParameters parameters = ex.getParameters();
+        if (parameters == null || parameters.getRetryAfter() == null) {
+            return 1;
+        }
+        return Math.max(1, parameters.getRetryAfter());
+    }
+
+    private void awaitPermit(TokenBucket bucket) throws InterruptedException {
+        bucket.acquire();
+    }
+
+    private TokenBucket chatBucket(long chatId) {
+        sweepIfNeeded();
+        return chatBuckets.computeIfAbsent(chatId, this::newChatBucket);
+    }
+
+    /**
+     * Drops refilled chat buckets, at most once per second and only once the map has grown, so the scan does
+     * not run for every call.
+     */
+    private void sweepIfNeeded() {
+        if (chatBuckets.size() <= SWEEP_THRESHOLD) {
+            return;
+        }
+        long now = System.nanoTime();
+        long due = nextSweepNanos.get();
+        if (now - due >= 0 && nextSweepNanos.compareAndSet(due, now + SWEEP_INTERVAL_NANOS)) {
+            chatBuckets.values().removeIf(TokenBucket::isFull);
+        }
+    }
+
+    private TokenBucket newChatBucket(long chatId) {
+        // Negative identifiers are groups and channels, which Telegram throttles per minute.
+        if (chatId < 0) {
+            return new TokenBucket(settings.perChatBurst(), settings.groupPerMinute() / 60d);
+        }
+        return new TokenBucket(settings.perChatBurst(), settings.perChatPerSecond());
+    }
+
+    private void recordLatency(long enqueuedAt) {
+        long latency = System.nanoTime() - enqueuedAt;
+        totalLatencyNanos.add(latency);
+        maxLatencyNanos.accumulate(latency);
+        if (log.isDebugEnabled()) {
+            log.debug("Outbound call completed after {} ms", latency / 1_000_000d);
+        }
+    }
+
+    /**
+     * Pacing limits applied by the scheduler.
+     *
+     * @param globalPerSecond  calls per second across all chats
+     * @param perChatPerSecond messages per second within a private chat
+     * @param groupPerMinute   messages per minute within a group or channel
+     * @param perChatBurst     messages a chat may receive back-to-back before pacing kicks in
+     * @param maxQueuedPerChat calls that may wait for a single chat
+     * @param maxQueuedTotal   calls that may wait across all chats
+     * @param maxAttempts      attempts per call when Telegram answers with HTTP 429
+     */
+    record Settings(double globalPerSecond,
+                    double perChatPerSecond,
+                    double groupPerMinute,
+                    int perChatBurst,
+                    int maxQueuedPerChat,
+                    int maxQueuedTotal,
+                    int maxAttempts) {
+    }
+
+    /**
+     * Snapshot of scheduler counters.
+     *
+     * @param queued            calls currently waiting
+     * @param sent              calls completed successfully
+     * @param failed            calls that ended with an error
+     * @param rejected          calls refused because a queue was full
+     * @param rateLimited       HTTP 429 answers that triggered a retry
+     * @param coalescedTyping   typing indicators dropped because one was already queued
+     * @param meanLatencyMillis mean time from enqueue to completion
+     * @param maxLatencyMillis  slowest observed time from enqueue to completion
+     */
+    public record Stats(int queued,
+                        long sent,
+                        long failed,
+                        long rejected,
+                        long rateLimited,
+                        long coalescedTyping,
+                        double meanLatencyMillis,
+                        double maxLatencyMillis) {
+    }
+
+    private record TypingKey(long chatId, Integer threadId) {
+    }
+}
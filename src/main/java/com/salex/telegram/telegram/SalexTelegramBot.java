@@ -1,15 +1,24 @@
 package com.salex.telegram.telegram;
 
 import com.salex.telegram.application.config.TelegramBotProperties;
+import com.salex.telegram.application.services.ExecutionLane;
 import com.salex.telegram.application.services.UpdateHandlingService;
+import com.salex.telegram.infrastructure.updates.UpdateOffsetStore;
 import com.salex.telegram.user.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Spring-managed Telegram bot that routes updates through to modules or senders.
@@ -22,19 +31,34 @@ public class SalexTelegramBot extends TelegramLongPollingBot {
 
     //TODO: turn command into a component to interact with the spring project.
     private final TelegramSender telegramSender;
+    private final OutboundSendScheduler outboundScheduler;
     private final UpdateRouter updateRouter;
     private final CommandRouter commandRouter;
+    private final UpdateDispatcher updateDispatcher;
+    private final UpdateDeduplicator updateDeduplicator;
+    private final ExecutionLanes executionLanes;
 
     //Need to find if i can set up a alternate way of this. maybe maybe not idk,
     public SalexTelegramBot(TelegramBotProperties properties,
                             CommandRegistry commandRegistry,
                             UserService userService,
-                            List<UpdateHandlingService> messagingHandlerServiceList) {
+                            List<UpdateHandlingService> messagingHandlerServiceList,
+                            UpdateOffsetStore updateOffsetStore) {
         super(properties.getToken());
         this.username = properties.getUsername();
-        this.telegramSender = new TelegramSender(this);
-        this.commandRouter = new CommandRouter(commandRegistry, telegramSender);
-        this.updateRouter = new UpdateRouter(commandRouter, userService, telegramSender, messagingHandlerServiceList);
+        this.outboundScheduler = new OutboundSendScheduler(this, outboundSettings(properties.getOutbound()));
+        this.telegramSender = new TelegramSender(outboundScheduler);
+        this.executionLanes = new ExecutionLanes(laneSettings(properties.getLanes()));
+        this.commandRouter = new CommandRouter(commandRegistry, telegramSender, executionLanes);
+        this.updateRouter = new UpdateRouter(commandRouter, userService, telegramSender, messagingHandlerServiceList,
+                new AdmissionController(admissionSettings(properties.getAdmission())), executionLanes);
+        this.updateDispatcher = new UpdateDispatcher("updates",
+                properties.getDispatch().getMaxQueuedPerChat(),
+                properties.getDispatch().getMaxQueuedTotal());
+        this.updateDeduplicator = new UpdateDeduplicator(updateOffsetStore,
+                properties.getUsername(),
+                properties.getDedup().getWindowSize(),
+                properties.getDedup().getFlushIntervalMillis());
 
         log.info("TelegramBot registered {} command handlers", commandRegistry.asMap().size());
     }
@@ -44,9 +68,198 @@ public class SalexTelegramBot extends TelegramLongPollingBot {
         return username;
     }
 
+    /**
+     * Hands the update to the per-chat dispatcher so the polling thread never waits on handler work.
+     * Updates from the same chat are still processed in the order Telegram delivered them, and updates
+     * Telegram redelivers (for example after a restart) are dropped before they reach the router.
+     */
     @Override
     public void onUpdateReceived(Update update) {
-        updateRouter.route(update, this);
+        acceptUpdate(update);
+    }
+
+    /**
+     * Same as {@link #onUpdateReceived(Update)}, reporting whether the update was taken.
+     *
+     * @return {@code false} when the dispatch queue is full and the update should be delivered again later
+     */
+    public boolean acceptUpdate(Update update) {
+        if (isRedelivered(update)) {
+            return true;
+        }
+        if (submit(update, () -> updateRouter.route(update, this))) {
+            return true;
+        }
+        if (update.getUpdateId() != null) {
+            updateDeduplicator.forget(update.getUpdateId());
+        }
+        return false;
+    }
+
+    /**
+     * Handles a whole {@code getUpdates} page at once: senders are resolved with one user query and handlers
+     * prefetch what the batch needs before the updates fan out to their chats.
+     */
+    @Override
+    public void onUpdatesReceived(List<Update> updates) {
+        List<Update> fresh = new ArrayList<>(updates.size());
+        for (Update update : updates) {
+            if (!isRedelivered(update)) {
+                fresh.add(update);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+        if (fresh.size() == 1) {
+            Update update = fresh.get(0);
+            submit(update, () -> updateRouter.route(update, this));
+            return;
+        }
+        for (UpdateRouter.AdmittedUpdate admitted : updateRouter.admitBatch(fresh)) {
+            submit(admitted.update(), () -> updateRouter.routeAdmitted(admitted, this));
+        }
+    }
+
+    @Override
+    public void onClosing() {
+        updateDispatcher.close();
+        executionLanes.close();
+        updateDeduplicator.close();
+        outboundScheduler.close();
+        super.onClosing();
+    }
+
+    private static OutboundSendScheduler.Settings outboundSettings(TelegramBotProperties.Outbound outbound) {
+        return new OutboundSendScheduler.Settings(
+                outbound.getGlobalPerSecond(),
+                outbound.getPerChatPerSecond(),
+                outbound.getGroupPerMinute(),
+                outbound.getPerChatBurst(),
+                outbound.getMaxQueuedPerChat(),
+                outbound.getMaxQueuedTotal(),
+                outbound.getMaxAttempts());
+    }
+
+    private static AdmissionController.Settings admissionSettings(TelegramBotProperties.Admission admission) {
+        return new AdmissionController.Settings(
+                admission.isEnabled(),
+                admission.getPerUserBurst(),
+                admission.getPerUserPerMinute(),
+                admission.getPerChatBurst(),
+                admission.getPerChatPerMinute(),
+                admission.getNoticeText());
+    }
+
+    private static Map<ExecutionLane, ExecutionLanes.Settings> laneSettings(TelegramBotProperties.Lanes lanes) {
+        Map<ExecutionLane, ExecutionLanes.Settings> settings = new EnumMap<>(ExecutionLane.class);
+        settings.put(ExecutionLane.LLM, laneSettings(lanes.getLlm()));
+        settings.put(ExecutionLane.MEDIA, laneSettings(lanes.getMedia()));
+        return settings;
+    }
+
+    private static ExecutionLanes.Settings laneSettings(TelegramBotProperties.Lane lane) {
+        return new ExecutionLanes.Settings(lane.getMaxConcurrent(), lane.getMaxQueuedPerChat(), lane.getMaxQueuedTotal());
+    }
+
+    private boolean isRedelivered(Update update) {
+        if (update != null && update.getUpdateId() != null && !updateDeduplicator.firstSeen(update.getUpdateId())) {
+            log.debug("Ignored redelivered update {}", update.getUpdateId());
+            return true;
+        }
+        return false;
+    }
+
+    private boolean submit(Update update, Runnable task) {
+        long chatKey = chatKey(update);
+        if (!updateDispatcher.submit(chatKey, task)) {
+            log.warn("Dropped update {} for chat {} because the dispatch queue is full",
+                    update != null ? update.getUpdateId() : null, chatKey);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Picks the dispatch key for an update: the chat it belongs to when there is one, otherwise the user who
+     * triggered it. Private chats share their identifier with the user, so both map to the same queue.
+     */
+    static long chatKey(Update update) {
+        if (update == null) {
+            return 0L;
+        }
+        Long chatId = chatIdOf(update.getMessage());
+        if (chatId == null) {
+            chatId = chatIdOf(update.getEditedMessage());
+        }
+        if (chatId == null) {
+            chatId = chatIdOf(update.getChannelPost());
+        }
+        if (chatId == null) {
+            chatId = chatIdOf(update.getEditedChannelPost());
+        }
+        if (chatId != null) {
+            return chatId;
+        }
+        CallbackQuery callbackQuery = update.getCallbackQuery();
+        if (callbackQuery != null) {
+            if (callbackQuery.getMessage() != null && callbackQuery.getMessage().getChatId() != null) {
+                return callbackQuery.getMessage().getChatId();
+            }
+            return userKey(callbackQuery.getFrom());
+        }
+        if (update.getInlineQuery() != null) {
+            return userKey(update.getInlineQuery().getFrom());
+        }
+        if (update.getChosenInlineQuery() != null) {
+            return userKey(update.getChosenInlineQuery().getFrom());
+        }
+        if (update.getMyChatMember() != null && update.getMyChatMember().getChat() != null) {
+            return update.getMyChatMember().getChat().getId();
+        }
+        if (update.getChatMember() != null && update.getChatMember().getChat() != null) {
+            return update.getChatMember().getChat().getId();
+        }
+        if (update.getChatJoinRequest() != null && update.getChatJoinRequest().getChat() != null) {
+            return update.getChatJoinRequest().getChat().getId();
+        }
+        if (update.getPollAnswer() != null) {
+            return userKey(update.getPollAnswer().getUser());
+        }
+        return 0L;
+    }
+
+    private static Long chatIdOf(Message message) {
+        return message != null ? message.getChatId() : null;
+    }
+
+    private static long userKey(User user) {
+        return user != null && user.getId() != null ? user.getId() : 0L;
+    }
+
+    /**
+     * Queues work on an execution lane for handlers that finish processing outside {@code handle}. When the
+     * lane is full the chat is told the bot is busy, as it is for routed updates.
+     *
+     * @param lane     lane the work belongs to
+     * @param chatId   chat the work belongs to
+     * @param threadId forum topic for the busy notice, or {@code null}
+     * @param task     work to run
+     * @return {@code true} if the work ran or was queued
+     */
+    public boolean runOnLane(ExecutionLane lane, long chatId, Integer threadId, Runnable task) {
+        if (executionLanes.execute(lane, chatId, task)) {
+            return true;
+        }
+        telegramSender.sendMessage(chatId, threadId, CommandRouter.BUSY_MESSAGE);
+        return false;
+    }
+
+    /**
+     * @return queue and latency counters for each slow execution lane
+     */
+    public Map<ExecutionLane, ExecutionLanes.Stats> laneStats() {
+        return executionLanes.stats();
     }
 
     public TelegramSender getTelegramSender() {
@@ -63,8 +276,20 @@ public class SalexTelegramBot extends TelegramLongPollingBot {
         telegramSender.sendMessage(chatId, threadId, text);
     }
 
+    public CompletableFuture<Integer> sendMessageAsync(long chatId, Integer threadId, String text) {
+        return telegramSender.sendMessageAsync(chatId, threadId, text);
+    }
+
+    public StreamingReply openStreamingReply(long chatId, Integer threadId, long minEditIntervalMillis) {
+        return telegramSender.openStreamingReply(chatId, threadId, minEditIntervalMillis);
+    }
+
     //TODO: optional, maybe change where stuff like this goes.
     public void sendChatTyping(long chatId, Integer threadId) {
         telegramSender.sendChatTyping(chatId, threadId);
     }
+
+    public CompletableFuture<Boolean> sendChatTypingAsync(long chatId, Integer threadId) {
+        return telegramSender.sendChatTypingAsync(chatId, threadId);
+    }
 }
@@ -0,0 +1,152 @@
+package com.salex.telegram.telegram;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reply that becomes visible as soon as its first fragment arrives and is then kept up to date with
+ * throttled {@code editMessageText} calls. Text beyond Telegram's message size limit is held back until
+ * {@link #finish(String)}, where it is delivered as follow-up messages.
+ */
+public final class StreamingReply {
+    static final int MAX_MESSAGE_LENGTH = 4096;
+
+    private final TelegramSender sender;
+    private final long chatId;
+    private final Integer threadId;
+    private final long minEditIntervalNanos;
+    private final long openedAtNanos = System.nanoTime();
+    private final StringBuilder text = new StringBuilder();
+
+    private CompletableFuture<Integer> messageId;
+    private CompletableFuture<Void> pendingEdit = CompletableFuture.completedFuture(null);
+    private String lastSubmitted = "";
+    private long lastEditAtNanos;
+    private volatile long firstVisibleAtNanos = -1L;
+    private boolean abandoned;
+
+    StreamingReply(TelegramSender sender, long chatId, Integer threadId, long minEditIntervalMillis) {
+        this.sender = Objects.requireNonNull(sender, "sender");
+        this.chatId = chatId;
+        this.threadId = threadId;
+        this.minEditIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, minEditIntervalMillis));
+    }
+
+    /**
+     * Adds a fragment to the reply, sending or editing the Telegram message when the throttle allows.
+     *
+     * @param delta next fragment of the reply
+     */
+    public synchronized void append(String delta) {
+        if (abandoned || delta == null || delta.isEmpty()) {
+            return;
+        }
+        text.append(delta);
+
+        String visible = visibleText();
+        if (visible.isBlank()) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (messageId == null) {
+            sendFirst(visible, now);
+            return;
+        }
+        if (visible.equals(lastSubmitted)
+                || now - lastEditAtNanos < minEditIntervalNanos
+                || !messageId.isDone()
+                || !pendingEdit.isDone()) {
+            return;
+        }
+        lastSubmitted = visible;
+        lastEditAtNanos = now;
+        pendingEdit = messageId.thenCompose(id -> sender.editMessageTextAsync(chatId, id, visible));
+    }
+
+    /**
+     * Publishes the final text, replacing whatever fragments were shown so far.
+     *
+     * @param finalText complete reply; {@code null} keeps the accumulated fragments
+     * @return future completed once the final state has been delivered to Telegram
+     */
+    public synchronized CompletableFuture<Void> finish(String finalText) {
+        if (finalText != null) {
+            text.setLength(0);
+            text.append(finalText);
+        }
+        String full = text.toString();
+        if (full.isBlank()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String visible = visibleText();
+        CompletableFuture<Void> delivered;
+        if (messageId == null) {
+            sendFirst(visible, System.nanoTime());
+            delivered = messageId.thenApply(id -> null);
+        } else if (!visible.equals(lastSubmitted)) {
+            lastSubmitted = visible;
+            lastEditAtNanos = System.nanoTime();
+            delivered = pendingEdit
+                    .handle((ignored, ex) -> null)
+                    .thenCompose(ignored -> messageId)
+                    .thenCompose(id -> sender.editMessageTextAsync(chatId, id, visible));
+        } else {
+            delivered = pendingEdit.handle((ignored, ex) -> null).thenCompose(ignored -> messageId.thenApply(id -> null));
+        }
+
+        for (int start = MAX_MESSAGE_LENGTH; start < full.length(); start += MAX_MESSAGE_LENGTH) {
+            String chunk = full.substring(start, Math.min(full.length(), start + MAX_MESSAGE_LENGTH));
+            delivered = delivered.thenCompose(ignored ->
+                    sender.sendMessageAsync(chatId, threadId, chunk).thenApply(id -> null));
+        }
+        pendingEdit = delivered;
+        return delivered;
+    }
+
+    /**
+     * Withdraws a reply that will not be completed, deleting whatever fragments were already shown. Fragments
+     * appended afterwards are ignored.
+     *
+     * @return future completed once the partial message is gone
+     */
+    public synchronized CompletableFuture<Void> abandon() {
+        abandoned = true;
+        if (messageId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> deleted = pendingEdit
+                .handle((ignored, ex) -> null)
+                .thenCompose(ignored -> messageId)
+                .thenCompose(id -> sender.deleteMessageAsync(chatId, id));
+        pendingEdit = deleted;
+        return deleted;
+    }
+
+    /**
+     * @return time between opening the reply and Telegram accepting its first message, once known
+     */
+    public Optional<Duration> timeToFirstVisible() {
+        long visibleAt = firstVisibleAtNanos;
+        if (visibleAt < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(Duration.ofNanos(visibleAt - openedAtNanos));
+    }
+
+    private void sendFirst(String visible, long now) {
+        lastSubmitted = visible;
+        lastEditAtNanos = now;
+        messageId = sender.sendMessageAsync(chatId, threadId, visible);
+        messageId.thenRun(() -> firstVisibleAtNanos = System.nanoTime());
+    }
+
+    private String visibleText() {
+        return text.length() <= MAX_MESSAGE_LENGTH
+                ? text.toString()
+                : text.substring(0, MAX_MESSAGE_LENGTH);
+    }
+}
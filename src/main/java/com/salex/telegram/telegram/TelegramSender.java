@@ -2,48 +2,139 @@ package com.salex.telegram.telegram;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.methods.ActionType;
 import org.telegram.telegrambots.meta.api.methods.send.SendChatAction;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.Message;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Small helper that encapsulates Telegram send/typing operations.
+ * Small helper that encapsulates Telegram send/typing operations. Calls are handed to an
+ * {@link OutboundSendScheduler} so callers never wait on Telegram and replies survive flood limits.
+ * The {@code *Async} variants expose the outcome as a future for callers that need the sent message
+ * or want to chain work after delivery.
  */
 public final class TelegramSender {
     private static final Logger log = LoggerFactory.getLogger(TelegramSender.class);
 
-    private final TelegramLongPollingBot bot;
+    private final OutboundSendScheduler scheduler;
 
-    TelegramSender(TelegramLongPollingBot bot) {
-        this.bot = bot;
+    TelegramSender(OutboundSendScheduler scheduler) {
+        this.scheduler = scheduler;
     }
 
     public void sendMessage(long chatId, Integer threadId, String text) {
+        sendMessageAsync(chatId, threadId, text);
+    }
+
+    public void sendChatTyping(long chatId, Integer threadId) {
+        sendChatTypingAsync(chatId, threadId);
+    }
+
+    /**
+     * Queues a text message without waiting for Telegram.
+     *
+     * @param chatId   target chat
+     * @param threadId optional forum thread
+     * @param text     message body
+     * @return future completed with the identifier Telegram assigned to the sent message
+     */
+    public CompletableFuture<Integer> sendMessageAsync(long chatId, Integer threadId, String text) {
         SendMessage message = new SendMessage(Long.toString(chatId), text);
         if (threadId != null) {
             message.setMessageThreadId(threadId);
         }
-        try {
-            bot.execute(message);
-        } catch (TelegramApiException e) {
-            log.error("Failed to send message to chat {}: {}", chatId, e.getMessage(), e);
-        }
+        return scheduler.submit(chatId, message)
+                .thenApply(Message::getMessageId)
+                .whenComplete((messageId, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to send message to chat {}: {}", chatId, ex.getMessage(), ex);
+                    }
+                });
     }
 
-    public void sendChatTyping(long chatId, Integer threadId) {
+    /**
+     * Queues an edit replacing the text of a message the bot sent earlier.
+     *
+     * @param chatId    chat holding the message
+     * @param messageId identifier of the message to edit
+     * @param text      new message body
+     * @return future completed once Telegram accepted the edit
+     */
+    public CompletableFuture<Void> editMessageTextAsync(long chatId, int messageId, String text) {
+        EditMessageText edit = new EditMessageText();
+        edit.setChatId(Long.toString(chatId));
+        edit.setMessageId(messageId);
+        edit.setText(text);
+        return scheduler.submit(chatId, edit)
+                .<Void>thenApply(result -> null)
+                .whenComplete((ignored, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to edit message {} in chat {}: {}", messageId, chatId, ex.getMessage(), ex);
+                    }
+                });
+    }
+
+    /**
+     * Queues the deletion of a message the bot sent earlier.
+     *
+     * @param chatId    chat holding the message
+     * @param messageId identifier of the message to delete
+     * @return future completed once Telegram deleted the message
+     */
+    public CompletableFuture<Void> deleteMessageAsync(long chatId, int messageId) {
+        DeleteMessage delete = new DeleteMessage(Long.toString(chatId), messageId);
+        return scheduler.submit(chatId, delete)
+                .<Void>thenApply(result -> null)
+                .whenComplete((ignored, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to delete message {} in chat {}: {}", messageId, chatId, ex.getMessage(), ex);
+                    }
+                });
+    }
+
+    /**
+     * Opens a reply that is sent on the first fragment and then progressively edited as more text arrives.
+     *
+     * @param chatId                target chat
+     * @param threadId              optional forum thread
+     * @param minEditIntervalMillis minimum delay between consecutive edits
+     * @return reply handle to feed with text fragments
+     */
+    public StreamingReply openStreamingReply(long chatId, Integer threadId, long minEditIntervalMillis) {
+        return new StreamingReply(this, chatId, threadId, minEditIntervalMillis);
+    }
+
+    /**
+     * Queues a typing indicator without waiting for Telegram.
+     *
+     * @param chatId   target chat
+     * @param threadId optional forum thread
+     * @return future completed once the indicator was sent or merged with one already queued
+     */
+    public CompletableFuture<Boolean> sendChatTypingAsync(long chatId, Integer threadId) {
         SendChatAction action = new SendChatAction();
         action.setChatId(Long.toString(chatId));
         action.setAction(ActionType.TYPING);
         if (threadId != null) {
             action.setMessageThreadId(threadId);
         }
-        try {
-            bot.execute(action);
-            log.info("Outputting typing action in chat {}", chatId);
-        } catch (TelegramApiException e) {
-            log.error("Failed to send action to chat {}: {}", chatId, e.getMessage(), e);
-        }
+        return scheduler.submitChatAction(chatId, threadId, action).whenComplete((sent, ex) -> {
+            if (ex != null) {
+                log.error("Failed to send action to chat {}: {}", chatId, ex.getMessage(), ex);
+            } else {
+                log.info("Outputting typing action in chat {}", chatId);
+            }
+        });
+    }
+
+    /**
+     * @return current counters of the outbound scheduler, such as queue depth and send latency
+     */
+    public OutboundSendScheduler.Stats outboundStats() {
+        return scheduler.stats();
     }
 }
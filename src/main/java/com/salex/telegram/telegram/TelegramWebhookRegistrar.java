@@ -0,0 +1,73 @@
+package com.salex.telegram.telegram;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Registers the public webhook URL with the Telegram Bot API so deliveries reach {@link WebhookUpdateServer}.
+ */
+public final class TelegramWebhookRegistrar {
+    private static final Logger log = LoggerFactory.getLogger(TelegramWebhookRegistrar.class);
+
+    private final DefaultAbsSender bot;
+    private final String botToken;
+    private final HttpClient httpClient;
+
+    public TelegramWebhookRegistrar(DefaultAbsSender bot, String botToken, HttpClient httpClient) {
+        this.bot = Objects.requireNonNull(bot, "bot");
+        this.botToken = Objects.requireNonNull(botToken, "botToken");
+        this.httpClient = Objects.requireNonNull(httpClient, "httpClient");
+    }
+
+    /**
+     * Calls {@code setWebhook} for the bot.
+     *
+     * @param url                public HTTPS URL Telegram should post updates to
+     * @param secretToken        optional secret echoed back in each delivery
+     * @param dropPendingUpdates whether Telegram should discard updates queued while no webhook was set
+     * @throws TelegramApiException if Telegram rejects the registration or the call fails
+     */
+    public void register(String url, String secretToken, boolean dropPendingUpdates) throws TelegramApiException {
+        Objects.requireNonNull(url, "url");
+        JsonObject payload = new JsonObject();
+        payload.addProperty("url", url);
+        payload.addProperty("drop_pending_updates", dropPendingUpdates);
+        if (secretToken != null && !secretToken.isBlank()) {
+            payload.addProperty("secret_token", secretToken);
+        }
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(bot.getOptions().getBaseUrl() + botToken + "/setWebhook"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(payload.toString(), StandardCharsets.UTF_8))
+                .build();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            JsonObject body = JsonParser.parseString(response.body()).getAsJsonObject();
+            if (!body.has("ok") || !body.get("ok").getAsBoolean()) {
+                String description = body.has("description") ? body.get("description").getAsString() : response.body();
+                throw new TelegramApiException("setWebhook rejected: " + description);
+            }
+            log.info("Registered webhook {} with Telegram", url);
+        } catch (IOException ex) {
+            throw new TelegramApiException("setWebhook call failed: " + ex.getMessage(), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TelegramApiException("setWebhook call interrupted", ex);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.salex.telegram.telegram;
+
+import com.salex.telegram.infrastructure.updates.UpdateOffsetStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rejects Telegram updates that were already accepted, whether they are redelivered while running or after
+ * a restart. Recently seen identifiers live in a fixed-size ring indexed by {@code update_id}, so a check is
+ * a single array read. Identifiers just below the persisted high-water mark, or too old for the ring, are
+ * treated as replays. Telegram starts a new random {@code update_id} sequence after a week without updates, so
+ * an identifier further below the persisted mark than the ring reaches starts over from that identifier. The
+ * mark is written in the background, never on the update path, and is held below any update that was
+ * {@linkplain #forget(long) forgotten} and not delivered again, so a restart does not drop it as a replay.
+ */
+final class UpdateDeduplicator implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(UpdateDeduplicator.class);
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final long NO_MARK = -1L;
+
+    private final UpdateOffsetStore store;
+    private final String botKey;
+    private final long[] window;
+    private final int mask;
+    private final ScheduledExecutorService flusher;
+    private final LongAdder duplicates = new LongAdder();
+    private final NavigableSet<Long> forgotten = new TreeSet<>();
+
+    private long restoredMark;
+    private long highest;
+    private boolean resetPending;
+    private volatile long savedMark;
+
+    /**
+     * @param store           durable high-water mark storage
+     * @param botKey          identifies this bot within the store
+     * @param windowSize      number of recent identifiers remembered; rounded up to a power of two
+     * @param flushIntervalMs how often the high-water mark is persisted; {@code 0} disables the background flush
+     */
+    UpdateDeduplicator(UpdateOffsetStore store, String botKey, int windowSize, long flushIntervalMs) {
+        this.store = Objects.requireNonNull(store, "store");
+        this.botKey = Objects.requireNonNull(botKey, "botKey");
+        int size = Integer.highestOneBit(Math.max(2, windowSize - 1)) << 1;
+        this.window = new long[size];
+        this.mask = size - 1;
+        Arrays.fill(window, EMPTY);
+
+        this.restoredMark = restore();
+        this.highest = restoredMark;
+        this.savedMark = restoredMark;
+
+        if (flushIntervalMs > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "update-offset-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Records the update identifier and reports whether it is new.
+     *
+     * @param updateId Telegram {@code update_id}
+     * @return {@code true} the first time an identifier is seen, {@code false} for replays
+     */
+    synchronized boolean firstSeen(long updateId) {
+        if (forgotten.remove(updateId)) {
+            window[(int) (updateId & mask)] = updateId;
+            return true;
+        }
+        if (updateId <= restoredMark) {
+            if (restoredMark - updateId < window.length) {
+                duplicates.increment();
+                return false;
+            }
+            log.warn("Update {} is far below persisted id {}; Telegram restarted its update sequence, "
+                    + "starting over from it", updateId, restoredMark);
+            restoredMark = NO_MARK;
+            highest = NO_MARK;
+            forgotten.clear();
+            resetPending = true;
+        }
+        if (updateId <= highest - window.length) {
+            duplicates.increment();
+            return false;
+        }
+        int slot = (int) (updateId & mask);
+        if (window[slot] == updateId) {
+            duplicates.increment();
+            return false;
+        }
+        window[slot] = updateId;
+        if (updateId > highest) {
+            highest = updateId;
+        }
+        return true;
+    }
+
+    /**
+     * Forgets an identifier recorded by {@link #firstSeen(long)} so a redelivery of an update that could not be
+     * accepted is let through. Until it arrives again the persisted mark stays below it; if a mark at or above
+     * it was already written, the next flush lowers it.
+     *
+     * @param updateId Telegram {@code update_id}
+     */
+    synchronized void forget(long updateId) {
+        int slot = (int) (updateId & mask);
+        if (window[slot] == updateId) {
+            window[slot] = EMPTY;
+        }
+        forgotten.add(updateId);
+        if (savedMark >= updateId) {
+            resetPending = true;
+        }
+    }
+
+    long duplicatesRejected() {
+        return duplicates.sum();
+    }
+
+    synchronized long highWaterMark() {
+        return highest;
+    }
+
+    /**
+     * Persists the current high-water mark if it moved since the last write, or replaces the stored one after
+     * the update sequence restarted or a forgotten update fell at or below it. Forgotten updates too old for the
+     * ring no longer hold the mark back.
+     */
+    void flush() {
+        long mark;
+        boolean reset;
+        synchronized (this) {
+            forgotten.headSet(highest - window.length, true).clear();
+            mark = forgotten.isEmpty() ? highest : Math.min(highest, forgotten.first() - 1);
+            reset = resetPending;
+        }
+        if (!reset && mark <= savedMark) {
+            return;
+        }
+        try {
+            if (reset) {
+                store.reset(botKey, mark);
+            } else {
+                store.save(botKey, mark);
+            }
+            synchronized (this) {
+                if (reset) {
+                    resetPending = false;
+                }
+                savedMark = mark;
+                // An update forgotten while this write was in flight may now sit at or below the stored mark.
+                if (!forgotten.isEmpty() && forgotten.first() <= mark) {
+                    resetPending = true;
+                }
+            }
+        } catch (SQLException | RuntimeException ex) {
+            log.warn("Failed to persist update high-water mark {}: {}", mark, ex.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flush();
+    }
+
+    private long restore() {
+        try {
+            OptionalLong stored = store.load(botKey);
+            if (stored.isPresent()) {
+                log.info("Ignoring updates at or below persisted id {}", stored.getAsLong());
+                return stored.getAsLong();
+            }
+        } catch (SQLException | RuntimeException ex) {
+            log.warn("Failed to load update high-water mark; replays before this start are not filtered: {}",
+                    ex.getMessage());
+        }
+        return NO_MARK;
+    }
+}
@@ -0,0 +1,191 @@
+package com.salex.telegram.telegram;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs work keyed by chat so that tasks for the same chat execute strictly in submission order while
+ * different chats proceed concurrently on virtual threads. Each chat owns a bounded FIFO queue that is
+ * drained by at most one worker at a time; the queue entry is discarded as soon as it runs empty.
+ */
+final class UpdateDispatcher implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(UpdateDispatcher.class);
+
+    private final String name;
+    private final int maxQueuedPerChat;
+    private final int maxQueuedTotal;
+    private final ExecutorService executor;
+    private final Map<Long, ChatQueue> queues = new HashMap<>();
+    private final Object lock = new Object();
+
+    private int queuedTotal;
+    private long rejected;
+    private boolean closed;
+
+    /**
+     * Creates a dispatcher backed by a virtual thread per active chat.
+     *
+     * @param name             label used in log output
+     * @param maxQueuedPerChat maximum number of waiting tasks per chat before new ones are rejected
+     * @param maxQueuedTotal   maximum number of waiting tasks across all chats
+     */
+    UpdateDispatcher(String name, int maxQueuedPerChat, int maxQueuedTotal) {
+        this(name, maxQueuedPerChat, maxQueuedTotal,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory()));
+    }
+
+    UpdateDispatcher(String name, int maxQueuedPerChat, int maxQueuedTotal, ExecutorService executor) {
+        this.name = Objects.requireNonNull(name, "name");
+        if (maxQueuedPerChat <= 0) {
+            throw new IllegalArgumentException("maxQueuedPerChat must be > 0");
+        }
+        if (maxQueuedTotal <= 0) {
+            throw new IllegalArgumentException("maxQueuedTotal must be > 0");
+        }
+        this.maxQueuedPerChat = maxQueuedPerChat;
+        this.maxQueuedTotal = maxQueuedTotal;
+        this.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+    /**
+     * Queues a task behind any outstanding work for the same chat.
+     *
+     * @param chatId chat the task belongs to
+     * @param task   work to run
+     * @return {@code true} if the task was accepted, {@code false} if a queue limit was hit
+     */
+    boolean submit(long chatId, Runnable task) {
+        Objects.requireNonNull(task, "task");
+        ChatQueue toStart = null;
+        synchronized (lock) {
+            if (closed) {
+                rejected++;
+                return false;
+            }
+            ChatQueue queue = queues.get(chatId);
+            if (queue == null) {
+                queue = new ChatQueue(chatId);
+                queues.put(chatId, queue);
+            }
+            if (queue.tasks.size() >= maxQueuedPerChat || queuedTotal >= maxQueuedTotal) {
+                rejected++;
+                log.warn("{} dispatcher rejected task for chat {} (chat queue {}, total queued {})",
+                        name, chatId, queue.tasks.size(), queuedTotal);
+                if (queue.tasks.isEmpty() && !queue.running) {
+                    queues.remove(chatId);
+                }
+                return false;
+            }
+            queue.tasks.add(task);
+            queuedTotal++;
+            if (!queue.running) {
+                queue.running = true;
+                toStart = queue;
+            }
+        }
+
+        if (toStart != null) {
+            ChatQueue queue = toStart;
+            try {
+                executor.execute(() -> drain(queue));
+            } catch (RejectedExecutionException ex) {
+                log.warn("{} dispatcher is shutting down; dropping work for chat {}", name, chatId);
+                synchronized (lock) {
+                    queuedTotal -= queue.tasks.size();
+                    queue.tasks.clear();
+                    queue.running = false;
+                    queues.remove(chatId);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void drain(ChatQueue queue) {
+        while (true) {
+            Runnable next;
+            synchronized (lock) {
+                next = queue.tasks.poll();
+                if (next == null) {
+                    queue.running = false;
+                    queues.remove(queue.chatId);
+                    return;
+                }
+                queuedTotal--;
+            }
+            try {
+                next.run();
+            } catch (RuntimeException ex) {
+                log.error("{} dispatcher task failed for chat {}: {}", name, queue.chatId, ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * @return number of tasks waiting to run across all chats
+     */
+    int queuedTasks() {
+        synchronized (lock) {
+            return queuedTotal;
+        }
+    }
+
+    /**
+     * @return number of chats that currently have queued or running work
+     */
+    int activeChats() {
+        synchronized (lock) {
+            return queues.size();
+        }
+    }
+
+    /**
+     * @return number of tasks rejected because a queue limit was reached
+     */
+    long rejectedTasks() {
+        synchronized (lock) {
+            return rejected;
+        }
+    }
+
+    /**
+     * Stops accepting work and waits briefly for running chats to finish their queues.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("{} dispatcher did not drain within timeout; {} task(s) abandoned", name, queuedTasks());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class ChatQueue {
+        private final long chatId;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean running;
+
+        private ChatQueue(long chatId) {
+            this.chatId = chatId;
+        }
+    }
+}
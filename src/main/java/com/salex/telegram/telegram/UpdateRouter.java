@@ -1,7 +1,9 @@
 package com.salex.telegram.telegram;
 
 import com.salex.telegram.application.services.MenuCommandHandler;
+import com.salex.telegram.application.services.ResolvedUpdate;
 import com.salex.telegram.application.services.UpdateHandlingService;
+import com.salex.telegram.application.services.UpdateKind;
 import com.salex.telegram.user.UserRecord;
 import com.salex.telegram.user.UserService;
 import org.slf4j.Logger;
@@ -11,7 +13,10 @@ import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.User;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Centralises routing of incoming updates to command handlers or modules.
@@ -22,28 +27,95 @@ final class UpdateRouter {
     private final UserService userService;
     private final CommandRouter commandRouter;
     private final TelegramSender sender;
-    private final List<UpdateHandlingService> messagingHandlerServices;
+    private final HandlerRoutingTable routingTable;
+    private final AdmissionController admissionController;
+    private final ExecutionLanes lanes;
 
     UpdateRouter(CommandRouter commandRouter,
                  UserService userService,
                  TelegramSender sender,
-                 List<UpdateHandlingService> handlerServiceList) {
+                 List<UpdateHandlingService> handlerServiceList,
+                 AdmissionController admissionController,
+                 ExecutionLanes lanes) {
         this.commandRouter = commandRouter;
         this.userService = userService;
         this.sender = sender;
-        this.messagingHandlerServices = handlerServiceList;
+        this.routingTable = new HandlerRoutingTable(handlerServiceList);
+        this.admissionController = admissionController;
+        this.lanes = lanes;
     }
 
     void route(Update update, SalexTelegramBot bot) {
+        Message message = acceptedMessage(update);
+        if (message == null || !admit(message)) {
+            return;
+        }
+        Long userId = resolveUser(message);
+        if (userId != null) {
+            dispatch(update, bot, userId);
+        }
+    }
+
+    /**
+     * Runs admission control for a whole poll and resolves every admitted sender with a single
+     * {@link UserService#ensureUsers} call, then lets handlers prefetch what they will need.
+     *
+     * @param updates updates returned by one {@code getUpdates} call
+     * @return admitted updates, with the sender's record attached when it could be resolved up front
+     */
+    List<AdmittedUpdate> admitBatch(List<Update> updates) {
+        List<AdmittedUpdate> admitted = new ArrayList<>(updates.size());
+        Map<Long, User> senders = new LinkedHashMap<>();
+        for (Update update : updates) {
+            Message message = acceptedMessage(update);
+            if (message != null && admit(message)) {
+                admitted.add(new AdmittedUpdate(update, null));
+                senders.putIfAbsent(message.getFrom().getId(), message.getFrom());
+            }
+        }
+        if (admitted.isEmpty()) {
+            return admitted;
+        }
+
+        Map<Long, UserRecord> users;
+        try {
+            users = userService.ensureUsers(senders.values());
+        } catch (SQLException ex) {
+            // Each update falls back to resolving its own sender, which also reports the error to the chat.
+            log.warn("Failed to resolve {} senders in batch: {}", senders.size(), ex.getMessage());
+            return admitted;
+        }
+
+        List<AdmittedUpdate> resolved = new ArrayList<>(admitted.size());
+        for (AdmittedUpdate candidate : admitted) {
+            UserRecord user = users.get(candidate.update().getMessage().getFrom().getId());
+            resolved.add(new AdmittedUpdate(candidate.update(), user));
+        }
+        prefetch(resolved);
+        return resolved;
+    }
+
+    /**
+     * Routes an update that already passed {@link #admitBatch(List)}.
+     */
+    void routeAdmitted(AdmittedUpdate admitted, SalexTelegramBot bot) {
+        Long userId = admitted.user() != null
+                ? Long.valueOf(admitted.user().id())
+                : resolveUser(admitted.update().getMessage());
+        if (userId != null) {
+            dispatch(admitted.update(), bot, userId);
+        }
+    }
+
+    private Message acceptedMessage(Update update) {
         if (update == null || !update.hasMessage()) {
             log.debug("Ignored update without message content");
-            return;
+            return null;
         }
 
         Message message = update.getMessage();
         long chatId = message.getChatId();
         long telegramUserId = message.getFrom() != null ? message.getFrom().getId() : -1L;
-        Integer threadId = message.getMessageThreadId();
         String text = message.hasText() ? message.getText().trim() : "";
 
         log.info("Received update{} in chat {} from user {}",
@@ -51,37 +123,94 @@ final class UpdateRouter {
                 chatId,
                 telegramUserId);
 
-        User telegramUser = message.getFrom();
-        if (telegramUser == null) {
+        if (message.getFrom() == null) {
             log.warn("Received message in chat {} without sender metadata; update ignored", chatId);
-            return;
+            return null;
         }
+        return message;
+    }
+
+    private boolean admit(Message message) {
+        long chatId = message.getChatId();
+        long telegramUserId = message.getFrom().getId();
+        // Checked before user resolution so flooding senders never reach the database or OpenAI.
+        switch (admissionController.admit(chatId, telegramUserId)) {
+            case ADMIT -> {
+                return true;
+            }
+            case REJECT_WITH_NOTICE -> {
+                log.warn("Rate limited user {} in chat {}; dropping messages until allowance refills",
+                        telegramUserId, chatId);
+                sender.sendMessage(chatId, message.getMessageThreadId(), admissionController.noticeText());
+                return false;
+            }
+            default -> {
+                log.debug("Dropped update from rate limited user {} in chat {}", telegramUserId, chatId);
+                return false;
+            }
+        }
+    }
 
-        long userId;
+    private Long resolveUser(Message message) {
+        long chatId = message.getChatId();
         try {
-            UserRecord userRecord = userService.ensureUser(telegramUser);
-            userId = userRecord.id();
+            UserRecord userRecord = userService.ensureUser(message.getFrom());
+            return userRecord.id();
         } catch (SQLException ex) {
-            sender.sendMessage(chatId, threadId, "[Error] Failed to resolve user: " + ex.getMessage());
+            sender.sendMessage(chatId, message.getMessageThreadId(), "[Error] Failed to resolve user: " + ex.getMessage());
             log.error("Failed to resolve user for chat {}: {}", chatId, ex.getMessage(), ex);
-            return;
+            return null;
         }
+    }
 
+    private void dispatch(Update update, SalexTelegramBot bot, long userId) {
+        Message message = update.getMessage();
+        String text = message.hasText() ? message.getText().trim() : "";
         if (text.startsWith("/")) {
             commandRouter.dispatch(update, bot, userId);
             return;
         }
 
-        //TODO: make handler list into its own class allowing
-        //For higher prieirt of the stuff.
-        for(UpdateHandlingService handler : messagingHandlerServices){
-            if(handler.canHandle(update, userId))
-            {
-                handler.handle(update, bot, userId);
+        UpdateKind kind = UpdateKind.of(update);
+        for (UpdateHandlingService handler : routingTable.candidates(kind)) {
+            if (handler.canHandle(update, userId)) {
+                if (!lanes.execute(handler.lane(), message.getChatId(), () -> handler.handle(update, bot, userId))) {
+                    sender.sendMessage(message.getChatId(), message.getMessageThreadId(), CommandRouter.BUSY_MESSAGE);
+                }
                 return;
             }
         }
+        log.debug("No handler accepted {} update in chat {}", kind, message.getChatId());
+    }
+
+    private void prefetch(List<AdmittedUpdate> batch) {
+        Map<UpdateHandlingService, List<ResolvedUpdate>> perHandler = new LinkedHashMap<>();
+        for (AdmittedUpdate admitted : batch) {
+            Update update = admitted.update();
+            if (admitted.user() == null || (update.getMessage().hasText() && update.getMessage().getText().startsWith("/"))) {
+                continue;
+            }
+            ResolvedUpdate resolved = new ResolvedUpdate(update, admitted.user().id());
+            for (UpdateHandlingService handler : routingTable.candidates(UpdateKind.of(update))) {
+                perHandler.computeIfAbsent(handler, ignored -> new ArrayList<>()).add(resolved);
+            }
+        }
+        perHandler.forEach((handler, updates) -> {
+            try {
+                handler.prefetch(updates);
+            } catch (RuntimeException ex) {
+                log.warn("Prefetch failed in {}: {}", handler.getClass().getSimpleName(), ex.getMessage());
+            }
+        });
+    }
 
+    /**
+     * Update that passed admission control, with its sender resolved when the batch lookup succeeded.
+     *
+     * @param update the raw Telegram update
+     * @param user   resolved sender, or {@code null} to resolve it when the update is routed
+     */
+    record AdmittedUpdate(Update update, UserRecord user) {
     }
 
 //    private void dispatchCommand(Update update,
@@ -0,0 +1,189 @@
+package com.salex.telegram.telegram;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Embedded HTTP endpoint that accepts Telegram webhook deliveries. Each request body is decoded straight
+ * into an {@link Update} and handed to the supplied sink, which only enqueues work, so the response is sent
+ * as soon as the update is accepted rather than after it has been handled. When the sink has no room for the
+ * update the server answers {@code 503} so Telegram delivers it again later.
+ * <p>
+ * Recorded updates can be replayed locally by POSTing their JSON to the configured path.
+ */
+public final class WebhookUpdateServer {
+    private static final Logger log = LoggerFactory.getLogger(WebhookUpdateServer.class);
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final String host;
+    private final int port;
+    private final String path;
+    private final String secretToken;
+    private final int maxBodyBytes;
+    private final Predicate<Update> sink;
+    private final ObjectMapper objectMapper;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Creates a webhook server.
+     *
+     * @param host         interface to bind, for example {@code 0.0.0.0}
+     * @param port         port to bind; {@code 0} picks an ephemeral port
+     * @param path         request path Telegram posts to
+     * @param secretToken  expected value of the secret token header, or {@code null} to skip the check
+     * @param maxBodyBytes largest request body accepted
+     * @param sink         receiver for decoded updates, returning {@code false} when it cannot take the update
+     *                     now; must not block
+     */
+    public WebhookUpdateServer(String host,
+                               int port,
+                               String path,
+                               String secretToken,
+                               int maxBodyBytes,
+                               Predicate<Update> sink) {
+        this.host = Objects.requireNonNull(host, "host");
+        if (port < 0) {
+            throw new IllegalArgumentException("port must be >= 0");
+        }
+        this.port = port;
+        this.path = normalisePath(path);
+        this.secretToken = secretToken == null || secretToken.isBlank() ? null : secretToken;
+        if (maxBodyBytes <= 0) {
+            throw new IllegalArgumentException("maxBodyBytes must be > 0");
+        }
+        this.maxBodyBytes = maxBodyBytes;
+        this.sink = Objects.requireNonNull(sink, "sink");
+        this.objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    /**
+     * Binds the HTTP listener and starts accepting updates.
+     *
+     * @throws IOException if the socket cannot be bound
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("webhook-", 0).factory());
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.setExecutor(executor);
+        server.createContext(path, this::handle);
+        server.start();
+        log.info("Webhook endpoint listening on {}:{}{}", host, getPort(), path);
+    }
+
+    /**
+     * Stops the listener, giving in-flight requests a moment to complete.
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(1);
+        executor.shutdown();
+        server = null;
+        executor = null;
+        log.info("Webhook endpoint stopped");
+    }
+
+    /**
+     * @return the bound port, which differs from the configured one when {@code 0} was requested
+     */
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                respond(exchange, 405);
+                return;
+            }
+            if (!path.equals(exchange.getRequestURI().getPath())) {
+                respond(exchange, 404);
+                return;
+            }
+            if (secretToken != null && !secretMatches(exchange.getRequestHeaders().getFirst(SECRET_HEADER))) {
+                log.warn("Rejected webhook call from {} with missing or invalid secret token",
+                        exchange.getRemoteAddress());
+                respond(exchange, 401);
+                return;
+            }
+
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readNBytes(maxBodyBytes + 1);
+            }
+            if (body.length > maxBodyBytes) {
+                log.warn("Rejected webhook payload larger than {} bytes", maxBodyBytes);
+                respond(exchange, 413);
+                return;
+            }
+
+            Update update;
+            try {
+                update = objectMapper.readValue(body, Update.class);
+            } catch (IOException ex) {
+                log.warn("Rejected malformed webhook payload: {}", ex.getMessage());
+                respond(exchange, 400);
+                return;
+            }
+
+            if (!sink.test(update)) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503);
+                return;
+            }
+            respond(exchange, 200);
+        } catch (RuntimeException ex) {
+            log.error("Failed to accept webhook update: {}", ex.getMessage(), ex);
+            respond(exchange, 500);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean secretMatches(String provided) {
+        if (provided == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(
+                secretToken.getBytes(StandardCharsets.UTF_8),
+                provided.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static String normalisePath(String path) {
+        if (path == null || path.isBlank()) {
+            return "/telegram/webhook";
+        }
+        String trimmed = path.trim();
+        return trimmed.startsWith("/") ? trimmed : "/" + trimmed;
+    }
+}
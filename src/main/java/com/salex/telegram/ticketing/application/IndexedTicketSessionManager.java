@@ -0,0 +1,106 @@
+package com.salex.telegram.ticketing.application;
+
+import com.salex.telegram.ticketing.domain.TicketDraft;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decorates a persistent session manager with an in-memory index of active sessions, so the per-message
+ * "is a draft open?" check never touches the backing store. The index is seeded from the delegate at
+ * startup and kept current by the write operations below; it assumes this process is the only writer.
+ * If seeding fails every call falls through to the delegate.
+ */
+public class IndexedTicketSessionManager implements TicketSessionManager {
+    private static final Logger log = LoggerFactory.getLogger(IndexedTicketSessionManager.class);
+
+    private final TicketSessionManager delegate;
+    private final Set<TicketSessionKey> activeSessions = ConcurrentHashMap.newKeySet();
+    private final boolean indexReady;
+
+    /**
+     * Creates the decorator and loads the currently active sessions from the delegate.
+     *
+     * @param delegate session manager holding the authoritative state
+     */
+    public IndexedTicketSessionManager(TicketSessionManager delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.indexReady = seed();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void openSession(long chatId, long userId) {
+        delegate.openSession(chatId, userId);
+        activeSessions.add(new TicketSessionKey(chatId, userId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<TicketDraft> getDraft(long chatId, long userId) {
+        if (indexReady && !activeSessions.contains(new TicketSessionKey(chatId, userId))) {
+            return Optional.empty();
+        }
+        return delegate.getDraft(chatId, userId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasSession(long chatId, long userId) {
+        if (indexReady) {
+            return activeSessions.contains(new TicketSessionKey(chatId, userId));
+        }
+        return delegate.hasSession(chatId, userId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<TicketSessionKey> listActiveSessions() {
+        if (indexReady) {
+            return List.copyOf(activeSessions);
+        }
+        return delegate.listActiveSessions();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateDraft(long chatId, long userId, TicketDraft draft) {
+        delegate.updateDraft(chatId, userId, draft);
+        activeSessions.add(new TicketSessionKey(chatId, userId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void closeSession(long chatId, long userId) {
+        delegate.closeSession(chatId, userId);
+        activeSessions.remove(new TicketSessionKey(chatId, userId));
+    }
+
+    private boolean seed() {
+        try {
+            activeSessions.addAll(delegate.listActiveSessions());
+            log.info("Indexed {} active ticket sessions", activeSessions.size());
+            return true;
+        } catch (RuntimeException ex) {
+            log.warn("Failed to index ticket sessions; falling back to per-call lookups: {}", ex.getMessage());
+            return false;
+        }
+    }
+}
@@ -184,7 +184,7 @@ public class TicketService {
      * @return {@code true} if a draft exists, otherwise {@code false}
      */
     public boolean hasActiveDraft(long chatId, long userId) {
-        return sessionManager.getDraft(chatId, userId).isPresent();
+        return sessionManager.hasSession(chatId, userId);
     }
 
     /**
@@ -0,0 +1,10 @@
+package com.salex.telegram.ticketing.application;
+
+/**
+ * Identifies a ticket draft session.
+ *
+ * @param chatId chat identifier scoping the session
+ * @param userId internal user identifier
+ */
+public record TicketSessionKey(long chatId, long userId) {
+}
@@ -2,6 +2,7 @@ package com.salex.telegram.ticketing.application;
 
 import com.salex.telegram.ticketing.domain.TicketDraft;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -25,6 +26,24 @@ public interface TicketSessionManager {
      */
     Optional<TicketDraft> getDraft(long chatId, long userId);
 
+    /**
+     * Reports whether a session is active without loading its draft.
+     *
+     * @param chatId chat identifier scoping the session
+     * @param userId internal user identifier
+     * @return {@code true} if a session is active
+     */
+    default boolean hasSession(long chatId, long userId) {
+        return getDraft(chatId, userId).isPresent();
+    }
+
+    /**
+     * Lists every active session, used to seed in-memory indexes at startup.
+     *
+     * @return keys of all active sessions
+     */
+    List<TicketSessionKey> listActiveSessions();
+
     /**
      * Stores the updated draft contents for an ongoing session.
      *
@@ -0,0 +1,182 @@
+package com.salex.telegram.ticketing.infrastructure.failover;
+
+import com.salex.telegram.infrastructure.database.DatabaseHealthMonitor;
+import com.salex.telegram.infrastructure.database.ProvisionalIdResolver;
+import com.salex.telegram.ticketing.application.TicketRepository;
+import com.salex.telegram.ticketing.domain.Ticket;
+import com.salex.telegram.ticketing.infrastructure.memory.InMemoryTicketRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps ticket commands working while the database is unreachable by writing to an
+ * {@link InMemoryTicketRepository}. Tickets created during an outage get negative provisional identifiers;
+ * tickets stored in the database before the outage are not visible until it recovers unless they were updated
+ * in the meantime. {@link #reconcile()} inserts provisional tickets and applies buffered updates; looking up a
+ * provisional identifier once the database answers, even while reconciliation is still running, reconciles that
+ * ticket on demand.
+ */
+public final class FailoverTicketRepository implements TicketRepository {
+    private static final Logger log = LoggerFactory.getLogger(FailoverTicketRepository.class);
+
+    private final TicketRepository primary;
+    private final DatabaseHealthMonitor monitor;
+    private final ProvisionalIdResolver userIds;
+    private final InMemoryTicketRepository fallback = new InMemoryTicketRepository(new AtomicLong(-1L)::getAndDecrement);
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Long> reconciledIds = new ConcurrentHashMap<>();
+
+    /**
+     * @param primary database-backed repository
+     * @param monitor tracks whether the database is reachable
+     * @param userIds maps provisional user identifiers of ticket owners to database ones
+     */
+    public FailoverTicketRepository(TicketRepository primary, DatabaseHealthMonitor monitor, ProvisionalIdResolver userIds) {
+        this.primary = Objects.requireNonNull(primary, "primary");
+        this.monitor = Objects.requireNonNull(monitor, "monitor");
+        this.userIds = Objects.requireNonNull(userIds, "userIds");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Ticket createDraftTicket(Ticket draft) {
+        return withFailover(() -> primary.createDraftTicket(draft), () -> buffer(fallback.createDraftTicket(draft)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Ticket> findById(long ticketId) {
+        boolean onDemand = ticketId < 0 && monitor.isReachable();
+        return withFailover(onDemand || monitor.isAvailable(), () -> {
+            Long storedId = ticketId < 0 ? reconcile(ticketId) : Long.valueOf(ticketId);
+            return storedId == null ? Optional.<Ticket>empty() : primary.findById(storedId);
+        }, () -> fallback.findById(ticketId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Ticket> findAllForUser(long userId) {
+        return withFailover(() -> primary.findAllForUser(userId), () -> fallback.findAllForUser(userId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Ticket save(Ticket ticket) {
+        return withFailover(() -> {
+            if (ticket.getId() < 0) {
+                Long storedId = reconcile(ticket.getId());
+                if (storedId == null) {
+                    throw new IllegalStateException("Ticket not found: " + ticket.getId());
+                }
+                return primary.save(ticket.toBuilder().id(storedId).build());
+            }
+            return primary.save(ticket);
+        }, () -> buffer(fallback.save(ticket)));
+    }
+
+    /**
+     * Writes tickets created or changed during an outage to the database. Registered as a recovery listener.
+     */
+    public void reconcile() {
+        int written = 0;
+        // Updates to tickets stored before the outage first, then provisional tickets in creation order.
+        for (long ticketId : new TreeSet<>(pending).descendingSet()) {
+            reconcile(ticketId);
+            written++;
+        }
+        if (written > 0) {
+            log.info("Reconciled {} tickets changed while the database was unreachable", written);
+        }
+    }
+
+    /**
+     * @return a resolver that maps provisional ticket identifiers handed out by {@code tickets} to database ones
+     */
+    public static ProvisionalIdResolver idResolver(TicketRepository tickets) {
+        Objects.requireNonNull(tickets, "tickets");
+        return ticketId -> {
+            if (ticketId >= 0) {
+                return ticketId;
+            }
+            return tickets.findById(ticketId)
+                    .map(Ticket::getId)
+                    .filter(id -> id >= 0)
+                    .orElseThrow(() -> new SQLException("Ticket " + ticketId + " has not been written to the database yet"));
+        };
+    }
+
+    /**
+     * Writes one buffered ticket to the database.
+     *
+     * @return the ticket's database identifier, or {@code null} for a provisional identifier this process never
+     * handed out
+     */
+    private synchronized Long reconcile(long ticketId) {
+        Long known = reconciledIds.get(ticketId);
+        Optional<Ticket> local = fallback.findById(ticketId);
+        if (!pending.contains(ticketId) || local.isEmpty()) {
+            return known != null || ticketId < 0 ? known : Long.valueOf(ticketId);
+        }
+        Ticket ticket = withOwner(local.get());
+        long storedId;
+        if (ticketId < 0 && known == null) {
+            storedId = primary.createDraftTicket(ticket).getId();
+            reconciledIds.put(ticketId, storedId);
+        } else {
+            storedId = known != null ? known : ticketId;
+            primary.save(ticket.toBuilder().id(storedId).build());
+        }
+        pending.remove(ticketId);
+        return storedId;
+    }
+
+    private Ticket withOwner(Ticket ticket) {
+        try {
+            long owner = userIds.resolve(ticket.getCreatedBy());
+            return owner == ticket.getCreatedBy() ? ticket : ticket.toBuilder().createdBy(owner).build();
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to resolve owner of ticket " + ticket.getId(), ex);
+        }
+    }
+
+    private Ticket buffer(Ticket ticket) {
+        pending.add(ticket.getId());
+        return ticket;
+    }
+
+    private <T> T withFailover(Supplier<T> onPrimary, Supplier<T> onFallback) {
+        return withFailover(monitor.isAvailable(), onPrimary, onFallback);
+    }
+
+    private <T> T withFailover(boolean usePrimary, Supplier<T> onPrimary, Supplier<T> onFallback) {
+        if (usePrimary) {
+            try {
+                return onPrimary.get();
+            } catch (RuntimeException ex) {
+                if (!monitor.reportFailure(ex)) {
+                    throw ex;
+                }
+            }
+        }
+        return onFallback.get();
+    }
+}
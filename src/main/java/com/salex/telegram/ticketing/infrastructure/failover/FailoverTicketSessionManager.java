@@ -0,0 +1,172 @@
+package com.salex.telegram.ticketing.infrastructure.failover;
+
+import com.salex.telegram.infrastructure.database.DatabaseHealthMonitor;
+import com.salex.telegram.infrastructure.database.ProvisionalIdResolver;
+import com.salex.telegram.ticketing.application.TicketSessionKey;
+import com.salex.telegram.ticketing.application.TicketSessionManager;
+import com.salex.telegram.ticketing.domain.TicketDraft;
+import com.salex.telegram.ticketing.infrastructure.memory.InMemoryTicketSessionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps ticket creation flows working while the database is unreachable by tracking sessions in an
+ * {@link InMemoryTicketSessionManager}. Sessions stored in the database before the outage are not visible until
+ * it recovers. {@link #reconcile()} moves sessions touched during the outage into the database, mapping
+ * provisional user and ticket identifiers to their database ones.
+ */
+public final class FailoverTicketSessionManager implements TicketSessionManager {
+    private static final Logger log = LoggerFactory.getLogger(FailoverTicketSessionManager.class);
+
+    private final TicketSessionManager primary;
+    private final DatabaseHealthMonitor monitor;
+    private final ProvisionalIdResolver userIds;
+    private final ProvisionalIdResolver ticketIds;
+    private final InMemoryTicketSessionManager fallback = new InMemoryTicketSessionManager();
+    private final Set<TicketSessionKey> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param primary   database-backed session manager
+     * @param monitor   tracks whether the database is reachable
+     * @param userIds   maps provisional user identifiers to database ones
+     * @param ticketIds maps provisional ticket identifiers to database ones
+     */
+    public FailoverTicketSessionManager(TicketSessionManager primary,
+                                        DatabaseHealthMonitor monitor,
+                                        ProvisionalIdResolver userIds,
+                                        ProvisionalIdResolver ticketIds) {
+        this.primary = Objects.requireNonNull(primary, "primary");
+        this.monitor = Objects.requireNonNull(monitor, "monitor");
+        this.userIds = Objects.requireNonNull(userIds, "userIds");
+        this.ticketIds = Objects.requireNonNull(ticketIds, "ticketIds");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void openSession(long chatId, long userId) {
+        withFailover(() -> {
+            primary.openSession(chatId, userId);
+            return null;
+        }, () -> {
+            fallback.openSession(chatId, userId);
+            pending.add(new TicketSessionKey(chatId, userId));
+            return null;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<TicketDraft> getDraft(long chatId, long userId) {
+        return withFailover(() -> primary.getDraft(chatId, userId), () -> fallback.getDraft(chatId, userId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasSession(long chatId, long userId) {
+        return withFailover(() -> primary.hasSession(chatId, userId), () -> fallback.hasSession(chatId, userId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<TicketSessionKey> listActiveSessions() {
+        return withFailover(primary::listActiveSessions, fallback::listActiveSessions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateDraft(long chatId, long userId, TicketDraft draft) {
+        withFailover(() -> {
+            primary.updateDraft(chatId, userId, draft);
+            return null;
+        }, () -> {
+            fallback.updateDraft(chatId, userId, draft);
+            pending.add(new TicketSessionKey(chatId, userId));
+            return null;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void closeSession(long chatId, long userId) {
+        withFailover(() -> {
+            primary.closeSession(chatId, userId);
+            return null;
+        }, () -> {
+            fallback.closeSession(chatId, userId);
+            pending.add(new TicketSessionKey(chatId, userId));
+            return null;
+        });
+    }
+
+    /**
+     * Applies the sessions opened, changed or closed during an outage to the database. Registered as a recovery
+     * listener.
+     */
+    public void reconcile() {
+        int written = 0;
+        for (TicketSessionKey key : List.copyOf(pending)) {
+            try {
+                long userId = userIds.resolve(key.userId());
+                Optional<TicketDraft> draft = fallback.getDraft(key.chatId(), key.userId());
+                if (draft.isPresent()) {
+                    primary.openSession(key.chatId(), userId);
+                    primary.updateDraft(key.chatId(), userId, remap(draft.get()));
+                } else {
+                    primary.closeSession(key.chatId(), userId);
+                }
+            } catch (SQLException ex) {
+                throw new IllegalStateException("Failed to reconcile ticket session " + key, ex);
+            }
+            fallback.closeSession(key.chatId(), key.userId());
+            pending.remove(key);
+            written++;
+        }
+        if (written > 0) {
+            log.info("Reconciled {} ticket sessions changed while the database was unreachable", written);
+        }
+    }
+
+    private TicketDraft remap(TicketDraft draft) throws SQLException {
+        TicketDraft copy = new TicketDraft();
+        for (Map.Entry<TicketDraft.Step, String> entry : draft.asMap().entrySet()) {
+            copy.put(entry.getKey(), entry.getValue());
+        }
+        Long ticketId = draft.getTicketId();
+        copy.setTicketId(ticketId == null ? null : ticketIds.resolve(ticketId));
+        return copy;
+    }
+
+    private <T> T withFailover(Supplier<T> onPrimary, Supplier<T> onFallback) {
+        if (monitor.isAvailable()) {
+            try {
+                return onPrimary.get();
+            } catch (RuntimeException ex) {
+                if (!monitor.reportFailure(ex)) {
+                    throw ex;
+                }
+            }
+        }
+        return onFallback.get();
+    }
+}
@@ -5,23 +5,36 @@ import com.salex.telegram.ticketing.application.TicketRepository;
 
 import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
 /**
  * Simple in-memory repository useful for local debugging and tests.
  */
 public class InMemoryTicketRepository implements TicketRepository {
     private final ConcurrentHashMap<Long, Ticket> store = new ConcurrentHashMap<>();
-    private final AtomicLong sequence = new AtomicLong(1L);
+    private final LongSupplier idGenerator;
+
+    public InMemoryTicketRepository() {
+        this(new AtomicLong(1L)::getAndIncrement);
+    }
+
+    /**
+     * @param idGenerator supplies the identifier of each new ticket
+     */
+    public InMemoryTicketRepository(LongSupplier idGenerator) {
+        this.idGenerator = Objects.requireNonNull(idGenerator, "idGenerator");
+    }
 
     /**
      * {@inheritDoc}
      */
     @Override
     public Ticket createDraftTicket(Ticket draft) {
-        long id = sequence.getAndIncrement();
+        long id = idGenerator.getAsLong();
         Ticket persisted = draft.toBuilder()
                 .id(id)
                 .build();
@@ -1,8 +1,10 @@
 package com.salex.telegram.ticketing.infrastructure.memory;
 
 import com.salex.telegram.ticketing.domain.TicketDraft;
+import com.salex.telegram.ticketing.application.TicketSessionKey;
 import com.salex.telegram.ticketing.application.TicketSessionManager;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -10,7 +12,7 @@ import java.util.concurrent.ConcurrentHashMap;
  * In-memory session manager to track draft ticket creation flows.
  */
 public class InMemoryTicketSessionManager implements TicketSessionManager {
-    private final ConcurrentHashMap<String, TicketDraft> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<TicketSessionKey, TicketDraft> sessions = new ConcurrentHashMap<>();
 
     /**
      * {@inheritDoc}
@@ -28,6 +30,22 @@ public class InMemoryTicketSessionManager implements TicketSessionManager {
         return Optional.ofNullable(sessions.get(sessionKey(chatId, userId)));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasSession(long chatId, long userId) {
+        return sessions.containsKey(sessionKey(chatId, userId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<TicketSessionKey> listActiveSessions() {
+        return List.copyOf(sessions.keySet());
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -51,7 +69,7 @@ public class InMemoryTicketSessionManager implements TicketSessionManager {
      * @param userId user identifier
      * @return composite session key
      */
-    private String sessionKey(long chatId, long userId) {
-        return chatId + ":" + userId;
+    private TicketSessionKey sessionKey(long chatId, long userId) {
+        return new TicketSessionKey(chatId, userId);
     }
 }
@@ -8,6 +8,7 @@ import com.salex.telegram.ticketing.domain.TicketStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -63,7 +64,8 @@ public class ServerTicketRepository implements TicketRepository {
      */
     @Override
     public Ticket createDraftTicket(Ticket draft) {
-        try (PreparedStatement ps = connectionProvider.getConnection().prepareStatement(INSERT_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
             bindTicket(ps, draft);
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) {
@@ -84,7 +86,8 @@ public class ServerTicketRepository implements TicketRepository {
      */
     @Override
     public Optional<Ticket> findById(long ticketId) {
-        try (PreparedStatement ps = connectionProvider.getConnection().prepareStatement(SELECT_BY_ID_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setLong(1, ticketId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -105,7 +108,8 @@ public class ServerTicketRepository implements TicketRepository {
      */
     @Override
     public List<Ticket> findAllForUser(long userId) {
-        try (PreparedStatement ps = connectionProvider.getConnection().prepareStatement(SELECT_FOR_USER_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_FOR_USER_SQL)) {
             ps.setLong(1, userId);
             try (ResultSet rs = ps.executeQuery()) {
                 List<Ticket> tickets = new ArrayList<>();
@@ -126,7 +130,8 @@ public class ServerTicketRepository implements TicketRepository {
      */
     @Override
     public Ticket save(Ticket ticket) {
-        try (PreparedStatement ps = connectionProvider.getConnection().prepareStatement(UPDATE_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement ps = connection.prepareStatement(UPDATE_SQL)) {
             ps.setString(1, ticket.getStatus().name());
             ps.setString(2, ticket.getPriority().name());
             ps.setTimestamp(3, Timestamp.from(ticket.getUpdatedAt()));
@@ -143,14 +148,15 @@ public class ServerTicketRepository implements TicketRepository {
             if (updated != 1) {
                 throw new IllegalStateException("Ticket not found or not updated: " + ticket.getId());
             }
-            Ticket saved = findById(ticket.getId())
-                    .orElseThrow(() -> new IllegalStateException("Ticket missing after update: " + ticket.getId()));
-            log.debug("Updated ticket {}", ticket.getId());
-            return saved;
         } catch (SQLException ex) {
             log.error("Failed to save ticket {}: {}", ticket.getId(), ex.getMessage(), ex);
             throw new RuntimeException("Failed to save ticket " + ticket.getId(), ex);
         }
+        // Re-read after the update's connection went back, so a save never holds two connections at once.
+        Ticket saved = findById(ticket.getId())
+                .orElseThrow(() -> new IllegalStateException("Ticket missing after update: " + ticket.getId()));
+        log.debug("Updated ticket {}", ticket.getId());
+        return saved;
     }
 
     /**
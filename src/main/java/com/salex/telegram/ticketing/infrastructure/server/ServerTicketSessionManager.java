@@ -2,14 +2,18 @@ package com.salex.telegram.ticketing.infrastructure.server;
 
 import com.salex.telegram.infrastructure.database.ConnectionProvider;
 import com.salex.telegram.ticketing.domain.TicketDraft;
+import com.salex.telegram.ticketing.application.TicketSessionKey;
 import com.salex.telegram.ticketing.application.TicketSessionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -36,6 +40,10 @@ public class ServerTicketSessionManager implements TicketSessionManager {
             SET ticket_id = ?, summary = ?, priority = ?, details = ?
             WHERE chat_id = ? AND user_id = ?
             """;
+    private static final String SELECT_ACTIVE_SESSIONS_SQL = """
+            SELECT chat_id, user_id
+            FROM ticket_sessions
+            """;
 
     private final ConnectionProvider connectionProvider;
 
@@ -56,7 +64,8 @@ public class ServerTicketSessionManager implements TicketSessionManager {
     public void openSession(long chatId, long userId) {
         try {
             closeSession(chatId, userId);
-            try (PreparedStatement ps = connectionProvider.getConnection().prepareStatement(INSERT_SESSION_SQL)) {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(INSERT_SESSION_SQL)) {
                 ps.setLong(1, chatId);
                 ps.setLong(2, userId);
                 ps.setNull(3, Types.BIGINT);
@@ -77,7 +86,8 @@ public class ServerTicketSessionManager implements TicketSessionManager {
      */
     @Override
     public Optional<TicketDraft> getDraft(long chatId, long userId) {
-        try (PreparedStatement ps = connectionProvider.getConnection().prepareStatement(SELECT_SESSION_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_SESSION_SQL)) {
             ps.setLong(1, chatId);
             ps.setLong(2, userId);
             try (ResultSet rs = ps.executeQuery()) {
@@ -110,12 +120,34 @@ public class ServerTicketSessionManager implements TicketSessionManager {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<TicketSessionKey> listActiveSessions() {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_ACTIVE_SESSIONS_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            List<TicketSessionKey> keys = new ArrayList<>();
+            while (rs.next()) {
+                keys.add(new TicketSessionKey(rs.getLong("chat_id"), rs.getLong("user_id")));
+            }
+            log.debug("Loaded {} active ticket sessions", keys.size());
+            return keys;
+        } catch (SQLException ex) {
+            log.error("Failed to list ticket sessions: {}", ex.getMessage(), ex);
+            throw new RuntimeException("Failed to list ticket sessions", ex);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void updateDraft(long chatId, long userId, TicketDraft draft) {
-        try (PreparedStatement ps = connectionProvider.getConnection().prepareStatement(UPDATE_SESSION_SQL)) {
+        int updated;
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement ps = connection.prepareStatement(UPDATE_SESSION_SQL)) {
             if (draft.getTicketId() == null) {
                 ps.setNull(1, Types.BIGINT);
             } else {
@@ -127,17 +159,17 @@ public class ServerTicketSessionManager implements TicketSessionManager {
             ps.setLong(5, chatId);
             ps.setLong(6, userId);
 
-            int updated = ps.executeUpdate();
-            if (updated == 0) {
-                openSession(chatId, userId);
-                updateDraft(chatId, userId, draft);
-            } else {
-                log.debug("Updated ticket session for chat {}, user {}", chatId, userId);
-            }
+            updated = ps.executeUpdate();
         } catch (SQLException ex) {
             log.error("Failed to update session for chat {}, user {}: {}", chatId, userId, ex.getMessage(), ex);
             throw new RuntimeException("Failed to update ticket session", ex);
         }
+        if (updated == 0) {
+            openSession(chatId, userId);
+            updateDraft(chatId, userId, draft);
+        } else {
+            log.debug("Updated ticket session for chat {}, user {}", chatId, userId);
+        }
     }
 
     /**
@@ -145,7 +177,8 @@ public class ServerTicketSessionManager implements TicketSessionManager {
      */
     @Override
     public void closeSession(long chatId, long userId) {
-        try (PreparedStatement ps = connectionProvider.getConnection().prepareStatement(DELETE_SESSION_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement ps = connection.prepareStatement(DELETE_SESSION_SQL)) {
             ps.setLong(1, chatId);
             ps.setLong(2, userId);
             ps.executeUpdate();
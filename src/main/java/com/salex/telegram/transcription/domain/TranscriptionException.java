@@ -4,11 +4,31 @@ package com.salex.telegram.transcription.domain;
  * Exception thrown when audio download or transcription fails.
  */
 public class TranscriptionException extends RuntimeException {
+    /**
+     * Status used when the failure did not come with an HTTP response.
+     */
+    public static final int NO_STATUS = -1;
+
+    private final int statusCode;
+
     public TranscriptionException(String message) {
+        this(message, NO_STATUS);
+    }
+
+    public TranscriptionException(String message, int statusCode) {
         super(message);
+        this.statusCode = statusCode;
     }
 
     public TranscriptionException(String message, Throwable cause) {
         super(message, cause);
+        this.statusCode = NO_STATUS;
+    }
+
+    /**
+     * @return HTTP status returned by the transcription provider, or {@link #NO_STATUS}
+     */
+    public int statusCode() {
+        return statusCode;
     }
 }
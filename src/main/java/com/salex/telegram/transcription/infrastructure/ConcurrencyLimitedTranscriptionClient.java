@@ -0,0 +1,66 @@
+package com.salex.telegram.transcription.infrastructure;
+
+import com.salex.telegram.infrastructure.ratelimit.AdaptiveConcurrencyLimiter;
+import com.salex.telegram.transcription.domain.TranscriptionClient;
+import com.salex.telegram.transcription.domain.TranscriptionException;
+import com.salex.telegram.transcription.domain.TranscriptionResult;
+import com.salex.telegram.transcription.infrastructure.transcoding.AudioResource;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs transcriptions through an {@link AdaptiveConcurrencyLimiter}. Throttling, server errors and transport
+ * failures lower the limit; requests the limiter turns away fail with a {@link TranscriptionException}.
+ */
+public class ConcurrencyLimitedTranscriptionClient implements TranscriptionClient {
+
+    private final TranscriptionClient delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedTranscriptionClient(TranscriptionClient delegate, AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.limiter = Objects.requireNonNull(limiter, "limiter");
+    }
+
+    @Override
+    public TranscriptionResult transcribe(AudioResource audio) {
+        AdaptiveConcurrencyLimiter.Permit permit;
+        try {
+            permit = limiter.await();
+        } catch (RejectedExecutionException ex) {
+            throw new TranscriptionException(ex.getMessage(), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TranscriptionException("Transcription request interrupted while queued", ex);
+        }
+        try {
+            TranscriptionResult result = delegate.transcribe(audio);
+            permit.onSuccess();
+            return result;
+        } catch (TranscriptionException ex) {
+            if (isOverload(ex)) {
+                permit.onDropped();
+            } else {
+                permit.release();
+            }
+            throw ex;
+        } catch (RuntimeException ex) {
+            permit.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return the limiter's current limit, queue and counters
+     */
+    public AdaptiveConcurrencyLimiter.Stats stats() {
+        return limiter.stats();
+    }
+
+    private static boolean isOverload(TranscriptionException ex) {
+        int status = ex.statusCode();
+        return status == 408 || status == 429 || status >= 500 || ex.getCause() instanceof IOException;
+    }
+}
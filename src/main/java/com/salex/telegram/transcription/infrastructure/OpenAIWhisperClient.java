@@ -62,7 +62,8 @@ public class OpenAIWhisperClient implements TranscriptionClient {
             HttpRequest request = buildRequest(audio);
             HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
             if (response.statusCode() >= 400) {
-                throw new TranscriptionException("Transcription failed with status " + response.statusCode() + ": " + response.body());
+                throw new TranscriptionException("Transcription failed with status " + response.statusCode() + ": " + response.body(),
+                        response.statusCode());
             }
             return parseResponse(response.body(), audio.durationSeconds());
         } catch (InterruptedException ex) {
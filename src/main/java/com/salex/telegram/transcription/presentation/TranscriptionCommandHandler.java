@@ -1,6 +1,7 @@
 package com.salex.telegram.transcription.presentation;
 
 import com.salex.telegram.application.services.CommandHandler;
+import com.salex.telegram.application.services.ExecutionLane;
 import com.salex.telegram.telegram.SalexTelegramBot;
 import com.salex.telegram.transcription.application.TranscriptionService;
 import com.salex.telegram.transcription.domain.TranscriptionException;
@@ -38,6 +39,11 @@ public class TranscriptionCommandHandler implements CommandHandler {
         return "Convert a voice message to text.";
     }
 
+    @Override
+    public ExecutionLane lane() {
+        return ExecutionLane.MEDIA;
+    }
+
     @Override
     public void handle(Update update, SalexTelegramBot bot, long userId) {
         if (update == null || !update.hasMessage()) {
@@ -3,6 +3,9 @@ package com.salex.telegram.user;
 import org.telegram.telegrambots.meta.api.objects.User;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -19,6 +22,24 @@ public interface UserService {
      */
     UserRecord ensureUser(User telegramUser) throws SQLException;
 
+    /**
+     * Ensures records exist for several Telegram users at once. Implementations backed by a database should
+     * override this to resolve the whole batch in a constant number of round trips.
+     *
+     * @param telegramUsers Telegram user metadata, possibly containing the same user more than once
+     * @return persisted user records keyed by Telegram identifier
+     * @throws SQLException when persistence operations fail
+     */
+    default Map<Long, UserRecord> ensureUsers(Collection<User> telegramUsers) throws SQLException {
+        Map<Long, UserRecord> resolved = new LinkedHashMap<>();
+        for (User telegramUser : telegramUsers) {
+            if (!resolved.containsKey(telegramUser.getId())) {
+                resolved.put(telegramUser.getId(), ensureUser(telegramUser));
+            }
+        }
+        return resolved;
+    }
+
     /**
      * Looks up a user record by Telegram identifier.
      *
@@ -0,0 +1,177 @@
+package com.salex.telegram.user.infrastructure;
+
+import com.salex.telegram.infrastructure.cache.BoundedCache;
+import com.salex.telegram.infrastructure.database.DatabaseHealthMonitor;
+import com.salex.telegram.infrastructure.database.ProvisionalIdResolver;
+import com.salex.telegram.user.UserRecord;
+import com.salex.telegram.user.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves users through the database while it is reachable and keeps answering during an outage. Recently
+ * resolved users, kept in a bounded cache, keep their database identifiers; other users seen during an outage get
+ * a provisional identifier, the negated Telegram identifier, from an {@link InMemoryUserService}. Once the
+ * database answers again, {@link #reconcile()} inserts those users, and looking one up by Telegram identifier
+ * inserts it on demand, even while reconciliation is still running, so other stores can map provisional
+ * identifiers to real ones in any order.
+ */
+public class FailoverUserService implements UserService {
+    private static final Logger log = LoggerFactory.getLogger(FailoverUserService.class);
+    private static final int DEFAULT_MAX_KNOWN_USERS = 10_000;
+    private static final Duration DEFAULT_KNOWN_IDLE_TTL = Duration.ofHours(1);
+
+    private final UserService primary;
+    private final DatabaseHealthMonitor monitor;
+    private final InMemoryUserService provisional = new InMemoryUserService(telegramId -> -telegramId);
+    private final BoundedCache<Long, UserRecord> known;
+    private final Map<Long, UserRecord> pending = new ConcurrentHashMap<>();
+
+    public FailoverUserService(UserService primary, DatabaseHealthMonitor monitor) {
+        this(primary, monitor, DEFAULT_MAX_KNOWN_USERS, DEFAULT_KNOWN_IDLE_TTL);
+    }
+
+    /**
+     * @param maxKnownUsers resolved users remembered for answering during an outage
+     * @param knownIdleTtl  time after which a resolved user not seen again is forgotten
+     */
+    public FailoverUserService(UserService primary, DatabaseHealthMonitor monitor, int maxKnownUsers,
+                               Duration knownIdleTtl) {
+        this.primary = Objects.requireNonNull(primary, "primary");
+        this.monitor = Objects.requireNonNull(monitor, "monitor");
+        this.known = new BoundedCache<>(maxKnownUsers, Long.MAX_VALUE, knownIdleTtl, record -> 1L);
+    }
+
+    @Override
+    public UserRecord ensureUser(User telegramUser) throws SQLException {
+        Objects.requireNonNull(telegramUser, "telegramUser");
+        if (monitor.isAvailable()) {
+            try {
+                return remember(primary.ensureUser(telegramUser));
+            } catch (SQLException | RuntimeException ex) {
+                if (!monitor.reportFailure(ex)) {
+                    throw ex;
+                }
+            }
+        }
+        return fallback(telegramUser);
+    }
+
+    @Override
+    public Map<Long, UserRecord> ensureUsers(Collection<User> telegramUsers) throws SQLException {
+        Objects.requireNonNull(telegramUsers, "telegramUsers");
+        if (monitor.isAvailable()) {
+            try {
+                Map<Long, UserRecord> resolved = primary.ensureUsers(telegramUsers);
+                resolved.values().forEach(this::remember);
+                return resolved;
+            } catch (SQLException | RuntimeException ex) {
+                if (!monitor.reportFailure(ex)) {
+                    throw ex;
+                }
+            }
+        }
+        Map<Long, UserRecord> resolved = new LinkedHashMap<>();
+        for (User telegramUser : telegramUsers) {
+            resolved.computeIfAbsent(telegramUser.getId(), id -> fallback(telegramUser));
+        }
+        return resolved;
+    }
+
+    /**
+     * Looks the user up in the database, first inserting it if it was only known provisionally. Uses the
+     * database as soon as it answers, so recovery listeners of other stores can resolve provisional users.
+     */
+    @Override
+    public Optional<UserRecord> findByTelegramId(long telegramId) throws SQLException {
+        if (monitor.isReachable()) {
+            try {
+                UserRecord waiting = pending.get(telegramId);
+                if (waiting != null) {
+                    return Optional.of(insert(waiting));
+                }
+                return primary.findByTelegramId(telegramId).map(this::remember);
+            } catch (SQLException | RuntimeException ex) {
+                if (!monitor.reportFailure(ex)) {
+                    throw ex;
+                }
+            }
+        }
+        UserRecord record = known.getIfPresent(telegramId);
+        return record != null ? Optional.of(record) : provisional.findByTelegramId(telegramId);
+    }
+
+    /**
+     * Writes users first seen during an outage to the database. Registered as a recovery listener.
+     */
+    public void reconcile() {
+        int inserted = 0;
+        for (UserRecord waiting : pending.values()) {
+            try {
+                insert(waiting);
+                inserted++;
+            } catch (SQLException ex) {
+                throw new IllegalStateException("Failed to reconcile user " + waiting.telegramId(), ex);
+            }
+        }
+        if (inserted > 0) {
+            log.info("Reconciled {} users first seen while the database was unreachable", inserted);
+        }
+    }
+
+    /**
+     * @return a resolver that maps provisional user identifiers handed out by {@code users} to database ones
+     */
+    public static ProvisionalIdResolver idResolver(UserService users) {
+        Objects.requireNonNull(users, "users");
+        return userId -> {
+            if (userId >= 0) {
+                return userId;
+            }
+            return users.findByTelegramId(-userId)
+                    .map(UserRecord::id)
+                    .filter(id -> id >= 0)
+                    .orElseThrow(() -> new SQLException("User " + -userId + " has not been written to the database yet"));
+        };
+    }
+
+    private UserRecord fallback(User telegramUser) {
+        UserRecord record = known.getIfPresent(telegramUser.getId());
+        if (record != null) {
+            return record;
+        }
+        try {
+            UserRecord created = provisional.ensureUser(telegramUser);
+            pending.putIfAbsent(created.telegramId(), created);
+            return created;
+        } catch (SQLException ex) {
+            throw new IllegalStateException("In-memory user store failed", ex);
+        }
+    }
+
+    private UserRecord insert(UserRecord waiting) throws SQLException {
+        User telegramUser = new User();
+        telegramUser.setId(waiting.telegramId());
+        telegramUser.setUserName(waiting.username());
+        telegramUser.setFirstName(waiting.firstName());
+        telegramUser.setLastName(waiting.lastName());
+        UserRecord stored = remember(primary.ensureUser(telegramUser));
+        pending.remove(waiting.telegramId());
+        return stored;
+    }
+
+    private UserRecord remember(UserRecord record) {
+        known.put(record.telegramId(), record);
+        return record;
+    }
+}
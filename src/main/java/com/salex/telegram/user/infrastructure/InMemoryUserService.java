@@ -10,18 +10,31 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongUnaryOperator;
 
 /**
  * Lightweight user service that uses Telegram identifiers directly without persistence.
  */
 public class InMemoryUserService implements UserService {
     private final Map<Long, UserRecord> cache = new ConcurrentHashMap<>();
+    private final LongUnaryOperator idAssigner;
+
+    public InMemoryUserService() {
+        this(LongUnaryOperator.identity());
+    }
+
+    /**
+     * @param idAssigner derives the internal identifier from the Telegram identifier
+     */
+    public InMemoryUserService(LongUnaryOperator idAssigner) {
+        this.idAssigner = Objects.requireNonNull(idAssigner, "idAssigner");
+    }
 
     @Override
     public UserRecord ensureUser(User telegramUser) throws SQLException {
         Objects.requireNonNull(telegramUser, "telegramUser");
         return cache.computeIfAbsent(telegramUser.getId(),
-                id -> UserRecord.fromTelegram(id, telegramUser));
+                id -> UserRecord.fromTelegram(idAssigner.applyAsLong(id), telegramUser));
     }
 
     @Override
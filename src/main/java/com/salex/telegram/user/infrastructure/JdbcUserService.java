@@ -1,70 +1,231 @@
 package com.salex.telegram.user.infrastructure;
 
+import com.salex.telegram.infrastructure.cache.BoundedCache;
+import com.salex.telegram.infrastructure.database.ConnectionProvider;
 import com.salex.telegram.user.UserRecord;
 import com.salex.telegram.user.UserService;
-
-import com.salex.telegram.infrastructure.database.ConnectionProvider;
 import org.telegram.telegrambots.meta.api.objects.User;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
 /**
- * JDBC-backed implementation that stores user metadata in the <code>users</code> table.
+ * JDBC-backed implementation that stores user metadata in the <code>users</code> table. Resolved users are kept
+ * in a bounded in-process cache keyed by Telegram identifier, so a returning user whose profile is unchanged
+ * costs no database round trip; new users and changed usernames or names are written with one upsert.
  */
 public class JdbcUserService implements UserService {
+    private static final int DEFAULT_MAX_CACHED_USERS = 10_000;
+    private static final Duration DEFAULT_CACHE_IDLE_TTL = Duration.ofHours(1);
+
+    private static final String SELECT_BY_TELEGRAM_IDS_SQL =
+            "SELECT id, telegram_id, username, first_name, last_name FROM users WHERE telegram_id = ANY(?)";
+    /*
+     * The update only fires when a profile field differs, so unchanged users are not rewritten. Such a user is
+     * not returned by the upsert and is read from the statement's snapshot instead, keeping it one round trip.
+     */
+    private static final String UPSERT_SQL =
+            "WITH upserted AS (" +
+                    "INSERT INTO users (telegram_id, username, first_name, last_name) VALUES (?,?,?,?) " +
+                    "ON CONFLICT (telegram_id) DO UPDATE SET username = EXCLUDED.username, " +
+                    "first_name = EXCLUDED.first_name, last_name = EXCLUDED.last_name " +
+                    "WHERE (users.username, users.first_name, users.last_name) IS DISTINCT FROM " +
+                    "(EXCLUDED.username, EXCLUDED.first_name, EXCLUDED.last_name) " +
+                    "RETURNING id, telegram_id, username, first_name, last_name) " +
+                    "SELECT id, telegram_id, username, first_name, last_name FROM upserted " +
+                    "UNION ALL " +
+                    "SELECT id, telegram_id, username, first_name, last_name FROM users " +
+                    "WHERE telegram_id = ? AND NOT EXISTS (SELECT 1 FROM upserted)";
+    private static final String UPSERT_BATCH_SQL =
+            "INSERT INTO users (telegram_id, username, first_name, last_name) " +
+                    "SELECT * FROM unnest(?::bigint[], ?::text[], ?::text[], ?::text[]) " +
+                    "ON CONFLICT (telegram_id) DO UPDATE SET username = EXCLUDED.username, " +
+                    "first_name = EXCLUDED.first_name, last_name = EXCLUDED.last_name " +
+                    "WHERE (users.username, users.first_name, users.last_name) IS DISTINCT FROM " +
+                    "(EXCLUDED.username, EXCLUDED.first_name, EXCLUDED.last_name) " +
+                    "RETURNING id, telegram_id, username, first_name, last_name";
+
     private final ConnectionProvider connectionProvider;
+    private final BoundedCache<Long, UserRecord> cache;
 
     public JdbcUserService(ConnectionProvider connectionProvider) {
+        this(connectionProvider, DEFAULT_MAX_CACHED_USERS, DEFAULT_CACHE_IDLE_TTL);
+    }
+
+    /**
+     * @param connectionProvider source of JDBC connections
+     * @param maxCachedUsers     users kept in the in-process cache
+     * @param cacheIdleTtl       time after its last use at which a cached user is dropped
+     */
+    public JdbcUserService(ConnectionProvider connectionProvider, int maxCachedUsers, Duration cacheIdleTtl) {
         this.connectionProvider = Objects.requireNonNull(connectionProvider, "connectionProvider");
+        this.cache = new BoundedCache<>(maxCachedUsers, Long.MAX_VALUE, cacheIdleTtl, record -> 1L);
     }
 
+    /**
+     * Returns the cached record when the profile is unchanged; otherwise inserts the user or updates its
+     * profile with a single upsert.
+     */
     @Override
     public UserRecord ensureUser(User telegramUser) throws SQLException {
         Objects.requireNonNull(telegramUser, "telegramUser");
         long telegramId = telegramUser.getId();
 
-        Optional<UserRecord> existing = findByTelegramId(telegramId);
-        if (existing.isPresent()) {
-            return existing.get();
+        UserRecord cached = cache.getIfPresent(telegramId);
+        if (cached != null && matches(cached, telegramUser)) {
+            return cached;
         }
 
-        Connection connection = connectionProvider.getConnection();
-        try (PreparedStatement insertUser = connection.prepareStatement(
-                "INSERT INTO users (telegram_id, username, first_name, last_name) " +
-                        "VALUES (?,?,?,?) RETURNING id, telegram_id, username, first_name, last_name")) {
-            insertUser.setLong(1, telegramId);
-            insertUser.setString(2, telegramUser.getUserName());
-            insertUser.setString(3, telegramUser.getFirstName());
-            insertUser.setString(4, telegramUser.getLastName());
-            try (ResultSet rs = insertUser.executeQuery()) {
-                if (!rs.next()) {
-                    throw new SQLException("Failed to insert user for telegram id " + telegramId);
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement upsertUser = connection.prepareStatement(UPSERT_SQL)) {
+            upsertUser.setLong(1, telegramId);
+            upsertUser.setString(2, telegramUser.getUserName());
+            upsertUser.setString(3, telegramUser.getFirstName());
+            upsertUser.setString(4, telegramUser.getLastName());
+            upsertUser.setLong(5, telegramId);
+            try (ResultSet rs = upsertUser.executeQuery()) {
+                if (rs.next()) {
+                    return remember(mapRow(rs));
                 }
-                return mapRow(rs);
             }
         }
+        // The row was inserted concurrently by someone else after this statement's snapshot; read it back.
+        return findByTelegramId(telegramId).orElseThrow(() ->
+                new SQLException("Failed to upsert user for telegram id " + telegramId));
+    }
+
+    /**
+     * Resolves the batch from the cache where possible and writes the remaining new or changed users with one
+     * multi-row upsert.
+     */
+    @Override
+    public Map<Long, UserRecord> ensureUsers(Collection<User> telegramUsers) throws SQLException {
+        Objects.requireNonNull(telegramUsers, "telegramUsers");
+        Map<Long, User> distinct = new LinkedHashMap<>();
+        for (User telegramUser : telegramUsers) {
+            distinct.putIfAbsent(telegramUser.getId(), telegramUser);
+        }
+        if (distinct.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, UserRecord> resolved = new HashMap<>();
+        List<User> stale = new ArrayList<>();
+        for (User telegramUser : distinct.values()) {
+            UserRecord cached = cache.getIfPresent(telegramUser.getId());
+            if (cached != null && matches(cached, telegramUser)) {
+                resolved.put(telegramUser.getId(), cached);
+            } else {
+                stale.add(telegramUser);
+            }
+        }
+        if (stale.isEmpty()) {
+            return resolved;
+        }
+
+        Long[] ids = new Long[stale.size()];
+        String[] usernames = new String[stale.size()];
+        String[] firstNames = new String[stale.size()];
+        String[] lastNames = new String[stale.size()];
+        for (int i = 0; i < stale.size(); i++) {
+            User telegramUser = stale.get(i);
+            ids[i] = telegramUser.getId();
+            usernames[i] = telegramUser.getUserName();
+            firstNames[i] = telegramUser.getFirstName();
+            lastNames[i] = telegramUser.getLastName();
+        }
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement upsertUsers = connection.prepareStatement(UPSERT_BATCH_SQL)) {
+            upsertUsers.setArray(1, connection.createArrayOf("bigint", ids));
+            upsertUsers.setArray(2, connection.createArrayOf("text", usernames));
+            upsertUsers.setArray(3, connection.createArrayOf("text", firstNames));
+            upsertUsers.setArray(4, connection.createArrayOf("text", lastNames));
+            try (ResultSet rs = upsertUsers.executeQuery()) {
+                while (rs.next()) {
+                    UserRecord upserted = remember(mapRow(rs));
+                    resolved.put(upserted.telegramId(), upserted);
+                }
+            }
+        }
+
+        // Users the upsert left untouched already had this profile or were inserted concurrently; read them back.
+        List<Long> unchanged = new ArrayList<>();
+        for (User telegramUser : stale) {
+            if (!resolved.containsKey(telegramUser.getId())) {
+                unchanged.add(telegramUser.getId());
+            }
+        }
+        if (!unchanged.isEmpty()) {
+            for (UserRecord record : findByTelegramIds(unchanged).values()) {
+                resolved.put(record.telegramId(), remember(record));
+            }
+        }
+        return resolved;
     }
 
     @Override
     public Optional<UserRecord> findByTelegramId(long telegramId) throws SQLException {
-        Connection connection = connectionProvider.getConnection();
-        try (PreparedStatement findUser = connection.prepareStatement(
+        UserRecord cached = cache.getIfPresent(telegramId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement findUser = connection.prepareStatement(
                 "SELECT id, telegram_id, username, first_name, last_name FROM users WHERE telegram_id=?")) {
             findUser.setLong(1, telegramId);
             try (ResultSet rs = findUser.executeQuery()) {
                 if (rs.next()) {
-                    return Optional.of(mapRow(rs));
+                    return Optional.of(remember(mapRow(rs)));
                 }
             }
         }
         return Optional.empty();
     }
 
+    /**
+     * @return counters of the user cache
+     */
+    public BoundedCache.Stats cacheStats() {
+        return cache.stats();
+    }
+
+    private static boolean matches(UserRecord record, User telegramUser) {
+        return Objects.equals(record.username(), telegramUser.getUserName())
+                && Objects.equals(record.firstName(), telegramUser.getFirstName())
+                && Objects.equals(record.lastName(), telegramUser.getLastName());
+    }
+
+    private UserRecord remember(UserRecord record) {
+        cache.put(record.telegramId(), record);
+        return record;
+    }
+
+    private Map<Long, UserRecord> findByTelegramIds(Collection<Long> telegramIds) throws SQLException {
+        Map<Long, UserRecord> found = new HashMap<>();
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement findUsers = connection.prepareStatement(SELECT_BY_TELEGRAM_IDS_SQL)) {
+            findUsers.setArray(1, connection.createArrayOf("bigint", telegramIds.toArray(new Long[0])));
+            try (ResultSet rs = findUsers.executeQuery()) {
+                while (rs.next()) {
+                    UserRecord record = mapRow(rs);
+                    found.put(record.telegramId(), record);
+                }
+            }
+        }
+        return found;
+    }
+
     private UserRecord mapRow(ResultSet rs) throws SQLException {
         long id = rs.getLong("id");
         long telegramId = rs.getLong("telegram_id");
@@ -0,0 +1,48 @@
+package com.salex.telegram.application.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InFlightCompletionsTest {
+
+    private final InFlightCompletions<String> inFlight = new InFlightCompletions<>();
+
+    @Test
+    void newerRequestCancelsAndAbsorbsPendingOne() {
+        InFlightCompletions.Ticket first = inFlight.begin("chat", "first");
+        CompletableFuture<String> call = new CompletableFuture<>();
+        first.attach(call);
+
+        InFlightCompletions.Ticket second = inFlight.begin("chat", "second");
+
+        assertThat(first.isCancelled()).isTrue();
+        assertThat(first.publish()).isFalse();
+        assertThat(call.isCancelled()).isTrue();
+        assertThat(second.userText()).isEqualTo("first\nsecond");
+        assertThat(inFlight.supersededCount()).isEqualTo(1);
+    }
+
+    @Test
+    void publishedRequestIsNotSuperseded() {
+        InFlightCompletions.Ticket first = inFlight.begin("chat", "first");
+        assertThat(first.publish()).isTrue();
+
+        assertThat(inFlight.supersede("chat")).isNull();
+        assertThat(first.isCancelled()).isFalse();
+        assertThat(inFlight.supersededCount()).isZero();
+    }
+
+    @Test
+    void supersedeReturnsUnansweredTextOnce() {
+        InFlightCompletions.Ticket ticket = inFlight.begin("chat", "question");
+
+        assertThat(inFlight.supersede("chat")).isEqualTo("question");
+        assertThat(inFlight.supersede("chat")).isNull();
+
+        inFlight.finish("chat", ticket);
+        assertThat(inFlight.begin("chat", "next").userText()).isEqualTo("next");
+    }
+}
@@ -0,0 +1,47 @@
+package com.salex.telegram.application.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageCoalescerTest {
+
+    private final List<List<String>> flushed = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstFlush = new CountDownLatch(1);
+
+    @Test
+    void mergesValuesOfABurstIntoOneFlush() throws Exception {
+        try (MessageCoalescer<Long, String> coalescer = new MessageCoalescer<>(200, 2_000, 10, this::record)) {
+            assertThat(coalescer.offer(1L, "first")).isTrue();
+            assertThat(coalescer.offer(1L, "second")).isFalse();
+            assertThat(coalescer.offer(1L, "third")).isFalse();
+
+            assertThat(firstFlush.await(2, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(flushed).containsExactly(List.of("first", "second", "third"));
+    }
+
+    @Test
+    void flushesImmediatelyWhenBurstIsFull() throws Exception {
+        try (MessageCoalescer<Long, String> coalescer = new MessageCoalescer<>(60_000, 60_000, 2, this::record)) {
+            coalescer.offer(1L, "first");
+            coalescer.offer(1L, "second");
+
+            assertThat(firstFlush.await(2, TimeUnit.SECONDS)).isTrue();
+            assertThat(coalescer.offer(1L, "third")).isTrue();
+        }
+
+        assertThat(flushed.get(0)).containsExactly("first", "second");
+    }
+
+    private void record(Long key, List<String> values) {
+        flushed.add(values);
+        firstFlush.countDown();
+    }
+}
@@ -0,0 +1,119 @@
+package com.salex.telegram.conversation;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming {@link ChatCompletionCodec} with the Gson tree round trip it replaced. Allocation per
+ * request is reported by the GC profiler as {@code gc.alloc.rate.norm}. Not part of the test suite; run the
+ * {@link #main(String[])} method from the test classpath, e.g. from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatCompletionCodecBenchmark {
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm").withZone(ZoneOffset.UTC);
+
+    @Param({"8", "40"})
+    public int messages;
+
+    private List<ConversationMessageRecord> conversation;
+    private byte[] response;
+
+    @Setup
+    public void setUp() {
+        conversation = new ArrayList<>();
+        Instant start = Instant.parse("2024-05-01T10:00:00Z");
+        for (int i = 0; i < messages; i++) {
+            conversation.add(new ConversationMessageRecord(i % 2 == 0 ? "user" : "assistant",
+                    "Message " + i + " with the kind of text people type when they talk about their day and plans.",
+                    start.plusSeconds(60L * i)));
+        }
+        StringBuilder reply = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            reply.append("Sentence ").append(i).append(" of the reply. ");
+        }
+        response = ("{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion\",\"created\":1,\"model\":\"gpt-4o-mini\","
+                + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"" + reply
+                + "\",\"refusal\":null},\"logprobs\":null,\"finish_reason\":\"stop\"}],"
+                + "\"usage\":{\"prompt_tokens\":900,\"completion_tokens\":300,\"total_tokens\":1200},"
+                + "\"system_fingerprint\":\"fp\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public HttpRequest.BodyPublisher encodeStreaming() {
+        return ChatCompletionCodec.requestBody("gpt-4o-mini", conversation, false);
+    }
+
+    @Benchmark
+    public HttpRequest.BodyPublisher encodeTree() {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("model", "gpt-4o-mini");
+        JsonArray array = new JsonArray();
+        LocalDate previousDate = null;
+        for (ConversationMessageRecord entry : conversation) {
+            JsonObject message = new JsonObject();
+            message.addProperty("role", entry.role());
+            StringBuilder content = new StringBuilder();
+            content.append(entry.content());
+            content.append("\n");
+            LocalDate date = entry.timestamp().atZone(ZoneOffset.UTC).toLocalDate();
+            content.append("[").append((date.equals(previousDate) ? TIME : DATE_TIME).format(entry.timestamp())).append("]");
+            previousDate = date;
+            message.addProperty("content", content.toString());
+            array.add(message);
+        }
+        payload.add("messages", array);
+        return HttpRequest.BodyPublishers.ofString(payload.toString(), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String decodeStreaming() throws IOException {
+        return ChatCompletionCodec.decodeResponse(response).content();
+    }
+
+    @Benchmark
+    public String decodeTree() {
+        JsonObject root = JsonParser.parseString(new String(response, StandardCharsets.UTF_8)).getAsJsonObject();
+        return root.getAsJsonArray("choices").get(0).getAsJsonObject()
+                .getAsJsonObject("message").get("content").getAsString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ChatCompletionCodecBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,87 @@
+package com.salex.telegram.conversation;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChatCompletionCodecTest {
+
+    @Test
+    void encodesMessagesWithCompactTimestamps() {
+        List<ConversationMessageRecord> conversation = List.of(
+                new ConversationMessageRecord("user", "Привет \"there\"", Instant.parse("2024-05-01T10:15:30Z")),
+                new ConversationMessageRecord("assistant", "hi", Instant.parse("2024-05-01T10:16:00Z")),
+                new ConversationMessageRecord("user", "again", Instant.parse("2024-05-02T08:00:00Z")));
+
+        byte[] encoded = ChatCompletionCodec.encodeRequest("test-model", conversation, true);
+
+        JsonObject request = JsonParser.parseString(new String(encoded, StandardCharsets.UTF_8)).getAsJsonObject();
+        assertThat(request.get("model").getAsString()).isEqualTo("test-model");
+        assertThat(request.get("stream").getAsBoolean()).isTrue();
+        JsonArray messages = request.getAsJsonArray("messages");
+        assertThat(messages).hasSize(3);
+        assertThat(messages.get(0).getAsJsonObject().get("content").getAsString())
+                .isEqualTo("Привет \"there\"\n[2024-05-01 10:15]");
+        assertThat(messages.get(1).getAsJsonObject().get("content").getAsString()).isEqualTo("hi\n[10:16]");
+        assertThat(messages.get(2).getAsJsonObject().get("content").getAsString())
+                .isEqualTo("again\n[2024-05-02 08:00]");
+    }
+
+    @Test
+    void decodesOnlyContentAndUsage() throws Exception {
+        String body = """
+                {"id":"chatcmpl-1","object":"chat.completion","choices":[
+                  {"index":0,"message":{"role":"assistant","content":"Hello!","refusal":null,
+                   "annotations":[{"type":"x","nested":{"a":[1,2,3]}}]},"logprobs":null,"finish_reason":"stop"},
+                  {"index":1,"message":{"role":"assistant","content":"ignored"}}],
+                 "usage":{"prompt_tokens":12,"completion_tokens":3,"total_tokens":15,
+                   "prompt_tokens_details":{"cached_tokens":0}},
+                 "system_fingerprint":"fp"}
+                """;
+
+        ChatCompletionCodec.Completion completion =
+                ChatCompletionCodec.decodeResponse(body.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(completion.content()).isEqualTo("Hello!");
+        assertThat(completion.usage()).isEqualTo(new ChatCompletionCodec.Usage(12, 3, 15));
+    }
+
+    @Test
+    void roundTripsMultiByteText() throws Exception {
+        String text = "naïve Привет 你好 🙂";
+        byte[] encoded = ChatCompletionCodec.encodeRequest("m",
+                List.of(new ConversationMessageRecord("user", text, Instant.parse("2024-05-01T10:15:30Z"))), false);
+
+        assertThat(new String(encoded, StandardCharsets.UTF_8)).contains(text);
+        String response = "{\"choices\":[{\"message\":{\"content\":\"" + text + "\"}}]}";
+        assertThat(ChatCompletionCodec.decodeResponse(response.getBytes(StandardCharsets.UTF_8)).content())
+                .isEqualTo(text);
+    }
+
+    @Test
+    void rejectsResponsesWithoutContent() {
+        assertThatThrownBy(() -> ChatCompletionCodec.decodeResponse(
+                "{\"choices\":[]}".getBytes(StandardCharsets.UTF_8)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("missing choices");
+        assertThatThrownBy(() -> ChatCompletionCodec.decodeResponse(
+                "{\"choices\":[{\"message\":{\"content\":null}}]}".getBytes(StandardCharsets.UTF_8)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("missing message content");
+    }
+
+    @Test
+    void decodesStreamingDeltas() throws Exception {
+        assertThat(ChatCompletionCodec.decodeDelta("{\"choices\":[{\"delta\":{\"content\":\"Hel\"}}]}")).isEqualTo("Hel");
+        assertThat(ChatCompletionCodec.decodeDelta("{\"choices\":[{\"delta\":{},\"finish_reason\":\"stop\"}]}")).isNull();
+        assertThat(ChatCompletionCodec.decodeDelta("{\"choices\":[],\"usage\":{\"total_tokens\":4}}")).isNull();
+    }
+}
@@ -0,0 +1,92 @@
+package com.salex.telegram.conversation;
+
+import com.salex.telegram.infrastructure.ratelimit.AdaptiveConcurrencyLimiter;
+import com.salex.telegram.infrastructure.ratelimit.OpenAiRateLimitTracker;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the limiter with a stub delegate whose requests only settle when the test says so.
+ */
+class ConcurrencyLimitedChatCompletionClientTest {
+
+    private static final List<ConversationMessageRecord> CONVERSATION =
+            List.of(new ConversationMessageRecord("user", "hi"));
+
+    private final AtomicInteger sent = new AtomicInteger();
+    private final AtomicReference<CompletableFuture<String>> lastRequest = new AtomicReference<>();
+    private final ChatCompletionClient hanging = new ChatCompletionClient() {
+        @Override
+        public String complete(List<ConversationMessageRecord> conversation) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<String> completeAsync(List<ConversationMessageRecord> conversation) {
+            sent.incrementAndGet();
+            CompletableFuture<String> request = new CompletableFuture<>();
+            lastRequest.set(request);
+            return request;
+        }
+    };
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test",
+            new AdaptiveConcurrencyLimiter.Settings(4, 1, 8, 0.5, 4, Duration.ofSeconds(10)));
+
+    @Test
+    void callerTimeoutLowersTheLimit() {
+        ConcurrencyLimitedChatCompletionClient client = new ConcurrencyLimitedChatCompletionClient(hanging, limiter);
+
+        CompletableFuture<String> reply = client.completeAsync(CONVERSATION);
+        reply.completeExceptionally(new TimeoutException("attempt timed out"));
+
+        assertThat(lastRequest.get()).isCompletedExceptionally();
+        assertThat(client.stats().dropped()).isEqualTo(1);
+        assertThat(client.stats().limit()).isLessThan(4d);
+        assertThat(client.stats().inFlight()).isZero();
+    }
+
+    @Test
+    void callerCancellationOnlyReleasesThePermit() {
+        ConcurrencyLimitedChatCompletionClient client = new ConcurrencyLimitedChatCompletionClient(hanging, limiter);
+
+        client.completeAsync(CONVERSATION).cancel(true);
+
+        assertThat(lastRequest.get()).isCancelled();
+        assertThat(client.stats().dropped()).isZero();
+        assertThat(client.stats().limit()).isEqualTo(4d);
+        assertThat(client.stats().inFlight()).isZero();
+    }
+
+    @Test
+    void pacedRequestsWaitWithoutHoldingAPermit() {
+        OpenAiRateLimitTracker rateLimits = new OpenAiRateLimitTracker(
+                new OpenAiRateLimitTracker.Settings(0d, Duration.ofSeconds(5)));
+        rateLimits.update(HttpHeaders.of(Map.of(
+                        "x-ratelimit-limit-requests", "60",
+                        "x-ratelimit-remaining-requests", "0",
+                        "x-ratelimit-reset-requests", "60s").entrySet().stream()
+                        .collect(Collectors.toMap(Map.Entry::getKey, entry -> List.of(entry.getValue()))),
+                (name, value) -> true));
+        ConcurrencyLimitedChatCompletionClient limited = new ConcurrencyLimitedChatCompletionClient(hanging, limiter);
+        PacedChatCompletionClient client = new PacedChatCompletionClient(limited, rateLimits);
+
+        CompletableFuture<String> reply = client.completeAsync(CONVERSATION);
+
+        assertThat(reply).isNotDone();
+        assertThat(sent).hasValue(0);
+        assertThat(limited.stats().inFlight()).isZero();
+        assertThat(limited.stats().acquired()).isZero();
+        reply.cancel(true);
+    }
+}
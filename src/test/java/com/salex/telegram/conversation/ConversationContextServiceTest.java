@@ -1,5 +1,6 @@
 package com.salex.telegram.conversation;
 
+import com.salex.telegram.infrastructure.messaging.ConversationKey;
 import com.salex.telegram.infrastructure.messaging.LoggedMessage;
 import com.salex.telegram.infrastructure.messaging.MessageRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,7 +9,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -77,4 +81,88 @@ class ConversationContextServiceTest {
                 .containsExactly("refreshed", "response", "again");
         verify(messageRepository, times(2)).findRecent(CHAT_ID, USER_ID, 3);
     }
+
+    @Test
+    void prefetchSeedsSeveralConversationsWithOneRepositoryCall() {
+        ConversationKey first = new ConversationKey(CHAT_ID, USER_ID);
+        ConversationKey second = new ConversationKey(CHAT_ID, 789L);
+        when(messageRepository.findRecent(anyCollection(), eq(3))).thenReturn(Map.of(
+                first, List.of(new LoggedMessage(USER_ID, CHAT_ID, "hello", "hi there")),
+                second, List.of()
+        ));
+
+        service.prefetch(List.of(first, second, first));
+        List<ConversationMessageRecord> request = service.buildRequestMessages(CHAT_ID, USER_ID, "next");
+        service.buildRequestMessages(CHAT_ID, 789L, "other");
+        service.prefetch(List.of(first, second));
+
+        assertThat(request).extracting(ConversationMessageRecord::content)
+                .containsExactly("hello", "hi there", "next");
+        verify(messageRepository, times(1)).findRecent(anyCollection(), eq(3));
+        verify(messageRepository, never()).findRecent(anyLong(), anyLong(), eq(3));
+    }
+
+    @Test
+    void buildRequestMessagesTrimsOldestHistoryToTokenBudget() {
+        String line = "x".repeat(40); // 10 tokens + 7 overhead per message
+        service = new ConversationContextService(messageRepository, 6, 60, new TokenEstimator());
+        when(messageRepository.findRecent(CHAT_ID, USER_ID, 3)).thenReturn(List.of(
+                new LoggedMessage(USER_ID, CHAT_ID, "q1 " + line, "a1 " + line),
+                new LoggedMessage(USER_ID, CHAT_ID, "q2 " + line, "a2 " + line)
+        ));
+
+        List<ConversationMessageRecord> request = service.buildRequestMessages(CHAT_ID, USER_ID, "next");
+
+        assertThat(request).extracting(ConversationMessageRecord::content)
+                .containsExactly("q2 " + line, "a2 " + line, "next");
+        ConversationContextService.ContextStats stats = service.stats();
+        assertThat(stats.requests()).isEqualTo(1);
+        assertThat(stats.trimmedMessages()).isEqualTo(2);
+        assertThat(stats.trimmedTokens()).isEqualTo(36);
+        assertThat(stats.meanPromptTokens()).isLessThanOrEqualTo(60d);
+    }
+
+    @Test
+    void recordExchangeFoldsOldTurnsIntoSummary() {
+        ConversationCompactor compactor = new ConversationCompactor(conversation -> "user asked about q1 and q2",
+                Runnable::run, 100);
+        service = new ConversationContextService(messageRepository, 20, 4_000, new TokenEstimator(),
+                new ConversationContextService.CacheLimits(100, 1_000_000, Duration.ZERO),
+                new ConversationContextService.Compaction(compactor, 6, 2));
+        when(messageRepository.findRecent(CHAT_ID, USER_ID, 1)).thenReturn(List.of());
+
+        service.recordExchange(CHAT_ID, USER_ID, "q1", "a1");
+        service.recordExchange(CHAT_ID, USER_ID, "q2", "a2");
+        service.recordExchange(CHAT_ID, USER_ID, "q3", "a3");
+
+        List<ConversationMessageRecord> request = service.buildRequestMessages(CHAT_ID, USER_ID, "q4");
+        assertThat(request).extracting(ConversationMessageRecord::role)
+                .containsExactly("system", "user", "assistant", "user");
+        assertThat(request.get(0).content()).endsWith("user asked about q1 and q2");
+        assertThat(request).extracting(ConversationMessageRecord::content).contains("q3", "a3", "q4");
+        assertThat(service.stats().compactedMessages()).isEqualTo(4);
+    }
+
+    @Test
+    void reloadedConversationSeedsOnlyTurnsCompactionKeeps() {
+        AtomicInteger summaries = new AtomicInteger();
+        ConversationCompactor compactor = new ConversationCompactor(conversation -> {
+            summaries.incrementAndGet();
+            return "summary";
+        }, Runnable::run, 100);
+        service = new ConversationContextService(messageRepository, 40, 4_000, new TokenEstimator(),
+                new ConversationContextService.CacheLimits(100, 1_000_000, Duration.ZERO),
+                new ConversationContextService.Compaction(compactor, 24, 8));
+        when(messageRepository.findRecent(CHAT_ID, USER_ID, 4)).thenReturn(List.of(
+                new LoggedMessage(USER_ID, CHAT_ID, "q1", "a1"),
+                new LoggedMessage(USER_ID, CHAT_ID, "q2", "a2"),
+                new LoggedMessage(USER_ID, CHAT_ID, "q3", "a3"),
+                new LoggedMessage(USER_ID, CHAT_ID, "q4", "a4")));
+
+        service.recordExchange(CHAT_ID, USER_ID, "q5", "a5");
+
+        verify(messageRepository).findRecent(CHAT_ID, USER_ID, 4);
+        assertThat(summaries).hasValue(0);
+        assertThat(service.buildRequestMessages(CHAT_ID, USER_ID, "q6")).hasSize(11);
+    }
 }
@@ -0,0 +1,88 @@
+package com.salex.telegram.conversation;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpenAIChatCompletionClientTest {
+
+    private static final long CHUNK_DELAY_MILLIS = 150;
+
+    private HttpServer server;
+    private OpenAIChatCompletionClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (String token : List.of("Hel", "lo ", "there")) {
+                    writeEvent(out, "{\"choices\":[{\"delta\":{\"content\":\"" + token + "\"}}]}");
+                    sleep(CHUNK_DELAY_MILLIS);
+                }
+                writeEvent(out, "{\"choices\":[{\"delta\":{},\"finish_reason\":\"stop\"}]}");
+                writeEvent(out, "[DONE]");
+            }
+        });
+        server.start();
+        URI endpoint = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions");
+        client = new OpenAIChatCompletionClient(HttpClient.newHttpClient(), "test-key", "test-model", endpoint);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void completeStreamingDeliversDeltasBeforeTheStreamEnds() throws Exception {
+        List<String> deltas = new CopyOnWriteArrayList<>();
+        long[] firstDeltaAt = {-1L};
+        long started = System.nanoTime();
+
+        String reply = client.completeStreaming(
+                List.of(new ConversationMessageRecord("user", "hi")),
+                delta -> {
+                    if (firstDeltaAt[0] < 0) {
+                        firstDeltaAt[0] = System.nanoTime();
+                    }
+                    deltas.add(delta);
+                });
+        long finished = System.nanoTime();
+
+        assertThat(reply).isEqualTo("Hello there");
+        assertThat(deltas).containsExactly("Hel", "lo ", "there");
+        long timeToFirstToken = firstDeltaAt[0] - started;
+        long totalTime = finished - started;
+        assertThat(timeToFirstToken).isLessThan(totalTime - TimeUnit.MILLISECONDS.toNanos(CHUNK_DELAY_MILLIS));
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.salex.telegram.conversation;
+
+import com.salex.telegram.infrastructure.resilience.CircuitBreaker;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the decorator over the real OpenAI client against a local stand-in that injects faults per request.
+ */
+class ResilientChatCompletionClientTest {
+
+    private static final List<ConversationMessageRecord> CONVERSATION =
+            List.of(new ConversationMessageRecord("user", "hi"));
+
+    private final Map<Integer, Fault> faults = new ConcurrentHashMap<>();
+    private final Map<Integer, CountDownLatch> arrivals = new ConcurrentHashMap<>();
+    // Request number -> number of the request it waits for before answering.
+    private final Map<Integer, Integer> holds = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private OpenAIChatCompletionClient openAi;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            int number = requests.incrementAndGet();
+            arrival(number).countDown();
+            Fault fault = faults.getOrDefault(number, Fault.NONE);
+            boolean streaming = "text/event-stream".equals(exchange.getRequestHeaders().getFirst("Accept"));
+            try {
+                Integer awaited = holds.get(number);
+                if (awaited != null) {
+                    arrival(awaited).await(5, TimeUnit.SECONDS);
+                }
+                Thread.sleep(fault.delayMillis());
+                if (fault.retryAfterMillis() > 0) {
+                    exchange.getResponseHeaders().add("retry-after-ms", Long.toString(fault.retryAfterMillis()));
+                }
+                if (!streaming) {
+                    byte[] body = "{\"choices\":[{\"message\":{\"content\":\"ok\"}}]}".getBytes(StandardCharsets.UTF_8);
+                    exchange.sendResponseHeaders(fault.status(), body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                    return;
+                }
+                exchange.sendResponseHeaders(fault.status(), 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(sseDelta("o"));
+                    out.flush();
+                    Thread.sleep(fault.gapMillis());
+                    out.write(sseDelta("k"));
+                    out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        URI endpoint = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions");
+        openAi = new OpenAIChatCompletionClient(HttpClient.newHttpClient(), "test-key", "test-model", endpoint);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void retriesThrottlingAndServerErrorsUntilSuccess() throws Exception {
+        faults.put(1, new Fault(429, 0, 20, 0));
+        faults.put(2, new Fault(503, 0, 0, 0));
+        ResilientChatCompletionClient client = new ResilientChatCompletionClient(openAi, settings(3, 5, false));
+
+        assertThat(client.complete(CONVERSATION)).isEqualTo("ok");
+        assertThat(requests).hasValue(3);
+        assertThat(client.stats().retries()).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        faults.put(1, new Fault(400, 0, 0, 0));
+        ResilientChatCompletionClient client = new ResilientChatCompletionClient(openAi, settings(3, 5, false));
+
+        assertThatThrownBy(() -> client.complete(CONVERSATION))
+                .isInstanceOfSatisfying(ChatCompletionException.class,
+                        ex -> assertThat(ex.statusCode()).isEqualTo(400));
+        assertThat(requests).hasValue(1);
+    }
+
+    @Test
+    void cancelsAttemptsThatExceedTheTimeoutAndRetries() throws Exception {
+        faults.put(1, new Fault(200, 5_000, 0, 0));
+        ResilientChatCompletionClient client = new ResilientChatCompletionClient(openAi, settings(2, 5, false));
+
+        long started = System.nanoTime();
+        assertThat(client.complete(CONVERSATION)).isEqualTo("ok");
+
+        assertThat(System.nanoTime() - started).isLessThan(TimeUnit.SECONDS.toNanos(3));
+        assertThat(client.stats().timeouts()).isEqualTo(1);
+    }
+
+    @Test
+    void failsFastOnceTheCircuitOpens() {
+        faults.put(1, new Fault(500, 0, 0, 0));
+        faults.put(2, new Fault(500, 0, 0, 0));
+        ResilientChatCompletionClient client = new ResilientChatCompletionClient(openAi, settings(1, 2, false));
+
+        assertThatThrownBy(() -> client.complete(CONVERSATION)).isInstanceOf(ChatCompletionException.class);
+        assertThatThrownBy(() -> client.complete(CONVERSATION)).isInstanceOf(ChatCompletionException.class);
+        assertThatThrownBy(() -> client.complete(CONVERSATION))
+                .isInstanceOfSatisfying(ChatCompletionException.class,
+                        ex -> assertThat(ex.statusCode()).isEqualTo(ChatCompletionException.NO_STATUS));
+
+        assertThat(requests).hasValue(2);
+        assertThat(client.stats().circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void hedgesAttemptsSlowerThanRecentLatency() throws Exception {
+        // The primary answers only once the hedge has reached the server, and late enough for the hedge to win.
+        holds.put(2, 3);
+        faults.put(2, new Fault(200, 2_000, 0, 0));
+        ResilientChatCompletionClient client = new ResilientChatCompletionClient(openAi,
+                settings(Duration.ofSeconds(10), 1, 5, true));
+        client.complete(CONVERSATION);
+
+        assertThat(client.complete(CONVERSATION)).isEqualTo("ok");
+
+        assertThat(arrival(3).await(0, TimeUnit.SECONDS)).isTrue();
+        // The counters are bumped right after the result completes.
+        awaitTrue(() -> client.stats().hedgeWins() == 1);
+        assertThat(client.stats().hedges()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesStreamsThatSendNothingWithinTheTimeout() throws Exception {
+        faults.put(1, new Fault(200, 5_000, 0, 0));
+        ResilientChatCompletionClient client = new ResilientChatCompletionClient(openAi, settings(2, 5, false));
+        List<String> deltas = new CopyOnWriteArrayList<>();
+
+        long started = System.nanoTime();
+        assertThat(client.completeStreaming(CONVERSATION, deltas::add)).isEqualTo("ok");
+
+        assertThat(System.nanoTime() - started).isLessThan(TimeUnit.SECONDS.toNanos(3));
+        assertThat(deltas).containsExactly("o", "k");
+        assertThat(client.stats().timeouts()).isEqualTo(1);
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    void abandonsStreamsThatStallBetweenFragments() {
+        faults.put(1, new Fault(200, 0, 0, 5_000));
+        ResilientChatCompletionClient client = new ResilientChatCompletionClient(openAi, settings(2, 5, false));
+        List<String> deltas = new CopyOnWriteArrayList<>();
+
+        assertThatThrownBy(() -> client.completeStreaming(CONVERSATION, deltas::add))
+                .isInstanceOf(TimeoutException.class);
+
+        assertThat(deltas).containsExactly("o");
+        assertThat(requests).hasValue(1);
+        assertThat(client.stats().timeouts()).isEqualTo(1);
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    private CountDownLatch arrival(int number) {
+        return arrivals.computeIfAbsent(number, ignored -> new CountDownLatch(1));
+    }
+
+    private static byte[] sseDelta(String content) {
+        return ("data: {\"choices\":[{\"delta\":{\"content\":\"" + content + "\"}}]}\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private static ResilientChatCompletionClient.Settings settings(int maxAttempts,
+                                                                   int failureThreshold,
+                                                                   boolean hedging) {
+        return settings(Duration.ofMillis(500), maxAttempts, failureThreshold, hedging);
+    }
+
+    private static ResilientChatCompletionClient.Settings settings(Duration attemptTimeout,
+                                                                   int maxAttempts,
+                                                                   int failureThreshold,
+                                                                   boolean hedging) {
+        return new ResilientChatCompletionClient.Settings(
+                attemptTimeout,
+                maxAttempts,
+                Duration.ofMillis(10),
+                Duration.ofMillis(50),
+                failureThreshold,
+                Duration.ofMinutes(1),
+                hedging,
+                Duration.ofMillis(100),
+                10,
+                1);
+    }
+
+    /**
+     * @param delayMillis wait before the response headers
+     * @param gapMillis   wait between the two fragments of a streamed response
+     */
+    private record Fault(int status, long delayMillis, long retryAfterMillis, long gapMillis) {
+        private static final Fault NONE = new Fault(200, 0, 0, 0);
+    }
+}
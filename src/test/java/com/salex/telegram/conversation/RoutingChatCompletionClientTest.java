@@ -0,0 +1,142 @@
+package com.salex.telegram.conversation;
+
+import com.salex.telegram.infrastructure.resilience.CircuitBreaker;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Routes between local stand-ins for OpenAI-compatible endpoints.
+ */
+class RoutingChatCompletionClientTest {
+
+    private static final List<ConversationMessageRecord> CONVERSATION =
+            List.of(new ConversationMessageRecord("user", "hi"));
+    private static final RoutingChatCompletionClient.Settings SETTINGS =
+            new RoutingChatCompletionClient.Settings(0.5, 0d, 2, Duration.ofMinutes(1));
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void prefersTheFasterEndpointOnceBothAreMeasured() throws Exception {
+        AtomicInteger slowHits = new AtomicInteger();
+        AtomicInteger fastHits = new AtomicInteger();
+        RoutingChatCompletionClient client = new RoutingChatCompletionClient(List.of(
+                endpoint("slow", 200, 300, slowHits),
+                endpoint("fast", 200, 0, fastHits)), SETTINGS, () -> 1d);
+
+        client.complete(CONVERSATION);
+        client.complete(CONVERSATION);
+        String reply = client.complete(CONVERSATION);
+
+        assertThat(reply).isEqualTo("fast");
+        assertThat(slowHits).hasValue(1);
+        assertThat(fastHits).hasValue(2);
+    }
+
+    @Test
+    void failsOverOnServerErrorsAndDemotesTheFailingEndpoint() throws Exception {
+        AtomicInteger brokenHits = new AtomicInteger();
+        AtomicInteger healthyHits = new AtomicInteger();
+        RoutingChatCompletionClient client = new RoutingChatCompletionClient(List.of(
+                endpoint("broken", 503, 0, brokenHits),
+                endpoint("healthy", 200, 0, healthyHits)), SETTINGS, () -> 1d);
+
+        assertThat(client.complete(CONVERSATION)).isEqualTo("healthy");
+        assertThat(client.complete(CONVERSATION)).isEqualTo("healthy");
+        assertThat(client.complete(CONVERSATION)).isEqualTo("healthy");
+
+        assertThat(brokenHits).hasValue(1);
+        assertThat(client.stats().get(0).failures()).isEqualTo(1);
+        assertThat(client.stats().get(1).requests()).isEqualTo(3);
+    }
+
+    @Test
+    void skipsEndpointsWhoseCircuitIsOpen() throws Exception {
+        AtomicInteger firstHits = new AtomicInteger();
+        AtomicInteger secondHits = new AtomicInteger();
+        RoutingChatCompletionClient client = new RoutingChatCompletionClient(List.of(
+                endpoint("first", 503, 0, firstHits),
+                endpoint("second", 503, 0, secondHits)), SETTINGS, () -> 1d);
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> client.complete(CONVERSATION)).isInstanceOf(ChatCompletionException.class);
+        }
+        assertThatThrownBy(() -> client.complete(CONVERSATION))
+                .isInstanceOfSatisfying(ChatCompletionException.class,
+                        ex -> assertThat(ex.statusCode()).isEqualTo(ChatCompletionException.NO_STATUS));
+
+        assertThat(firstHits).hasValue(2);
+        assertThat(secondHits).hasValue(2);
+        assertThat(client.stats()).extracting(RoutingChatCompletionClient.EndpointStats::circuitState)
+                .containsOnly(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void countsAttemptsTheCallerTimesOutAgainstTheHangingEndpoint() throws Exception {
+        AtomicInteger hangingHits = new AtomicInteger();
+        AtomicInteger healthyHits = new AtomicInteger();
+        RoutingChatCompletionClient router = new RoutingChatCompletionClient(List.of(
+                endpoint("hanging", 200, 2_000, hangingHits),
+                endpoint("healthy", 200, 0, healthyHits)), SETTINGS, () -> 1d);
+        ResilientChatCompletionClient client = new ResilientChatCompletionClient(router,
+                new ResilientChatCompletionClient.Settings(Duration.ofMillis(200), 2, Duration.ofMillis(1),
+                        Duration.ofMillis(10), 5, Duration.ofMinutes(1), false, Duration.ofMillis(100), 10, 1));
+
+        assertThat(client.complete(CONVERSATION)).isEqualTo("healthy");
+
+        RoutingChatCompletionClient.EndpointStats hanging = router.stats().get(0);
+        assertThat(hangingHits).hasValue(1);
+        assertThat(hanging.failures()).isEqualTo(1);
+        assertThat(hanging.errorRate()).isPositive();
+        assertThat(hanging.latencyMillis()).isGreaterThanOrEqualTo(200d);
+        assertThat(client.stats().timeouts()).isEqualTo(1);
+    }
+
+    private RoutingChatCompletionClient.Endpoint endpoint(String name,
+                                                          int status,
+                                                          long delayMillis,
+                                                          AtomicInteger hits) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            hits.incrementAndGet();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"choices\":[{\"message\":{\"content\":\"" + name + "\"}}]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        servers.add(server);
+        URI url = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions");
+        return new RoutingChatCompletionClient.Endpoint(name,
+                new OpenAIChatCompletionClient(httpClient, "test-key", "test-model", url));
+    }
+}
@@ -0,0 +1,61 @@
+package com.salex.telegram.infrastructure.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void evictsLeastRecentlyUsedEntryWhenFull() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2, 1_000, Duration.ZERO, String::length, clock::get);
+
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.getIfPresent("a");
+        cache.put("c", "3");
+
+        assertThat(cache.getIfPresent("b")).isNull();
+        assertThat(cache.getIfPresent("a")).isEqualTo("1");
+        assertThat(cache.getIfPresent("c")).isEqualTo("3");
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsTotalWeightWithinBudgetAfterValuesGrow() {
+        BoundedCache<String, StringBuilder> cache =
+                new BoundedCache<>(10, 10, Duration.ZERO, StringBuilder::length, clock::get);
+
+        cache.put("old", new StringBuilder("1234"));
+        StringBuilder growing = cache.get("new", key -> new StringBuilder("1234"));
+        growing.append("5678");
+        cache.reweigh("new");
+
+        assertThat(cache.getIfPresent("old")).isNull();
+        assertThat(cache.stats().weight()).isEqualTo(8);
+        assertThat(cache.stats().size()).isEqualTo(1);
+    }
+
+    @Test
+    void expiresIdleEntriesAndCountsHitsAndMisses() {
+        BoundedCache<String, String> cache =
+                new BoundedCache<>(10, 1_000, Duration.ofMinutes(1), String::length, clock::get);
+
+        assertThat(cache.get("a", key -> "loaded")).isEqualTo("loaded");
+        assertThat(cache.get("a", key -> "reloaded")).isEqualTo("loaded");
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+
+        assertThat(cache.get("a", key -> "reloaded")).isEqualTo("reloaded");
+        BoundedCache.Stats stats = cache.stats();
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(2);
+        assertThat(stats.expirations()).isEqualTo(1);
+    }
+}
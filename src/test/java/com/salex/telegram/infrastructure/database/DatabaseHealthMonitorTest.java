@@ -0,0 +1,134 @@
+package com.salex.telegram.infrastructure.database;
+
+import com.salex.telegram.infrastructure.messaging.FailoverMessageRepository;
+import com.salex.telegram.infrastructure.messaging.LoggedMessage;
+import com.salex.telegram.infrastructure.messaging.MessageRepository;
+import com.salex.telegram.user.UserRecord;
+import com.salex.telegram.user.UserService;
+import com.salex.telegram.user.infrastructure.FailoverUserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DatabaseHealthMonitorTest {
+
+    private final ConnectionProvider connectionProvider = mock(ConnectionProvider.class);
+    private final DatabaseHealthMonitor monitor =
+            new DatabaseHealthMonitor(connectionProvider, 1, Duration.ofHours(1));
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(connectionProvider.getConnection()).thenReturn(connection);
+    }
+
+    @AfterEach
+    void tearDown() {
+        monitor.close();
+    }
+
+    @Test
+    void keepsTrafficOnTheFailoverStoresUntilListenersFinish() {
+        List<String> seen = new ArrayList<>();
+        monitor.onRecovery(() -> seen.add(monitor.stats().state() + " available=" + monitor.isAvailable()));
+        monitor.reportFailure(new SQLException("refused", "08001"));
+
+        monitor.probe();
+
+        // The second run writes back what live traffic buffered during the first.
+        assertThat(seen).containsExactly("RECONCILING available=false", "UP available=true");
+        assertThat(monitor.isAvailable()).isTrue();
+    }
+
+    @Test
+    void staysDownWhenAListenerFails() {
+        AtomicInteger runs = new AtomicInteger();
+        monitor.onRecovery(() -> {
+            if (runs.incrementAndGet() == 1) {
+                throw new IllegalStateException("user 7 has not been written yet");
+            }
+        });
+        monitor.reportFailure(new SQLException("refused", "08001"));
+
+        monitor.probe();
+
+        assertThat(monitor.isAvailable()).isFalse();
+        assertThat(monitor.isReachable()).isFalse();
+        assertThat(monitor.stats().failedReconciliations()).isEqualTo(1);
+
+        monitor.probe();
+
+        assertThat(monitor.isAvailable()).isTrue();
+    }
+
+    @Test
+    void poolAcquisitionTimeoutIsNotAnOutage() {
+        String timeout = "HikariPool-1 - Connection is not available, request timed out after 30000ms.";
+
+        assertThat(monitor.reportFailure(new SQLTransientConnectionException(timeout))).isFalse();
+        assertThat(monitor.isAvailable()).isTrue();
+
+        assertThat(monitor.reportFailure(new SQLTransientConnectionException(timeout, "08001",
+                new SQLException("Connection refused", "08001")))).isTrue();
+        assertThat(monitor.isAvailable()).isFalse();
+    }
+
+    @Test
+    void reconcilesStoresInAnyOrderAndWritesLiveTrafficAfterTheBufferedRows() throws Exception {
+        UserService primaryUsers = mock(UserService.class);
+        MessageRepository primaryMessages = mock(MessageRepository.class);
+        when(primaryUsers.ensureUser(any())).thenReturn(new UserRecord(42L, 7L, "alice", "Alice", null));
+        FailoverUserService users = new FailoverUserService(primaryUsers, monitor);
+        FailoverMessageRepository messages = new FailoverMessageRepository(primaryMessages, monitor,
+                FailoverUserService.idResolver(users), 10);
+        List<String> written = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<LoggedMessage> batch = invocation.getArgument(0);
+            batch.forEach(message -> written.add(message.getRequestText() + "@" + message.getUserId()));
+            if (written.size() == 1) {
+                // A live exchange arriving while the buffered ones are written back.
+                messages.save(new LoggedMessage(42L, 10L, "live", "reply"));
+            }
+            return null;
+        }).when(primaryMessages).saveAll(anyList());
+        // Messages first: they must resolve the provisional user before the user store reconciles it.
+        monitor.onRecovery(messages::reconcile);
+        monitor.onRecovery(users::reconcile);
+        monitor.reportFailure(new SQLException("refused", "08001"));
+        UserRecord provisional = users.ensureUser(telegramUser(7L));
+        messages.save(new LoggedMessage(provisional.id(), 10L, "buffered", "reply"));
+
+        monitor.probe();
+
+        assertThat(provisional.id()).isNegative();
+        assertThat(written).containsExactly("buffered@42", "live@42");
+        assertThat(monitor.isAvailable()).isTrue();
+        assertThat(messages.stats().size()).isZero();
+    }
+
+    private static User telegramUser(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUserName("alice");
+        user.setFirstName("Alice");
+        return user;
+    }
+}
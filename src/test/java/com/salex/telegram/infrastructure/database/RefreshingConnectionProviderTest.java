@@ -0,0 +1,112 @@
+package com.salex.telegram.infrastructure.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshingConnectionProviderTest {
+
+    private final List<Connection> created = new ArrayList<>();
+
+    @Test
+    void closingBorrowedHandleKeepsSharedConnectionOpen() throws SQLException {
+        RefreshingConnectionProvider provider = new RefreshingConnectionProvider(this::newConnection, 1);
+
+        try (Connection borrowed = provider.getConnection()) {
+            borrowed.isReadOnly();
+        }
+        try (Connection borrowedAgain = provider.getConnection()) {
+            borrowedAgain.isReadOnly();
+        }
+
+        assertThat(created).hasSize(1);
+        verify(created.get(0), never()).close();
+        verify(created.get(0), times(2)).isReadOnly();
+    }
+
+    @Test
+    void handsOutConnectionWithoutValidatingIt() throws SQLException {
+        RefreshingConnectionProvider provider = new RefreshingConnectionProvider(this::newConnection, 1);
+
+        provider.getConnection().close();
+        provider.getConnection().close();
+
+        verify(created.get(0), never()).isValid(anyInt());
+    }
+
+    @Test
+    void backgroundCheckReplacesInvalidConnection() throws SQLException {
+        RefreshingConnectionProvider provider = new RefreshingConnectionProvider(this::newConnection, 1);
+        provider.getConnection().close();
+        when(created.get(0).isValid(anyInt())).thenReturn(false);
+
+        provider.checkHealth();
+
+        assertThat(created).hasSize(2);
+        verify(created.get(0)).close();
+    }
+
+    @Test
+    void connectionFailureDuringStatementDropsConnection() throws SQLException {
+        RefreshingConnectionProvider provider = new RefreshingConnectionProvider(this::newConnection, 1);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeUpdate()).thenThrow(new SQLException("connection reset", "08006"));
+
+        try (Connection connection = provider.getConnection()) {
+            when(created.get(0).prepareStatement(anyString())).thenReturn(statement);
+            assertThatThrownBy(() -> connection.prepareStatement("UPDATE t SET x=1").executeUpdate())
+                    .isInstanceOf(SQLException.class);
+        }
+        provider.getConnection().close();
+
+        assertThat(created).hasSize(2);
+        verify(created.get(0)).close();
+    }
+
+    @Test
+    void ordinaryStatementFailureKeepsConnection() throws SQLException {
+        RefreshingConnectionProvider provider = new RefreshingConnectionProvider(this::newConnection, 1);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeUpdate()).thenThrow(new SQLException("duplicate key", "23505"));
+
+        try (Connection connection = provider.getConnection()) {
+            when(created.get(0).prepareStatement(anyString())).thenReturn(statement);
+            assertThatThrownBy(() -> connection.prepareStatement("INSERT INTO t VALUES (1)").executeUpdate())
+                    .isInstanceOf(SQLException.class);
+        }
+        provider.getConnection().close();
+
+        assertThat(created).hasSize(1);
+    }
+
+    @Test
+    void closingProviderClosesSharedConnection() throws SQLException {
+        RefreshingConnectionProvider provider = new RefreshingConnectionProvider(this::newConnection, 1);
+        provider.getConnection().close();
+
+        provider.close();
+
+        verify(created.get(0)).close();
+    }
+
+    private Connection newConnection() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        created.add(connection);
+        return connection;
+    }
+}
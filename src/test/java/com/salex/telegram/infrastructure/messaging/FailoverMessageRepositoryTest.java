@@ -0,0 +1,110 @@
+package com.salex.telegram.infrastructure.messaging;
+
+import com.salex.telegram.infrastructure.database.ConnectionProvider;
+import com.salex.telegram.infrastructure.database.DatabaseHealthMonitor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class FailoverMessageRepositoryTest {
+
+    private final MessageRepository primary = mock(MessageRepository.class);
+    private final DatabaseHealthMonitor monitor =
+            new DatabaseHealthMonitor(mock(ConnectionProvider.class), 1, Duration.ofHours(1));
+
+    @AfterEach
+    void tearDown() {
+        monitor.close();
+    }
+
+    @Test
+    void buffersExchangesOnceConnectionFails() {
+        doThrow(new MessagePersistenceException("down", new SQLException("refused", "08001")))
+                .when(primary).saveAll(anyList());
+        FailoverMessageRepository repository = new FailoverMessageRepository(primary, monitor, id -> id, 10);
+
+        repository.save(message(1L, "first"));
+        repository.save(message(1L, "second"));
+
+        assertThat(monitor.isAvailable()).isFalse();
+        verify(primary).saveAll(anyList());
+        assertThat(repository.findRecent(10L, 1L, 5)).extracting(LoggedMessage::getRequestText)
+                .containsExactly("first", "second");
+        verify(primary, never()).findRecent(10L, 1L, 5);
+        assertThat(repository.stats().size()).isEqualTo(2);
+    }
+
+    @Test
+    void propagatesFailuresThatAreNotConnectionFailures() {
+        doThrow(new MessagePersistenceException("bad row", new SQLException("duplicate", "23505")))
+                .when(primary).saveAll(anyList());
+        FailoverMessageRepository repository = new FailoverMessageRepository(primary, monitor, id -> id, 10);
+
+        assertThatThrownBy(() -> repository.save(message(1L, "first")))
+                .isInstanceOf(MessagePersistenceException.class);
+        assertThat(monitor.isAvailable()).isTrue();
+        assertThat(repository.stats().size()).isZero();
+    }
+
+    @Test
+    void dropsOldestExchangesWhenBufferIsFull() {
+        monitor.reportFailure(new SQLException("refused", "08001"));
+        FailoverMessageRepository repository = new FailoverMessageRepository(primary, monitor, id -> id, 2);
+
+        repository.save(message(1L, "a"));
+        repository.save(message(1L, "b"));
+        repository.save(message(1L, "c"));
+
+        verifyNoInteractions(primary);
+        assertThat(repository.findRecent(10L, 1L, 5)).extracting(LoggedMessage::getRequestText)
+                .containsExactly("b", "c");
+        assertThat(repository.stats().dropped()).isEqualTo(1);
+    }
+
+    @Test
+    void reconcileWritesBufferedExchangesWithDatabaseUserIds() {
+        monitor.reportFailure(new SQLException("refused", "08001"));
+        FailoverMessageRepository repository =
+                new FailoverMessageRepository(primary, monitor, id -> id < 0 ? 42L : id, 10);
+        repository.save(message(-7L, "provisional"));
+        repository.save(message(3L, "known"));
+
+        repository.reconcile();
+
+        verify(primary).saveAll(argThat(batch -> batch.size() == 2
+                && batch.get(0).getUserId() == 42L
+                && batch.get(1).getUserId() == 3L));
+        assertThat(repository.stats().size()).isZero();
+        assertThat(repository.stats().reconciled()).isEqualTo(2);
+    }
+
+    @Test
+    void failedReconcileKeepsExchangesBuffered() {
+        monitor.reportFailure(new SQLException("refused", "08001"));
+        doThrow(new MessagePersistenceException("down", new SQLException("refused", "08001")))
+                .when(primary).saveAll(any());
+        FailoverMessageRepository repository = new FailoverMessageRepository(primary, monitor, id -> id, 10);
+        repository.save(message(1L, "first"));
+
+        assertThatThrownBy(repository::reconcile).isInstanceOf(MessagePersistenceException.class);
+        assertThat(repository.stats().size()).isEqualTo(1);
+    }
+
+    private static LoggedMessage message(long userId, String text) {
+        return new LoggedMessage(userId, 10L, text, "reply");
+    }
+}
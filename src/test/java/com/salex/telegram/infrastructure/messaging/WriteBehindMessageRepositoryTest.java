@@ -0,0 +1,177 @@
+package com.salex.telegram.infrastructure.messaging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteBehindMessageRepositoryTest {
+
+    private final RecordingRepository delegate = new RecordingRepository();
+    private WriteBehindMessageRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        delegate.gate.countDown();
+        if (repository != null) {
+            repository.close();
+        }
+    }
+
+    @Test
+    void writesFullBatchesWithoutWaitingForInterval() throws Exception {
+        repository = new WriteBehindMessageRepository(delegate, settings(3, Duration.ofMinutes(1), 10));
+
+        for (int i = 0; i < 3; i++) {
+            repository.save(message(i));
+        }
+
+        assertThat(delegate.awaitBatches(1)).isTrue();
+        assertThat(delegate.batches.get(0)).extracting(LoggedMessage::getRequestText)
+                .containsExactly("m0", "m1", "m2");
+        assertThat(delegate.singleSaves).isEmpty();
+    }
+
+    @Test
+    void flushesPartialBatchOnceIntervalElapses() throws Exception {
+        repository = new WriteBehindMessageRepository(delegate, settings(100, Duration.ofMillis(50), 1000));
+
+        repository.save(message(1));
+
+        assertThat(delegate.awaitBatches(1)).isTrue();
+        assertThat(delegate.batches.get(0)).hasSize(1);
+    }
+
+    @Test
+    void readsSeeMessagesStillQueued() {
+        repository = new WriteBehindMessageRepository(delegate, settings(100, Duration.ofMinutes(1), 1000));
+        repository.save(message(1));
+        repository.save(message(2));
+
+        assertThat(repository.findRecent(1L, 2L, 10)).extracting(LoggedMessage::getRequestText)
+                .containsExactly("m1", "m2");
+        assertThat(repository.stats().queued()).isZero();
+    }
+
+    @Test
+    void readsWriteOnlyTheQueuedMessagesOfTheConversationsTheyRead() {
+        repository = new WriteBehindMessageRepository(delegate, settings(100, Duration.ofMinutes(1), 1000));
+        repository.save(message(1));
+        repository.save(new LoggedMessage(3L, 1L, "other", "reply"));
+        repository.save(message(2));
+
+        repository.findRecent(List.of(new ConversationKey(1L, 2L)), 10);
+
+        assertThat(delegate.persisted()).extracting(LoggedMessage::getRequestText).containsExactly("m1", "m2");
+        assertThat(repository.stats().queued()).isEqualTo(1);
+    }
+
+    @Test
+    void writesSynchronouslyWhenQueueStaysFull() throws Exception {
+        delegate.gate = new CountDownLatch(1);
+        repository = new WriteBehindMessageRepository(delegate, settings(2, Duration.ofMinutes(1), 2));
+        repository.save(message(1));
+        repository.save(message(2));
+        assertThat(delegate.writing.await(5, TimeUnit.SECONDS)).isTrue();
+        repository.save(message(3));
+        repository.save(message(4));
+
+        repository.save(message(5));
+
+        assertThat(delegate.singleSaves).extracting(LoggedMessage::getRequestText).containsExactly("m5");
+        assertThat(repository.stats().synchronousWrites()).isEqualTo(1);
+    }
+
+    @Test
+    void closeWritesEverythingStillQueued() {
+        repository = new WriteBehindMessageRepository(delegate, settings(100, Duration.ofMinutes(1), 1000));
+        for (int i = 0; i < 5; i++) {
+            repository.save(message(i));
+        }
+
+        repository.close();
+
+        assertThat(delegate.persisted()).hasSize(5);
+        assertThat(repository.stats().written()).isEqualTo(5);
+
+        repository.save(message(6));
+        assertThat(delegate.singleSaves).hasSize(1);
+    }
+
+    @Test
+    void countsFailedBatchesAndKeepsWriting() throws Exception {
+        delegate.failNext = true;
+        repository = new WriteBehindMessageRepository(delegate, settings(1, Duration.ofMinutes(1), 10));
+
+        repository.save(message(1));
+        repository.save(message(2));
+
+        assertThat(delegate.awaitBatches(1)).isTrue();
+        repository.close();
+        assertThat(repository.stats().failed()).isEqualTo(1);
+        assertThat(repository.stats().written()).isEqualTo(1);
+    }
+
+    private static WriteBehindMessageRepository.Settings settings(int batchSize, Duration interval, int maxQueued) {
+        return new WriteBehindMessageRepository.Settings(batchSize, interval, maxQueued, Duration.ofMillis(20));
+    }
+
+    private static LoggedMessage message(int index) {
+        return new LoggedMessage(2L, 1L, "m" + index, "r" + index);
+    }
+
+    private static final class RecordingRepository implements MessageRepository {
+        private final List<List<LoggedMessage>> batches = new CopyOnWriteArrayList<>();
+        private final List<LoggedMessage> singleSaves = new CopyOnWriteArrayList<>();
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private volatile boolean failNext;
+
+        @Override
+        public void save(LoggedMessage message) {
+            singleSaves.add(message);
+        }
+
+        @Override
+        public void saveAll(List<LoggedMessage> messages) {
+            writing.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (failNext) {
+                failNext = false;
+                throw new MessagePersistenceException("database unavailable", null);
+            }
+            batches.add(List.copyOf(messages));
+        }
+
+        @Override
+        public List<LoggedMessage> findRecent(long chatId, long userId, int limit) {
+            return persisted();
+        }
+
+        private List<LoggedMessage> persisted() {
+            List<LoggedMessage> all = new ArrayList<>();
+            batches.forEach(all::addAll);
+            all.addAll(singleSaves);
+            return all;
+        }
+
+        private boolean awaitBatches(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (batches.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            return batches.size() >= count;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.salex.telegram.infrastructure.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void queuesCallersBeyondTheLimitAndHandsOverReleasedPermits() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, Duration.ofSeconds(10));
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire().join();
+        limiter.acquire().join();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> waiting = limiter.acquire();
+
+        assertThat(waiting).isNotDone();
+        assertThat(limiter.stats().queued()).isEqualTo(1);
+
+        first.release();
+
+        assertThat(waiting).isCompleted();
+        assertThat(limiter.stats().inFlight()).isEqualTo(2);
+        assertThat(limiter.stats().queued()).isZero();
+    }
+
+    @Test
+    void rejectsCallersWhenTheQueueIsFull() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, Duration.ofSeconds(10));
+        limiter.acquire().join();
+        limiter.acquire();
+
+        assertThat(limiter.acquire())
+                .failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(limiter.stats().rejected()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsCallersThatWaitTooLong() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 5, Duration.ofMillis(50));
+        limiter.acquire().join();
+
+        assertThatThrownBy(() -> limiter.acquire().get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(limiter.stats().queued()).isZero();
+    }
+
+    @Test
+    void halvesTheLimitWhenACallIsDropped() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 0, Duration.ofSeconds(1));
+
+        limiter.acquire().join().onDropped();
+        assertThat(limiter.stats().limit()).isEqualTo(5d);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire().join();
+        }
+        assertThat(limiter.acquire()).isCompletedExceptionally();
+        assertThat(limiter.stats().inFlight()).isEqualTo(5);
+    }
+
+    @Test
+    void growsOnlyWhenTheLimitIsInUse() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 0, Duration.ofSeconds(1));
+
+        limiter.acquire().join().onSuccess();
+        assertThat(limiter.stats().limit()).isEqualTo(4d);
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire().join();
+        AdaptiveConcurrencyLimiter.Permit second = limiter.acquire().join();
+        second.onSuccess();
+        first.onSuccess();
+
+        assertThat(limiter.stats().limit()).isEqualTo(4.25d);
+    }
+
+    @Test
+    void awaitBlocksUntilAPermitIsReleased() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, Duration.ofSeconds(5));
+        AdaptiveConcurrencyLimiter.Permit held = limiter.await();
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(held::onSuccess);
+
+        AdaptiveConcurrencyLimiter.Permit next = limiter.await();
+
+        assertThat(next).isNotNull();
+        assertThat(limiter.stats().averageQueueWaitMillis()).isPositive();
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int limit, int maxQueued, Duration maxWait) {
+        return new AdaptiveConcurrencyLimiter("test",
+                new AdaptiveConcurrencyLimiter.Settings(limit, 1, 20, 0.5, maxQueued, maxWait));
+    }
+}
@@ -0,0 +1,90 @@
+package com.salex.telegram.infrastructure.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpenAiRateLimitTrackerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void doesNotPaceBeforeTheProviderReportsLimits() {
+        OpenAiRateLimitTracker tracker = tracker(0.05, Duration.ofSeconds(20));
+
+        assertThat(tracker.reserve(10_000)).isZero();
+        assertThat(tracker.stats().remainingRequests()).isEqualTo(-1);
+    }
+
+    @Test
+    void pacesRequestsOnceTheRemainingQuotaReachesTheHeadroom() {
+        OpenAiRateLimitTracker tracker = tracker(0.05, Duration.ofSeconds(20));
+        // 56 of 60 requests used, refilled within 56s: one request per second.
+        tracker.update(headers(Map.of(
+                "x-ratelimit-limit-requests", "60",
+                "x-ratelimit-remaining-requests", "4",
+                "x-ratelimit-reset-requests", "56s")));
+
+        assertThat(tracker.reserve(0)).isZero();
+        assertThat(tracker.reserve(0)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(tracker.reserve(0)).isEqualTo(Duration.ofSeconds(2));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+
+        assertThat(tracker.reserve(0)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(tracker.stats().pacedRequests()).isEqualTo(3);
+    }
+
+    @Test
+    void reservesTheEstimatedPromptTokens() {
+        OpenAiRateLimitTracker tracker = tracker(0d, Duration.ofSeconds(20));
+        // 900 of 1000 tokens used, refilled within 900ms: one token per millisecond.
+        tracker.update(headers(Map.of(
+                "x-ratelimit-limit-tokens", "1000",
+                "x-ratelimit-remaining-tokens", "100",
+                "x-ratelimit-reset-tokens", "900ms")));
+
+        assertThat(tracker.reserve(100)).isZero();
+        assertThat(tracker.reserve(50)).isEqualTo(Duration.ofMillis(50));
+        assertThat(tracker.stats().remainingTokens()).isEqualTo(-50);
+    }
+
+    @Test
+    void capsTheDelayAtTheConfiguredMaximum() {
+        OpenAiRateLimitTracker tracker = tracker(0d, Duration.ofSeconds(5));
+        tracker.update(headers(Map.of(
+                "x-ratelimit-limit-tokens", "10000",
+                "x-ratelimit-remaining-tokens", "0",
+                "x-ratelimit-reset-tokens", "1h0m0s")));
+
+        assertThat(tracker.reserve(5_000)).isEqualTo(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void parsesResetDurations() {
+        assertThat(OpenAiRateLimitTracker.parseReset("20ms")).hasValue(TimeUnit.MILLISECONDS.toNanos(20));
+        assertThat(OpenAiRateLimitTracker.parseReset("6m0s")).hasValue(TimeUnit.MINUTES.toNanos(6));
+        assertThat(OpenAiRateLimitTracker.parseReset("1h2m3.5s"))
+                .hasValue(TimeUnit.SECONDS.toNanos(3723) + TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(OpenAiRateLimitTracker.parseReset("soon")).isEmpty();
+        assertThat(OpenAiRateLimitTracker.parseReset("5s later")).isEmpty();
+    }
+
+    private OpenAiRateLimitTracker tracker(double headroom, Duration maxDelay) {
+        return new OpenAiRateLimitTracker(new OpenAiRateLimitTracker.Settings(headroom, maxDelay), clock::get);
+    }
+
+    private static HttpHeaders headers(Map<String, String> values) {
+        return HttpHeaders.of(values.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> List.of(entry.getValue()))),
+                (name, value) -> true);
+    }
+}
@@ -0,0 +1,60 @@
+package com.salex.telegram.infrastructure.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void allowsBurstUpToCapacityThenRefillsOverTime() {
+        TokenBucket bucket = new TokenBucket(3, 1, clock::get);
+
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void reservationsQueueBehindEachOther() {
+        TokenBucket bucket = new TokenBucket(1, 2, clock::get);
+
+        assertThat(bucket.reserve(1)).isZero();
+        assertThat(bucket.reserve(1)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(bucket.reserve(1)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1_000));
+    }
+
+    @Test
+    void pauseBlocksTokensForTheRequestedPeriod() {
+        TokenBucket bucket = new TokenBucket(5, 10, clock::get);
+
+        bucket.pause(2, TimeUnit.SECONDS);
+
+        assertThat(bucket.tryAcquire()).isFalse();
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_900));
+        assertThat(bucket.tryAcquire()).isFalse();
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(bucket.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void reportsFullOnceIdleLongEnough() {
+        TokenBucket bucket = new TokenBucket(2, 1, clock::get);
+        bucket.tryAcquire();
+
+        assertThat(bucket.isFull()).isFalse();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(bucket.isFull()).isTrue();
+    }
+}
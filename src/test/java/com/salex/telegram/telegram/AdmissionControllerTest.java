@@ -0,0 +1,91 @@
+package com.salex.telegram.telegram;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.salex.telegram.telegram.AdmissionController.Decision.ADMIT;
+import static com.salex.telegram.telegram.AdmissionController.Decision.REJECT;
+import static com.salex.telegram.telegram.AdmissionController.Decision.REJECT_WITH_NOTICE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControllerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void limitsFloodingUserWithSingleNoticePerLimitedPeriod() {
+        AdmissionController controller = new AdmissionController(settings(true, 2, 60, 100, 6_000), clock::get);
+
+        assertThat(controller.admit(1L, 42L)).isEqualTo(ADMIT);
+        assertThat(controller.admit(1L, 42L)).isEqualTo(ADMIT);
+        assertThat(controller.admit(1L, 42L)).isEqualTo(REJECT_WITH_NOTICE);
+        assertThat(controller.admit(1L, 42L)).isEqualTo(REJECT);
+        assertThat(controller.admit(1L, 7L)).isEqualTo(ADMIT);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(controller.admit(1L, 42L)).isEqualTo(ADMIT);
+        assertThat(controller.admit(1L, 42L)).isEqualTo(REJECT_WITH_NOTICE);
+        assertThat(controller.rejectedCount()).isEqualTo(3);
+        assertThat(controller.admittedCount()).isEqualTo(4);
+    }
+
+    @Test
+    void limitsBusyChatAcrossDifferentUsers() {
+        AdmissionController controller = new AdmissionController(settings(true, 10, 600, 2, 60), clock::get);
+
+        assertThat(controller.admit(-100L, 1L)).isEqualTo(ADMIT);
+        assertThat(controller.admit(-100L, 2L)).isEqualTo(ADMIT);
+        assertThat(controller.admit(-100L, 3L)).isEqualTo(REJECT_WITH_NOTICE);
+        assertThat(controller.admit(-100L, 4L)).isEqualTo(REJECT);
+        assertThat(controller.admit(-200L, 4L)).isEqualTo(ADMIT);
+    }
+
+    @Test
+    void chatRejectionDoesNotChargeTheSender() {
+        AdmissionController controller = new AdmissionController(settings(true, 2, 60, 1, 60), clock::get);
+
+        assertThat(controller.admit(-100L, 1L)).isEqualTo(ADMIT);
+        assertThat(controller.admit(-100L, 2L)).isEqualTo(REJECT_WITH_NOTICE);
+        assertThat(controller.admit(-100L, 2L)).isEqualTo(REJECT);
+
+        assertThat(controller.admit(-200L, 2L)).isEqualTo(ADMIT);
+        assertThat(controller.admit(-300L, 2L)).isEqualTo(ADMIT);
+    }
+
+    @Test
+    void sweepsRefilledBucketsAtMostOncePerInterval() {
+        AdmissionController controller = new AdmissionController(settings(true, 5, 600, 5, 600), clock::get);
+        for (long chat = 1; chat <= 4_100; chat++) {
+            controller.admit(chat, chat);
+        }
+        assertThat(controller.trackedBuckets()).isEqualTo(8_200);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        controller.admit(-1L, -1L);
+        assertThat(controller.trackedBuckets()).isEqualTo(8_202);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+        controller.admit(-2L, -2L);
+        assertThat(controller.trackedBuckets()).isEqualTo(2);
+    }
+
+    @Test
+    void admitsEverythingWhenDisabled() {
+        AdmissionController controller = new AdmissionController(settings(false, 1, 1, 1, 1), clock::get);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(controller.admit(1L, 42L)).isEqualTo(ADMIT);
+        }
+    }
+
+    private static AdmissionController.Settings settings(boolean enabled,
+                                                         int userBurst,
+                                                         double userPerMinute,
+                                                         int chatBurst,
+                                                         double chatPerMinute) {
+        return new AdmissionController.Settings(enabled, userBurst, userPerMinute, chatBurst, chatPerMinute, "slow down");
+    }
+}
@@ -0,0 +1,90 @@
+package com.salex.telegram.telegram;
+
+import com.salex.telegram.application.services.ExecutionLane;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExecutionLanesTest {
+
+    private final ExecutionLanes lanes = new ExecutionLanes(Map.of(
+            ExecutionLane.LLM, new ExecutionLanes.Settings(2, 10, 100),
+            ExecutionLane.MEDIA, new ExecutionLanes.Settings(1, 10, 100)
+    ));
+
+    @AfterEach
+    void tearDown() {
+        lanes.close();
+    }
+
+    @Test
+    void fastWorkRunsInlineWhileSlowLaneIsSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        for (long chat = 1; chat <= 5; chat++) {
+            lanes.execute(ExecutionLane.LLM, chat, () -> await(release));
+        }
+
+        Thread caller = Thread.currentThread();
+        Thread[] ranOn = new Thread[1];
+        long started = System.nanoTime();
+        assertThat(lanes.execute(ExecutionLane.FAST, 1L, () -> ranOn[0] = Thread.currentThread())).isTrue();
+
+        assertThat(ranOn[0]).isSameAs(caller);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(50);
+        release.countDown();
+    }
+
+    @Test
+    void capsConcurrencyPerLane() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(6);
+        for (long chat = 1; chat <= 6; chat++) {
+            lanes.execute(ExecutionLane.LLM, chat, () -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(50);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(peak.get()).isEqualTo(2);
+        // The lane counts a task as completed after the task itself returns, so wait for the counter too.
+        ExecutionLanes.Stats stats = awaitCompleted(ExecutionLane.LLM, 6);
+        assertThat(stats.completed()).isEqualTo(6);
+        assertThat(stats.maxWaitMillis()).isGreaterThan(0d);
+    }
+
+    private ExecutionLanes.Stats awaitCompleted(ExecutionLane lane, long expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        ExecutionLanes.Stats stats = lanes.stats().get(lane);
+        while (stats.completed() < expected && System.nanoTime() < deadline) {
+            sleep(5);
+            stats = lanes.stats().get(lane);
+        }
+        return stats;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
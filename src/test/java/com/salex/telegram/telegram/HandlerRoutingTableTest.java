@@ -0,0 +1,76 @@
+package com.salex.telegram.telegram;
+
+import com.salex.telegram.application.services.UpdateHandlingService;
+import com.salex.telegram.application.services.UpdateKind;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.Voice;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HandlerRoutingTableTest {
+
+    @Test
+    void ordersCandidatesByPriorityAndFiltersByKind() {
+        UpdateHandlingService relay = handler(EnumSet.of(UpdateKind.TEXT), 100);
+        UpdateHandlingService ticketing = handler(EnumSet.of(UpdateKind.TEXT, UpdateKind.REPLY_TO_MEDIA), 10);
+        UpdateHandlingService transcription = handler(EnumSet.of(UpdateKind.MEDIA, UpdateKind.REPLY_TO_MEDIA), 20);
+
+        HandlerRoutingTable table = new HandlerRoutingTable(List.of(relay, transcription, ticketing));
+
+        assertThat(table.candidates(UpdateKind.TEXT)).containsExactly(ticketing, relay);
+        assertThat(table.candidates(UpdateKind.MEDIA)).containsExactly(transcription);
+        assertThat(table.candidates(UpdateKind.REPLY_TO_MEDIA)).containsExactly(ticketing, transcription);
+        assertThat(table.candidates(UpdateKind.OTHER)).isEmpty();
+    }
+
+    @Test
+    void classifiesUpdatesOnce() {
+        Message voice = new Message();
+        voice.setVoice(new Voice());
+        Message reply = new Message();
+        reply.setText("transcribe this");
+        reply.setReplyToMessage(voice);
+        Message text = new Message();
+        text.setText("hello");
+
+        assertThat(UpdateKind.of(update(voice))).isEqualTo(UpdateKind.MEDIA);
+        assertThat(UpdateKind.of(update(reply))).isEqualTo(UpdateKind.REPLY_TO_MEDIA);
+        assertThat(UpdateKind.of(update(text))).isEqualTo(UpdateKind.TEXT);
+        assertThat(UpdateKind.of(new Update())).isEqualTo(UpdateKind.OTHER);
+    }
+
+    private static Update update(Message message) {
+        Update update = new Update();
+        update.setMessage(message);
+        return update;
+    }
+
+    private static UpdateHandlingService handler(Set<UpdateKind> kinds, int priority) {
+        return new UpdateHandlingService() {
+            @Override
+            public Set<UpdateKind> kinds() {
+                return kinds;
+            }
+
+            @Override
+            public int priority() {
+                return priority;
+            }
+
+            @Override
+            public boolean canHandle(Update update, long userId) {
+                return true;
+            }
+
+            @Override
+            public void handle(Update update, SalexTelegramBot bot, long userId) {
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.salex.telegram.telegram;
+
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SalexTelegramBotTest {
+
+    @Test
+    void keysMessagesAndEditsByChat() {
+        Update message = new Update();
+        message.setMessage(messageIn(-100L));
+        Update edited = new Update();
+        edited.setEditedMessage(messageIn(-200L));
+
+        assertThat(SalexTelegramBot.chatKey(message)).isEqualTo(-100L);
+        assertThat(SalexTelegramBot.chatKey(edited)).isEqualTo(-200L);
+    }
+
+    @Test
+    void keysCallbackQueriesByTheChatOfTheirMessage() {
+        CallbackQuery callbackQuery = new CallbackQuery();
+        callbackQuery.setMessage(messageIn(-300L));
+        callbackQuery.setFrom(user(7L));
+        Update update = new Update();
+        update.setCallbackQuery(callbackQuery);
+
+        assertThat(SalexTelegramBot.chatKey(update)).isEqualTo(-300L);
+    }
+
+    @Test
+    void keysUpdatesWithoutChatByUser() {
+        CallbackQuery callbackQuery = new CallbackQuery();
+        callbackQuery.setFrom(user(7L));
+        Update callback = new Update();
+        callback.setCallbackQuery(callbackQuery);
+        InlineQuery inlineQuery = new InlineQuery();
+        inlineQuery.setFrom(user(8L));
+        Update inline = new Update();
+        inline.setInlineQuery(inlineQuery);
+
+        assertThat(SalexTelegramBot.chatKey(callback)).isEqualTo(7L);
+        assertThat(SalexTelegramBot.chatKey(inline)).isEqualTo(8L);
+    }
+
+    private static Message messageIn(long chatId) {
+        Chat chat = new Chat();
+        chat.setId(chatId);
+        Message message = new Message();
+        message.setChat(chat);
+        return message;
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+}
@@ -0,0 +1,143 @@
+package com.salex.telegram.telegram;
+
+import com.salex.telegram.infrastructure.updates.UpdateOffsetStore;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpdateDeduplicatorTest {
+
+    private final InMemoryOffsetStore store = new InMemoryOffsetStore();
+
+    @Test
+    void rejectsRepeatedUpdateIdsWithinWindow() {
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(store, "bot", 8, 0);
+
+        assertThat(deduplicator.firstSeen(100)).isTrue();
+        assertThat(deduplicator.firstSeen(102)).isTrue();
+        assertThat(deduplicator.firstSeen(101)).isTrue();
+        assertThat(deduplicator.firstSeen(100)).isFalse();
+        assertThat(deduplicator.firstSeen(102)).isFalse();
+        assertThat(deduplicator.duplicatesRejected()).isEqualTo(2);
+    }
+
+    @Test
+    void forgottenIdsAreAcceptedAgain() {
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(store, "bot", 8, 0);
+
+        assertThat(deduplicator.firstSeen(300)).isTrue();
+        deduplicator.forget(300);
+
+        assertThat(deduplicator.firstSeen(300)).isTrue();
+        assertThat(deduplicator.firstSeen(300)).isFalse();
+    }
+
+    @Test
+    void treatsIdsOlderThanWindowAsReplays() {
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(store, "bot", 8, 0);
+
+        assertThat(deduplicator.firstSeen(200)).isTrue();
+        assertThat(deduplicator.firstSeen(190)).isFalse();
+        assertThat(deduplicator.firstSeen(195)).isTrue();
+    }
+
+    @Test
+    void persistedHighWaterMarkFiltersReplaysAfterRestart() {
+        UpdateDeduplicator first = new UpdateDeduplicator(store, "bot", 8, 0);
+        first.firstSeen(500);
+        first.firstSeen(501);
+        first.close();
+
+        assertThat(store.marks).containsEntry("bot", 501L);
+
+        UpdateDeduplicator restarted = new UpdateDeduplicator(store, "bot", 8, 0);
+        assertThat(restarted.firstSeen(500)).isFalse();
+        assertThat(restarted.firstSeen(501)).isFalse();
+        assertThat(restarted.firstSeen(502)).isTrue();
+    }
+
+    @Test
+    void forgottenIdIsAcceptedAfterRestart() {
+        UpdateDeduplicator first = new UpdateDeduplicator(store, "bot", 8, 0);
+        first.firstSeen(500);
+        first.firstSeen(501);
+        first.flush();
+        first.forget(501);
+        first.close();
+
+        assertThat(store.marks).containsEntry("bot", 500L);
+
+        UpdateDeduplicator restarted = new UpdateDeduplicator(store, "bot", 8, 0);
+        assertThat(restarted.firstSeen(500)).isFalse();
+        assertThat(restarted.firstSeen(501)).isTrue();
+    }
+
+    @Test
+    void redeliveredForgottenIdReleasesTheMark() {
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(store, "bot", 8, 0);
+        deduplicator.firstSeen(700);
+        deduplicator.firstSeen(701);
+        deduplicator.forget(700);
+        deduplicator.flush();
+
+        assertThat(store.marks).containsEntry("bot", 699L);
+
+        assertThat(deduplicator.firstSeen(700)).isTrue();
+        assertThat(deduplicator.firstSeen(700)).isFalse();
+        deduplicator.close();
+        assertThat(store.marks).containsEntry("bot", 701L);
+    }
+
+    @Test
+    void restartedUpdateSequenceBelowPersistedMarkIsAccepted() {
+        store.marks.put("bot", 900_000L);
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(store, "bot", 8, 0);
+
+        assertThat(deduplicator.firstSeen(899_995L)).isFalse();
+        assertThat(deduplicator.firstSeen(1_000L)).isTrue();
+        assertThat(deduplicator.firstSeen(1_001L)).isTrue();
+        assertThat(deduplicator.firstSeen(1_000L)).isFalse();
+
+        deduplicator.close();
+        assertThat(store.marks).containsEntry("bot", 1_001L);
+    }
+
+    @Test
+    void flushOnlyWritesWhenMarkAdvances() {
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(store, "bot", 8, 0);
+        deduplicator.firstSeen(10);
+
+        deduplicator.flush();
+        deduplicator.flush();
+
+        assertThat(store.saves).isEqualTo(1);
+    }
+
+    private static final class InMemoryOffsetStore implements UpdateOffsetStore {
+        private final Map<String, Long> marks = new HashMap<>();
+        private int saves;
+
+        @Override
+        public OptionalLong load(String botKey) {
+            Long mark = marks.get(botKey);
+            return mark == null ? OptionalLong.empty() : OptionalLong.of(mark);
+        }
+
+        @Override
+        public void save(String botKey, long updateId) throws SQLException {
+            saves++;
+            marks.merge(botKey, updateId, Math::max);
+        }
+
+        @Override
+        public void reset(String botKey, long updateId) {
+            saves++;
+            marks.put(botKey, updateId);
+        }
+    }
+}
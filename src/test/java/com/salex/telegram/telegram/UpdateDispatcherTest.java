@@ -0,0 +1,85 @@
+package com.salex.telegram.telegram;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpdateDispatcherTest {
+
+    private UpdateDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+    }
+
+    @Test
+    void tasksForTheSameChatRunInSubmissionOrder() throws Exception {
+        dispatcher = new UpdateDispatcher("test", 100, 1_000);
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(20);
+
+        for (int i = 0; i < 20; i++) {
+            int value = i;
+            dispatcher.submit(1L, () -> {
+                seen.add(value);
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(seen).containsExactlyElementsOf(List.of(
+                0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19));
+    }
+
+    @Test
+    void slowChatDoesNotBlockOtherChats() throws Exception {
+        dispatcher = new UpdateDispatcher("test", 100, 1_000);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherChatDone = new CountDownLatch(1);
+
+        dispatcher.submit(1L, () -> awaitQuietly(release));
+        dispatcher.submit(2L, otherChatDone::countDown);
+
+        assertThat(otherChatDone.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+    }
+
+    @Test
+    void rejectsWorkOnceChatQueueIsFull() {
+        dispatcher = new UpdateDispatcher("test", 2, 1_000);
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertThat(dispatcher.submit(1L, () -> awaitQuietly(release))).isTrue();
+        awaitDrainStarted();
+        assertThat(dispatcher.submit(1L, () -> { })).isTrue();
+        assertThat(dispatcher.submit(1L, () -> { })).isTrue();
+        assertThat(dispatcher.submit(1L, () -> { })).isFalse();
+        assertThat(dispatcher.rejectedTasks()).isEqualTo(1L);
+
+        release.countDown();
+    }
+
+    private void awaitDrainStarted() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (dispatcher.queuedTasks() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.salex.telegram.telegram;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebhookUpdateServerTest {
+
+    private static final String RECORDED_UPDATE = """
+            {
+              "update_id": 9001,
+              "message": {
+                "message_id": 12,
+                "date": 1719830000,
+                "chat": {"id": 777, "type": "private"},
+                "from": {"id": 42, "is_bot": false, "first_name": "Alice", "username": "alice"},
+                "text": "hello bot"
+              }
+            }
+            """;
+
+    private final List<Update> received = new CopyOnWriteArrayList<>();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private WebhookUpdateServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void acceptsRecordedUpdateAndForwardsItToSink() throws Exception {
+        server = new WebhookUpdateServer("127.0.0.1", 0, "/hook", "s3cret", 64 * 1024, received::add);
+        server.start();
+
+        HttpResponse<Void> response = post("/hook", RECORDED_UPDATE, "s3cret");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(received).hasSize(1);
+        Update update = received.get(0);
+        assertThat(update.getUpdateId()).isEqualTo(9001);
+        assertThat(update.getMessage().getChatId()).isEqualTo(777L);
+        assertThat(update.getMessage().getText()).isEqualTo("hello bot");
+    }
+
+    @Test
+    void rejectsCallsWithWrongSecret() throws Exception {
+        server = new WebhookUpdateServer("127.0.0.1", 0, "/hook", "s3cret", 64 * 1024, received::add);
+        server.start();
+
+        HttpResponse<Void> response = post("/hook", RECORDED_UPDATE, "wrong");
+
+        assertThat(response.statusCode()).isEqualTo(401);
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void asksTelegramToRetryWhenSinkIsFull() throws Exception {
+        server = new WebhookUpdateServer("127.0.0.1", 0, "/hook", "s3cret", 64 * 1024, update -> false);
+        server.start();
+
+        HttpResponse<Void> response = post("/hook", RECORDED_UPDATE, "s3cret");
+
+        assertThat(response.statusCode()).isEqualTo(503);
+        assertThat(response.headers().firstValue("Retry-After")).contains("1");
+    }
+
+    @Test
+    void rejectsMalformedPayloads() throws Exception {
+        server = new WebhookUpdateServer("127.0.0.1", 0, "/hook", null, 64 * 1024, received::add);
+        server.start();
+
+        HttpResponse<Void> response = post("/hook", "{not json", null);
+
+        assertThat(response.statusCode()).isEqualTo(400);
+        assertThat(received).isEmpty();
+    }
+
+    private HttpResponse<Void> post(String path, String body, String secret) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (secret != null) {
+            builder.header("X-Telegram-Bot-Api-Secret-Token", secret);
+        }
+        return httpClient.send(builder.build(), HttpResponse.BodyHandlers.discarding());
+    }
+}
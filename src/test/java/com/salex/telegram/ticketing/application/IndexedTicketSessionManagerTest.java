@@ -0,0 +1,56 @@
+package com.salex.telegram.ticketing.application;
+
+import com.salex.telegram.ticketing.domain.TicketDraft;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class IndexedTicketSessionManagerTest {
+
+    private final TicketSessionManager delegate = mock(TicketSessionManager.class);
+
+    @Test
+    void answersSessionChecksFromIndexWithoutTouchingDelegate() {
+        when(delegate.listActiveSessions()).thenReturn(List.of(new TicketSessionKey(1L, 2L)));
+        IndexedTicketSessionManager manager = new IndexedTicketSessionManager(delegate);
+
+        assertThat(manager.hasSession(1L, 2L)).isTrue();
+        assertThat(manager.hasSession(1L, 3L)).isFalse();
+        assertThat(manager.getDraft(1L, 3L)).isEmpty();
+
+        verify(delegate).listActiveSessions();
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    void keepsIndexInSyncWithOpenAndClose() {
+        when(delegate.listActiveSessions()).thenReturn(List.of());
+        IndexedTicketSessionManager manager = new IndexedTicketSessionManager(delegate);
+
+        manager.openSession(5L, 6L);
+        assertThat(manager.hasSession(5L, 6L)).isTrue();
+
+        TicketDraft draft = new TicketDraft();
+        when(delegate.getDraft(5L, 6L)).thenReturn(Optional.of(draft));
+        assertThat(manager.getDraft(5L, 6L)).contains(draft);
+
+        manager.closeSession(5L, 6L);
+        assertThat(manager.hasSession(5L, 6L)).isFalse();
+        verify(delegate).openSession(5L, 6L);
+        verify(delegate).closeSession(5L, 6L);
+    }
+
+    @Test
+    void fallsBackToDelegateWhenSeedingFails() {
+        when(delegate.listActiveSessions()).thenThrow(new RuntimeException("db down"));
+        when(delegate.hasSession(7L, 8L)).thenReturn(true);
+        IndexedTicketSessionManager manager = new IndexedTicketSessionManager(delegate);
+
+        assertThat(manager.hasSession(7L, 8L)).isTrue();
+        verify(delegate).hasSession(7L, 8L);
+    }
+}
@@ -0,0 +1,93 @@
+package com.salex.telegram.ticketing.infrastructure.failover;
+
+import com.salex.telegram.infrastructure.database.ConnectionProvider;
+import com.salex.telegram.infrastructure.database.DatabaseHealthMonitor;
+import com.salex.telegram.ticketing.domain.Ticket;
+import com.salex.telegram.ticketing.domain.TicketPriority;
+import com.salex.telegram.ticketing.domain.TicketStatus;
+import com.salex.telegram.ticketing.infrastructure.memory.InMemoryTicketRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class FailoverTicketRepositoryTest {
+
+    private final InMemoryTicketRepository primary = new InMemoryTicketRepository(new AtomicLong(100L)::getAndIncrement);
+    private final DatabaseHealthMonitor monitor =
+            new DatabaseHealthMonitor(mock(ConnectionProvider.class), 1, Duration.ofHours(1));
+    private final FailoverTicketRepository repository =
+            new FailoverTicketRepository(primary, monitor, userId -> userId < 0 ? 42L : userId);
+
+    @AfterEach
+    void tearDown() {
+        monitor.close();
+    }
+
+    @Test
+    void writesToTheDatabaseWhileItIsAvailable() {
+        Ticket created = repository.createDraftTicket(draft(42L));
+
+        assertThat(created.getId()).isEqualTo(100L);
+        assertThat(primary.findById(100L)).isPresent();
+    }
+
+    @Test
+    void createsProvisionalTicketsDuringAnOutage() {
+        monitor.reportFailure(new SQLException("refused", "08001"));
+
+        Ticket created = repository.createDraftTicket(draft(-7L));
+
+        assertThat(created.getId()).isNegative();
+        assertThat(repository.findById(created.getId())).contains(created);
+        assertThat(repository.findAllForUser(-7L)).containsExactly(created);
+        assertThat(primary.findAllForUser(42L)).isEmpty();
+    }
+
+    @Test
+    void reconcileInsertsProvisionalTicketsOnceWithTheirLatestStateAndDatabaseOwner() {
+        monitor.reportFailure(new SQLException("refused", "08001"));
+        Ticket created = repository.createDraftTicket(draft(-7L));
+        repository.save(created.toBuilder().status(TicketStatus.IN_PROGRESS).build());
+
+        repository.reconcile();
+        repository.reconcile();
+
+        assertThat(primary.findAllForUser(42L)).singleElement().satisfies(stored -> {
+            assertThat(stored.getId()).isEqualTo(100L);
+            assertThat(stored.getStatus()).isEqualTo(TicketStatus.IN_PROGRESS);
+        });
+    }
+
+    @Test
+    void reconcileAppliesUpdatesToTicketsStoredBeforeTheOutage() {
+        Ticket stored = repository.createDraftTicket(draft(42L));
+        monitor.reportFailure(new SQLException("refused", "08001"));
+        repository.save(stored.toBuilder().status(TicketStatus.CLOSED).build());
+
+        assertThat(primary.findById(stored.getId())).map(Ticket::getStatus).hasValue(TicketStatus.OPEN);
+
+        repository.reconcile();
+
+        assertThat(primary.findById(stored.getId())).map(Ticket::getStatus).hasValue(TicketStatus.CLOSED);
+    }
+
+    private static Ticket draft(long createdBy) {
+        Instant now = Instant.parse("2026-01-01T00:00:00Z");
+        return Ticket.builder()
+                .status(TicketStatus.OPEN)
+                .priority(TicketPriority.MEDIUM)
+                .createdAt(now)
+                .updatedAt(now)
+                .createdBy(createdBy)
+                .summary("Printer")
+                .details("Out of toner")
+                .build();
+    }
+}
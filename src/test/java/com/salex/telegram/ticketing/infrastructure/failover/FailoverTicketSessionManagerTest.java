@@ -0,0 +1,92 @@
+package com.salex.telegram.ticketing.infrastructure.failover;
+
+import com.salex.telegram.infrastructure.database.ConnectionProvider;
+import com.salex.telegram.infrastructure.database.DatabaseHealthMonitor;
+import com.salex.telegram.infrastructure.database.ProvisionalIdResolver;
+import com.salex.telegram.ticketing.domain.TicketDraft;
+import com.salex.telegram.ticketing.infrastructure.memory.InMemoryTicketSessionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class FailoverTicketSessionManagerTest {
+
+    private final InMemoryTicketSessionManager primary = new InMemoryTicketSessionManager();
+    private final DatabaseHealthMonitor monitor =
+            new DatabaseHealthMonitor(mock(ConnectionProvider.class), 1, Duration.ofHours(1));
+
+    @AfterEach
+    void tearDown() {
+        monitor.close();
+    }
+
+    @Test
+    void tracksSessionsInMemoryDuringAnOutage() {
+        FailoverTicketSessionManager sessions = sessions(ticketId -> ticketId);
+        monitor.reportFailure(new SQLException("refused", "08001"));
+
+        sessions.openSession(10L, -7L);
+
+        assertThat(sessions.hasSession(10L, -7L)).isTrue();
+        assertThat(sessions.getDraft(10L, -7L)).isPresent();
+        assertThat(primary.listActiveSessions()).isEmpty();
+    }
+
+    @Test
+    void reconcileMovesSessionsWithDatabaseIdentifiers() {
+        FailoverTicketSessionManager sessions = sessions(ticketId -> ticketId < 0 ? 100L : ticketId);
+        monitor.reportFailure(new SQLException("refused", "08001"));
+        sessions.openSession(10L, -7L);
+        TicketDraft draft = new TicketDraft();
+        draft.put(TicketDraft.Step.SUMMARY, "Printer");
+        draft.setTicketId(-1L);
+        sessions.updateDraft(10L, -7L, draft);
+
+        sessions.reconcile();
+
+        assertThat(primary.getDraft(10L, 42L)).hasValueSatisfying(stored -> {
+            assertThat(stored.get(TicketDraft.Step.SUMMARY)).isEqualTo("Printer");
+            assertThat(stored.getTicketId()).isEqualTo(100L);
+        });
+        assertThat(sessions.hasSession(10L, -7L)).isFalse();
+    }
+
+    @Test
+    void reconcileClosesSessionsClosedDuringTheOutage() {
+        FailoverTicketSessionManager sessions = sessions(ticketId -> ticketId);
+        sessions.openSession(10L, 42L);
+        monitor.reportFailure(new SQLException("refused", "08001"));
+
+        sessions.closeSession(10L, 42L);
+        assertThat(primary.hasSession(10L, 42L)).isTrue();
+
+        sessions.reconcile();
+
+        assertThat(primary.hasSession(10L, 42L)).isFalse();
+    }
+
+    @Test
+    void keepsSessionsPendingWhenTheirTicketIsNotWrittenYet() {
+        FailoverTicketSessionManager sessions = sessions(ticketId -> {
+            throw new SQLException("Ticket " + ticketId + " has not been written to the database yet");
+        });
+        monitor.reportFailure(new SQLException("refused", "08001"));
+        TicketDraft draft = new TicketDraft();
+        draft.setTicketId(-1L);
+        sessions.updateDraft(10L, 42L, draft);
+
+        assertThatThrownBy(sessions::reconcile).isInstanceOf(IllegalStateException.class);
+
+        assertThat(sessions.getDraft(10L, 42L)).isPresent();
+    }
+
+    private FailoverTicketSessionManager sessions(ProvisionalIdResolver ticketIds) {
+        return new FailoverTicketSessionManager(primary, monitor, userId -> userId < 0 ? 42L : userId, ticketIds);
+    }
+}
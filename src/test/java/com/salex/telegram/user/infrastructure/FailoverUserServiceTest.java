@@ -0,0 +1,106 @@
+package com.salex.telegram.user.infrastructure;
+
+import com.salex.telegram.infrastructure.database.ConnectionProvider;
+import com.salex.telegram.infrastructure.database.DatabaseHealthMonitor;
+import com.salex.telegram.user.UserRecord;
+import com.salex.telegram.user.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class FailoverUserServiceTest {
+
+    private final UserService primary = mock(UserService.class);
+    private final DatabaseHealthMonitor monitor =
+            new DatabaseHealthMonitor(mock(ConnectionProvider.class), 1, Duration.ofHours(1));
+
+    @AfterEach
+    void tearDown() {
+        monitor.close();
+    }
+
+    @Test
+    void keepsDatabaseIdsOfUsersResolvedBeforeTheOutage() throws Exception {
+        User alice = telegramUser(7L, "alice");
+        when(primary.ensureUser(alice)).thenReturn(new UserRecord(42L, 7L, "alice", "alice", null));
+        FailoverUserService service = new FailoverUserService(primary, monitor);
+        service.ensureUser(alice);
+
+        monitor.reportFailure(new SQLException("refused", "08001"));
+
+        assertThat(service.ensureUser(alice).id()).isEqualTo(42L);
+        assertThat(service.findByTelegramId(7L)).map(UserRecord::id).hasValue(42L);
+        verify(primary).ensureUser(alice);
+        verifyNoMoreInteractions(primary);
+    }
+
+    @Test
+    void forgetsResolvedUsersBeyondTheBound() throws Exception {
+        User alice = telegramUser(7L, "alice");
+        User bob = telegramUser(8L, "bob");
+        when(primary.ensureUser(alice)).thenReturn(new UserRecord(42L, 7L, "alice", "alice", null));
+        when(primary.ensureUser(bob)).thenReturn(new UserRecord(43L, 8L, "bob", "bob", null));
+        FailoverUserService service = new FailoverUserService(primary, monitor, 1, Duration.ofHours(1));
+        service.ensureUser(alice);
+        service.ensureUser(bob);
+
+        monitor.reportFailure(new SQLException("refused", "08001"));
+
+        assertThat(service.ensureUser(alice).id()).isEqualTo(-7L);
+        assertThat(service.ensureUser(bob).id()).isEqualTo(43L);
+    }
+
+    @Test
+    void reconcileInsertsUsersFirstSeenDuringTheOutage() throws Exception {
+        monitor.reportFailure(new SQLException("refused", "08001"));
+        FailoverUserService service = new FailoverUserService(primary, monitor);
+        UserRecord provisional = service.ensureUser(telegramUser(7L, "alice"));
+        when(primary.ensureUser(any())).thenReturn(new UserRecord(42L, 7L, "alice", "alice", null));
+
+        service.reconcile();
+        service.reconcile();
+
+        assertThat(provisional.id()).isEqualTo(-7L);
+        verify(primary).ensureUser(any());
+    }
+
+    @Test
+    void idResolverRefusesUsersNotWrittenYet() throws Exception {
+        monitor.reportFailure(new SQLException("refused", "08001"));
+        FailoverUserService service = new FailoverUserService(primary, monitor);
+        service.ensureUser(telegramUser(7L, "alice"));
+
+        assertThat(FailoverUserService.idResolver(service).resolve(5L)).isEqualTo(5L);
+        assertThatThrownBy(() -> FailoverUserService.idResolver(service).resolve(-7L))
+                .isInstanceOf(SQLException.class);
+    }
+
+    @Test
+    void propagatesFailuresThatAreNotConnectionFailures() throws Exception {
+        User alice = telegramUser(7L, "alice");
+        when(primary.ensureUser(alice)).thenThrow(new SQLException("constraint", "23505"));
+        FailoverUserService service = new FailoverUserService(primary, monitor);
+
+        assertThatThrownBy(() -> service.ensureUser(alice)).isInstanceOf(SQLException.class);
+        assertThat(monitor.isAvailable()).isTrue();
+    }
+
+    private static User telegramUser(long id, String name) {
+        User user = new User();
+        user.setId(id);
+        user.setUserName(name);
+        user.setFirstName(name);
+        return user;
+    }
+}
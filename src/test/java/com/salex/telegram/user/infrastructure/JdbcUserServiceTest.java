@@ -0,0 +1,126 @@
+package com.salex.telegram.user.infrastructure;
+
+import com.salex.telegram.infrastructure.database.ConnectionProvider;
+import com.salex.telegram.user.UserRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the service against a stubbed connection that records every prepared statement and answers queries from
+ * a queue of canned result rows.
+ */
+class JdbcUserServiceTest {
+
+    private final List<String> prepared = new ArrayList<>();
+    private final List<PreparedStatement> statements = new ArrayList<>();
+    private final Deque<List<UserRecord>> results = new ArrayDeque<>();
+    private JdbcUserService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            prepared.add(invocation.getArgument(0));
+            PreparedStatement statement = mock(PreparedStatement.class);
+            when(statement.executeQuery()).thenAnswer(query -> resultSet(results.isEmpty() ? List.of() : results.poll()));
+            statements.add(statement);
+            return statement;
+        });
+        ConnectionProvider connectionProvider = mock(ConnectionProvider.class);
+        when(connectionProvider.getConnection()).thenReturn(connection);
+        service = new JdbcUserService(connectionProvider, 100, Duration.ofHours(1));
+    }
+
+    @Test
+    void unchangedProfileIsServedFromTheCache() throws Exception {
+        results.add(List.of(new UserRecord(42L, 7L, "alice", null, null)));
+
+        UserRecord first = service.ensureUser(telegramUser(7L, "alice"));
+        UserRecord second = service.ensureUser(telegramUser(7L, "alice"));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(service.findByTelegramId(7L)).contains(first);
+        assertThat(prepared).hasSize(1);
+        assertThat(service.cacheStats().hits()).isEqualTo(2);
+    }
+
+    @Test
+    void changedProfileIsUpserted() throws Exception {
+        results.add(List.of(new UserRecord(42L, 7L, "alice", null, null)));
+        results.add(List.of(new UserRecord(42L, 7L, "alice_new", null, null)));
+        service.ensureUser(telegramUser(7L, "alice"));
+
+        UserRecord renamed = service.ensureUser(telegramUser(7L, "alice_new"));
+
+        assertThat(renamed.username()).isEqualTo("alice_new");
+        assertThat(prepared).hasSize(2).allSatisfy(sql -> assertThat(sql).startsWith("WITH upserted AS"));
+        verify(statements.get(1)).setString(2, "alice_new");
+    }
+
+    @Test
+    void readsTheRowBackWhenTheUpsertReturnsNothing() throws Exception {
+        results.add(List.of());
+        results.add(List.of(new UserRecord(42L, 7L, "alice", null, null)));
+
+        UserRecord user = service.ensureUser(telegramUser(7L, "alice"));
+
+        assertThat(user.id()).isEqualTo(42L);
+        assertThat(prepared).hasSize(2);
+        assertThat(prepared.get(1)).contains("WHERE telegram_id=?");
+    }
+
+    @Test
+    void batchUpsertsOnlyStaleUsersAndReadsUntouchedOnesBack() throws Exception {
+        results.add(List.of(new UserRecord(42L, 7L, "alice", null, null)));
+        service.ensureUser(telegramUser(7L, "alice"));
+        // The batch upsert only returns the changed row; the unchanged one comes from the follow-up select.
+        results.add(List.of(new UserRecord(43L, 8L, "bob", null, null)));
+        results.add(List.of(new UserRecord(44L, 9L, "carol", null, null)));
+
+        Map<Long, UserRecord> users = service.ensureUsers(List.of(
+                telegramUser(7L, "alice"), telegramUser(8L, "bob"), telegramUser(9L, "carol"), telegramUser(8L, "bob")));
+
+        assertThat(users).containsOnlyKeys(7L, 8L, 9L);
+        assertThat(users.get(7L).id()).isEqualTo(42L);
+        assertThat(users.get(9L).id()).isEqualTo(44L);
+        assertThat(prepared).hasSize(3);
+        assertThat(prepared.get(1)).startsWith("INSERT INTO users");
+        assertThat(prepared.get(2)).contains("ANY(?)");
+    }
+
+    private static ResultSet resultSet(List<UserRecord> rows) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        int[] row = {-1};
+        when(rs.next()).thenAnswer(invocation -> ++row[0] < rows.size());
+        when(rs.getLong("id")).thenAnswer(invocation -> rows.get(row[0]).id());
+        when(rs.getLong("telegram_id")).thenAnswer(invocation -> rows.get(row[0]).telegramId());
+        when(rs.getString("username")).thenAnswer(invocation -> rows.get(row[0]).username());
+        when(rs.getString("first_name")).thenAnswer(invocation -> rows.get(row[0]).firstName());
+        when(rs.getString("last_name")).thenAnswer(invocation -> rows.get(row[0]).lastName());
+        return rs;
+    }
+
+    private static User telegramUser(long id, String username) {
+        User user = new User();
+        user.setId(id);
+        user.setUserName(username);
+        return user;
+    }
+}